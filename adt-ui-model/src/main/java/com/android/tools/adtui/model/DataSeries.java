@@ -23,4 +23,13 @@ import java.util.List;
 public interface DataSeries<E> {
 
   List<SeriesData<E>> getDataForRange(Range range);
+
+  /**
+   * Returns the data for the range at a resolution of about {@code maxPointCount} points, e.g. the width in pixels of the chart showing it.
+   * Series that can aggregate their data (see {@link LongDataSeries}) return fewer points than {@link #getDataForRange(Range)} when the
+   * range has more points than that, others return all of them.
+   */
+  default List<SeriesData<E>> getDataForRange(Range range, int maxPointCount) {
+    return getDataForRange(range);
+  }
 }
@@ -38,6 +38,18 @@ public class LineChartModel extends AspectModel<LineChartModel.Aspect> implement
    */
   private boolean myFirstUpdate = true;
 
+  /**
+   * Number of points the chart drawing this model can make use of, see {@link RangedSeries#getSeries(int)}. Zero until the chart sets it,
+   * in which case series are queried at full resolution.
+   */
+  private int myMaxPointCount;
+
+  /**
+   * The data each series returned at {@link #myMaxPointCount} during the last update, which the chart reuses when it draws the same range.
+   * In particular, ranges ending at Long.MAX_VALUE bypass the cache of {@link RangedSeries}, so this avoids querying them twice per frame.
+   */
+  @NotNull private final Map<RangedContinuousSeries, QueriedSeries> myQueriedSeries = new HashMap<>();
+
   @Override
   public void update(long elapsedNs) {
     Map<Range, Double> maxPerRangeObject = new HashMap<>();
@@ -47,7 +59,16 @@ public class LineChartModel extends AspectModel<LineChartModel.Aspect> implement
       Range range = ranged.getYRange();
       double yMax = -Double.MAX_VALUE;
 
-      List<SeriesData<Long>> seriesList = ranged.getSeries();
+      // Series at a given resolution keep the minimum and maximum of the data they merge, so the max is the same as at full resolution.
+      List<SeriesData<Long>> seriesList;
+      if (myMaxPointCount > 0) {
+        Range queryRange = ranged.getIntersection();
+        seriesList = ranged.getSeries(myMaxPointCount);
+        myQueriedSeries.put(ranged, new QueriedSeries(queryRange, myMaxPointCount, seriesList));
+      }
+      else {
+        seriesList = ranged.getSeries();
+      }
       if (seriesList.isEmpty()) {
         continue;
       }
@@ -98,10 +119,42 @@ public class LineChartModel extends AspectModel<LineChartModel.Aspect> implement
   public void remove(@NotNull RangedContinuousSeries series) {
     series.getXRange().removeDependencies(this);
     mySeries.remove(series);
+    myQueriedSeries.remove(series);
   }
 
   @NotNull
   public List<RangedContinuousSeries> getSeries() {
     return mySeries;
   }
+
+  /**
+   * Sets the number of points the chart drawing this model can make use of, e.g. a few per pixel of its width.
+   */
+  public void setMaxPointCount(int maxPointCount) {
+    myMaxPointCount = maxPointCount;
+  }
+
+  /**
+   * Returns the data of the series at the given resolution, reusing the data queried by the last update if its range didn't change since.
+   */
+  @NotNull
+  public List<SeriesData<Long>> getSeries(@NotNull RangedContinuousSeries series, int maxPointCount) {
+    QueriedSeries queried = myQueriedSeries.get(series);
+    if (queried != null && queried.myMaxPointCount == maxPointCount && queried.myRange.isSameAs(series.getIntersection())) {
+      return queried.myData;
+    }
+    return series.getSeries(maxPointCount);
+  }
+
+  private static final class QueriedSeries {
+    @NotNull private final Range myRange;
+    private final int myMaxPointCount;
+    @NotNull private final List<SeriesData<Long>> myData;
+
+    private QueriedSeries(@NotNull Range range, int maxPointCount, @NotNull List<SeriesData<Long>> data) {
+      myRange = range;
+      myMaxPointCount = maxPointCount;
+      myData = data;
+    }
+  }
 }
@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A {@link DataSeries} of long values stored in primitive arrays, instead of one {@link SeriesData} and boxed {@link Long} per point as
+ * in {@link DefaultDataSeries}.
+ * <p>
+ * Data is append-only. {@link #getDataForRange(Range)} and {@link #getAllData()} return read-only views backed by the arrays, which remain
+ * valid as data is added. A view creates the {@link SeriesData} of a point the first time it is read and returns that same instance
+ * afterwards, so a chart reading a cached view on every frame doesn't allocate. Code that only needs the numbers can read them without
+ * any allocation through {@link #getX(int)} and {@link #getValue(int)}. {@link #getDataForRange(Range)} and
+ * {@link #getNearestXIndex(long)} binary search the data, so they require it to be added in ascending x order.
+ * <p>
+ * The series also maintains a min/max pyramid over its data, so {@link #getDataForRange(Range, int)} can return a number of points
+ * proportional to the requested resolution (e.g. a chart's width in pixels) instead of to the number of points within the range, while
+ * keeping the minimum and maximum values of every part of the range.
+ */
+public class LongDataSeries implements DataSeries<Long> {
+  private static final int DEFAULT_CAPACITY = 16;
+
+  @NotNull private long[] myXs;
+  @NotNull private long[] myValues;
+  private int mySize;
+
+  /**
+   * Level {@code l} of the pyramid is stored at index {@code l - 1} and has one bucket per 2^l consecutive points, holding the indices of
+   * the bucket's minimum and maximum values. A bucket is added once its last point is added, which costs amortized O(1) per point.
+   */
+  @NotNull private int[][] myMinIndices = new int[0][];
+  @NotNull private int[][] myMaxIndices = new int[0][];
+
+  public LongDataSeries() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param initialCapacity number of points to allocate space for, e.g. the number of samples in the response the series is built from.
+   */
+  public LongDataSeries(int initialCapacity) {
+    myXs = new long[Math.max(initialCapacity, 1)];
+    myValues = new long[myXs.length];
+  }
+
+  public void add(long x, long value) {
+    if (mySize == myXs.length) {
+      int capacity = myXs.length * 2;
+      myXs = Arrays.copyOf(myXs, capacity);
+      myValues = Arrays.copyOf(myValues, capacity);
+    }
+    myXs[mySize] = x;
+    myValues[mySize] = value;
+    mySize++;
+    updatePyramid();
+  }
+
+  /**
+   * Completes the buckets of every level ending at the last added point, each one from the two buckets of the level below.
+   */
+  private void updatePyramid() {
+    for (int level = 1; level < Integer.SIZE - 1 && (mySize & ((1 << level) - 1)) == 0; level++) {
+      int bucket = (mySize >> level) - 1;
+      int leftMin, leftMax, rightMin, rightMax;
+      if (level == 1) {
+        leftMin = leftMax = bucket * 2;
+        rightMin = rightMax = bucket * 2 + 1;
+      }
+      else {
+        leftMin = myMinIndices[level - 2][bucket * 2];
+        leftMax = myMaxIndices[level - 2][bucket * 2];
+        rightMin = myMinIndices[level - 2][bucket * 2 + 1];
+        rightMax = myMaxIndices[level - 2][bucket * 2 + 1];
+      }
+      ensureBucketCapacity(level, bucket);
+      myMinIndices[level - 1][bucket] = myValues[rightMin] < myValues[leftMin] ? rightMin : leftMin;
+      myMaxIndices[level - 1][bucket] = myValues[rightMax] > myValues[leftMax] ? rightMax : leftMax;
+    }
+  }
+
+  private void ensureBucketCapacity(int level, int bucket) {
+    if (myMinIndices.length < level) {
+      myMinIndices = Arrays.copyOf(myMinIndices, level);
+      myMaxIndices = Arrays.copyOf(myMaxIndices, level);
+      myMinIndices[level - 1] = new int[DEFAULT_CAPACITY];
+      myMaxIndices[level - 1] = new int[DEFAULT_CAPACITY];
+    }
+    if (myMinIndices[level - 1].length <= bucket) {
+      int capacity = Math.max(bucket + 1, myMinIndices[level - 1].length * 2);
+      myMinIndices[level - 1] = Arrays.copyOf(myMinIndices[level - 1], capacity);
+      myMaxIndices[level - 1] = Arrays.copyOf(myMaxIndices[level - 1], capacity);
+    }
+  }
+
+  public int size() {
+    return mySize;
+  }
+
+  public long getX(int index) {
+    assert index < mySize;
+    return myXs[index];
+  }
+
+  public long getValue(int index) {
+    assert index < mySize;
+    return myValues[index];
+  }
+
+  /**
+   * Returns the points from the one at or right before the range's min, to the one at or right before its max, following the same
+   * semantics as {@link DefaultDataSeries#getDataForRange(Range)}.
+   */
+  @Override
+  @NotNull
+  public List<SeriesData<Long>> getDataForRange(@NotNull Range range) {
+    if (mySize == 0 || range.isEmpty()) {
+      return new View(0, 0);
+    }
+    int fromIndex = getNearestXIndex((long)range.getMin());
+    int toIndex = getNearestXIndex((long)range.getMax()) + 1;
+    return new View(fromIndex, toIndex);
+  }
+
+  /**
+   * Same as {@link #getDataForRange(Range)}, but if the range has more than {@code maxPointCount} points, consecutive points are merged
+   * into their minimum and maximum values, using the coarsest pyramid level that keeps the result within about {@code maxPointCount}
+   * points. The first and last points of the range are always kept.
+   */
+  @Override
+  @NotNull
+  public List<SeriesData<Long>> getDataForRange(@NotNull Range range, int maxPointCount) {
+    if (mySize == 0 || range.isEmpty()) {
+      return new View(0, 0);
+    }
+    int fromIndex = getNearestXIndex((long)range.getMin());
+    int toIndex = getNearestXIndex((long)range.getMax()) + 1;
+    return downsample(fromIndex, toIndex, maxPointCount);
+  }
+
+  @NotNull
+  public List<SeriesData<Long>> getAllData() {
+    return new View(0, mySize);
+  }
+
+  /**
+   * Same as {@link #getAllData()}, with the resolution of {@link #getDataForRange(Range, int)}.
+   */
+  @NotNull
+  public List<SeriesData<Long>> getAllData(int maxPointCount) {
+    return downsample(0, mySize, maxPointCount);
+  }
+
+  @NotNull
+  private List<SeriesData<Long>> downsample(int fromIndex, int toIndex, int maxPointCount) {
+    int count = toIndex - fromIndex;
+    if (count <= Math.max(maxPointCount, 2) || myMinIndices.length == 0) {
+      return new View(fromIndex, toIndex);
+    }
+    // Every bucket contributes up to two points, so pick the finest level that keeps the result within the budget.
+    int maxLevel = 1;
+    while (maxLevel < myMinIndices.length && (count >> maxLevel) * 2 > maxPointCount) {
+      maxLevel++;
+    }
+
+    int[] indices = new int[Math.min(count, 2 * (count >> maxLevel) + 4 * maxLevel + 2)];
+    int indexCount = 0;
+    indices[indexCount++] = fromIndex;
+    int end = toIndex - 1;
+    int index = fromIndex + 1;
+    while (index < end) {
+      // Use the largest bucket that starts at this index and fits in the range. Edges of the range fall back to smaller buckets.
+      int level = Math.min(maxLevel, Integer.numberOfTrailingZeros(index));
+      while (level > 0 && index + (1 << level) > end) {
+        level--;
+      }
+      if (indices.length < indexCount + 3) {
+        indices = Arrays.copyOf(indices, indices.length * 2);
+      }
+      if (level == 0) {
+        indices[indexCount++] = index++;
+        continue;
+      }
+      int bucket = index >> level;
+      int min = myMinIndices[level - 1][bucket];
+      int max = myMaxIndices[level - 1][bucket];
+      indices[indexCount++] = Math.min(min, max);
+      if (min != max) {
+        indices[indexCount++] = Math.max(min, max);
+      }
+      index += 1 << level;
+    }
+    if (indices.length < indexCount + 1) {
+      indices = Arrays.copyOf(indices, indexCount + 1);
+    }
+    indices[indexCount++] = end;
+    return new IndexedView(indices, indexCount);
+  }
+
+  /**
+   * @return the index of the point at x, or of the last point before x. Values out of the data are clamped to the first or last index.
+   */
+  public int getNearestXIndex(long x) {
+    int index = Arrays.binarySearch(myXs, 0, mySize, x);
+    if (index < 0) {
+      // No exact match, step to the point before the insertion point (see DefaultDataSeries#getNearestXIndex).
+      index = -index - 2;
+    }
+    return Math.max(0, Math.min(index, mySize - 1));
+  }
+
+  @SuppressWarnings("unchecked")
+  @NotNull
+  private static SeriesData<Long>[] newDataArray(int size) {
+    return (SeriesData<Long>[])new SeriesData[size];
+  }
+
+  /**
+   * A view of the points at the given indices.
+   */
+  private final class IndexedView extends AbstractList<SeriesData<Long>> implements RandomAccess {
+    @NotNull private final long[] myViewXs = myXs;
+    @NotNull private final long[] myViewValues = myValues;
+    @NotNull private final int[] myIndices;
+    private final int myIndexCount;
+
+    private IndexedView(@NotNull int[] indices, int size) {
+      myIndices = indices;
+      myIndexCount = size;
+    }
+
+    @Nullable private SeriesData<Long>[] myData;
+
+    @Override
+    public SeriesData<Long> get(int index) {
+      if (index < 0 || index >= myIndexCount) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + myIndexCount);
+      }
+      if (myData == null) {
+        myData = newDataArray(myIndexCount);
+      }
+      if (myData[index] == null) {
+        myData[index] = new SeriesData<>(myViewXs[myIndices[index]], myViewValues[myIndices[index]]);
+      }
+      return myData[index];
+    }
+
+    @Override
+    public int size() {
+      return myIndexCount;
+    }
+  }
+
+  private final class View extends AbstractList<SeriesData<Long>> implements RandomAccess {
+    // Data is append-only, so holding on to the current arrays keeps the view consistent even if the series grows afterwards.
+    @NotNull private final long[] myViewXs = myXs;
+    @NotNull private final long[] myViewValues = myValues;
+    private final int myFromIndex;
+    private final int myToIndex;
+
+    private View(int fromIndex, int toIndex) {
+      myFromIndex = fromIndex;
+      myToIndex = toIndex;
+    }
+
+    @Nullable private SeriesData<Long>[] myData;
+
+    @Override
+    public SeriesData<Long> get(int index) {
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+      }
+      if (myData == null) {
+        myData = newDataArray(size());
+      }
+      if (myData[index] == null) {
+        myData[index] = new SeriesData<>(myViewXs[myFromIndex + index], myViewValues[myFromIndex + index]);
+      }
+      return myData[index];
+    }
+
+    @Override
+    public int size() {
+      return myToIndex - myFromIndex;
+    }
+
+    @Override
+    @NotNull
+    public List<SeriesData<Long>> subList(int fromIndex, int toIndex) {
+      if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+        throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + size());
+      }
+      return new View(myFromIndex + fromIndex, myFromIndex + toIndex);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import java.util.List;
+import java.util.function.Function;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Accumulates the data a series fetches (e.g. through an RPC) for successive ranges into a single {@link LongDataSeries}, to answer
+ * {@link DataSeries#getDataForRange(Range, int)} queries.
+ * <p>
+ * Charts query a range that slides forward on every frame. Instead of fetching the whole range and building the min/max pyramid of a
+ * new {@link LongDataSeries} each time, only the data after the last point already held is fetched and appended, which updates the
+ * pyramid incrementally. Data is assumed to arrive in x order and to never change once it was fetched. The accumulated data is only
+ * discarded when a range starting before it is queried.
+ */
+public final class LongDataSeriesCache {
+  @NotNull private final Function<Range, LongDataSeries> myFetcher;
+  private final long myPadding;
+
+  @NotNull private LongDataSeries myData = new LongDataSeries();
+  private double myDataMin;
+
+  /**
+   * @param fetcher returns the data of the given range, in x order. It may include points outside of it.
+   * @param padding how far outside of a queried range points are returned, so a line can be drawn up to the edges of the range.
+   */
+  public LongDataSeriesCache(@NotNull Function<Range, LongDataSeries> fetcher, long padding) {
+    myFetcher = fetcher;
+    myPadding = padding;
+  }
+
+  @NotNull
+  public synchronized List<SeriesData<Long>> getDataForRange(@NotNull Range range, int maxPointCount) {
+    if (range.isEmpty()) {
+      return myFetcher.apply(range).getAllData(maxPointCount);
+    }
+    if (myData.size() == 0 || range.getMin() < myDataMin) {
+      myData = myFetcher.apply(range);
+      myDataMin = range.getMin();
+    }
+    else {
+      long lastX = myData.getX(myData.size() - 1);
+      if (range.getMax() > lastX) {
+        LongDataSeries newData = myFetcher.apply(new Range(lastX, range.getMax()));
+        for (int i = 0; i < newData.size(); i++) {
+          if (newData.getX(i) > lastX) {
+            myData.add(newData.getX(i), newData.getValue(i));
+          }
+        }
+      }
+    }
+    // Saturate, as live ranges end at Long.MAX_VALUE.
+    double min = range.getMin() - myPadding;
+    double max = range.getMax() >= Long.MAX_VALUE - myPadding ? Long.MAX_VALUE : range.getMax() + myPadding;
+    return myData.getDataForRange(new Range(min, max), maxPointCount);
+  }
+}
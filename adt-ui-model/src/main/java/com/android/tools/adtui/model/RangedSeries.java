@@ -40,6 +40,11 @@ public class RangedSeries<E> {
   @NotNull private Range myLastQueriedRange = new Range();
   @NotNull private List<SeriesData<E>> myLastQueriedSeries = Collections.emptyList();
 
+  // Cached separately from full resolution queries, as a chart and e.g. its legend or tooltip query the same range at each update.
+  @NotNull private Range myLastResolutionQueriedRange = new Range();
+  @NotNull private List<SeriesData<E>> myLastResolutionQueriedSeries = Collections.emptyList();
+  private int myLastQueriedMaxPointCount;
+
   /**
    * Creates a new RangedSeries with the {@link DataSeries} object scoped by view and data {@link Range} objects. getSeries will return
    * a series that is the intersection of our view and data ranges.
@@ -88,6 +93,27 @@ public class RangedSeries<E> {
     return myLastQueriedSeries;
   }
 
+  /**
+   * Same as {@link #getSeries()}, but at the resolution of {@link DataSeries#getDataForRange(Range, int)}.
+   *
+   * @param maxPointCount the number of points the caller can make use of, e.g. its width in pixels.
+   */
+  @NotNull
+  public List<SeriesData<E>> getSeries(int maxPointCount) {
+    Range queryRange = myRange.getIntersection(myIntersectRange);
+    if (queryRange.getMax() == Long.MAX_VALUE || queryRange.getMax() == Double.MAX_VALUE) {
+      return mySeries.getDataForRange(queryRange, maxPointCount);
+    }
+
+    if (myLastResolutionQueriedRange.isSameAs(queryRange) && myLastQueriedMaxPointCount == maxPointCount) {
+      return myLastResolutionQueriedSeries;
+    }
+    myLastResolutionQueriedSeries = mySeries.getDataForRange(queryRange, maxPointCount);
+    myLastResolutionQueriedRange = queryRange;
+    myLastQueriedMaxPointCount = maxPointCount;
+    return myLastResolutionQueriedSeries;
+  }
+
   /**
    * @param range The range to which the data will be scoped.
    * @return A new, immutable {@link SeriesDataList} that allows the caller to get items in the DataStore scoped to the given range.
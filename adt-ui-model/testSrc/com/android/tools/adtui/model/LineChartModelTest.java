@@ -18,6 +18,8 @@ package com.android.tools.adtui.model;
 import com.android.tools.adtui.model.updater.Updater;
 import org.junit.Test;
 
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 public class LineChartModelTest {
@@ -144,4 +146,47 @@ public class LineChartModelTest {
     assertTrue(updated[0]);
     // TODO(b/80503984) We can't assert range max is at 7L since it needs many steps to interpolate.
   }
+
+  @Test
+  public void testChartReusesDataQueriedByUpdate() {
+    Range xRange = new Range(0, Long.MAX_VALUE);
+    Range yRange = new Range(0, 0);
+    int[] queryCount = {0};
+    LongDataSeries data = new LongDataSeries();
+    for (int i = 0; i < 1000; i++) {
+      data.add(i, i == 500 ? 1000 : i % 10);
+    }
+    DataSeries<Long> testSeries = new DataSeries<Long>() {
+      @Override
+      public List<SeriesData<Long>> getDataForRange(Range range) {
+        queryCount[0]++;
+        return data.getDataForRange(range);
+      }
+
+      @Override
+      public List<SeriesData<Long>> getDataForRange(Range range, int maxPointCount) {
+        queryCount[0]++;
+        return data.getDataForRange(range, maxPointCount);
+      }
+    };
+    RangedContinuousSeries rangedSeries = new RangedContinuousSeries("test", xRange, yRange, testSeries);
+    FakeTimer t = new FakeTimer();
+    Updater updater = new Updater(t);
+
+    LineChartModel model = new LineChartModel();
+    model.add(rangedSeries);
+    model.setMaxPointCount(100);
+    updater.register(model);
+
+    t.step();
+    // The reduced data keeps the spike.
+    assertEquals(1000, yRange.getMax(), 0);
+    assertEquals(1, queryCount[0]);
+    List<SeriesData<Long>> queried = model.getSeries(rangedSeries, 100);
+    assertTrue(queried.size() < 1000);
+    // The live range isn't cached by the RangedSeries, but the chart still gets the data queried by the update.
+    assertEquals(1, queryCount[0]);
+    model.getSeries(rangedSeries, 200);
+    assertEquals(2, queryCount[0]);
+  }
 }
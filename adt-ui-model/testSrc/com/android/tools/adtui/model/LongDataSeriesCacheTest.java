@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class LongDataSeriesCacheTest {
+  private static final long PADDING = 5;
+
+  private final List<Range> myFetchedRanges = new ArrayList<>();
+  // Data available at x = 0, 10, 20, ... up to myAvailableMax.
+  private long myAvailableMax = 100;
+
+  private final LongDataSeriesCache myCache = new LongDataSeriesCache(this::fetch, PADDING);
+
+  private LongDataSeries fetch(Range range) {
+    myFetchedRanges.add(range);
+    LongDataSeries series = new LongDataSeries();
+    for (long x = 0; x <= myAvailableMax; x += 10) {
+      if (x >= range.getMin() - PADDING && x <= range.getMax() + PADDING) {
+        series.add(x, x / 10);
+      }
+    }
+    return series;
+  }
+
+  @Test
+  public void slidingRangeOnlyFetchesNewData() {
+    assertThat(xs(myCache.getDataForRange(new Range(0, 100), 100))).containsExactly(0L, 10L, 20L, 30L, 40L, 50L, 60L, 70L, 80L, 90L, 100L)
+      .inOrder();
+
+    myAvailableMax = 200;
+    // As with LongDataSeries, the point right before the (padded) range is included.
+    assertThat(xs(myCache.getDataForRange(new Range(100, 200), 100))).containsExactly(90L, 100L, 110L, 120L, 130L, 140L, 150L, 160L, 170L,
+                                                                                       180L, 190L, 200L).inOrder();
+    // Only the data after the last cached point was fetched.
+    assertThat(myFetchedRanges.get(1).getMin()).isWithin(0).of(100);
+
+    // Ranges within the cached data don't fetch anything.
+    myCache.getDataForRange(new Range(50, 150), 100);
+    assertThat(myFetchedRanges).hasSize(2);
+  }
+
+  @Test
+  public void rangeBeforeCachedDataRefetches() {
+    myCache.getDataForRange(new Range(50, 100), 100);
+    assertThat(xs(myCache.getDataForRange(new Range(0, 30), 100))).containsExactly(0L, 10L, 20L, 30L).inOrder();
+    assertThat(myFetchedRanges).hasSize(2);
+  }
+
+  @Test
+  public void resolutionIsApplied() {
+    myAvailableMax = 100_000;
+    assertThat(myCache.getDataForRange(new Range(0, 100_000), 100).size()).isLessThan(200);
+  }
+
+  private static List<Long> xs(List<SeriesData<Long>> data) {
+    List<Long> xs = new ArrayList<>();
+    for (SeriesData<Long> point : data) {
+      xs.add(point.x);
+    }
+    return xs;
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class LongDataSeriesTest {
+
+  @Test
+  public void testGetDataForRangeMatchesDefaultDataSeries() {
+    LongDataSeries series = new LongDataSeries(2);
+    DefaultDataSeries<Long> defaultSeries = new DefaultDataSeries<>();
+    for (int i = 0; i < 100; i++) {
+      series.add(i * 10, i);
+      defaultSeries.add(i * 10, (long)i);
+    }
+
+    Range[] ranges = {new Range(0, 1000), new Range(15, 42), new Range(20, 20), new Range(-50, 5), new Range(990, 5000), new Range()};
+    for (Range range : ranges) {
+      assertThat(toPairs(series.getDataForRange(range))).containsExactlyElementsIn(toPairs(defaultSeries.getDataForRange(range))).inOrder();
+    }
+  }
+
+  @Test
+  public void testViewsArePrimitiveBackedAndStable() {
+    LongDataSeries series = new LongDataSeries();
+    series.add(1, 10);
+    series.add(2, 20);
+    List<SeriesData<Long>> all = series.getAllData();
+
+    // Growing the series past its capacity doesn't affect existing views.
+    for (int i = 3; i < 100; i++) {
+      series.add(i, i * 10);
+    }
+    assertThat(all).hasSize(2);
+    assertThat(all.get(1).x).isEqualTo(2);
+    assertThat(all.get(1).value).isEqualTo(20);
+
+    List<SeriesData<Long>> range = series.getDataForRange(new Range(10, 20));
+    assertThat(range).hasSize(11);
+    assertThat(range.subList(1, 3).stream().map(data -> data.value).collect(Collectors.toList())).containsExactly(110L, 120L).inOrder();
+    assertThat(series.getNearestXIndex(0)).isEqualTo(0);
+    assertThat(series.getNearestXIndex(1000)).isEqualTo(98);
+  }
+
+  @Test
+  public void testViewsReuseTheirSeriesData() {
+    LongDataSeries series = new LongDataSeries();
+    for (int i = 0; i < 1000; i++) {
+      series.add(i, i % 10);
+    }
+    List<SeriesData<Long>> all = series.getAllData();
+    assertThat(all.get(5)).isSameAs(all.get(5));
+    List<SeriesData<Long>> reduced = series.getAllData(100);
+    assertThat(reduced.get(3)).isSameAs(reduced.get(3));
+  }
+
+  @Test
+  public void testLevelOfDetailKeepsEdgesAndExtremes() {
+    LongDataSeries series = new LongDataSeries();
+    int count = 10_000;
+    for (int i = 0; i < count; i++) {
+      // A sawtooth with a single spike, which must survive downsampling.
+      series.add(i, i == 4321 ? 1000 : i % 10);
+    }
+
+    Range range = new Range(123, 9876);
+    List<SeriesData<Long>> full = series.getDataForRange(range);
+    List<SeriesData<Long>> reduced = series.getDataForRange(range, 200);
+    assertThat(reduced.size()).isAtMost(200 + 4 * 32);
+    assertThat(reduced.get(0).x).isEqualTo(full.get(0).x);
+    assertThat(reduced.get(reduced.size() - 1).x).isEqualTo(full.get(full.size() - 1).x);
+    assertThat(reduced.stream().map(data -> data.value).collect(Collectors.toList())).containsAllOf(0L, 9L, 1000L);
+    // Points stay in x order.
+    for (int i = 1; i < reduced.size(); i++) {
+      assertThat(reduced.get(i).x).isGreaterThan(reduced.get(i - 1).x);
+    }
+
+    // Enough resolution returns all the data.
+    assertThat(toPairs(series.getDataForRange(range, full.size()))).containsExactlyElementsIn(toPairs(full)).inOrder();
+  }
+
+  @Test
+  public void testLevelOfDetailMatchesMinMaxOfEveryBucket() {
+    LongDataSeries series = new LongDataSeries();
+    for (int i = 0; i < 1000; i++) {
+      series.add(i, (i * 7919L) % 1000);
+    }
+    List<SeriesData<Long>> reduced = series.getAllData(100);
+    // Every point of the downsampled data is an actual data point.
+    for (SeriesData<Long> data : reduced) {
+      assertThat(data.value).isEqualTo((data.x * 7919L) % 1000);
+    }
+    assertThat(reduced.stream().map(data -> data.value).collect(Collectors.toList())).containsAllOf(0L, 999L);
+  }
+
+  @Test
+  public void testEmptySeries() {
+    LongDataSeries series = new LongDataSeries(0);
+    assertThat(series.getDataForRange(new Range(0, 100))).isEmpty();
+    assertThat(series.getAllData()).isEmpty();
+    assertThat(series.getAllData(10)).isEmpty();
+    assertThat(series.getDataForRange(new Range(0, 100), 10)).isEmpty();
+  }
+
+  private static List<String> toPairs(List<SeriesData<Long>> data) {
+    return data.stream().map(d -> d.x + ":" + d.value).collect(Collectors.toList());
+  }
+}
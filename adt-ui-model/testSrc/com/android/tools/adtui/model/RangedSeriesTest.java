@@ -17,6 +17,7 @@ package com.android.tools.adtui.model;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import java.util.List;
 import org.junit.Test;
 
 public class RangedSeriesTest {
@@ -67,4 +68,22 @@ public class RangedSeriesTest {
     }
     assertThat(rangedSeries.getSeries()).hasSize(100);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testGetSeriesAtResolution() {
+    Range queryRange = new Range(0, 1000);
+    LongDataSeries testSeries = new LongDataSeries();
+    for (int i = 0; i < 1000; i++) {
+      testSeries.add(i, i);
+    }
+    RangedSeries<Long> rangedSeries = new RangedSeries<>(queryRange, testSeries);
+
+    List<SeriesData<Long>> reduced = rangedSeries.getSeries(100);
+    assertThat(reduced.size()).isLessThan(200);
+    // The same resolution is cached, while a full resolution query isn't affected by it.
+    assertThat(rangedSeries.getSeries(100)).isSameAs(reduced);
+    assertThat(rangedSeries.getSeries()).hasSize(1000);
+    // Full resolution data being cached doesn't keep other resolutions from being reduced.
+    assertThat(rangedSeries.getSeries(50).size()).isLessThan(100);
+  }
+}
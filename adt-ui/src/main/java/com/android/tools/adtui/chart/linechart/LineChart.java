@@ -62,6 +62,12 @@ public class LineChart extends AnimatedComponent {
    */
   private static final double BUCKET_BAR_PERCENTAGE = 0.7;
 
+  /**
+   * Number of points per pixel requested from series that support level of detail (see {@link RangedContinuousSeries#getSeries(int)}).
+   * The reducer keeps up to four points per pixel (first, last, min and max), so this is enough for the reduced path to look the same.
+   */
+  private static final int POINTS_PER_PIXEL = 4;
+
   @NotNull final LineChartModel myModel;
 
   /**
@@ -178,6 +184,9 @@ public class LineChart extends AnimatedComponent {
 
   private void redraw(@NotNull Dimension dim) {
     long duration = System.nanoTime();
+    if (dim.width > 0) {
+      myModel.setMaxPointCount(dim.width * POINTS_PER_PIXEL);
+    }
 
     // Store the last stacked series to use them to increment the Y values
     // of the current stacked series.
@@ -193,7 +202,10 @@ public class LineChart extends AnimatedComponent {
       }
       final LineConfig config = getLineConfig(ranged);
 
-      List<SeriesData<Long>> seriesList = ranged.getSeries();
+      // Stacked series rely on the x values of all series being aligned, and bars on every data point, so they get all the data.
+      boolean useLevelOfDetail = !config.isStacked() && config.getDataBucketInterval() == 0 && dim.width > 0;
+      List<SeriesData<Long>> seriesList =
+        useLevelOfDetail ? myModel.getSeries(ranged, dim.width * POINTS_PER_PIXEL) : ranged.getSeries();
       if (config.isStacked()) {
         if (lastStackedSeries == null) {
           // Create a new list of SeriesData to prevent modifying the backing data series, which could be cached.
@@ -425,6 +425,16 @@ public final class StudioFlags {
   public static final Flag<Boolean> KOTLIN_DSL_PARSING = Flag.create(
     GRADLE_IDE, "kotlin.dsl", "Enable parsing for Kotlin build files",
     "Enables parsing for Gradle build files written using Kotlin (.gradle.kts)", false);
+  public static final Flag<Boolean> GRADLE_DSL_PARALLEL_PARSING = Flag.create(
+    GRADLE_IDE, "dsl.parallel.parsing", "Load the syntax trees of Gradle build files in parallel",
+    "If enabled, loading the build files of all the modules of a project first loads their syntax trees concurrently, then builds " +
+    "their models one at a time. The number of threads is set by the gradle.dsl.parsing.threads system property.",
+    true);
+  public static final Flag<Boolean> INCREMENTAL_MODULE_SETUP = Flag.create(
+    GRADLE_IDE, "incremental.module.setup", "Keep the content roots of unchanged modules during sync",
+    "If enabled, sync keeps the content roots and compiler output paths of Android modules whose selected variant, source sets, " +
+    "generated folders and dependencies did not change since the last successful sync, instead of setting them up again.",
+    false);
 
   // REMOVE or change default to true after http://b/80245603 is fixed.
   public static final Flag<Boolean> L4_DEPENDENCY_MODEL = Flag.create(
@@ -705,6 +715,15 @@ public final class StudioFlags {
     "If enabled, a notification will be shown",true);
   //endregion
 
+  //region Lint
+  private static final FlagGroup LINT = new FlagGroup(FLAGS, "lint", "Android Lint");
+  public static final Flag<Boolean> LINT_PARALLEL_BATCH_ANALYSIS = Flag.create(
+    LINT, "parallel.batch.analysis", "Run batch lint on the root modules in parallel",
+    "If enabled, Inspect Code runs lint on each module that is not a library of another analyzed module, together with its " +
+    "libraries, concurrently. The number of threads is set by the lint.batch.threads system property.",
+    false);
+  //endregion
+
   //region Compose
   private static final FlagGroup COMPOSE = new FlagGroup(FLAGS, "compose", "Compose");
   public static final Flag<Boolean> COMPOSE_PREVIEW = Flag.create(
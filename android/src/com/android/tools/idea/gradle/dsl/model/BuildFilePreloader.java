@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.gradle.dsl.model;
+
+import com.intellij.lang.ASTNode;
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiRecursiveElementWalkingVisitor;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Loads the syntax trees of Gradle build files concurrently, ahead of building their DSL models.
+ * <p>
+ * Building the DSL model of a file is not thread safe: the elements of a module are merged into the blocks its parents share through
+ * subprojects and allprojects, references to rootProject write to the root build file and applied files are parsed into the shared
+ * {@link com.android.tools.idea.gradle.dsl.parser.BuildModelContext}. Loading the text of each file and building its syntax tree is
+ * independent from the other files though, and is the larger part of parsing a project with many modules, so it is done here on a bounded
+ * pool before the models are built one at a time. The trees are kept reachable until the preloader is closed, as the trees of
+ * stub based files can otherwise be collected before they are used.
+ */
+final class BuildFilePreloader implements AutoCloseable {
+  private static final Logger LOG = Logger.getInstance(BuildFilePreloader.class);
+
+  private static final int THREAD_COUNT =
+    Integer.getInteger("gradle.dsl.parsing.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+  // Only held to keep the trees reachable.
+  @NotNull private List<ASTNode> myTrees;
+
+  private BuildFilePreloader(@NotNull List<ASTNode> trees) {
+    myTrees = trees;
+  }
+
+  /**
+   * Loads the syntax trees of the given files and returns once all of them are loaded. Nothing is loaded when there is no benefit in
+   * doing it concurrently, or when it could deadlock: read actions on other threads can not start while the calling thread holds the
+   * write lock, and waiting for them while holding the read lock outside of the dispatch thread blocks any pending write action, which in
+   * turn blocks these read actions.
+   */
+  @NotNull
+  static BuildFilePreloader preload(@NotNull Project project, @NotNull Collection<VirtualFile> files) {
+    Application application = ApplicationManager.getApplication();
+    if (files.size() < 2 ||
+        THREAD_COUNT < 2 ||
+        application.isWriteAccessAllowed() ||
+        (!application.isDispatchThread() && application.isReadAccessAllowed())) {
+      return new BuildFilePreloader(Collections.emptyList());
+    }
+
+    List<ASTNode> trees = new ArrayList<>(files.size());
+    ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Gradle DSL Parsing", THREAD_COUNT);
+    try {
+      List<Future<ASTNode>> futures = new ArrayList<>(files.size());
+      for (VirtualFile file : files) {
+        futures.add(executor.submit(() -> ReadAction.compute(() -> loadTree(project, file))));
+      }
+      for (Future<ASTNode> future : futures) {
+        try {
+          ASTNode tree = future.get();
+          if (tree != null) {
+            trees.add(tree);
+          }
+        }
+        catch (ExecutionException e) {
+          // The file is parsed again when its model is built, which reports the problem if there is one.
+          LOG.warn("Failed to preload Gradle build file", e.getCause());
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    return new BuildFilePreloader(trees);
+  }
+
+  @Nullable
+  private static ASTNode loadTree(@NotNull Project project, @NotNull VirtualFile file) {
+    if (project.isDisposed() || !file.isValid()) {
+      return null;
+    }
+    PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
+    if (psiFile == null) {
+      return null;
+    }
+    ASTNode tree = psiFile.getNode();
+    // Closures are parsed lazily, visiting the whole file makes sure they are parsed here rather than when the model is built.
+    psiFile.accept(new PsiRecursiveElementWalkingVisitor() {
+    });
+    return tree;
+  }
+
+  @Override
+  public void close() {
+    myTrees = Collections.emptyList();
+  }
+}
@@ -28,6 +28,8 @@ import com.android.tools.idea.gradle.dsl.parser.BuildModelContext;
 import com.android.tools.idea.gradle.dsl.parser.files.GradleBuildFile;
 import com.android.tools.idea.gradle.dsl.parser.files.GradleDslFile;
 import com.android.tools.idea.gradle.dsl.parser.files.GradleSettingsFile;
+import com.android.tools.idea.flags.StudioFlags;
+import com.google.common.collect.ImmutableList;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
@@ -177,7 +179,7 @@ public class ProjectBuildModelImpl implements ProjectBuildModel {
       return allModels;
     }
 
-    allModels.addAll(settingsModel.modulePaths().stream().map((modulePath) -> {
+    List<VirtualFile> moduleFiles = settingsModel.modulePaths().stream().map((modulePath) -> {
       // This should have already been added above
       if (modulePath.equals(":")) {
         return null;
@@ -188,13 +190,14 @@ public class ProjectBuildModelImpl implements ProjectBuildModel {
         return null;
       }
 
-      VirtualFile file = getGradleBuildFile(moduleDir);
-      if (file == null) {
-        return null;
-      }
+      return getGradleBuildFile(moduleDir);
+    }).filter(Objects::nonNull).collect(Collectors.toList());
 
-      return getModuleBuildModel(file);
-    }).filter(Objects::nonNull).collect(Collectors.toList()));
+    // Building the models is not thread safe, only the syntax trees of the files are loaded concurrently beforehand.
+    List<VirtualFile> filesToPreload = StudioFlags.GRADLE_DSL_PARALLEL_PARSING.get() ? moduleFiles : ImmutableList.of();
+    try (BuildFilePreloader ignored = BuildFilePreloader.preload(myBuildModelContext.getProject(), filesToPreload)) {
+      allModels.addAll(moduleFiles.stream().map(this::getModuleBuildModel).collect(Collectors.toList()));
+    }
     return allModels;
   }
 
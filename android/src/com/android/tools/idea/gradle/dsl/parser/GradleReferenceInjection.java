@@ -58,6 +58,8 @@ public class GradleReferenceInjection {
 
   public void resolveWith(@Nullable GradleDslElement expression) {
     myToBeInjected = expression;
+    // References that follow the origin element now resolve to something else.
+    myOriginElement.getDslFile().incrementResolutionModificationCount();
   }
 
   @Nullable
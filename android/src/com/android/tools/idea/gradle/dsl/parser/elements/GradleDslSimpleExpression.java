@@ -42,7 +42,6 @@ import java.util.*;
 import java.util.regex.Matcher;
 import java.util.stream.Collectors;
 
-import static com.android.tools.idea.gradle.dsl.model.ext.PropertyUtil.followElement;
 import static com.android.tools.idea.gradle.dsl.model.ext.PropertyUtil.isPropertiesElementOrMap;
 import static com.android.tools.idea.gradle.dsl.parser.build.BuildScriptDslElement.BUILDSCRIPT_BLOCK_NAME;
 import static com.android.tools.idea.gradle.dsl.parser.ext.ExtDslElement.EXT_BLOCK_NAME;
@@ -66,6 +65,8 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
   @NotNull private final CachedValue<GradleDslSimpleExpression> myResolvedCachedValue;
   @NotNull private final CachedValue<GradleDslSimpleExpression> myUnresolvedCachedValue;
   @NotNull private final CachedValue<GradleDslSimpleExpression> myRawCachedValue;
+  // The elements the references made by this expression resolve to, created on the first resolution.
+  @Nullable private ReferenceResolutionCache myResolutionCache;
 
   protected GradleDslSimpleExpression(@Nullable GradleDslElement parent,
                                       @Nullable PsiElement psiElement,
@@ -202,6 +203,25 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
 
   @Nullable
   public GradleDslElement resolveReference(@NotNull String referenceText, boolean resolveWithOrder) {
+    if (myResolutionCache == null) {
+      myResolutionCache = new ReferenceResolutionCache();
+    }
+    ReferenceResolutionCache.Entry entry = myResolutionCache.get(referenceText, resolveWithOrder);
+    if (entry != null) {
+      return entry.element;
+    }
+
+    ReferenceResolutionCache.Dependencies dependencies = new ReferenceResolutionCache.Dependencies();
+    dependencies.add(getDslFile());
+    GradleDslElement resolvedElement = resolveReference(referenceText, resolveWithOrder, dependencies);
+    myResolutionCache.put(referenceText, resolveWithOrder, resolvedElement, dependencies);
+    return resolvedElement;
+  }
+
+  @Nullable
+  private GradleDslElement resolveReference(@NotNull String referenceText,
+                                            boolean resolveWithOrder,
+                                            @NotNull ReferenceResolutionCache.Dependencies dependencies) {
     GradleDslElement searchStartElement = this;
 
     List<String> referenceTextSegments = Splitter.on('.').trimResults().omitEmptyStrings().splitToList(referenceText);
@@ -209,7 +229,7 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
     int segmentCount = referenceTextSegments.size();
     for (; index < segmentCount; index++) {
       // Resolve the project reference elements like parent, rootProject etc.
-      GradleDslFile dslFile = resolveProjectReference(searchStartElement, referenceTextSegments.get(index));
+      GradleDslFile dslFile = resolveProjectReference(searchStartElement, referenceTextSegments.get(index), dependencies);
       if (dslFile == null) {
         break;
       }
@@ -254,13 +274,13 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
     else {
       // Search in the file that searchStartElement belongs to.
       referenceTextSegments = referenceTextSegments.subList(index, segmentCount);
-      resolvedElement = resolveReferenceInSameModule(searchStartElement, referenceTextSegments, resolveWithOrder);
+      resolvedElement = resolveReferenceInSameModule(searchStartElement, referenceTextSegments, resolveWithOrder, dependencies);
     }
 
     GradleDslFile dslFile = searchStartElement.getDslFile();
     if (resolvedElement == null) {
       // Now look in the parent projects ext blocks.
-      resolvedElement = resolveReferenceInParentModules(dslFile, referenceTextSegments);
+      resolvedElement = resolveReferenceInParentModules(dslFile, referenceTextSegments, dependencies);
     }
 
 
@@ -276,8 +296,11 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
   }
 
   @Nullable
-  private static GradleDslFile resolveProjectReference(GradleDslElement startElement, @NotNull String projectReference) {
+  private static GradleDslFile resolveProjectReference(GradleDslElement startElement,
+                                                      @NotNull String projectReference,
+                                                      @NotNull ReferenceResolutionCache.Dependencies dependencies) {
     GradleDslFile dslFile = startElement.getDslFile();
+    dependencies.add(dslFile);
     if ("project".equals(projectReference)) {
       return dslFile;
     }
@@ -289,6 +312,7 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
     if ("rootProject".equals(projectReference)) {
       while (dslFile != null && !filesEqual(dslFile.getDirectoryPath(), virtualToIoFile(dslFile.getProject().getBaseDir()))) {
         dslFile = dslFile.getParentModuleDslFile();
+        dependencies.add(dslFile);
       }
       return dslFile;
     }
@@ -301,6 +325,7 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
         return null;
       }
       GradleSettingsFile file = dslFile.getContext().getOrCreateSettingsFile(settingFile);
+      dependencies.add(file);
       GradleSettingsModel model = new GradleSettingsModelImpl(file);
       File moduleDirectory = model.moduleDirectory(modulePath);
       if (moduleDirectory == null) {
@@ -308,11 +333,12 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
       }
       while (dslFile != null && !filesEqual(dslFile.getDirectoryPath(), virtualToIoFile(dslFile.getProject().getBaseDir()))) {
         dslFile = dslFile.getParentModuleDslFile();
+        dependencies.add(dslFile);
       }
       if (dslFile == null) {
         return null;
       }
-      return findDslFile(dslFile, moduleDirectory); // root module dsl File.
+      return findDslFile(dslFile, moduleDirectory, dependencies); // root module dsl File.
     }
     return null;
   }
@@ -331,7 +357,9 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
                                                                @NotNull String name,
                                                                boolean sameScope,
                                                                @Nullable GradleDslElement childElement,
-                                                               boolean includeSelf) {
+                                                               boolean includeSelf,
+                                                               @NotNull ReferenceResolutionCache.Dependencies dependencies) {
+    dependencies.add(properties.getDslFile());
     // First check if any indexing has been done.
     Matcher indexMatcher = GradleNameElement.INDEX_PATTERN.matcher(name);
 
@@ -376,6 +404,7 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
       if (element == null) {
         return null;
       }
+      dependencies.add(element.getDslFile());
 
       // Get the type of the element and ensure the index is compatible, e.g numerical index for a list.
       if (element instanceof GradleDslExpressionList) {
@@ -400,7 +429,7 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
         element = map.getPropertyElement(index);
       }
       else if (element instanceof GradleDslLiteral && ((GradleDslLiteral)element).isReference()) {
-        element = followElement((GradleDslLiteral)element);
+        element = followReference((GradleDslLiteral)element, dependencies);
         // Attempt to resolve the index part again
         indexParts.push(index);
       }
@@ -415,16 +444,17 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
   @Nullable
   private static GradleDslElement resolveReferenceOnPropertiesElement(@NotNull GradlePropertiesDslElement properties,
                                                                       @NotNull List<String> nameParts,
-                                                                      @NotNull List<GradleDslElement> trace) {
+                                                                      @NotNull List<GradleDslElement> trace,
+                                                                      @NotNull ReferenceResolutionCache.Dependencies dependencies) {
     int traceIndex = trace.size() - 1;
     // Go through each of the parts and extract the elements from each of them.
     GradleDslElement element;
     for (int i = 0; i < nameParts.size() - 1; i++) {
       // Only look for variables on the first iteration, otherwise only properties should be accessible.
       element = extractElementFromProperties(properties, nameParts.get(i), i == 0, traceIndex < 0 ? null : trace.get(traceIndex--),
-                                             traceIndex >= 0);
+                                             traceIndex >= 0, dependencies);
       if (element instanceof GradleDslLiteral && ((GradleDslLiteral)element).isReference()) {
-        element = followElement((GradleDslLiteral)element);
+        element = followReference((GradleDslLiteral)element, dependencies);
       }
 
       // All elements we find must be GradlePropertiesDslElement on all but the last iteration.
@@ -437,7 +467,7 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
     }
 
     return extractElementFromProperties(properties, nameParts.get(nameParts.size() - 1), nameParts.size() == 1,
-                                        traceIndex < 0 ? null : trace.get(traceIndex--), traceIndex >= 0);
+                                        traceIndex < 0 ? null : trace.get(traceIndex--), traceIndex >= 0, dependencies);
   }
 
   @Nullable
@@ -445,7 +475,8 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
                                                             @NotNull List<String> nameParts,
                                                             boolean resolveWithOrder,
                                                             boolean checkExt,
-                                                            int ignoreParentNumber) {
+                                                            int ignoreParentNumber,
+                                                            @NotNull ReferenceResolutionCache.Dependencies dependencies) {
     // We need to keep track of the last element we saw to ensure we only check items BEFORE the one we are resolving.
     Stack<GradleDslElement> elementTrace = new Stack<>();
     if (resolveWithOrder) {
@@ -459,7 +490,7 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
       GradleDslElement lastElement = elementTrace.isEmpty() ? null : elementTrace.peek();
       if (isPropertiesElementOrMap(element)) {
         GradleDslElement propertyElement = resolveReferenceOnPropertiesElement((GradlePropertiesDslElement)element, nameParts,
-                                                                               elementTrace);
+                                                                               elementTrace, dependencies);
         if (propertyElement != null) {
           return propertyElement;
         }
@@ -470,7 +501,7 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
             ((GradlePropertiesDslElement)element).getPropertyElementBefore(lastElement, EXT_BLOCK_NAME, false);
           if (extElement instanceof ExtDslElement) {
             GradleDslElement extPropertyElement =
-              resolveReferenceOnPropertiesElement((ExtDslElement)extElement, nameParts, elementTrace);
+              resolveReferenceOnPropertiesElement((ExtDslElement)extElement, nameParts, elementTrace, dependencies);
             if (extPropertyElement != null) {
               return extPropertyElement;
             }
@@ -483,7 +514,7 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
           if (bsDslElement instanceof BuildScriptDslElement) {
             GradleDslElement bsElement =
               resolveReferenceOnElement(bsDslElement, nameParts, true /* Must be true or we just jump between buildscript -> parent */,
-                                        false, -1);
+                                        false, -1, dependencies);
             if (bsElement != null) {
               return bsElement;
             }
@@ -508,10 +539,12 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
   @Nullable
   private static GradleDslElement resolveReferenceInSameModule(@NotNull GradleDslElement startElement,
                                                                @NotNull List<String> referenceText,
-                                                               boolean resolveWithOrder) {
+                                                               boolean resolveWithOrder,
+                                                               @NotNull ReferenceResolutionCache.Dependencies dependencies) {
     // Try to resolve in the build.gradle file the startElement is belongs to.
     GradleDslElement element =
-      resolveReferenceOnElement(startElement, referenceText, resolveWithOrder, true, startElement.getNameElement().fullNameParts().size());
+      resolveReferenceOnElement(startElement, referenceText, resolveWithOrder, true, startElement.getNameElement().fullNameParts().size(),
+                                dependencies);
     if (element != null) {
       return element;
     }
@@ -523,7 +556,7 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
 
     // Try to resolve in the gradle.properties file of the startElement's module.
     GradleDslFile dslFile = startElement.getDslFile();
-    GradleDslElement propertyElement = resolveReferenceInPropertiesFile(dslFile, text);
+    GradleDslElement propertyElement = resolveReferenceInPropertiesFile(dslFile, text, dependencies);
     if (propertyElement != null) {
       return propertyElement;
     }
@@ -531,7 +564,7 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
     // Ensure we check the buildscript as well.
     BuildScriptDslElement bsDslElement = dslFile.getPropertyElement(BUILDSCRIPT_BLOCK_NAME, BuildScriptDslElement.class);
     if (bsDslElement != null) {
-      GradleDslElement bsElement = resolveReferenceOnElement(bsDslElement, referenceText, false, true, -1);
+      GradleDslElement bsElement = resolveReferenceOnElement(bsDslElement, referenceText, false, true, -1, dependencies);
       if (bsElement != null) {
         return bsElement;
       }
@@ -550,17 +583,22 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
         break;
       }
       rootProjectDslFile = parentModuleDslFile;
+      dependencies.add(rootProjectDslFile);
     }
-    return resolveReferenceInPropertiesFile(rootProjectDslFile, text);
+    return resolveReferenceInPropertiesFile(rootProjectDslFile, text, dependencies);
   }
 
   @Nullable
-  private static GradleDslElement resolveReferenceInParentModules(@NotNull GradleDslFile dslFile, @NotNull List<String> referenceText) {
+  private static GradleDslElement resolveReferenceInParentModules(@NotNull GradleDslFile dslFile,
+                                                                  @NotNull List<String> referenceText,
+                                                                  @NotNull ReferenceResolutionCache.Dependencies dependencies) {
     GradleDslFile parentDslFile = dslFile.getParentModuleDslFile();
     while (parentDslFile != null) {
+      dependencies.add(parentDslFile);
       ExtDslElement extDslElement = parentDslFile.getPropertyElement(EXT_BLOCK_NAME, ExtDslElement.class);
       if (extDslElement != null) {
-        GradleDslElement extPropertyElement = resolveReferenceOnPropertiesElement(extDslElement, referenceText, new Stack<>());
+        GradleDslElement extPropertyElement =
+          resolveReferenceOnPropertiesElement(extDslElement, referenceText, new Stack<>(), dependencies);
         if (extPropertyElement != null) {
           return extPropertyElement;
         }
@@ -568,7 +606,7 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
 
       BuildScriptDslElement bsDslElement = parentDslFile.getPropertyElement(BUILDSCRIPT_BLOCK_NAME, BuildScriptDslElement.class);
       if (bsDslElement != null) {
-        GradleDslElement bsElement = resolveReferenceOnElement(bsDslElement, referenceText, false, true, -1);
+        GradleDslElement bsElement = resolveReferenceOnElement(bsDslElement, referenceText, false, true, -1, dependencies);
         if (bsElement != null) {
           return bsElement;
         }
@@ -580,7 +618,7 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
         return null;
       }
 
-      GradleDslElement propertyElement = resolveReferenceInPropertiesFile(parentDslFile, String.join(".", referenceText));
+      GradleDslElement propertyElement = resolveReferenceInPropertiesFile(parentDslFile, String.join(".", referenceText), dependencies);
       if (propertyElement != null) {
         return propertyElement;
       }
@@ -591,13 +629,20 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
   }
 
   @Nullable
-  private static GradleDslElement resolveReferenceInPropertiesFile(@NotNull GradleDslFile buildDslFile, @NotNull String referenceText) {
+  private static GradleDslElement resolveReferenceInPropertiesFile(@NotNull GradleDslFile buildDslFile,
+                                                                   @NotNull String referenceText,
+                                                                   @NotNull ReferenceResolutionCache.Dependencies dependencies) {
     GradleDslFile propertiesDslFile = buildDslFile.getSiblingDslFile();
+    dependencies.add(buildDslFile);
+    dependencies.add(propertiesDslFile);
     return propertiesDslFile != null ? propertiesDslFile.getPropertyElement(referenceText) : null;
   }
 
   @Nullable
-  private static GradleDslFile findDslFile(GradleDslFile rootModuleDslFile, File moduleDirectory) {
+  private static GradleDslFile findDslFile(GradleDslFile rootModuleDslFile,
+                                           File moduleDirectory,
+                                           @NotNull ReferenceResolutionCache.Dependencies dependencies) {
+    dependencies.add(rootModuleDslFile);
     if (filesEqual(rootModuleDslFile.getDirectoryPath(), moduleDirectory)) {
       return rootModuleDslFile;
     }
@@ -606,7 +651,7 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
       if (filesEqual(dslFile.getDirectoryPath(), moduleDirectory)) {
         return dslFile;
       }
-      GradleDslFile childDslFile = findDslFile(dslFile, moduleDirectory);
+      GradleDslFile childDslFile = findDslFile(dslFile, moduleDirectory, dependencies);
       if (childDslFile != null) {
         return dslFile;
       }
@@ -614,6 +659,25 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
     return null;
   }
 
+  /**
+   * Follows the given reference, recording the files of the references it goes through as their targets can change without any change
+   * to the files of the elements they point to.
+   */
+  @Nullable
+  private static GradleDslElement followReference(@NotNull GradleDslLiteral literal,
+                                                  @NotNull ReferenceResolutionCache.Dependencies dependencies) {
+    GradleDslElement element = literal;
+    while (element instanceof GradleDslLiteral && ((GradleDslLiteral)element).isReference() && !((GradleDslLiteral)element).hasCycle()) {
+      dependencies.add(element.getDslFile());
+      GradleReferenceInjection injection = ((GradleDslLiteral)element).getReferenceInjection();
+      if (injection == null) {
+        return null;
+      }
+      element = injection.getToBeInjected();
+    }
+    return element;
+  }
+
   /**
    * Tells the expression that the value has changed, this sets this element to modified and resets the cycle detection state.
    */
@@ -692,12 +756,17 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
   }
 
   protected void setupDependencies(@Nullable PsiElement element) {
+    boolean hadDependencies = !myDependencies.isEmpty();
     // Unregister any registered dependencies.
     myDependencies.stream().filter(e -> e.getToBeInjected() != null).forEach(e -> e.getToBeInjected().unregisterDependent(e));
     myDependencies.stream().filter(e -> e.getToBeInjected() == null)
                   .forEach(e -> getDslFile().getContext().getDependencyManager().unregisterUnresolvedReference(e));
     myDependencies.clear();
     myDependencies.addAll(fetchDependencies(element));
+    if (hadDependencies || !myDependencies.isEmpty()) {
+      // References that go through this expression may now resolve to something else.
+      getDslFile().incrementResolutionModificationCount();
+    }
     // Register any resolved dependencies with the elements they depend on.
     myDependencies.stream().filter(e -> e.getToBeInjected() != null).forEach(e -> e.getToBeInjected().registerDependent(e));
     myDependencies.stream().filter(e -> e.getToBeInjected() == null)
@@ -70,6 +70,7 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
     else {
       myProperties.addElement(element, state, state == EXISTING);
     }
+    elementsChanged();
 
     if (state == TO_BE_ADDED) {
       updateDependenciesOnAddElement(element);
@@ -79,10 +80,12 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
 
   public void addParsedPropertyAsFirstElement(@NotNull GradleDslElement extElement) {
     myProperties.addElementAtIndex(extElement, EXISTING, 0, true);
+    elementsChanged();
   }
 
   private void addPropertyInternal(int index, @NotNull GradleDslElement element, @NotNull ElementState state) {
     myProperties.addElementAtIndex(element, state, index, state == EXISTING);
+    elementsChanged();
     if (state == TO_BE_ADDED) {
       updateDependenciesOnAddElement(element);
       element.setModified();
@@ -96,6 +99,7 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
 
   private void removePropertyInternal(@NotNull String property) {
     List<GradleDslElement> elements = myProperties.removeAll(e -> e.myElement.getName().equals(property));
+    elementsChanged();
     elements.forEach(e -> {
       e.setModified();
       updateDependenciesOnRemoveElement(e);
@@ -110,6 +114,7 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
   private ElementState removePropertyInternal(@NotNull GradleDslElement element) {
     element.setModified();
     ElementState state = myProperties.remove(element);
+    elementsChanged();
     updateDependenciesOnRemoveElement(element);
     return state;
   }
@@ -120,12 +125,14 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
     newElement.setModified();
 
     ElementState oldState = myProperties.replaceElement(element, newElement);
+    elementsChanged();
     reorderAndMaybeGetNewIndex(newElement);
     return oldState;
   }
 
   private void hidePropertyInternal(@NotNull String property) {
     myProperties.hideAll(e -> e.myElement.getName().equals(property));
+    elementsChanged();
   }
 
   public void addAppliedModelProperties(@NotNull GradleDslFile file) {
@@ -445,6 +452,7 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
   public void moveElementTo(int index, @NotNull GradleDslElement newElement) {
     assert newElement.getParent() == this;
     myProperties.moveElementToIndex(newElement, index);
+    elementsChanged();
   }
 
   @NotNull
@@ -618,10 +626,20 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
   @Override
   protected void reset() {
     myProperties.reset();
+    elementsChanged();
   }
 
   protected void clear() {
     myProperties.clear();
+    elementsChanged();
+  }
+
+  /**
+   * Invalidates the references resolved against the elements of this element, this must be called whenever they are added, removed or
+   * reordered as this is not always reflected in the modification count, e.g. while parsing.
+   */
+  private void elementsChanged() {
+    getDslFile().incrementResolutionModificationCount();
   }
 
   public int reorderAndMaybeGetNewIndex(@NotNull GradleDslElement element) {
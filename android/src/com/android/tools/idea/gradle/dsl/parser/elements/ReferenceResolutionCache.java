@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.gradle.dsl.parser.elements;
+
+import com.android.tools.idea.gradle.dsl.parser.files.GradleDslFile;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Cache of the elements that the references made by a {@link GradleDslSimpleExpression} resolve to.
+ * <p>
+ * Resolving a reference walks the enclosing blocks, the ext and buildscript blocks, the gradle.properties files and the build files of
+ * the parent modules, following other references on the way. The unresolved references of the whole build model are resolved again
+ * every time a file is parsed, so this walk dominates the time taken to load projects with many modules and long chains of ext
+ * variables. Each result records the {@link GradleDslFile#getResolutionModificationCount()} of every file consulted to produce it and
+ * is only reused while none of these files changed.
+ */
+final class ReferenceResolutionCache {
+  @NotNull private final Map<String, Entry> myOrderedEntries = new HashMap<>();
+  @NotNull private final Map<String, Entry> myUnorderedEntries = new HashMap<>();
+
+  /**
+   * Returns the cached resolution of the given reference, or null if it is missing or out of date. As references can resolve to null the
+   * result is wrapped in an {@link Entry}.
+   */
+  @Nullable
+  Entry get(@NotNull String referenceText, boolean resolveWithOrder) {
+    Entry entry = getEntries(resolveWithOrder).get(referenceText);
+    return entry != null && entry.isUpToDate() ? entry : null;
+  }
+
+  /**
+   * Stores the resolution of the given reference. The result is only stored if none of the files it depends on changed while it was
+   * computed, e.g. by parsing the settings file to resolve a project path.
+   */
+  void put(@NotNull String referenceText,
+           boolean resolveWithOrder,
+           @Nullable GradleDslElement element,
+           @NotNull Dependencies dependencies) {
+    Entry entry = new Entry(element, dependencies.myFiles);
+    if (entry.isUpToDate()) {
+      getEntries(resolveWithOrder).put(referenceText, entry);
+    }
+    else {
+      getEntries(resolveWithOrder).remove(referenceText);
+    }
+  }
+
+  @NotNull
+  private Map<String, Entry> getEntries(boolean resolveWithOrder) {
+    return resolveWithOrder ? myOrderedEntries : myUnorderedEntries;
+  }
+
+  /**
+   * Collects the files consulted while resolving a reference, together with their modification count at the time they were first seen.
+   */
+  static final class Dependencies {
+    @NotNull private final Map<GradleDslFile, Long> myFiles = new LinkedHashMap<>();
+
+    void add(@Nullable GradleDslFile file) {
+      if (file != null) {
+        myFiles.putIfAbsent(file, file.getResolutionModificationCount());
+      }
+    }
+  }
+
+  static final class Entry {
+    @Nullable final GradleDslElement element;
+    @NotNull private final GradleDslFile[] myFiles;
+    @NotNull private final long[] myModificationCounts;
+
+    private Entry(@Nullable GradleDslElement element, @NotNull Map<GradleDslFile, Long> files) {
+      this.element = element;
+      myFiles = files.keySet().toArray(new GradleDslFile[0]);
+      myModificationCounts = new long[myFiles.length];
+      int i = 0;
+      for (long modificationCount : files.values()) {
+        myModificationCounts[i++] = modificationCount;
+      }
+    }
+
+    private boolean isUpToDate() {
+      for (int i = 0; i < myFiles.length; i++) {
+        if (myFiles[i].getResolutionModificationCount() != myModificationCounts[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
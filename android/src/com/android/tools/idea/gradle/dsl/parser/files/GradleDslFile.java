@@ -68,6 +68,10 @@ public abstract class GradleDslFile extends GradlePropertiesDslElement {
   @Nullable private ApplyDslElement myApplyDslElement;
   @NotNull private final BuildModelContext myBuildModelContext;
 
+  // Counts the changes to the elements of this file that are not reflected in its modification count, e.g. the elements added while
+  // parsing or discarded by resetState(), together with the references of this file that were resolved again.
+  private long myResolutionModificationCount;
+
   protected GradleDslFile(@NotNull VirtualFile file,
                           @NotNull Project project,
                           @NotNull String moduleName,
@@ -148,6 +152,8 @@ public abstract class GradleDslFile extends GradlePropertiesDslElement {
   public void setParentModuleDslFile(@NotNull GradleDslFile parentModuleDslFile) {
     myParentModuleDslFile = parentModuleDslFile;
     myParentModuleDslFile.myChildModuleDslFiles.add(this);
+    incrementResolutionModificationCount();
+    myParentModuleDslFile.incrementResolutionModificationCount();
   }
 
   @Nullable
@@ -167,6 +173,7 @@ public abstract class GradleDslFile extends GradlePropertiesDslElement {
    */
   public void setSiblingDslFile(@NotNull GradleDslFile siblingDslFile) {
     mySiblingDslFile = siblingDslFile;
+    incrementResolutionModificationCount();
   }
 
   /**
@@ -184,6 +191,18 @@ public abstract class GradleDslFile extends GradlePropertiesDslElement {
     return myGradleDslWriter;
   }
 
+  /**
+   * @return a count that changes whenever something that references made from or into this file can resolve to changes. Unlike
+   * {@link #getModificationCount()} it also changes when elements are parsed or reset, and when the linked module files change.
+   */
+  public long getResolutionModificationCount() {
+    return getModificationCount() + myResolutionModificationCount;
+  }
+
+  public void incrementResolutionModificationCount() {
+    myResolutionModificationCount++;
+  }
+
   @NotNull
   public GradleDslParser getParser() {
     return myGradleDslParser;
@@ -63,7 +63,8 @@ public final class GradlePropertiesFile extends GradleDslFile {
     }
 
     GradlePropertyElement propertyElement = new GradlePropertyElement(this, GradleNameElement.fake(property));
-    propertyElement.setValue(value);
+    // Set the value directly, looking up a property must not modify the file.
+    propertyElement.myValue = value;
     return propertyElement;
   }
 
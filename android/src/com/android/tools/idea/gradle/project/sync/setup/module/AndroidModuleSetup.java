@@ -15,12 +15,14 @@
  */
 package com.android.tools.idea.gradle.project.sync.setup.module;
 
+import com.android.tools.idea.flags.StudioFlags;
 import com.android.tools.idea.gradle.project.model.AndroidModuleModel;
 import com.android.tools.idea.gradle.project.sync.ModuleSetupContext;
 import com.android.tools.idea.gradle.project.sync.issues.SyncIssues;
 import com.android.tools.idea.gradle.project.sync.setup.module.android.*;
 import com.android.tools.idea.gradle.project.sync.setup.module.common.BaseSetup;
 import com.google.common.annotations.VisibleForTesting;
+import com.intellij.openapi.module.Module;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.TestOnly;
@@ -44,6 +46,17 @@ public class AndroidModuleSetup extends BaseSetup<AndroidModuleSetupStep, Androi
     }
   }
 
+  @Override
+  protected boolean isModelUnchanged(@NotNull ModuleSetupContext context, @Nullable AndroidModuleModel model) {
+    Module module = context.getModule();
+    // The NDK setup recreates the content entries of native modules before this setup runs.
+    if (model == null || !StudioFlags.INCREMENTAL_MODULE_SETUP.get() || context.hasNativeModel()) {
+      ModuleSetupFingerprints.clear(module);
+      return false;
+    }
+    return ModuleSetupFingerprints.update(module, ModuleSetupFingerprints.compute(model));
+  }
+
   @TestOnly
   @NotNull
   public AndroidModuleSetupStep[] getSetupSteps() {
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.gradle.project.sync.setup.module;
+
+import static com.intellij.openapi.util.text.StringUtil.notNullize;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.android.builder.model.AndroidArtifact;
+import com.android.builder.model.BuildTypeContainer;
+import com.android.builder.model.ProductFlavorContainer;
+import com.android.builder.model.SourceProvider;
+import com.android.builder.model.SourceProviderContainer;
+import com.android.builder.model.level2.Library;
+import com.android.ide.common.gradle.model.IdeAndroidProject;
+import com.android.ide.common.gradle.model.IdeBaseArtifact;
+import com.android.ide.common.gradle.model.IdeVariant;
+import com.android.ide.common.gradle.model.level2.IdeDependencies;
+import com.android.ide.common.repository.GradleVersion;
+import com.android.tools.idea.gradle.project.model.AndroidModuleModel;
+import com.android.tools.idea.gradle.util.GradleUtil;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.util.Key;
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Fingerprints of the models the modules of a project were set up from during sync, used to skip the setup that is kept in the module
+ * when the model of a module did not change.
+ * <p>
+ * A fingerprint is a content hash of the selected variant, source sets, generated folders and dependencies of an Android model, so models
+ * copied from the same Gradle models by different syncs have the same fingerprint. The fingerprint computed during a sync only applies to
+ * the module once the sync succeeds, see {@link #markApplied(Module)}: until then the module may not have the configuration set up from
+ * the model, e.g. if the sync fails before committing it.
+ */
+public final class ModuleSetupFingerprints {
+  private static final Key<HashCode> PENDING_FINGERPRINT_KEY = Key.create("gradle.sync.module.setup.pending.fingerprint");
+  private static final Key<HashCode> APPLIED_FINGERPRINT_KEY = Key.create("gradle.sync.module.setup.applied.fingerprint");
+
+  private ModuleSetupFingerprints() {
+  }
+
+  /**
+   * Records the fingerprint of the model the given module is being set up from.
+   *
+   * @return whether the module was set up from a model with the same fingerprint in the last successful sync.
+   */
+  public static boolean update(@NotNull Module module, @NotNull HashCode fingerprint) {
+    module.putUserData(PENDING_FINGERPRINT_KEY, fingerprint);
+    if (fingerprint.equals(module.getUserData(APPLIED_FINGERPRINT_KEY))) {
+      return true;
+    }
+    // The module is about to be set up again, it won't match the previous fingerprint even if this sync fails.
+    module.putUserData(APPLIED_FINGERPRINT_KEY, null);
+    return false;
+  }
+
+  /**
+   * Forgets the fingerprints of the given module, so that it is fully set up the next time.
+   */
+  public static void clear(@NotNull Module module) {
+    module.putUserData(PENDING_FINGERPRINT_KEY, null);
+    module.putUserData(APPLIED_FINGERPRINT_KEY, null);
+  }
+
+  /**
+   * Marks the fingerprint recorded during the sync as applied to the given module, once the sync succeeded.
+   */
+  public static void markApplied(@NotNull Module module) {
+    module.putUserData(APPLIED_FINGERPRINT_KEY, module.getUserData(PENDING_FINGERPRINT_KEY));
+    module.putUserData(PENDING_FINGERPRINT_KEY, null);
+  }
+
+  @NotNull
+  public static HashCode compute(@NotNull AndroidModuleModel androidModel) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    IdeAndroidProject androidProject = androidModel.getAndroidProject();
+    GradleVersion modelVersion = androidModel.getModelVersion();
+    putString(hasher, modelVersion != null ? modelVersion.toString() : "");
+    hasher.putInt(androidProject.getProjectType());
+    putFile(hasher, androidModel.getRootDirPath());
+    putFile(hasher, androidProject.getBuildFolder());
+
+    IdeVariant variant = androidModel.getSelectedVariant();
+    putString(hasher, variant.getName());
+    putArtifact(hasher, androidModel, variant.getMainArtifact());
+    Collection<IdeBaseArtifact> testArtifacts = variant.getTestArtifacts();
+    hasher.putInt(testArtifacts.size());
+    for (IdeBaseArtifact testArtifact : testArtifacts) {
+      putArtifact(hasher, androidModel, testArtifact);
+    }
+
+    ProductFlavorContainer defaultConfig = androidProject.getDefaultConfig();
+    putSourceProviders(hasher, defaultConfig.getSourceProvider(), defaultConfig.getExtraSourceProviders());
+    hasher.putInt(variant.getProductFlavors().size());
+    for (String flavorName : variant.getProductFlavors()) {
+      putString(hasher, flavorName);
+      ProductFlavorContainer flavor = androidModel.findProductFlavor(flavorName);
+      if (flavor != null) {
+        putSourceProviders(hasher, flavor.getSourceProvider(), flavor.getExtraSourceProviders());
+      }
+    }
+    putString(hasher, variant.getBuildType());
+    BuildTypeContainer buildType = androidModel.findBuildType(variant.getBuildType());
+    if (buildType != null) {
+      putSourceProviders(hasher, buildType.getSourceProvider(), buildType.getExtraSourceProviders());
+    }
+    return hasher.hash();
+  }
+
+  private static void putArtifact(@NotNull Hasher hasher, @NotNull AndroidModuleModel androidModel, @NotNull IdeBaseArtifact artifact) {
+    putString(hasher, artifact.getName());
+    putFile(hasher, artifact.getClassesFolder());
+    putFiles(hasher, GradleUtil.getGeneratedSourceFoldersToUse(artifact, androidModel));
+    putFiles(hasher, artifact instanceof AndroidArtifact
+                     ? ((AndroidArtifact)artifact).getGeneratedResourceFolders()
+                     : Collections.emptyList());
+    putSourceProvider(hasher, artifact.getVariantSourceProvider());
+    putSourceProvider(hasher, artifact.getMultiFlavorSourceProvider());
+
+    IdeDependencies dependencies = artifact.getLevel2Dependencies();
+    Collection<Library> androidLibraries = dependencies.getAndroidLibraries();
+    hasher.putInt(androidLibraries.size());
+    for (Library library : androidLibraries) {
+      putString(hasher, library.getArtifactAddress());
+      putFile(hasher, library.getArtifact());
+      putString(hasher, notNullize(library.getCompileJarFile()));
+      putString(hasher, notNullize(library.getResFolder()));
+      hasher.putInt(library.getLocalJars().size());
+      library.getLocalJars().forEach(localJar -> putString(hasher, localJar));
+    }
+    Collection<Library> javaLibraries = dependencies.getJavaLibraries();
+    hasher.putInt(javaLibraries.size());
+    for (Library library : javaLibraries) {
+      putString(hasher, library.getArtifactAddress());
+      putFile(hasher, library.getArtifact());
+    }
+    Collection<Library> moduleDependencies = dependencies.getModuleDependencies();
+    hasher.putInt(moduleDependencies.size());
+    for (Library library : moduleDependencies) {
+      putString(hasher, notNullize(library.getBuildId()));
+      putString(hasher, notNullize(library.getProjectPath()));
+    }
+  }
+
+  private static void putSourceProviders(@NotNull Hasher hasher,
+                                         @NotNull SourceProvider sourceProvider,
+                                         @NotNull Collection<SourceProviderContainer> extraSourceProviders) {
+    putSourceProvider(hasher, sourceProvider);
+    hasher.putInt(extraSourceProviders.size());
+    for (SourceProviderContainer container : extraSourceProviders) {
+      putString(hasher, container.getArtifactName());
+      putSourceProvider(hasher, container.getSourceProvider());
+    }
+  }
+
+  private static void putSourceProvider(@NotNull Hasher hasher, @Nullable SourceProvider sourceProvider) {
+    hasher.putBoolean(sourceProvider != null);
+    if (sourceProvider == null) {
+      return;
+    }
+    putString(hasher, sourceProvider.getName());
+    putFile(hasher, sourceProvider.getManifestFile());
+    putFiles(hasher, sourceProvider.getJavaDirectories());
+    putFiles(hasher, sourceProvider.getResourcesDirectories());
+    putFiles(hasher, sourceProvider.getAidlDirectories());
+    putFiles(hasher, sourceProvider.getRenderscriptDirectories());
+    putFiles(hasher, sourceProvider.getCDirectories());
+    putFiles(hasher, sourceProvider.getCppDirectories());
+    putFiles(hasher, sourceProvider.getResDirectories());
+    putFiles(hasher, sourceProvider.getAssetsDirectories());
+    putFiles(hasher, sourceProvider.getJniLibsDirectories());
+    putFiles(hasher, sourceProvider.getShadersDirectories());
+  }
+
+  private static void putFiles(@NotNull Hasher hasher, @NotNull Collection<File> files) {
+    hasher.putInt(files.size());
+    for (File file : files) {
+      putFile(hasher, file);
+    }
+  }
+
+  private static void putFile(@NotNull Hasher hasher, @Nullable File file) {
+    putString(hasher, file != null ? file.getPath() : "");
+  }
+
+  // The length keeps consecutive strings from hashing the same as different strings with the same concatenation.
+  private static void putString(@NotNull Hasher hasher, @NotNull String value) {
+    hasher.putInt(value.length()).putString(value, UTF_8);
+  }
+}
@@ -33,8 +33,31 @@ public abstract class ModuleSetupStep<T> {
     doSetUpModule(context, gradleModel);
   }
 
+  /**
+   * Sets up a module whose model did not change since the last successful sync. See {@link #doSetUpUnchangedModule}.
+   */
+  public final void setUpUnchangedModule(@NotNull ModuleSetupContext context, @Nullable T gradleModel) {
+    if (gradleModel == null) {
+      return;
+    }
+
+    // Reset state
+    myShouldTerminateSetup = false;
+
+    doSetUpUnchangedModule(context, gradleModel);
+  }
+
   protected abstract void doSetUpModule(@NotNull ModuleSetupContext context, @NotNull T gradleModel);
 
+  /**
+   * Sets up a module whose model has the same content as the one it was set up from in the last successful sync, so the module still
+   * has what this step configured from it then. Steps whose configuration is kept between syncs can skip setting it up again, by default
+   * the module is set up as usual.
+   */
+  protected void doSetUpUnchangedModule(@NotNull ModuleSetupContext context, @NotNull T gradleModel) {
+    doSetUpModule(context, gradleModel);
+  }
+
   public boolean invokeOnBuildVariantChange() {
     return false;
   }
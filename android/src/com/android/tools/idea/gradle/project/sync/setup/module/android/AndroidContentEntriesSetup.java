@@ -104,6 +104,27 @@ class AndroidContentEntriesSetup extends ContentEntriesSetup {
     addOrphans();
   }
 
+  /**
+   * Registers the generated source folders of the selected variant that are outside of the build folder with the model, like
+   * {@link #execute(List)} does, without changing the content entries of the module.
+   */
+  void registerExtraGeneratedSourceFolders() {
+    IdeVariant selectedVariant = myAndroidModel.getSelectedVariant();
+    registerExtraGeneratedSourceFolders(selectedVariant.getMainArtifact());
+    for (IdeBaseArtifact artifact : selectedVariant.getTestArtifacts()) {
+      registerExtraGeneratedSourceFolders(artifact);
+    }
+  }
+
+  private void registerExtraGeneratedSourceFolders(@NotNull IdeBaseArtifact artifact) {
+    if (hasGeneratedSourceFolders(artifact)) {
+      GradleUtil.getGeneratedSourceFoldersToUse(artifact, myAndroidModel).forEach(this::registerIfExtraGeneratedSourceFolder);
+    }
+    if (artifact instanceof AndroidArtifact) {
+      ((AndroidArtifact)artifact).getGeneratedResourceFolders().forEach(this::registerIfExtraGeneratedSourceFolder);
+    }
+  }
+
   private void addSourceFolders(@NotNull IdeBaseArtifact artifact, @NotNull List<ContentEntry> contentEntries, boolean isTest) {
     addGeneratedSourceFolders(artifact, contentEntries, isTest);
 
@@ -121,8 +142,7 @@ class AndroidContentEntriesSetup extends ContentEntriesSetup {
   private void addGeneratedSourceFolders(@NotNull IdeBaseArtifact artifact, @NotNull List<ContentEntry> contentEntries, boolean isTest) {
     JpsModuleSourceRootType sourceType = getSourceType(isTest);
 
-    GradleVersion modelVersion = myAndroidModel.getModelVersion();
-    if (artifact instanceof AndroidArtifact || (modelVersion != null && modelVersion.compareIgnoringQualifiers("1.2") >= 0)) {
+    if (hasGeneratedSourceFolders(artifact)) {
       addSourceFolders(GradleUtil.getGeneratedSourceFoldersToUse(artifact, myAndroidModel), contentEntries, sourceType, true);
     }
 
@@ -133,6 +153,11 @@ class AndroidContentEntriesSetup extends ContentEntriesSetup {
     }
   }
 
+  private boolean hasGeneratedSourceFolders(@NotNull IdeBaseArtifact artifact) {
+    GradleVersion modelVersion = myAndroidModel.getModelVersion();
+    return artifact instanceof AndroidArtifact || (modelVersion != null && modelVersion.compareIgnoringQualifiers("1.2") >= 0);
+  }
+
   private void addSourceFolder(@NotNull ProductFlavorContainer flavor, @NotNull List<ContentEntry> contentEntries) {
     addSourceFolder(flavor.getSourceProvider(), contentEntries, false);
 
@@ -179,13 +204,19 @@ class AndroidContentEntriesSetup extends ContentEntriesSetup {
                                 @NotNull JpsModuleSourceRootType type,
                                 boolean generated) {
     for (File folderPath : folderPaths) {
-      if (generated && !myGeneratedSourceFolders.isFolderGeneratedInCorrectLocation(folderPath, getAndroidProject())) {
-        myAndroidModel.registerExtraGeneratedSourceFolder(folderPath);
+      if (generated) {
+        registerIfExtraGeneratedSourceFolder(folderPath);
       }
       addSourceFolder(folderPath, contentEntries, type, generated);
     }
   }
 
+  private void registerIfExtraGeneratedSourceFolder(@NotNull File folderPath) {
+    if (!myGeneratedSourceFolders.isFolderGeneratedInCorrectLocation(folderPath, getAndroidProject())) {
+      myAndroidModel.registerExtraGeneratedSourceFolder(folderPath);
+    }
+  }
+
   private void addExcludedOutputFolders(@NotNull List<ContentEntry> contentEntries) {
     File buildFolderPath = getAndroidProject().getBuildFolder();
     ContentEntry parentContentEntry = findParentContentEntry(buildFolderPath, contentEntries.stream());
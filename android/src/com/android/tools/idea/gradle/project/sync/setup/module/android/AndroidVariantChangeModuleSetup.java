@@ -16,10 +16,13 @@
 package com.android.tools.idea.gradle.project.sync.setup.module.android;
 
 import com.android.tools.idea.gradle.project.model.AndroidModuleModel;
+import com.android.tools.idea.gradle.project.sync.ModuleSetupContext;
 import com.android.tools.idea.gradle.project.sync.setup.module.AndroidModuleSetupStep;
+import com.android.tools.idea.gradle.project.sync.setup.module.ModuleSetupFingerprints;
 import com.android.tools.idea.gradle.project.sync.setup.module.common.BaseSetup;
 import com.google.common.annotations.VisibleForTesting;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class AndroidVariantChangeModuleSetup extends BaseSetup<AndroidModuleSetupStep, AndroidModuleModel> {
   public AndroidVariantChangeModuleSetup() {
@@ -31,6 +34,12 @@ public class AndroidVariantChangeModuleSetup extends BaseSetup<AndroidModuleSetu
     super(setupSteps);
   }
 
+  @Override
+  protected void beforeSetup(@NotNull ModuleSetupContext context, @Nullable AndroidModuleModel model) {
+    // The module no longer has the configuration set up from the model of the last sync.
+    ModuleSetupFingerprints.clear(context.getModule());
+  }
+
   @Override
   protected boolean shouldRunSyncStep(@NotNull AndroidModuleSetupStep step) {
     return step.invokeOnBuildVariantChange();
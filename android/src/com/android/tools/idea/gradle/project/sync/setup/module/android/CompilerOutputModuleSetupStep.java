@@ -48,6 +48,11 @@ public class CompilerOutputModuleSetupStep extends AndroidModuleSetupStep {
     myCompilerSettingsSetup.setOutputPaths(rootModel, mainClassesFolder, testClassesFolder);
   }
 
+  @Override
+  protected void doSetUpUnchangedModule(@NotNull ModuleSetupContext context, @NotNull AndroidModuleModel androidModel) {
+    // The output paths set up from the same model are still in the module.
+  }
+
   @Override
   public boolean invokeOnBuildVariantChange() {
     return true;
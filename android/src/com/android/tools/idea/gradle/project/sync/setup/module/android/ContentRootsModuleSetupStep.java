@@ -50,6 +50,14 @@ public class ContentRootsModuleSetupStep extends AndroidModuleSetupStep {
     setup.execute(contentEntries);
   }
 
+  @Override
+  protected void doSetUpUnchangedModule(@NotNull ModuleSetupContext context, @NotNull AndroidModuleModel androidModel) {
+    // The content entries set up from the same model are still in the module, only the new model needs to know about its folders.
+    AndroidContentEntriesSetup setup =
+      myContentEntriesSetupFactory.create(androidModel, context.getModifiableRootModel(), context.hasNativeModel());
+    setup.registerExtraGeneratedSourceFolders();
+  }
+
   @NotNull
   private static List<ContentEntry> findContentEntries(@NotNull ModifiableRootModel moduleModel,
                                                        @NotNull AndroidModuleModel androidModel,
@@ -29,12 +29,25 @@ public abstract class BaseSetup<T extends ModuleSetupStep<M>, M> {
 
   protected void beforeSetup(@NotNull ModuleSetupContext context, @Nullable M model) { }
 
+  /**
+   * @return whether the given model has the same content as the one the module was set up from in the last successful sync.
+   */
+  protected boolean isModelUnchanged(@NotNull ModuleSetupContext context, @Nullable M model) {
+    return false;
+  }
+
   public void setUpModule(@NotNull ModuleSetupContext context, @Nullable M model) {
     beforeSetup(context, model);
 
+    boolean modelUnchanged = isModelUnchanged(context, model);
     for (T step : mySetupSteps) {
       if (shouldRunSyncStep(step)) {
-        step.setUpModule(context, model);
+        if (modelUnchanged) {
+          step.setUpUnchangedModule(context, model);
+        }
+        else {
+          step.setUpModule(context, model);
+        }
         if (step.shouldTerminateSetup()) {
           return;
         }
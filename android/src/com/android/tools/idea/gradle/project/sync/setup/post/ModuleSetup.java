@@ -15,6 +15,7 @@
  */
 package com.android.tools.idea.gradle.project.sync.setup.post;
 
+import com.android.tools.idea.gradle.project.sync.setup.module.ModuleSetupFingerprints;
 import com.google.common.annotations.VisibleForTesting;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleManager;
@@ -42,6 +43,8 @@ public class ModuleSetup {
       for (ModuleSetupStep setupStep : mySetupSteps) {
         setupStep.setUpModule(module, progressIndicator);
       }
+      // The sync succeeded, so the module has the configuration set up from its models.
+      ModuleSetupFingerprints.markApplied(module);
     }
   }
 }
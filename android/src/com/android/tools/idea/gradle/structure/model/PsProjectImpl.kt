@@ -15,6 +15,7 @@
  */
 package com.android.tools.idea.gradle.structure.model
 
+import com.android.tools.idea.flags.StudioFlags
 import com.android.tools.idea.gradle.dsl.api.GradleModelProvider
 import com.android.tools.idea.gradle.dsl.api.ProjectBuildModel
 import com.android.tools.idea.gradle.structure.configurables.CachingRepositorySearchFactory
@@ -36,7 +37,7 @@ class PsProjectImpl(
   override val repositorySearchFactory: RepositorySearchFactory = CachingRepositorySearchFactory()
 ) : PsChildModel(), PsProject {
   override val descriptor by PsProjectDescriptors
-  override var parsedModel: ProjectBuildModel = GradleModelProvider.get().getProjectModel(ideProject); private set
+  override var parsedModel: ProjectBuildModel = loadProjectModel(ideProject); private set
   @Suppress("RedundantModalityModifier")  // Kotlin compiler bug (KT-24833)?
   final override val buildScriptVariables: PsVariables
   @Suppress("RedundantModalityModifier")  // Kotlin compiler bug (KT-24833)?
@@ -104,7 +105,7 @@ class PsProjectImpl(
           isModified = false
         }
       }.execute()
-      parsedModel = GradleModelProvider.get().getProjectModel(ideProject)
+      parsedModel = loadProjectModel(ideProject)
       variables.refresh()
       buildScriptVariables.refresh()
       internalResolvedModuleModels = null
@@ -130,7 +131,7 @@ class PsProjectImpl(
       }.execute()
     }
     if (runnable()) {
-      parsedModel = GradleModelProvider.get().getProjectModel(ideProject)
+      parsedModel = loadProjectModel(ideProject)
       variables.refresh()
       internalResolvedModuleModels = null
       moduleCollection.refresh()
@@ -153,3 +154,9 @@ class PsProjectImpl(
     newGradleVersion = value
   }
 }
+
+private fun loadProjectModel(project: Project): ProjectBuildModel =
+  GradleModelProvider.get().getProjectModel(project).also {
+    // All the modules are parsed anyway, parsing them up front lets the project model load their build files concurrently.
+    if (StudioFlags.GRADLE_DSL_PARALLEL_PARSING.get()) it.allIncludedBuildModels
+  }
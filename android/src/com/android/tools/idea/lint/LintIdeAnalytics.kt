@@ -61,17 +61,29 @@ class LintIdeAnalytics(private val project: com.intellij.openapi.project.Project
     severityModule: Module?,
     warnings1: List<ProblemData>?,
     warnings2: Map<Issue, Map<File, List<ProblemData>>>?
+  ) = logSession(type, listOf(driver), driver.analysisStartTime, severityModule, warnings1, warnings2)
+
+  /**
+   * Logs a lint run split between several drivers, e.g. on independent modules, as a single session started at [analysisStartTime]
+   */
+  fun logSession(
+    type: LintSession.AnalysisType,
+    drivers: List<LintDriver>,
+    analysisStartTime: Long,
+    severityModule: Module?,
+    warnings1: List<ProblemData>?,
+    warnings2: Map<Issue, Map<File, List<ProblemData>>>?
   ) {
     if (project.isDisposed) return
 
     val session = LintSession.newBuilder().apply {
       analysisType = type
       projectId = computeProjectId(project)
-      lintPerformance = computePerformance(driver, type == LintSession.AnalysisType.IDE_FILE)
-      baselineEnabled = driver.baseline != null
-      includingGeneratedSources = driver.checkGeneratedSources
-      includingTestSources = driver.checkTestSources
-      includingDependencies = driver.checkDependencies
+      lintPerformance = computePerformance(drivers, analysisStartTime, type == LintSession.AnalysisType.IDE_FILE)
+      baselineEnabled = drivers.any { it.baseline != null }
+      includingGeneratedSources = drivers.any { it.checkGeneratedSources }
+      includingTestSources = drivers.any { it.checkTestSources }
+      includingDependencies = drivers.any { it.checkDependencies }
       for (issueBuilder in computeIssueData(warnings1, warnings2, severityModule).values) {
         addIssueIds(issueBuilder)
       }
@@ -87,19 +99,19 @@ class LintIdeAnalytics(private val project: com.intellij.openapi.project.Project
     UsageTracker.log(event)
   }
 
-  private fun computePerformance(driver: LintDriver, singleFileAnalysis: Boolean): LintPerformance =
+  private fun computePerformance(drivers: List<LintDriver>, analysisStartTime: Long, singleFileAnalysis: Boolean): LintPerformance =
     LintPerformance.newBuilder().apply {
-      analysisTimeMs = System.currentTimeMillis() - driver.analysisStartTime
-      fileCount = driver.fileCount.toLong()
+      analysisTimeMs = System.currentTimeMillis() - analysisStartTime
+      fileCount = drivers.sumBy { it.fileCount }.toLong()
 
       // When doing single file analysis we don't have an accurate module count for
       // the project etc; the below statistics aren't interesting and are misleading
       if (!singleFileAnalysis) {
-        moduleCount = driver.moduleCount.toLong()
-        javaSourceCount = driver.javaFileCount.toLong()
-        kotlinSourceCount = driver.kotlinFileCount.toLong()
-        resourceFileCount = driver.resourceFileCount.toLong()
-        testSourceCount = driver.testSourceCount.toLong()
+        moduleCount = drivers.sumBy { it.moduleCount }.toLong()
+        javaSourceCount = drivers.sumBy { it.javaFileCount }.toLong()
+        kotlinSourceCount = drivers.sumBy { it.kotlinFileCount }.toLong()
+        resourceFileCount = drivers.sumBy { it.resourceFileCount }.toLong()
+        testSourceCount = drivers.sumBy { it.testSourceCount }.toLong()
       }
     }.build()
 
@@ -94,9 +94,22 @@ public abstract class AndroidLogFilterModel extends LogFilterModel {
   }
 
   public final void updateLogcatFilter(@Nullable AndroidLogcatFilter filter) {
+    setLogcatFilter(filter);
+    fireTextFilterChange();
+  }
+
+  /**
+   * Same as {@link #updateLogcatFilter(AndroidLogcatFilter)}, without refiltering the lines processed so far. For callers which reprocess
+   * the log messages themselves, see {@link AndroidLogcatService#resetListener}.
+   */
+  final void setLogcatFilter(@Nullable AndroidLogcatFilter filter) {
     saveConfiguredFilterName(filter != null ? filter.getName() : "");
     myConfiguredFilter = filter;
-    fireTextFilterChange();
+  }
+
+  @Nullable
+  final AndroidLogcatFilter getLogcatFilter() {
+    return myConfiguredFilter;
   }
 
   protected abstract void saveConfiguredFilterName(String filterName);
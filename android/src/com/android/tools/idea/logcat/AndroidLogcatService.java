@@ -33,6 +33,7 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.util.Disposer;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import net.jcip.annotations.GuardedBy;
 import net.jcip.annotations.ThreadSafe;
 import org.jetbrains.android.util.AndroidBundle;
@@ -61,26 +62,6 @@ public final class AndroidLogcatService implements AndroidDebugBridge.IDeviceCha
     return Logger.getInstance(AndroidLogcatService.class);
   }
 
-  private static class LogcatBuffer {
-    private int myBufferSize;
-    private final LinkedList<LogCatMessage> myMessages = new LinkedList<>();
-
-    public void addMessage(@NotNull LogCatMessage message) {
-      myMessages.add(message);
-      myBufferSize += message.getMessage().length();
-      if (ConsoleBuffer.useCycleBuffer()) {
-        while (myBufferSize > ConsoleBuffer.getCycleBufferSize()) {
-          myBufferSize -= myMessages.removeFirst().getMessage().length();
-        }
-      }
-    }
-
-    @NotNull
-    public List<LogCatMessage> getMessages() {
-      return myMessages;
-    }
-  }
-
   private static class ListenerConnector implements LogcatListener {
     @GuardedBy("myListenerLock")
     @Nullable private LogcatListener myListener; // Initially not null, set to null when disconnected.
@@ -166,6 +147,16 @@ public final class AndroidLogcatService implements AndroidDebugBridge.IDeviceCha
     }
   }
 
+  /**
+   * Number of log lines kept per device when the IDE doesn't limit the size of consoles.
+   */
+  private static final int DEFAULT_BUFFER_CAPACITY = 250_000;
+
+  /**
+   * Estimated average length of a log message, to convert the console cycle buffer size, in characters, into a number of lines.
+   */
+  private static final int ESTIMATED_MESSAGE_LENGTH = 100;
+
   private final Object myLock;
 
   // TODO Change these maps into a set of LogcatDevices that each maintain their receivers, buffers, executors, etc
@@ -176,6 +167,7 @@ public final class AndroidLogcatService implements AndroidDebugBridge.IDeviceCha
   @GuardedBy("myLock")
   private final Map<IDevice, LogcatBuffer> myLogBuffers;
 
+
   /**
    * This is a list of commands to execute per device. We use a newSingleThreadExecutor
    * to model a single queue of tasks to run, but that is poorly reflected in the
@@ -213,7 +205,7 @@ public final class AndroidLogcatService implements AndroidDebugBridge.IDeviceCha
 
       AndroidLogcatReceiver receiver = newAndroidLogcatReceiver(device);
       myLogReceivers.put(device, receiver);
-      myLogBuffers.put(device, new LogcatBuffer());
+      myLogBuffers.put(device, new LogcatBuffer(getBufferCapacity()));
       myExecutors.get(device).execute(() -> executeLogcat(device, receiver));
     }
   }
@@ -294,6 +286,10 @@ public final class AndroidLogcatService implements AndroidDebugBridge.IDeviceCha
     synchronized (myLock) {
       stopReceiving(device);
       myExecutors.remove(device);
+      // The listeners of the device can still show its old log messages again, e.g. when their filter changes, until they are removed.
+      if (myDeviceToListenerMultimap.get(device).isEmpty()) {
+        myLogBuffers.remove(device);
+      }
     }
   }
 
@@ -302,7 +298,6 @@ public final class AndroidLogcatService implements AndroidDebugBridge.IDeviceCha
       if (myLogReceivers.containsKey(device)) {
         myLogReceivers.get(device).cancel();
         myLogReceivers.remove(device);
-        myLogBuffers.remove(device);
       }
     }
   }
@@ -365,9 +360,23 @@ public final class AndroidLogcatService implements AndroidDebugBridge.IDeviceCha
    * to a UI thread. For example, don't directly invoke a runnable on the UI thread per line, but consider batching many log lines first.
    */
   public void addListener(@NotNull IDevice device, @NotNull LogcatListener listener, boolean addOldLogs) {
+    addListener(device, listener, addOldLogs ? new MatchAllFilter("") : null);
+  }
+
+  /**
+   * Same as {@link #addListener(IDevice, LogcatListener, boolean)}, but only notifies the listener of the old log messages accepted
+   * by {@code oldLogsFilter}. The device's log buffer is indexed, so this is much cheaper than replaying every old message and filtering
+   * them in the listener.
+   */
+  public void addListener(@NotNull IDevice device, @NotNull LogcatListener listener, @Nullable AndroidLogcatFilter oldLogsFilter) {
     synchronized (myLock) {
+      LogcatBuffer buffer = myLogBuffers.get(device);
+      if (buffer != null) {
+        // Picks up changes to the console settings made since the device connected.
+        buffer.setCapacity(getBufferCapacity());
+      }
       List<LogCatMessage> oldMessages =
-          addOldLogs && myLogBuffers.containsKey(device) ? myLogBuffers.get(device).getMessages() : ImmutableList.of();
+          oldLogsFilter != null && buffer != null ? buffer.getMessages(oldLogsFilter) : ImmutableList.of();
 
       ListenerConnector listenerConnector = new ListenerConnector(listener, oldMessages);
       myDeviceToListenerMultimap.put(device, listenerConnector);
@@ -378,8 +387,13 @@ public final class AndroidLogcatService implements AndroidDebugBridge.IDeviceCha
 
       if (!oldMessages.isEmpty()) {
         ExecutorService executor = myExecutors.get(device);
-        assert executor != null;
-        executor.execute(() -> listenerConnector.processBacklog());
+        if (executor != null) {
+          executor.execute(() -> listenerConnector.processBacklog());
+        }
+        else {
+          // The device is disconnected, so no new message can come before the old ones.
+          AppExecutorUtil.getAppExecutorService().execute(() -> listenerConnector.processBacklog());
+        }
       }
     }
   }
@@ -391,6 +405,17 @@ public final class AndroidLogcatService implements AndroidDebugBridge.IDeviceCha
     addListener(device, listener, false);
   }
 
+  /**
+   * Returns the number of log lines kept per device. Like the size of the logcat console itself, it follows the IDE-wide console cycle
+   * buffer setting, so it is the same for every project.
+   */
+  private static int getBufferCapacity() {
+    if (!ConsoleBuffer.useCycleBuffer()) {
+      return DEFAULT_BUFFER_CAPACITY;
+    }
+    return Math.max(1, ConsoleBuffer.getCycleBufferSize() / ESTIMATED_MESSAGE_LENGTH);
+  }
+
   public void removeListener(@NotNull IDevice device, @NotNull LogcatListener listener) {
     synchronized (myLock) {
       Collection<ListenerConnector> connectors = myDeviceToListenerMultimap.get(device);
@@ -399,17 +424,40 @@ public final class AndroidLogcatService implements AndroidDebugBridge.IDeviceCha
         return;
       }
 
-      for (Iterator<ListenerConnector> iter = connectors.iterator(); iter.hasNext();) {
-        ListenerConnector connector = iter.next();
-        if (connector.isConnectedTo(listener)) {
-          connector.disconnectListener();
-          iter.remove();
-          break;
-        }
-      }
+      disconnectListener(connectors, listener);
 
       if (connectors.isEmpty()) {
         stopReceiving(device);
+        myLogBuffers.remove(device);
+      }
+    }
+  }
+
+  /**
+   * Notifies a listener of the old log messages accepted by {@code oldLogsFilter} again, e.g. to show the messages of a different filter.
+   * Unlike removing and adding the listener back, this keeps the log messages received so far, even if the device has been disconnected.
+   * <p>
+   * {@code clearOutput} runs once the listener no longer receives any message and before the old messages are replayed, so the
+   * listener's output gets each message exactly once.
+   */
+  public void resetListener(@NotNull IDevice device,
+                            @NotNull LogcatListener listener,
+                            @NotNull AndroidLogcatFilter oldLogsFilter,
+                            @NotNull Runnable clearOutput) {
+    synchronized (myLock) {
+      disconnectListener(myDeviceToListenerMultimap.get(device), listener);
+      clearOutput.run();
+      addListener(device, listener, oldLogsFilter);
+    }
+  }
+
+  private static void disconnectListener(@NotNull Collection<ListenerConnector> connectors, @NotNull LogcatListener listener) {
+    for (Iterator<ListenerConnector> iter = connectors.iterator(); iter.hasNext();) {
+      ListenerConnector connector = iter.next();
+      if (connector.isConnectedTo(listener)) {
+        connector.disconnectListener();
+        iter.remove();
+        break;
       }
     }
   }
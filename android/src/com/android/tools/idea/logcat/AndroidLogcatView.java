@@ -306,7 +306,7 @@ public class AndroidLogcatView {
       myDevice = device;
 
       myLogFilterModel.processingStarted();
-      androidLogcatService.addListener(myDevice, myLogcatReceiver, true);
+      androidLogcatService.addListener(myDevice, myLogcatReceiver, getOldLogsFilter());
     }
   }
 
@@ -323,15 +323,42 @@ public class AndroidLogcatView {
   private void applySelectedFilter() {
     final Object filter = myFilterComboBoxModel.getSelectedItem();
     if (filter instanceof AndroidLogcatFilter) {
+      myLogFilterModel.setLogcatFilter((AndroidLogcatFilter)filter);
+
+      // Instead of refiltering the text of the console, which only holds the lines of the previous filter, refill it with the lines
+      // of the new filter, which AndroidLogcatService looks up in the indexed log buffer of the device.
+      IDevice device = myDevice;
+      myLogFilterModel.processingStarted();
+      if (device == null) {
+        clearLogConsole();
+        return;
+      }
+      AndroidLogcatFilter oldLogsFilter = getOldLogsFilter();
+      // Looking up the lines of a large buffer takes a while, and holds the lock of the service.
       ProgressManager.getInstance().run(new Task.Backgroundable(myProject, "Applying Filter...") {
         @Override
         public void run(@NotNull ProgressIndicator indicator) {
-          myLogFilterModel.updateLogcatFilter((AndroidLogcatFilter)filter);
+          // The console is cleared while the receiver is disconnected, so the lines received meanwhile are only printed by the replay.
+          AndroidLogcatService.getInstance()
+            .resetListener(device, myLogcatReceiver, oldLogsFilter, AndroidLogcatView.this::clearLogConsole);
         }
       });
     }
   }
 
+  private void clearLogConsole() {
+    // We check for null, because myLogConsole.clear() depends on myLogConsole.getConsole() not being null
+    if (myLogConsole.getConsole() != null) {
+      myLogConsole.clear();
+    }
+  }
+
+  @NotNull
+  private AndroidLogcatFilter getOldLogsFilter() {
+    AndroidLogcatFilter filter = myLogFilterModel.getLogcatFilter();
+    return filter != null ? filter : NO_FILTERS_ITEM;
+  }
+
   /**
    * Update the list of filters which are provided by default (selected app and filters provided
    * by plugins). These show up in the top half of the filter pulldown.
@@ -129,6 +129,21 @@ public final class DefaultAndroidLogcatFilter implements AndroidLogcatFilter {
     return myName;
   }
 
+  @Nullable
+  Pattern getTagPattern() {
+    return myTagPattern;
+  }
+
+  @Nullable
+  String getPid() {
+    return myPid;
+  }
+
+  @Nullable
+  Log.LogLevel getLogLevel() {
+    return myLogLevel;
+  }
+
   @NotNull
   public static DefaultAndroidLogcatFilter compile(@NotNull PersistentAndroidLogFilters.FilterData filterData, @NotNull String name) {
 
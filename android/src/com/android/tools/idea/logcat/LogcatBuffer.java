@@ -0,0 +1,386 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.logcat;
+
+import com.android.ddmlib.Log.LogLevel;
+import com.android.ddmlib.logcat.LogCatHeader;
+import com.android.ddmlib.logcat.LogCatMessage;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Fixed-capacity ring buffer of the log lines received from a device, which drops the oldest lines once full.
+ *
+ * <p>Lines are stored as a header and a message in two parallel arrays, the lines of a multi-line log entry sharing the header instance
+ * created by {@link AndroidLogcatReceiver}. The buffer also indexes the entries by tag, pid and log level as they are added, so
+ * {@link #getMessages(AndroidLogcatFilter)} only evaluates the filter against the entries that can match it, instead of against the
+ * whole backlog.
+ *
+ * <p>This class isn't thread safe. {@link AndroidLogcatService} guards its buffers with its lock.
+ */
+final class LogcatBuffer {
+  @NotNull private LogCatHeader[] myHeaders;
+  @NotNull private String[] myMessages;
+
+  /**
+   * Number of lines added since the buffer was created. Line {@code n} is stored at index {@code n % capacity} and is still in the buffer
+   * if {@code n >= getFirstSequence()}.
+   */
+  private long myNextSequence;
+
+  /**
+   * Sequence numbers of the first line of every entry, per tag, pid and level. Entries evicted from the buffer are pruned lazily.
+   */
+  private final Map<String, SequenceList> myTagIndex = new HashMap<>();
+  private final Map<Integer, SequenceList> myPidIndex = new HashMap<>();
+  private final Map<LogLevel, SequenceList> myLevelIndex = new EnumMap<>(LogLevel.class);
+
+  private long myNextPruneSequence;
+
+  LogcatBuffer(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    myHeaders = new LogCatHeader[capacity];
+    myMessages = new String[capacity];
+    myNextPruneSequence = capacity;
+  }
+
+  int getCapacity() {
+    return myHeaders.length;
+  }
+
+  int size() {
+    return (int)(myNextSequence - getFirstSequence());
+  }
+
+  void addMessage(@NotNull LogCatMessage message) {
+    LogCatHeader header = message.getHeader();
+    long sequence = myNextSequence++;
+    int index = (int)(sequence % myHeaders.length);
+
+    if (sequence == 0 || header != myHeaders[(int)((sequence - 1) % myHeaders.length)]) {
+      myTagIndex.computeIfAbsent(header.getTag(), tag -> new SequenceList()).add(sequence);
+      myPidIndex.computeIfAbsent(header.getPid(), pid -> new SequenceList()).add(sequence);
+      myLevelIndex.computeIfAbsent(header.getLogLevel(), level -> new SequenceList()).add(sequence);
+    }
+    myHeaders[index] = header;
+    myMessages[index] = message.getMessage();
+
+    if (myNextSequence >= myNextPruneSequence) {
+      // Once every capacity lines, so pruning costs amortized O(1) per line and the indices never hold more than twice the buffer.
+      pruneIndices();
+      myNextPruneSequence = myNextSequence + myHeaders.length;
+    }
+  }
+
+  /**
+   * Changes the capacity of the buffer, dropping the oldest lines if they don't fit in the new one.
+   */
+  void setCapacity(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    if (capacity == myHeaders.length) {
+      return;
+    }
+    LogCatHeader[] headers = new LogCatHeader[capacity];
+    String[] messages = new String[capacity];
+    for (long sequence = Math.max(getFirstSequence(), myNextSequence - capacity); sequence < myNextSequence; sequence++) {
+      headers[(int)(sequence % capacity)] = myHeaders[(int)(sequence % myHeaders.length)];
+      messages[(int)(sequence % capacity)] = myMessages[(int)(sequence % myHeaders.length)];
+    }
+    myHeaders = headers;
+    myMessages = messages;
+    pruneIndices();
+    myNextPruneSequence = myNextSequence + capacity;
+  }
+
+  /**
+   * Returns every line in the buffer, oldest first.
+   */
+  @NotNull
+  List<LogCatMessage> getMessages() {
+    List<LogCatMessage> messages = new ArrayList<>(size());
+    for (long sequence = getFirstSequence(); sequence < myNextSequence; sequence++) {
+      messages.add(getMessage(sequence));
+    }
+    return messages;
+  }
+
+  /**
+   * Returns the lines of the entries accepted by the filter, oldest first. As in {@link AndroidLogFilterModel}, an entry is accepted as
+   * a whole if the filter accepts any of its lines.
+   */
+  @NotNull
+  List<LogCatMessage> getMessages(@NotNull AndroidLogcatFilter filter) {
+    if (filter instanceof MatchAllFilter) {
+      return getMessages();
+    }
+
+    List<LogCatMessage> messages = new ArrayList<>();
+    long firstSequence = getFirstSequence();
+    if (firstSequence == myNextSequence) {
+      return messages;
+    }
+
+    long[] candidates = getCandidateEntries(filter);
+    // The first entry of the buffer may have lost its first line, in which case it isn't in the indices.
+    long firstEntryEnd = getEntryEnd(firstSequence);
+    if (candidates == null || Arrays.binarySearch(candidates, firstSequence) < 0) {
+      addEntryIfApplicable(filter, firstSequence, firstEntryEnd, messages);
+    }
+
+    if (candidates == null) {
+      for (long sequence = firstEntryEnd; sequence < myNextSequence; ) {
+        long entryEnd = getEntryEnd(sequence);
+        addEntryIfApplicable(filter, sequence, entryEnd, messages);
+        sequence = entryEnd;
+      }
+    }
+    else {
+      for (long sequence : candidates) {
+        if (sequence >= firstSequence) {
+          addEntryIfApplicable(filter, sequence, getEntryEnd(sequence), messages);
+        }
+      }
+    }
+    return messages;
+  }
+
+  /**
+   * Returns the sorted sequence numbers of the entries which can match the filter according to the indices, or null if the filter
+   * can't be answered from the indices and every entry must be checked.
+   */
+  @Nullable
+  private long[] getCandidateEntries(@NotNull AndroidLogcatFilter filter) {
+    if (filter instanceof SelectedProcessFilter) {
+      return getEntries(myPidIndex.get(((SelectedProcessFilter)filter).getProcessId()));
+    }
+    if (!(filter instanceof DefaultAndroidLogcatFilter)) {
+      return null;
+    }
+
+    DefaultAndroidLogcatFilter defaultFilter = (DefaultAndroidLogcatFilter)filter;
+    long[] candidates = null;
+
+    String pid = defaultFilter.getPid();
+    if (pid != null && !pid.isEmpty()) {
+      Integer pidValue = parsePid(pid);
+      candidates = pidValue == null ? new long[0] : getEntries(myPidIndex.get(pidValue));
+    }
+
+    Pattern tagPattern = defaultFilter.getTagPattern();
+    if (tagPattern != null) {
+      // Matching the pattern once per distinct tag is what makes this cheaper than checking every entry.
+      List<SequenceList> lists = new ArrayList<>();
+      for (Map.Entry<String, SequenceList> entry : myTagIndex.entrySet()) {
+        if (tagPattern.matcher(entry.getKey()).find()) {
+          lists.add(entry.getValue());
+        }
+      }
+      candidates = intersect(candidates, union(lists));
+    }
+
+    LogLevel logLevel = defaultFilter.getLogLevel();
+    if (logLevel != null) {
+      List<SequenceList> lists = new ArrayList<>();
+      for (Map.Entry<LogLevel, SequenceList> entry : myLevelIndex.entrySet()) {
+        if (entry.getKey().getPriority() >= logLevel.getPriority()) {
+          lists.add(entry.getValue());
+        }
+      }
+      candidates = intersect(candidates, union(lists));
+    }
+
+    return candidates;
+  }
+
+  private void addEntryIfApplicable(@NotNull AndroidLogcatFilter filter, long start, long end, @NotNull List<LogCatMessage> messages) {
+    for (long sequence = start; sequence < end; sequence++) {
+      LogCatHeader header = getHeader(sequence);
+      String message = myMessages[(int)(sequence % myHeaders.length)];
+      if (filter.isApplicable(message, header.getTag(), header.getAppName(), header.getPid(), header.getLogLevel())) {
+        for (long line = start; line < end; line++) {
+          messages.add(getMessage(line));
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns the sequence number following the last line of the entry starting at the given line.
+   */
+  private long getEntryEnd(long start) {
+    LogCatHeader header = getHeader(start);
+    long end = start + 1;
+    while (end < myNextSequence && getHeader(end) == header) {
+      end++;
+    }
+    return end;
+  }
+
+  private long getFirstSequence() {
+    return Math.max(0, myNextSequence - myHeaders.length);
+  }
+
+  @NotNull
+  private LogCatHeader getHeader(long sequence) {
+    return myHeaders[(int)(sequence % myHeaders.length)];
+  }
+
+  @NotNull
+  private LogCatMessage getMessage(long sequence) {
+    int index = (int)(sequence % myHeaders.length);
+    return new LogCatMessage(myHeaders[index], myMessages[index]);
+  }
+
+  private void pruneIndices() {
+    long firstSequence = getFirstSequence();
+    pruneIndex(myTagIndex, firstSequence);
+    pruneIndex(myPidIndex, firstSequence);
+    pruneIndex(myLevelIndex, firstSequence);
+  }
+
+  private static void pruneIndex(@NotNull Map<?, SequenceList> index, long firstSequence) {
+    Iterator<SequenceList> iterator = index.values().iterator();
+    while (iterator.hasNext()) {
+      SequenceList list = iterator.next();
+      list.removeBefore(firstSequence);
+      if (list.isEmpty()) {
+        iterator.remove();
+      }
+    }
+  }
+
+  @Nullable
+  private static Integer parsePid(@NotNull String pid) {
+    try {
+      int value = Integer.parseInt(pid);
+      // DefaultAndroidLogcatFilter compares the pid as a string, so e.g. "012" never matches.
+      return Integer.toString(value).equals(pid) ? value : null;
+    }
+    catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  @NotNull
+  private static long[] getEntries(@Nullable SequenceList list) {
+    return list == null ? new long[0] : list.toArray();
+  }
+
+  @NotNull
+  private static long[] union(@NotNull List<SequenceList> lists) {
+    if (lists.size() == 1) {
+      return lists.get(0).toArray();
+    }
+    int size = 0;
+    for (SequenceList list : lists) {
+      size += list.size();
+    }
+    long[] union = new long[size];
+    int offset = 0;
+    for (SequenceList list : lists) {
+      offset = list.copyTo(union, offset);
+    }
+    // An entry has a single tag and level, so the lists are disjoint and only need sorting.
+    Arrays.sort(union);
+    return union;
+  }
+
+  @NotNull
+  private static long[] intersect(@Nullable long[] a, @NotNull long[] b) {
+    if (a == null) {
+      return b;
+    }
+    long[] intersection = new long[Math.min(a.length, b.length)];
+    int size = 0;
+    for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+      if (a[i] < b[j]) {
+        i++;
+      }
+      else if (a[i] > b[j]) {
+        j++;
+      }
+      else {
+        intersection[size++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(intersection, size);
+  }
+
+  /**
+   * Growable array of ascending sequence numbers, from which the smallest ones can be removed.
+   */
+  private static final class SequenceList {
+    @NotNull private long[] mySequences = new long[4];
+    private int myStart;
+    private int myEnd;
+
+    void add(long sequence) {
+      if (myEnd == mySequences.length) {
+        if (myStart > mySequences.length / 2) {
+          compact();
+        }
+        else {
+          mySequences = Arrays.copyOfRange(mySequences, myStart, mySequences.length * 2 + myStart);
+          myEnd -= myStart;
+          myStart = 0;
+        }
+      }
+      mySequences[myEnd++] = sequence;
+    }
+
+    void removeBefore(long sequence) {
+      int index = Arrays.binarySearch(mySequences, myStart, myEnd, sequence);
+      myStart = index < 0 ? -index - 1 : index;
+      if (myStart == myEnd) {
+        myStart = myEnd = 0;
+      }
+    }
+
+    boolean isEmpty() {
+      return myStart == myEnd;
+    }
+
+    int size() {
+      return myEnd - myStart;
+    }
+
+    @NotNull
+    long[] toArray() {
+      return Arrays.copyOfRange(mySequences, myStart, myEnd);
+    }
+
+    int copyTo(@NotNull long[] destination, int offset) {
+      System.arraycopy(mySequences, myStart, destination, offset, size());
+      return offset + size();
+    }
+
+    private void compact() {
+      System.arraycopy(mySequences, myStart, mySequences, 0, size());
+      myEnd -= myStart;
+      myStart = 0;
+    }
+  }
+}
@@ -25,6 +25,10 @@ final class SelectedProcessFilter implements AndroidLogcatFilter {
     myProcessId = processId;
   }
 
+  int getProcessId() {
+    return myProcessId;
+  }
+
   @NotNull
   @Override
   public String getName() {
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.rendering;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.util.function.Function;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Application wide cache of class files rewritten by {@link ClassConverter}, keyed by the hash of the original class file contents.
+ * A new {@link RenderClassLoader} is created for every build and for every preview, but most of the classes it loads, e.g. the ones
+ * coming from libraries, don't change between builds. The cache lets those classes skip the ASM rewrite.
+ */
+public final class ConvertedClassCache {
+  /** Maximum total size of the cached class files, in bytes. */
+  private static final long MAX_SIZE_BYTES = Long.getLong("render.class.loader.converted.cache.size", 64L * 1024 * 1024);
+
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  private static final ConvertedClassCache ourInstance = new ConvertedClassCache(MAX_SIZE_BYTES);
+
+  private final Cache<HashCode, byte[]> myCache;
+
+  @VisibleForTesting
+  ConvertedClassCache(long maxSizeBytes) {
+    myCache = CacheBuilder.newBuilder()
+      .maximumWeight(maxSizeBytes)
+      .weigher((HashCode key, byte[] value) -> value.length)
+      .recordStats()
+      .build();
+  }
+
+  @NotNull
+  public static ConvertedClassCache getInstance() {
+    return ourInstance;
+  }
+
+  /**
+   * Returns the result of applying {@code converter} to {@code classData}, reusing the result of a previous conversion of a class file
+   * with the same contents if it is still in the cache. The converter has to be a pure function of the class file contents and must be
+   * the same for all callers. The returned array must not be modified.
+   */
+  @NotNull
+  public byte[] getOrConvert(@NotNull byte[] classData, @NotNull Function<byte[], byte[]> converter) {
+    HashCode key = HASH_FUNCTION.hashBytes(classData);
+    byte[] converted = myCache.getIfPresent(key);
+    if (converted == null) {
+      converted = converter.apply(classData);
+      myCache.put(key, converted);
+    }
+    return converted;
+  }
+
+  /**
+   * Returns the hit and miss counts of the cache since the start of the application.
+   */
+  @NotNull
+  public CacheStats getStats() {
+    return myCache.stats();
+  }
+
+  public void clear() {
+    myCache.invalidateAll();
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.rendering;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulated timings of render actions: how long they waited for their render thread to become available and how long they took to run.
+ * See {@link RenderService#getRenderActionStats()} and {@link RenderTask#getRenderActionStats()}.
+ */
+public final class RenderActionStats {
+  private final AtomicInteger myActionCount = new AtomicInteger();
+  private final AtomicLong myQueueWaitTimeNs = new AtomicLong();
+  private final AtomicLong myMaxQueueWaitTimeNs = new AtomicLong();
+  private final AtomicLong myRunTimeNs = new AtomicLong();
+
+  void record(long queueWaitTimeNs, long runTimeNs) {
+    myActionCount.incrementAndGet();
+    myQueueWaitTimeNs.addAndGet(queueWaitTimeNs);
+    myMaxQueueWaitTimeNs.accumulateAndGet(queueWaitTimeNs, Math::max);
+    myRunTimeNs.addAndGet(runTimeNs);
+  }
+
+  /** Returns the number of render actions that have finished running. */
+  public int getActionCount() {
+    return myActionCount.get();
+  }
+
+  /** Returns the total time, in milliseconds, the render actions spent waiting in the queue of their render thread. */
+  public long getQueueWaitTimeMs() {
+    return TimeUnit.NANOSECONDS.toMillis(myQueueWaitTimeNs.get());
+  }
+
+  /** Returns the longest time, in milliseconds, a single render action spent waiting in the queue of its render thread. */
+  public long getMaxQueueWaitTimeMs() {
+    return TimeUnit.NANOSECONDS.toMillis(myMaxQueueWaitTimeNs.get());
+  }
+
+  /** Returns the total time, in milliseconds, the render actions took to run. */
+  public long getRunTimeMs() {
+    return TimeUnit.NANOSECONDS.toMillis(myRunTimeNs.get());
+  }
+
+  @Override
+  public String toString() {
+    return "RenderActionStats{actions=" + getActionCount() +
+           ", queueWait=" + getQueueWaitTimeMs() + "ms" +
+           ", maxQueueWait=" + getMaxQueueWaitTimeMs() + "ms" +
+           ", run=" + getRunTimeMs() + "ms}";
+  }
+}
@@ -121,6 +121,7 @@ public abstract class RenderClassLoader extends ClassLoader {
     if (LOG.isDebugEnabled()) {
       LOG.debug("usePreload = " + USE_PRELOAD);
       LOG.debug("useCache = " + USE_CACHE);
+      LOG.debug("convertedClassCache = " + ConvertedClassCache.getInstance().getStats());
     }
     if (!USE_PRELOAD) {
       builder.noPreload();
@@ -179,9 +180,13 @@ public abstract class RenderClassLoader extends ClassLoader {
     }
   }
 
+  /**
+   * Rewrites the given class file to a version runnable by layoutlib. Classes that have already been rewritten by another class loader
+   * are taken from the {@link ConvertedClassCache}.
+   */
   @NotNull
   protected byte[] convertClass(@NotNull byte[] data) {
-    return ClassConverter.rewriteClass(data);
+    return ConvertedClassCache.getInstance().getOrConvert(data, ClassConverter::rewriteClass);
   }
 
   @NotNull
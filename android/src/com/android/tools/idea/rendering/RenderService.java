@@ -55,9 +55,11 @@ import com.intellij.util.IncorrectOperationException;
 import com.intellij.util.concurrency.AppExecutorUtil;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -87,8 +89,14 @@ public class RenderService implements Disposable {
                                                                               : 6));
   @VisibleForTesting
   public static long ourRenderThreadTimeoutMs = DEFAULT_RENDER_THREAD_TIMEOUT_MS;
-  private static final AtomicReference<Thread> ourRenderingThread = new AtomicReference<>();
-  private static ExecutorService ourRenderingExecutor;
+  /**
+   * Number of threads render actions are distributed over. Layoutlib still serializes the work it does under its own lock, but with more
+   * than one thread, renders of different {@link RenderTask}s overlap all the work they do outside of layoutlib.
+   */
+  private static final int RENDER_THREAD_COUNT = Math.max(1, Integer.getInteger("layoutlib.render.threads", 1));
+  private static final AtomicInteger ourNextRenderThread = new AtomicInteger();
+  private static RenderThread[] ourRenderThreads;
+  private static final RenderActionStats ourRenderActionStats = new RenderActionStats();
   private static final AtomicInteger ourTimeoutExceptionCounter = new AtomicInteger(0);
 
   private static final Key<RenderService> KEY = Key.create(RenderService.class.getName());
@@ -103,16 +111,11 @@ public class RenderService implements Disposable {
   private final Project myProject;
 
   private static void innerInitializeRenderExecutor() {
-    ourRenderingExecutor = new ThreadPoolExecutor(1, 1,
-                             0, TimeUnit.MILLISECONDS,
-                             new LinkedBlockingQueue<>(),
-                             (Runnable r) -> {
-                               Thread renderingThread = new Thread(null, r, "Layoutlib Render Thread");
-                               renderingThread.setDaemon(true);
-                               ourRenderingThread.set(renderingThread);
-
-                               return renderingThread;
-                             });
+    RenderThread[] renderThreads = new RenderThread[RENDER_THREAD_COUNT];
+    for (int i = 0; i < renderThreads.length; i++) {
+      renderThreads[i] = new RenderThread(i == 0 ? "Layoutlib Render Thread" : "Layoutlib Render Thread " + i);
+    }
+    ourRenderThreads = renderThreads;
   }
 
   @TestOnly
@@ -123,15 +126,14 @@ public class RenderService implements Disposable {
   }
 
   private static void shutdownRenderExecutor() {
-    ourRenderingExecutor.shutdownNow();
-    Thread currentThread = ourRenderingThread.getAndSet(null);
-    if (currentThread != null) {
-      currentThread.interrupt();
+    Logger.getInstance(RenderService.class).info("Render actions on " + ourRenderThreads.length + " threads: " + ourRenderActionStats);
+    for (RenderThread renderThread : ourRenderThreads) {
+      renderThread.shutdownNow();
     }
   }
 
   /**
-   * Shutdowns the render thread and cancels any pending tasks.
+   * Shutdowns the render threads and cancels any pending tasks.
    * @param timeoutSeconds if >0, wait at most this number of seconds before killing any running tasks.
    */
   @TestOnly
@@ -139,8 +141,11 @@ public class RenderService implements Disposable {
     assert ApplicationManager.getApplication().isUnitTestMode(); // Only to be called from unit tests
 
     if (timeoutSeconds > 0) {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
       try {
-        ourRenderingExecutor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS);
+        for (RenderThread renderThread : ourRenderThreads) {
+          renderThread.myExecutor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
       }
       catch (InterruptedException ignored) {
         Logger.getInstance(RenderService.class).warn("The RenderExecutor does not shutdown after " + timeoutSeconds + " seconds");
@@ -287,11 +292,19 @@ public class RenderService implements Disposable {
    * method.
    */
   public static <T> T runRenderAction(@NotNull Callable<T> callable) throws Exception {
+    return runRenderAction(callable, 0, null);
+  }
+
+  /**
+   * Runs a render action on the given render thread, see {@link #allocateRenderThread()}, and records its timings in {@code stats}.
+   */
+  static <T> T runRenderAction(@NotNull Callable<T> callable, int renderThreadIndex, @Nullable RenderActionStats stats) throws Exception {
+    RenderThread renderThread = getRenderThread(renderThreadIndex);
     try {
       // If the number of timeouts exceeds a certain threshold, stop waiting so the caller doesn't block. We try to submit a task that
       // clean-up the timeout counter instead. If it goes through, it means the queue is free.
       if (ourTimeoutExceptionCounter.get() > 3) {
-        ourRenderingExecutor.submit(() -> ourTimeoutExceptionCounter.set(0)).get(50, TimeUnit.MILLISECONDS);
+        renderThread.myExecutor.submit(() -> ourTimeoutExceptionCounter.set(0)).get(50, TimeUnit.MILLISECONDS);
       }
       long timeout = ourRenderThreadTimeoutMs;
       if (isFirstCall) {
@@ -300,7 +313,7 @@ public class RenderService implements Disposable {
         isFirstCall = false;
         timeout *= 2;
       }
-      T result = ourRenderingExecutor.submit(callable).get(timeout, TimeUnit.MILLISECONDS);
+      T result = renderThread.submit(callable, stats).get(timeout, TimeUnit.MILLISECONDS);
       // The executor seems to be taking tasks so reset the counter
       ourTimeoutExceptionCounter.set(0);
 
@@ -309,7 +322,7 @@ public class RenderService implements Disposable {
     catch (TimeoutException e) {
       ourTimeoutExceptionCounter.incrementAndGet();
 
-      Thread renderingThread = ourRenderingThread.get();
+      Thread renderingThread = renderThread.myThread.get();
       TimeoutException timeoutException = new TimeoutException("Preview timed out while rendering the layout.\n" +
                                                                "This typically happens when there is an infinite loop or unbounded recursion in one of the custom views.");
       if (renderingThread != null) {
@@ -328,7 +341,18 @@ public class RenderService implements Disposable {
    */
   @NotNull
   public static <T> CompletableFuture<T> runAsyncRenderAction(@NotNull Supplier<T> callable) {
-    return CompletableFuture.supplyAsync(callable, ourRenderingExecutor);
+    return runAsyncRenderAction(callable, 0, null);
+  }
+
+  /**
+   * Runs a render action asynchronously on the given render thread, see {@link #allocateRenderThread()}, and records its timings in
+   * {@code stats}.
+   */
+  @NotNull
+  static <T> CompletableFuture<T> runAsyncRenderAction(@NotNull Supplier<T> callable,
+                                                       int renderThreadIndex,
+                                                       @Nullable RenderActionStats stats) {
+    return getRenderThread(renderThreadIndex).submit(callable::get, stats);
   }
 
   /**
@@ -338,7 +362,48 @@ public class RenderService implements Disposable {
    * This method will run the passed action asynchronously
    */
   public static void runAsyncRenderAction(@NotNull Runnable runnable) {
-    ourRenderingExecutor.submit(runnable);
+    runAsyncRenderAction(runnable, 0, null);
+  }
+
+  /**
+   * Runs a render action asynchronously on the given render thread, see {@link #allocateRenderThread()}, and records its timings in
+   * {@code stats}.
+   */
+  static void runAsyncRenderAction(@NotNull Runnable runnable, int renderThreadIndex, @Nullable RenderActionStats stats) {
+    getRenderThread(renderThreadIndex).submit(Executors.callable(runnable), stats);
+  }
+
+  /**
+   * Returns the index of the render thread a new {@link RenderTask} should run all its actions on. Keeping all the actions of a task on
+   * one thread preserves their order and keeps the thread local state of layoutlib and of the custom views used by the task isolated
+   * from the other tasks. Among the render threads, the one with the fewest pending actions is picked, starting from the one after the
+   * previous pick so that tasks created at the same time are spread over all threads.
+   */
+  static int allocateRenderThread() {
+    RenderThread[] renderThreads = ourRenderThreads;
+    int start = Math.floorMod(ourNextRenderThread.getAndIncrement(), renderThreads.length);
+    int best = start;
+    for (int i = 1; i < renderThreads.length; i++) {
+      int index = (start + i) % renderThreads.length;
+      if (renderThreads[index].myPendingActions.get() < renderThreads[best].myPendingActions.get()) {
+        best = index;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Returns the queue wait and run times of all render actions executed so far.
+   */
+  @NotNull
+  public static RenderActionStats getRenderActionStats() {
+    return ourRenderActionStats;
+  }
+
+  @NotNull
+  private static RenderThread getRenderThread(int index) {
+    RenderThread[] renderThreads = ourRenderThreads;
+    return renderThreads[index % renderThreads.length];
   }
 
   /**
@@ -674,4 +739,79 @@ public class RenderService implements Disposable {
       return Futures.getUnchecked(build());
     }
   }
+
+  /**
+   * A single thread running render actions in the order they were submitted.
+   */
+  private static class RenderThread {
+    @NotNull private final ExecutorService myExecutor;
+    @NotNull private final AtomicReference<Thread> myThread = new AtomicReference<>();
+    @NotNull private final AtomicInteger myPendingActions = new AtomicInteger();
+
+    RenderThread(@NotNull String name) {
+      myExecutor = new ThreadPoolExecutor(1, 1,
+                                          0, TimeUnit.MILLISECONDS,
+                                          new LinkedBlockingQueue<>(),
+                                          (Runnable r) -> {
+                                            Thread renderingThread = new Thread(null, r, name);
+                                            renderingThread.setDaemon(true);
+                                            myThread.set(renderingThread);
+
+                                            return renderingThread;
+                                          });
+    }
+
+    /**
+     * Queues the given action, recording how long it waited for the thread and how long it ran in the global stats and in {@code stats}.
+     * The returned future completes after the timings are recorded, so callers waiting for it see the timings of the action.
+     */
+    @NotNull
+    <T> CompletableFuture<T> submit(@NotNull Callable<T> action, @Nullable RenderActionStats stats) {
+      CompletableFuture<T> future = new CompletableFuture<>();
+      long submitTime = System.nanoTime();
+      Runnable task = () -> {
+        long startTime = System.nanoTime();
+        T result = null;
+        Throwable error = null;
+        try {
+          result = action.call();
+        }
+        catch (Throwable t) {
+          error = t;
+        }
+        myPendingActions.decrementAndGet();
+        long runTime = System.nanoTime() - startTime;
+        ourRenderActionStats.record(startTime - submitTime, runTime);
+        if (stats != null) {
+          stats.record(startTime - submitTime, runTime);
+        }
+
+        if (error == null) {
+          future.complete(result);
+        }
+        else {
+          // Same as CompletableFuture.supplyAsync, so that dependent stages see the same exceptions.
+          future.completeExceptionally(error instanceof CompletionException ? error : new CompletionException(error));
+        }
+      };
+      myPendingActions.incrementAndGet();
+      try {
+        myExecutor.execute(task);
+      }
+      catch (RejectedExecutionException e) {
+        // The action will never run, it must not make the thread look busier to allocateRenderThread.
+        myPendingActions.decrementAndGet();
+        throw e;
+      }
+      return future;
+    }
+
+    void shutdownNow() {
+      myExecutor.shutdownNow();
+      Thread currentThread = myThread.getAndSet(null);
+      if (currentThread != null) {
+        currentThread.interrupt();
+      }
+    }
+  }
 }
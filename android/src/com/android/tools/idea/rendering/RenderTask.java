@@ -166,6 +166,9 @@ public class RenderTask {
   private final boolean isSecurityManagerEnabled;
   @NotNull private CrashReporter myCrashReporter;
   private final List<CompletableFuture<?>> myRunningFutures = new LinkedList<>();
+  /** The render thread all the render actions of this task run on. */
+  private final int myRenderThread = RenderService.allocateRenderThread();
+  @NotNull private final RenderActionStats myRenderActionStats = new RenderActionStats();
   @NotNull private final AtomicBoolean isDisposed = new AtomicBoolean(false);
   @Nullable private XmlFile myXmlFile;
 
@@ -281,6 +284,24 @@ public class RenderTask {
     return isDisposed.get();
   }
 
+  /**
+   * Returns how long the render actions of this task waited for, and ran on, their render thread.
+   */
+  @NotNull
+  public RenderActionStats getRenderActionStats() {
+    return myRenderActionStats;
+  }
+
+  /**
+   * Runs the passed {@link Callable} on the render thread of this task and waits for its result. Code calling into the view objects
+   * created by this task should use this method, or {@link #runAsyncRenderAction(Supplier)}, instead of the ones in
+   * {@link RenderService}, so that it runs on the same thread as the task.
+   * See {@link RenderService#runRenderAction(Callable)}.
+   */
+  public <V> V runRenderAction(@NotNull Callable<V> callable) throws Exception {
+    return RenderService.runRenderAction(callable, myRenderThread, myRenderActionStats);
+  }
+
   private void clearGapWorkerCache() {
     if (!myLayoutlibCallback.hasLoadedClass(SdkConstants.RECYCLER_VIEW.newName()) &&
         !myLayoutlibCallback.hasLoadedClass(SdkConstants.RECYCLER_VIEW.oldName())) {
@@ -293,7 +314,7 @@ public class RenderTask {
       Field gapWorkerField = gapWorkerClass.getDeclaredField("sGapWorker");
       gapWorkerField.setAccessible(true);
 
-      // Because we are clearing-up a ThreadLocal, the code must run on the Layoutlib Thread
+      // Because we are clearing-up a ThreadLocal, the code must run on the render thread of this task
       RenderService.runAsyncRenderAction(() -> {
         try {
           ThreadLocal<?> gapWorkerFieldValue = (ThreadLocal<?>)gapWorkerField.get(null);
@@ -303,7 +324,7 @@ public class RenderTask {
         catch (IllegalAccessException e) {
           LOG.debug(e);
         }
-      });
+      }, myRenderThread, myRenderActionStats);
     } catch(Throwable t) {
       LOG.debug(t);
     }
@@ -336,7 +357,7 @@ public class RenderTask {
       myLayoutlibCallback.setLogger(IRenderLogger.NULL_LOGGER);
       if (myRenderSession != null) {
         try {
-          RenderService.runAsyncRenderAction(myRenderSession::dispose);
+          RenderService.runAsyncRenderAction(myRenderSession::dispose, myRenderThread, myRenderActionStats);
           myRenderSession = null;
         }
         catch (Exception ignored) {
@@ -344,6 +365,9 @@ public class RenderTask {
       }
       myImageFactoryDelegate = null;
       myAssetRepository = null;
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Render actions of disposed task: " + myRenderActionStats);
+      }
 
       return null;
     });
@@ -692,15 +716,14 @@ public class RenderTask {
    * wait until all the async actions have finished running.
    * See {@link RenderService#runAsyncRenderAction(Supplier)}.
    */
-  @VisibleForTesting
   @NotNull
-  <V> CompletableFuture<V> runAsyncRenderAction(@NotNull Supplier<V> callable) {
+  public <V> CompletableFuture<V> runAsyncRenderAction(@NotNull Supplier<V> callable) {
     if (isDisposed.get()) {
       return immediateFailedFuture(new IllegalStateException("RenderTask was already disposed"));
     }
 
     synchronized (myRunningFutures) {
-      CompletableFuture<V> newFuture = RenderService.runAsyncRenderAction(callable);
+      CompletableFuture<V> newFuture = RenderService.runAsyncRenderAction(callable, myRenderThread, myRenderActionStats);
       myRunningFutures.add(newFuture);
       newFuture
         .whenCompleteAsync((result, ex) -> {
@@ -830,7 +853,7 @@ public class RenderTask {
           clearGapWorkerCache();
           RenderService.runAsyncRenderAction(() -> {
             android.view.Choreographer.releaseInstance();
-          });
+          }, myRenderThread, myRenderActionStats);
         });
       }
       catch (Exception e) {
@@ -976,7 +999,7 @@ public class RenderTask {
     }
 
     try {
-      Result result = RenderService.runRenderAction(() -> myLayoutLib.renderDrawable(params));
+      Result result = RenderService.runRenderAction(() -> myLayoutLib.renderDrawable(params), myRenderThread, myRenderActionStats);
 
       if (result != null && result.isSuccess()) {
         Object data = result.getData();
@@ -1035,7 +1058,7 @@ public class RenderTask {
   public CompletableFuture<Map<XmlTag, ViewInfo>> measureChildren(@NotNull XmlTag parent, @Nullable AttributeFilter filter) {
     ILayoutPullParser modelParser = LayoutPsiPullParser.create(filter, parent, myLogger);
     Map<XmlTag, ViewInfo> map = new HashMap<>();
-    return RenderService.runAsyncRenderAction(() -> measure(modelParser))
+    return RenderService.runAsyncRenderAction(() -> measure(modelParser), myRenderThread, myRenderActionStats)
         .thenComposeAsync(session -> {
           if (session != null) {
             try {
@@ -1056,7 +1079,7 @@ public class RenderTask {
               return CompletableFuture.completedFuture(map);
             }
             finally {
-              RenderService.runAsyncRenderAction(session::dispose);
+              RenderService.runAsyncRenderAction(session::dispose, myRenderThread, myRenderActionStats);
             }
           }
 
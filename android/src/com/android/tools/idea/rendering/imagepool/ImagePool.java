@@ -82,6 +82,18 @@ public interface ImagePool {
     long totalBytesAllocated();
 
     long totalBytesInUse();
+
+    /**
+     * Maximum number of bytes the pool allocates before it starts evicting pooled images that are not in use.
+     */
+    long budgetBytes();
+
+    /**
+     * Number of pooled images evicted to keep the pool within budget.
+     */
+    long totalEvictions();
+
+    long totalBytesEvicted();
   }
 
   /**
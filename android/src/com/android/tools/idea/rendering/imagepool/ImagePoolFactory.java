@@ -25,6 +25,12 @@ import java.awt.image.BufferedImage;
  * method that returns an {@link ImagePool} instance that has pooling disabled.
  */
 public class ImagePoolFactory {
+  /**
+   * Memory budget of the pools returned by {@link #createImagePool()}. Defaults to a quarter of the maximum heap size.
+   */
+  private static final long IMAGE_POOL_BUDGET_BYTES =
+    Long.getLong("render.image.pool.budget.mb", Runtime.getRuntime().maxMemory() / (4 * 1024 * 1024)) * 1024 * 1024;
+
   private static final ImagePool NO_POOL_INSTANCE = new ImagePool() {
     @NotNull
     @Override
@@ -64,7 +70,7 @@ public class ImagePoolFactory {
       }
 
       return 50_000_000 / (w * h);
-    });
+    }, IMAGE_POOL_BUDGET_BYTES);
   }
 
   /**
@@ -24,6 +24,7 @@ import com.google.common.collect.Sets;
 import com.intellij.openapi.application.ApplicationManager;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.concurrent.GuardedBy;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -60,6 +61,15 @@ class ImagePoolImpl implements ImagePool {
 
   private final LongAdder myTotalAllocatedBytes = new LongAdder();
   private final LongAdder myTotalInUseBytes = new LongAdder();
+  private final LongAdder myTotalEvictions = new LongAdder();
+  private final LongAdder myTotalEvictedBytes = new LongAdder();
+  /** Maximum number of bytes allocated by the pool before pooled images start being evicted. */
+  private final long myBudgetBytes;
+  /**
+   * The images currently waiting in the buckets, in the order they were returned to the pool. Used to evict the least recently used
+   * images across all buckets when the pool goes over budget. All the bucket operations are done while holding the lock on this map.
+   */
+  private final LinkedHashMap<SoftReference<BufferedImage>, PooledImage> myPooledImages = new LinkedHashMap<>();
 
   private final Stats myStats = new Stats() {
     @Override
@@ -71,6 +81,21 @@ class ImagePoolImpl implements ImagePool {
     public long totalBytesInUse() {
       return myTotalInUseBytes.sum();
     }
+
+    @Override
+    public long budgetBytes() {
+      return myBudgetBytes;
+    }
+
+    @Override
+    public long totalEvictions() {
+      return myTotalEvictions.sum();
+    }
+
+    @Override
+    public long totalBytesEvicted() {
+      return myTotalEvictedBytes.sum();
+    }
   };
 
   /**
@@ -84,14 +109,27 @@ class ImagePoolImpl implements ImagePool {
    *                           allocated into the pool.
    * @param bucketSizingPolicy Function that returns the maximum size for a given bucket. The bucket is defined by width, height and image
    *                           type. If the returned size is 0, no pooling will be done for that bucket size.
+   * @param budgetBytes        Maximum number of bytes, in use or pooled, the pool allocates before it starts evicting the least recently
+   *                           used pooled images. Images in use are never evicted.
    */
-  ImagePoolImpl(@NotNull int[] bucketSizes, @NotNull BiFunction<Integer, Integer, Function<Integer, Integer>> bucketSizingPolicy) {
+  ImagePoolImpl(@NotNull int[] bucketSizes,
+                @NotNull BiFunction<Integer, Integer, Function<Integer, Integer>> bucketSizingPolicy,
+                long budgetBytes) {
     if (DEBUG) {
       System.out.println("New ImagePool");
     }
     myBucketSizes = bucketSizes;
     Arrays.sort(myBucketSizes);
     myBucketSizingPolicy = bucketSizingPolicy;
+    myBudgetBytes = budgetBytes;
+  }
+
+  /**
+   * Constructs a new {@link ImagePoolImpl} without a memory budget.
+   * See {@link #ImagePoolImpl(int[], BiFunction, long)}.
+   */
+  ImagePoolImpl(@NotNull int[] bucketSizes, @NotNull BiFunction<Integer, Integer, Function<Integer, Integer>> bucketSizingPolicy) {
+    this(bucketSizes, bucketSizingPolicy, Long.MAX_VALUE);
   }
 
   private boolean isDisposed = false;
@@ -175,12 +213,8 @@ class ImagePoolImpl implements ImagePool {
     }
 
     BufferedImage image;
-    SoftReference<BufferedImage> imageRef;
     try {
-      imageRef = bucket.remove();
-      while ((image = imageRef.get()) == null) {
-        imageRef = bucket.remove();
-      }
+      image = takePooledImage(bucket);
 
       long totalSize = image.getWidth() * image.getHeight();
       if (DEBUG) {
@@ -216,7 +250,9 @@ class ImagePoolImpl implements ImagePool {
       long estimatedSize = newImageWidth * newImageHeight * 4;
       myTotalAllocatedBytes.add(estimatedSize);
       myTotalInUseBytes.add(estimatedSize);
-
+      synchronized (myPooledImages) {
+        evictOverBudget();
+      }
     }
 
     ImageImpl pooledImage = new ImageImpl(w, h, image);
@@ -227,15 +263,14 @@ class ImagePoolImpl implements ImagePool {
       public void finalizeReferent() {
         // This method might be called twice if the user has manually called the free() method. The second call will have no effect.
         if (myReferences.remove(this)) {
-
-          boolean accepted = bucket.offer(new SoftReference<>(imagePointer));
+          long estimatedSize = imagePointer.getWidth() * imagePointer.getHeight() * 4;
+          boolean accepted = offerPooledImage(bucket, imagePointer, estimatedSize);
           if (DEBUG) {
             System.out.printf("%s image (%dx%d-%d) in bucket (%dx%d)\n",
                               accepted ? "Released" : "Rejected",
                               w, h, type, bucket.myMinWidth, bucket.myMinHeight);
           }
 
-          long estimatedSize = imagePointer.getWidth() * imagePointer.getHeight() * 4;
           if (!accepted) {
             myTotalAllocatedBytes.add(-estimatedSize);
           }
@@ -254,6 +289,79 @@ class ImagePoolImpl implements ImagePool {
     return pooledImage;
   }
 
+  /**
+   * Removes an image from the given bucket, skipping the ones that have been collected by the GC.
+   *
+   * @throws NoSuchElementException if the bucket does not contain any image
+   */
+  @NotNull
+  private BufferedImage takePooledImage(@NotNull Bucket bucket) {
+    synchronized (myPooledImages) {
+      while (true) {
+        SoftReference<BufferedImage> imageRef = bucket.remove();
+        PooledImage pooledImage = myPooledImages.remove(imageRef);
+        BufferedImage image = imageRef.get();
+        if (image != null) {
+          return image;
+        }
+        if (pooledImage != null) {
+          myTotalAllocatedBytes.add(-pooledImage.mySize);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the given image to its bucket, evicting the least recently used pooled images if that brings the pool over budget.
+   *
+   * @return false if the bucket did not accept the image
+   */
+  private boolean offerPooledImage(@NotNull Bucket bucket, @NotNull BufferedImage image, long size) {
+    if (bucket == NULL_BUCKET) {
+      return false;
+    }
+    synchronized (myPooledImages) {
+      SoftReference<BufferedImage> imageRef = new SoftReference<>(image);
+      if (!bucket.offer(imageRef)) {
+        return false;
+      }
+      myPooledImages.put(imageRef, new PooledImage(bucket, size));
+      evictOverBudget();
+      return true;
+    }
+  }
+
+  /**
+   * Evicts the least recently used pooled images until the allocated bytes are within budget or there are no pooled images left.
+   */
+  @GuardedBy("myPooledImages")
+  private void evictOverBudget() {
+    Iterator<Map.Entry<SoftReference<BufferedImage>, PooledImage>> iterator = myPooledImages.entrySet().iterator();
+    while (myTotalAllocatedBytes.sum() > myBudgetBytes && iterator.hasNext()) {
+      Map.Entry<SoftReference<BufferedImage>, PooledImage> entry = iterator.next();
+      iterator.remove();
+      SoftReference<BufferedImage> imageRef = entry.getKey();
+      PooledImage pooledImage = entry.getValue();
+      pooledImage.myBucket.remove(imageRef);
+      myTotalAllocatedBytes.add(-pooledImage.mySize);
+      if (imageRef.get() != null) {
+        myTotalEvictions.increment();
+        myTotalEvictedBytes.add(pooledImage.mySize);
+      }
+      imageRef.clear();
+    }
+  }
+
+  private static class PooledImage {
+    private final Bucket myBucket;
+    private final long mySize;
+
+    PooledImage(@NotNull Bucket bucket, long size) {
+      myBucket = bucket;
+      mySize = size;
+    }
+  }
+
   private static class Bucket extends ForwardingQueue<SoftReference<BufferedImage>> {
     private final Queue<SoftReference<BufferedImage>> myDelegate;
     private final AtomicLong myLastAccess = new AtomicLong(System.currentTimeMillis());
@@ -316,6 +424,9 @@ class ImagePoolImpl implements ImagePool {
     myFinalizableReferenceQueue.close();
     myReferences.clear();
     myPool.clear();
+    synchronized (myPooledImages) {
+      myPooledImages.clear();
+    }
   }
 
   public static class ImageImpl implements ImagePool.Image {
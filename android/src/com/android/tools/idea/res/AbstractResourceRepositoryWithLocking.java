@@ -22,11 +22,15 @@ import com.android.ide.common.resources.ResourceItem;
 import com.android.ide.common.resources.ResourceTable;
 import com.android.ide.common.resources.ResourceVisitor;
 import com.android.resources.ResourceType;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ListMultimap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Predicate;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -37,8 +41,14 @@ import org.jetbrains.annotations.Nullable;
  * <ul>
  *   <li>May compute cells in the table on-demand.
  *   <li>May change in the background, if underlying files or other sources of data have changed.
- *       Because of that access should be synchronized on the {@code ITEM_MAP_LOCK} object.
+ *       Because of that access should be guarded by the read/write lock of the repository, see {@link #getReadLock()} and
+ *       {@link #getWriteLock()}.
  * </ul>
+ *
+ * <p>Each repository has its own lock, so that readers of a repository don't wait for readers or writers of unrelated repositories.
+ * To avoid deadlocks, a thread holding the lock of a repository may only acquire the locks of its descendants, never of its ancestors.
+ * In particular, repositories notify their parents of changes without holding locks of the parents, see
+ * {@link MultiResourceRepository#invalidateCache(LocalResourceRepository)}.
  */
 public abstract class AbstractResourceRepositoryWithLocking extends AbstractResourceRepository {
   /**
@@ -48,23 +58,43 @@ public abstract class AbstractResourceRepositoryWithLocking extends AbstractReso
    * deadlocks (most readers of the repository system execute in a read action, so obtaining the
    * locks in opposite order results in deadlocks).
    */
-  public static final Object ITEM_MAP_LOCK = new Object();
+  private final ReadWriteLock myItemLock = new ReentrantReadWriteLock();
+
+  /**
+   * Returns the lock held by the query methods of this repository while reading its maps.
+   *
+   * <p>Repositories computing their maps on demand in {@link #getMap} or {@link #getFullTable()} should override this method to return
+   * {@link #getWriteLock()}. The read lock can't be upgraded to the write lock, so code holding the read lock must not try to acquire
+   * the write lock.
+   */
+  @NotNull
+  protected Lock getReadLock() {
+    return myItemLock.readLock();
+  }
+
+  /**
+   * Returns the lock to hold while modifying the maps of this repository.
+   */
+  @NotNull
+  protected final Lock getWriteLock() {
+    return myItemLock.writeLock();
+  }
 
   /**
    * Returns the fully computed {@link ResourceTable} for this repository.
    *
-   * <p>The returned object should be accessed only while holding {@link #ITEM_MAP_LOCK}.
+   * <p>The returned object should be accessed only while holding the lock of this repository.
    */
-  @GuardedBy("AbstractResourceRepositoryWithLocking.ITEM_MAP_LOCK")
+  @GuardedBy("getReadLock()")
   @NotNull
   protected abstract ResourceTable getFullTable();
 
-  @GuardedBy("AbstractResourceRepositoryWithLocking.ITEM_MAP_LOCK")
+  @GuardedBy("getReadLock()")
   @Nullable
   protected abstract ListMultimap<String, ResourceItem> getMap(
       @NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType, boolean create);
 
-  @GuardedBy("AbstractResourceRepositoryWithLocking.ITEM_MAP_LOCK")
+  @GuardedBy("getReadLock()")
   @NotNull
   protected final ListMultimap<String, ResourceItem> getOrCreateMap(
       @NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType) {
@@ -72,7 +102,7 @@ public abstract class AbstractResourceRepositoryWithLocking extends AbstractReso
     return getMap(namespace, resourceType, true);
   }
 
-  @GuardedBy("AbstractResourceRepositoryWithLocking.ITEM_MAP_LOCK")
+  @GuardedBy("getReadLock()")
   @Override
   @NotNull
   protected ListMultimap<String, ResourceItem> getResourcesInternal(
@@ -81,14 +111,36 @@ public abstract class AbstractResourceRepositoryWithLocking extends AbstractReso
     return map == null ? ImmutableListMultimap.of() : map;
   }
 
+  /**
+   * Returns a copy of the resources of the given type, made while holding the lock of this repository. Unlike the map returned by
+   * {@link #getResources(ResourceNamespace, ResourceType)}, the copy can be iterated without holding the lock.
+   */
+  @NotNull
+  public final ListMultimap<String, ResourceItem> copyResources(@NotNull ResourceNamespace namespace,
+                                                               @NotNull ResourceType resourceType) {
+    Lock lock = getReadLock();
+    lock.lock();
+    try {
+      return ArrayListMultimap.create(getResourcesInternal(namespace, resourceType));
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
   @Override
   @NotNull
   public List<ResourceItem> getResources(@NotNull ResourceNamespace namespace,
                                          @NotNull ResourceType resourceType,
                                          @NotNull String resourceName) {
-    synchronized (ITEM_MAP_LOCK) {
+    Lock lock = getReadLock();
+    lock.lock();
+    try {
       return super.getResources(namespace, resourceType, resourceName);
     }
+    finally {
+      lock.unlock();
+    }
   }
 
   @Override
@@ -96,23 +148,35 @@ public abstract class AbstractResourceRepositoryWithLocking extends AbstractReso
   public List<ResourceItem> getResources(@NotNull ResourceNamespace namespace,
                                          @NotNull ResourceType resourceType,
                                          @NotNull Predicate<ResourceItem> filter) {
-    synchronized (ITEM_MAP_LOCK) {
+    Lock lock = getReadLock();
+    lock.lock();
+    try {
       return super.getResources(namespace, resourceType, filter);
     }
+    finally {
+      lock.unlock();
+    }
   }
 
   @Override
   @NotNull
   public ListMultimap<String, ResourceItem> getResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType) {
-    synchronized (ITEM_MAP_LOCK) {
+    Lock lock = getReadLock();
+    lock.lock();
+    try {
       return super.getResources(namespace, resourceType);
     }
+    finally {
+      lock.unlock();
+    }
   }
 
   @Override
   @NotNull
   public ResourceVisitor.VisitResult accept(@NotNull ResourceVisitor visitor) {
-    synchronized (ITEM_MAP_LOCK) {
+    Lock lock = getReadLock();
+    lock.lock();
+    try {
       for (Map.Entry<ResourceNamespace, Map<ResourceType, ListMultimap<String, ResourceItem>>> entry : getFullTable().rowMap().entrySet()) {
         if (visitor.shouldVisitNamespace(entry.getKey())) {
           if (acceptByResources(entry.getValue(), visitor) == ResourceVisitor.VisitResult.ABORT) {
@@ -121,29 +185,47 @@ public abstract class AbstractResourceRepositoryWithLocking extends AbstractReso
         }
       }
     }
+    finally {
+      lock.unlock();
+    }
 
     return ResourceVisitor.VisitResult.CONTINUE;
   }
 
   @Override
   public boolean hasResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType, @NotNull String resourceName) {
-    synchronized (ITEM_MAP_LOCK) {
+    Lock lock = getReadLock();
+    lock.lock();
+    try {
       return super.hasResources(namespace, resourceType, resourceName);
     }
+    finally {
+      lock.unlock();
+    }
   }
 
   @Override
   public boolean hasResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType) {
-    synchronized (ITEM_MAP_LOCK) {
+    Lock lock = getReadLock();
+    lock.lock();
+    try {
       return super.hasResources(namespace, resourceType);
     }
+    finally {
+      lock.unlock();
+    }
   }
 
   @Override
   @NotNull
   public Set<ResourceType> getResourceTypes(@NotNull ResourceNamespace namespace) {
-    synchronized (ITEM_MAP_LOCK) {
+    Lock lock = getReadLock();
+    lock.lock();
+    try {
       return super.getResourceTypes(namespace);
     }
+    finally {
+      lock.unlock();
+    }
   }
 }
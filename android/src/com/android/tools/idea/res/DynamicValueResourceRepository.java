@@ -37,6 +37,7 @@ import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.vfs.VirtualFile;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
 import org.jetbrains.android.facet.AndroidFacet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -137,10 +138,25 @@ public class DynamicValueResourceRepository extends LocalResourceRepository
   }
 
   private void notifyProjectSynced() {
-    myFullTable.clear(); // compute lazily in getMap
+    getWriteLock().lock();
+    try {
+      myFullTable.clear(); // compute lazily in getMap
+    }
+    finally {
+      getWriteLock().unlock();
+    }
     super.invalidateParentCaches();
   }
 
+  /**
+   * The table is computed lazily by {@link #getMap}, so reads need exclusive access as well.
+   */
+  @Override
+  @NotNull
+  protected Lock getReadLock() {
+    return getWriteLock();
+  }
+
   private void addValues(Map<String, DynamicResourceValue> resValues) {
     for (Map.Entry<String, DynamicResourceValue> entry : resValues.entrySet()) {
       DynamicResourceValue field = entry.getValue();
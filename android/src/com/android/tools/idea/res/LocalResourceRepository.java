@@ -15,7 +15,6 @@
  */
 package com.android.tools.idea.res;
 
-import com.android.annotations.concurrency.GuardedBy;
 import com.android.ide.common.rendering.api.ResourceNamespace;
 import com.android.ide.common.rendering.api.ResourceValue;
 import com.android.ide.common.resources.ResourceItem;
@@ -28,11 +27,11 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.ModificationTracker;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -126,7 +125,6 @@ import org.jetbrains.annotations.Nullable;
  * See also the {@code README.md} file in this package.
  * </p>
  */
-@SuppressWarnings("InstanceGuardedByStatic") // TODO: The whole locking scheme for resource repositories needs to be reworked.
 public abstract class LocalResourceRepository extends AbstractResourceRepositoryWithLocking implements ModificationTracker {
   private static final Logger LOG = Logger.getInstance(LocalResourceRepository.class);
 
@@ -134,8 +132,8 @@ public abstract class LocalResourceRepository extends AbstractResourceRepository
 
   private final String myDisplayName;
 
-  @GuardedBy("ITEM_MAP_LOCK")
-  @Nullable private List<MultiResourceRepository> myParents;
+  /** Copy-on-write, so that parents can be notified of changes without holding a lock. */
+  @NotNull private final List<MultiResourceRepository> myParents = new CopyOnWriteArrayList<>();
 
   private volatile long myGeneration;
 
@@ -159,39 +157,22 @@ public abstract class LocalResourceRepository extends AbstractResourceRepository
   }
 
   public void addParent(@NotNull MultiResourceRepository parent) {
-    synchronized (ITEM_MAP_LOCK) {
-      if (myParents == null) {
-        myParents = new ArrayList<>(2); // Don't expect many parents
-      }
-      myParents.add(parent);
-    }
+    myParents.add(parent);
   }
 
   public void removeParent(@NotNull MultiResourceRepository parent) {
-    synchronized (ITEM_MAP_LOCK) {
-      if (myParents != null) {
-        myParents.remove(parent);
-      }
-    }
+    myParents.remove(parent);
   }
 
   protected void invalidateParentCaches() {
-    synchronized (ITEM_MAP_LOCK) {
-      if (myParents != null) {
-        for (MultiResourceRepository parent : myParents) {
-          parent.invalidateCache(this);
-        }
-      }
+    for (MultiResourceRepository parent : myParents) {
+      parent.invalidateCache(this);
     }
   }
 
   protected void invalidateParentCaches(@NotNull ResourceNamespace namespace, @NotNull ResourceType... types) {
-    synchronized (ITEM_MAP_LOCK) {
-      if (myParents != null) {
-        for (MultiResourceRepository parent : myParents) {
-          parent.invalidateCache(this, namespace, types);
-        }
-      }
+    for (MultiResourceRepository parent : myParents) {
+      parent.invalidateCache(this, namespace, types);
     }
   }
 
@@ -250,12 +231,8 @@ public abstract class LocalResourceRepository extends AbstractResourceRepository
     synchronized (RESOURCE_DIRS_LOCK) {
       myResourceDirs = null;
     }
-    synchronized (ITEM_MAP_LOCK) {
-      if (myParents != null) {
-        for (LocalResourceRepository parent : myParents) {
-          parent.invalidateResourceDirs();
-        }
-      }
+    for (LocalResourceRepository parent : myParents) {
+      parent.invalidateResourceDirs();
     }
   }
 
@@ -266,25 +243,6 @@ public abstract class LocalResourceRepository extends AbstractResourceRepository
     throw new UnsupportedOperationException("Not implemented yet");
   }
 
-  /**
-   * Package accessible version of {@link #getOrCreateMap(ResourceNamespace, ResourceType)}.
-   * Do not call outside of {@link MultiResourceRepository}.
-   */
-  @GuardedBy("AbstractResourceRepositoryWithLocking.ITEM_MAP_LOCK")
-  @NotNull
-  ListMultimap<String, ResourceItem> getOrCreateMapPackageAccessible(@NotNull ResourceNamespace namespace, @NotNull ResourceType type) {
-    return getOrCreateMap(namespace, type);
-  }
-
-  /**
-   * Package accessible version of {@link #getFullTable()}. Do not call outside of {@link MultiResourceRepository}.
-   */
-  @GuardedBy("AbstractResourceRepositoryWithLocking.ITEM_MAP_LOCK")
-  @NotNull
-  ResourceTable getFullTablePackageAccessible() {
-    return getFullTable();
-  }
-
   public static final class EmptyRepository extends LocalResourceRepository implements SingleNamespaceResourceRepository {
     @NotNull private final ResourceNamespace myNamespace;
 
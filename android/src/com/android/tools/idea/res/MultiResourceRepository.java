@@ -40,6 +40,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
 import javax.annotation.concurrent.GuardedBy;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -52,34 +53,50 @@ import org.jetbrains.annotations.Nullable;
  *
  * <p>In the resource repository hierarchy, MultiResourceRepository is an internal node, never a leaf.
  */
-@SuppressWarnings("InstanceGuardedByStatic") // TODO: The whole locking scheme for resource repositories needs to be reworked.
 public abstract class MultiResourceRepository extends LocalResourceRepository implements Disposable {
   private static final Logger LOG = Logger.getInstance(MultiResourceRepository.class);
 
-  @GuardedBy("ITEM_MAP_LOCK")
-  @NotNull private ImmutableList<LocalResourceRepository> myLocalResources = ImmutableList.of();
-  @GuardedBy("ITEM_MAP_LOCK")
-  @NotNull private ImmutableList<AarResourceRepository> myLibraryResources = ImmutableList.of();
+  // The children are replaced as a whole by setChildren, so they can be read without holding a lock.
+  @NotNull private volatile ImmutableList<LocalResourceRepository> myLocalResources = ImmutableList.of();
+  @NotNull private volatile ImmutableList<AarResourceRepository> myLibraryResources = ImmutableList.of();
   /** A concatenation of {@link #myLocalResources} and {@link #myLibraryResources}. */
-  @GuardedBy("ITEM_MAP_LOCK")
-  @NotNull private ImmutableList<ResourceRepository> myChildren = ImmutableList.of();
+  @NotNull private volatile ImmutableList<ResourceRepository> myChildren = ImmutableList.of();
   /** Leaf resource repositories keyed by namespace. */
-  @GuardedBy("ITEM_MAP_LOCK")
-  @NotNull private ImmutableListMultimap<ResourceNamespace, SingleNamespaceResourceRepository> myLeafsByNamespace =
+  @NotNull private volatile ImmutableListMultimap<ResourceNamespace, SingleNamespaceResourceRepository> myLeafsByNamespace =
       ImmutableListMultimap.of();
   /** Contained single-namespace resource repositories keyed by namespace. */
-  @GuardedBy("ITEM_MAP_LOCK")
-  @NotNull private ImmutableListMultimap<ResourceNamespace, SingleNamespaceResourceRepository> myRepositoriesByNamespace =
+  @NotNull private volatile ImmutableListMultimap<ResourceNamespace, SingleNamespaceResourceRepository> myRepositoriesByNamespace =
       ImmutableListMultimap.of();
+  /**
+   * The only child, if this repository has no other children. The maps of such a child are returned as they are instead of being
+   * copied and cached, and the queries of this repository hold the lock of the child, see {@link #getReadLock()}.
+   */
+  @Nullable private volatile LocalResourceRepository mySingleChild;
 
-  @GuardedBy("ITEM_MAP_LOCK")
-  private long[] myModificationCounts;
+  private final Object MODIFICATION_COUNT_LOCK = new Object();
+  @GuardedBy("MODIFICATION_COUNT_LOCK")
+  private long[] myModificationCounts = new long[0];
 
-  @GuardedBy("ITEM_MAP_LOCK")
+  /**
+   * Guards the merged maps. It is never held while acquiring other locks, so the children can invalidate the maps while holding their
+   * own locks, and readers only hold it to look up or store a map, not while merging.
+   */
+  private final Object CACHE_LOCK = new Object();
+  @GuardedBy("CACHE_LOCK")
   private ResourceTable myFullTable;
-
-  @GuardedBy("ITEM_MAP_LOCK")
+  @GuardedBy("CACHE_LOCK")
   private final ResourceTable myCachedMaps = new ResourceTable();
+  /**
+   * Incremented whenever the cached maps are invalidated. Maps merged while it changed may be missing the changes, and aren't cached.
+   */
+  @GuardedBy("CACHE_LOCK")
+  private long myCacheGeneration;
+  /** Values of {@link #myCacheGeneration} when the merged maps of all types were last invalidated. */
+  @GuardedBy("CACHE_LOCK")
+  private long myAllTypesInvalidationGeneration;
+  /** Values of {@link #myCacheGeneration} when the merged maps of each type were last invalidated, indexed by type ordinal. */
+  @GuardedBy("CACHE_LOCK")
+  private final long[] myTypeInvalidationGenerations = new long[ResourceType.values().length];
 
   MultiResourceRepository(@NotNull String displayName) {
     super(displayName);
@@ -88,7 +105,9 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
   protected void setChildren(@NotNull List<? extends LocalResourceRepository> localResources,
                              @NotNull Collection<? extends AarResourceRepository> libraryResources,
                              @NotNull Collection<? extends ResourceRepository> otherResources) {
-    synchronized (ITEM_MAP_LOCK) {
+    Lock lock = getWriteLock();
+    lock.lock();
+    try {
       for (LocalResourceRepository child : myLocalResources) {
         child.removeParent(this);
       }
@@ -98,6 +117,7 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
       int size = myLocalResources.size() + myLibraryResources.size() + otherResources.size();
       myChildren = ImmutableList.<ResourceRepository>builderWithExpectedSize(size)
           .addAll(myLocalResources).addAll(myLibraryResources).addAll(otherResources).build();
+      mySingleChild = myChildren.size() == 1 && myLocalResources.size() == 1 ? myLocalResources.get(0) : null;
 
       ImmutableListMultimap.Builder<ResourceNamespace, SingleNamespaceResourceRepository> mapBuilder = ImmutableListMultimap.builder();
       computeLeafs(this, mapBuilder);
@@ -107,26 +127,29 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
       computeNamespaceMap(this, mapBuilder);
       myRepositoriesByNamespace = mapBuilder.build();
 
-      myModificationCounts = new long[localResources.size()];
-      if (localResources.size() == 1) {
-        // Make sure that the modification count of the child and the parent are same. This is
-        // done so that we can return child's modification count, instead of ours.
-        LocalResourceRepository child = localResources.get(0);
-        child.setModificationCount(getModificationCount());
-      }
-      int i = 0;
-      for (LocalResourceRepository child : myLocalResources) {
-        child.addParent(this);
-        myModificationCounts[i++] = child.getModificationCount();
+      synchronized (MODIFICATION_COUNT_LOCK) {
+        myModificationCounts = new long[localResources.size()];
+        if (localResources.size() == 1) {
+          // Make sure that the modification count of the child and the parent are same. This is
+          // done so that we can return child's modification count, instead of ours.
+          LocalResourceRepository child = localResources.get(0);
+          child.setModificationCount(getModificationCount());
+        }
+        int i = 0;
+        for (LocalResourceRepository child : myLocalResources) {
+          child.addParent(this);
+          myModificationCounts[i++] = child.getModificationCount();
+        }
       }
-      myFullTable = null;
-      myCachedMaps.clear();
-
-      invalidateParentCaches();
+      clearCachedMaps();
+    }
+    finally {
+      lock.unlock();
     }
+
+    invalidateParentCaches();
   }
 
-  @GuardedBy("ITEM_MAP_LOCK")
   private static void computeLeafs(@NotNull ResourceRepository repository,
                                    @NotNull ImmutableListMultimap.Builder<ResourceNamespace, SingleNamespaceResourceRepository> result) {
     if (repository instanceof MultiResourceRepository) {
@@ -140,7 +163,6 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
     }
   }
 
-  @GuardedBy("ITEM_MAP_LOCK")
   private static void computeNamespaceMap(
       @NotNull ResourceRepository repository,
       @NotNull ImmutableListMultimap.Builder<ResourceNamespace, SingleNamespaceResourceRepository> result) {
@@ -157,22 +179,16 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
   }
 
   public ImmutableList<LocalResourceRepository> getLocalResources() {
-    synchronized (ITEM_MAP_LOCK) {
-      return myLocalResources;
-    }
+    return myLocalResources;
   }
 
   public ImmutableList<AarResourceRepository> getLibraryResources() {
-    synchronized (ITEM_MAP_LOCK) {
-      return myLibraryResources;
-    }
+    return myLibraryResources;
   }
 
   @NotNull
   public final List<ResourceRepository> getChildren() {
-    synchronized (ITEM_MAP_LOCK) {
-      return myChildren;
-    }
+    return myChildren;
   }
 
   /**
@@ -186,22 +202,21 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
    */
   @NotNull
   public final List<ResourceRepository> getRepositoriesForNamespace(@NotNull ResourceNamespace namespace) {
-    synchronized (ITEM_MAP_LOCK) {
-      return ImmutableList.copyOf(myRepositoriesByNamespace.get(namespace));
-    }
+    return ImmutableList.copyOf(myRepositoriesByNamespace.get(namespace));
   }
 
   @Override
   public long getModificationCount() {
-    synchronized (ITEM_MAP_LOCK) {
-      if (myLocalResources.size() == 1) {
-        return myLocalResources.get(0).getModificationCount();
-      }
+    ImmutableList<LocalResourceRepository> localResources = myLocalResources;
+    if (localResources.size() == 1) {
+      return localResources.get(0).getModificationCount();
+    }
 
+    synchronized (MODIFICATION_COUNT_LOCK) {
       // See if any of the delegates have changed.
       boolean changed = false;
-      for (int i = 0; i < myLocalResources.size(); i++) {
-        LocalResourceRepository child = myLocalResources.get(i);
+      for (int i = 0; i < myModificationCounts.length && i < localResources.size(); i++) {
+        LocalResourceRepository child = localResources.get(i);
         long rev = child.getModificationCount();
         if (rev != myModificationCounts[i]) {
           myModificationCounts[i] = rev;
@@ -217,180 +232,241 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
     }
   }
 
+  /**
+   * Returns a stamp that changes whenever the merged resources of the given type are invalidated. Unlike {@link #getModificationCount()},
+   * it doesn't change when only resources of other types are updated, so data derived from the resources of a single type, e.g. an inner
+   * R class generated by {@link ResourceClassGenerator}, can be reused across edits of other resources.
+   */
+  public long getModificationCount(@NotNull ResourceType type) {
+    synchronized (CACHE_LOCK) {
+      return Math.max(myAllTypesInvalidationGeneration, myTypeInvalidationGenerations[type.ordinal()]);
+    }
+  }
+
   @Override
   @NotNull
   public Set<ResourceNamespace> getNamespaces() {
-    synchronized (ITEM_MAP_LOCK) {
-      return ImmutableSet.copyOf(myRepositoriesByNamespace.keySet());
-    }
+    return ImmutableSet.copyOf(myRepositoriesByNamespace.keySet());
+  }
+
+  /**
+   * Returns the lock of the only child when the maps of the child are returned directly, since they are modified while holding it.
+   */
+  @Override
+  @NotNull
+  protected Lock getReadLock() {
+    LocalResourceRepository child = mySingleChild;
+    return child == null ? super.getReadLock() : child.getReadLock();
   }
 
   @NotNull
   @Override
   protected ResourceTable getFullTable() {
-    synchronized (ITEM_MAP_LOCK) {
-      if (myFullTable == null) {
-        if (myLocalResources.size() == 1 && myLibraryResources.isEmpty()) {
-          myFullTable = myLocalResources.get(0).getFullTablePackageAccessible();
-        }
-        else {
-          myFullTable = new ResourceTable();
-          for (ResourceNamespace namespace : getNamespaces()) {
-            for (ResourceType type : ResourceType.values()) {
-              ListMultimap<String, ResourceItem> map = getMap(namespace, type, false);
-              if (map != null) {
-                myFullTable.put(namespace, type, map);
-              }
-            }
-          }
+    LocalResourceRepository child = mySingleChild;
+    if (child != null) {
+      return child.getFullTable();
+    }
+
+    long generation;
+    synchronized (CACHE_LOCK) {
+      if (myFullTable != null) {
+        return myFullTable;
+      }
+      generation = myCacheGeneration;
+    }
+
+    ResourceTable fullTable = new ResourceTable();
+    for (ResourceNamespace namespace : getNamespaces()) {
+      for (ResourceType type : ResourceType.values()) {
+        ListMultimap<String, ResourceItem> map = getMap(namespace, type, false);
+        if (map != null) {
+          fullTable.put(namespace, type, map);
         }
       }
+    }
 
-      return myFullTable;
+    synchronized (CACHE_LOCK) {
+      if (generation == myCacheGeneration) {
+        myFullTable = fullTable;
+      }
     }
+    return fullTable;
   }
 
+  /**
+   * Returns the merged resources of the children. Unlike in leaf repositories, the returned maps are never modified, since changes of
+   * the children are reflected by merging them again, see {@link #invalidateCache}. The maps of a single child are returned without being
+   * merged, and are modified along with the child.
+   */
   @Override
   @Nullable
   protected ListMultimap<String, ResourceItem> getMap(@NotNull ResourceNamespace namespace,
                                                       @NotNull ResourceType type,
                                                       boolean create) {
-    synchronized (ITEM_MAP_LOCK) {
-      // Should I assert !create here? If we try to manipulate the cache it won't work right...
+    // Should I assert !create here? If we try to manipulate the cache it won't work right...
+    LocalResourceRepository child = mySingleChild;
+    if (child != null) {
+      return child.getMap(namespace, type, false);
+    }
+
+    long generation;
+    synchronized (CACHE_LOCK) {
       ListMultimap<String, ResourceItem> map = myCachedMaps.get(namespace, type);
       if (map != null) {
         return map;
       }
+      generation = myCacheGeneration;
+    }
 
-      if (myLocalResources.size() == 1 && myLibraryResources.isEmpty()) {
-        return myLocalResources.get(0).getOrCreateMapPackageAccessible(namespace, type);
-      }
-
-      ImmutableList<SingleNamespaceResourceRepository> repositoriesForNamespace = myLeafsByNamespace.get(namespace);
-      if (repositoriesForNamespace.size() == 1) {
-        return ArrayListMultimap.create(repositoriesForNamespace.get(0).getResources(namespace, type));
-      } else {
-        // Merge all items of the given type.
-        Stopwatch stopwatch = LOG.isDebugEnabled() ? Stopwatch.createStarted() : null;
-
-        map = ArrayListMultimap.create();
-        SetMultimap<String, String> seenQualifiers = HashMultimap.create();
-        for (ResourceRepository child : repositoriesForNamespace) {
-          ListMultimap<String, ResourceItem> items = child.getResources(namespace, type);
-          for (ResourceItem item : items.values()) {
-            String name = item.getName();
-            String qualifiers = item.getConfiguration().getQualifierString();
-            if (type == ResourceType.STYLEABLE || type == ResourceType.ID || !map.containsKey(name) ||
-                !seenQualifiers.containsEntry(name, qualifiers)) {
-              // We only add a duplicate item if there isn't an item with the same qualifiers and it is
-              // not a styleable or an id. Styleables and ids are allowed to be defined in multiple
-              // places even with the same qualifiers.
-              map.put(name, item);
-              seenQualifiers.put(name, qualifiers);
-            }
+    // Merge outside of CACHE_LOCK, so that the children can invalidate the cache while they are being read.
+    ListMultimap<String, ResourceItem> map;
+    ImmutableList<SingleNamespaceResourceRepository> repositoriesForNamespace = myLeafsByNamespace.get(namespace);
+    if (repositoriesForNamespace.size() == 1) {
+      map = copyResources(repositoriesForNamespace.get(0), namespace, type);
+    } else {
+      // Merge all items of the given type.
+      Stopwatch stopwatch = LOG.isDebugEnabled() ? Stopwatch.createStarted() : null;
+
+      map = ArrayListMultimap.create();
+      SetMultimap<String, String> seenQualifiers = HashMultimap.create();
+      for (ResourceRepository child : repositoriesForNamespace) {
+        ListMultimap<String, ResourceItem> items = copyResources(child, namespace, type);
+        for (ResourceItem item : items.values()) {
+          String name = item.getName();
+          String qualifiers = item.getConfiguration().getQualifierString();
+          if (type == ResourceType.STYLEABLE || type == ResourceType.ID || !map.containsKey(name) ||
+              !seenQualifiers.containsEntry(name, qualifiers)) {
+            // We only add a duplicate item if there isn't an item with the same qualifiers and it is
+            // not a styleable or an id. Styleables and ids are allowed to be defined in multiple
+            // places even with the same qualifiers.
+            map.put(name, item);
+            seenQualifiers.put(name, qualifiers);
           }
         }
+      }
 
-        if (stopwatch != null) {
-          LOG.debug(String.format(Locale.US,
-                                  "Merged %d resources of type %s in %s for %s.",
-                                  map.size(),
-                                  type,
-                                  stopwatch,
-                                  getClass().getSimpleName()));
-        }
+      if (stopwatch != null) {
+        LOG.debug(String.format(Locale.US,
+                                "Merged %d resources of type %s in %s for %s.",
+                                map.size(),
+                                type,
+                                stopwatch,
+                                getClass().getSimpleName()));
+      }
+    }
+
+    synchronized (CACHE_LOCK) {
+      if (generation == myCacheGeneration) {
+        myCachedMaps.put(namespace, type, map);
       }
+    }
 
-      myCachedMaps.put(namespace, type, map);
+    return map;
+  }
 
-      return map;
+  /**
+   * Returns the resources of a child, copied under the lock of the child if it has one, since the child may be modified while they are
+   * being merged.
+   */
+  @NotNull
+  private static ListMultimap<String, ResourceItem> copyResources(@NotNull ResourceRepository child,
+                                                                 @NotNull ResourceNamespace namespace,
+                                                                 @NotNull ResourceType type) {
+    if (child instanceof AbstractResourceRepositoryWithLocking) {
+      return ((AbstractResourceRepositoryWithLocking)child).copyResources(namespace, type);
+    }
+    return ArrayListMultimap.create(child.getResources(namespace, type));
+  }
+
+  private void clearCachedMaps() {
+    synchronized (CACHE_LOCK) {
+      myAllTypesInvalidationGeneration = ++myCacheGeneration;
+      myCachedMaps.clear();
+      myFullTable = null;
     }
   }
 
   @Override
   public boolean hasResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType type) {
-    synchronized (ITEM_MAP_LOCK) {
-      if (myChildren.size() == 1) {
-        return myChildren.get(0).hasResources(namespace, type);
-      }
+    ImmutableList<ResourceRepository> children = myChildren;
+    if (children.size() == 1) {
+      return children.get(0).hasResources(namespace, type);
+    }
 
-      if (this instanceof SingleNamespaceResourceRepository) {
-        if (namespace.equals(((SingleNamespaceResourceRepository)this).getNamespace())) {
-          for (ResourceRepository child : myChildren) {
-            if (child.hasResources(namespace, type)) {
-              return true;
-            }
+    if (this instanceof SingleNamespaceResourceRepository) {
+      if (namespace.equals(((SingleNamespaceResourceRepository)this).getNamespace())) {
+        for (ResourceRepository child : children) {
+          if (child.hasResources(namespace, type)) {
+            return true;
           }
         }
-        return false;
       }
+      return false;
+    }
 
-      Collection<SingleNamespaceResourceRepository> repositories = myRepositoriesByNamespace.get(namespace);
-      for (ResourceRepository repository : repositories) {
-        if (repository.hasResources(namespace, type)) {
-          return true;
-        }
+    Collection<SingleNamespaceResourceRepository> repositories = myRepositoriesByNamespace.get(namespace);
+    for (ResourceRepository repository : repositories) {
+      if (repository.hasResources(namespace, type)) {
+        return true;
       }
-      return false;
     }
+    return false;
   }
 
   @Override
   public void dispose() {
-    synchronized (ITEM_MAP_LOCK) {
-      for (LocalResourceRepository child : myLocalResources) {
-        child.removeParent(this);
-      }
+    for (LocalResourceRepository child : myLocalResources) {
+      child.removeParent(this);
     }
   }
 
   /**
    * Notifies this delegating repository that the given dependent repository has invalidated all resources.
+   *
+   * <p>This method doesn't acquire the lock of this repository, so the child may call it while holding its own lock.
    */
   public void invalidateCache(@NotNull LocalResourceRepository repository) {
-    synchronized (ITEM_MAP_LOCK) {
-      assert myChildren.contains(repository) : repository;
+    assert myChildren.contains(repository) : repository;
 
-      myCachedMaps.clear();
-      myFullTable = null;
-      setModificationCount(ourModificationCounter.incrementAndGet());
+    clearCachedMaps();
+    setModificationCount(ourModificationCounter.incrementAndGet());
 
-      invalidateParentCaches();
-    }
+    invalidateParentCaches();
   }
 
   /**
    * Notifies this delegating repository that the given dependent repository has invalidated
    * resources of the given types in the given namespace.
+   *
+   * <p>This method doesn't acquire the lock of this repository, so the child may call it while holding its own lock.
    */
   public void invalidateCache(@NotNull LocalResourceRepository repository, @NotNull ResourceNamespace namespace,
                               @NotNull ResourceType... types) {
-    synchronized (ITEM_MAP_LOCK) {
-      assert myChildren.contains(repository) : repository;
+    assert myChildren.contains(repository) : repository;
 
+    synchronized (CACHE_LOCK) {
+      myCacheGeneration++;
       for (ResourceType type : types) {
         myCachedMaps.remove(namespace, type);
+        myTypeInvalidationGenerations[type.ordinal()] = myCacheGeneration;
       }
-
       myFullTable = null;
-      setModificationCount(ourModificationCounter.incrementAndGet());
-
-      invalidateParentCaches(namespace, types);
     }
+    setModificationCount(ourModificationCounter.incrementAndGet());
+
+    invalidateParentCaches(namespace, types);
   }
 
   @Override
   boolean isScanPending(@NotNull PsiFile psiFile) {
-    synchronized (ITEM_MAP_LOCK) {
-      assert ApplicationManager.getApplication().isUnitTestMode();
-      for (LocalResourceRepository child : myLocalResources) {
-        if (child.isScanPending(psiFile)) {
-          return true;
-        }
+    assert ApplicationManager.getApplication().isUnitTestMode();
+    for (LocalResourceRepository child : myLocalResources) {
+      if (child.isScanPending(psiFile)) {
+        return true;
       }
-
-      return false;
     }
+
+    return false;
   }
 
   @Override
@@ -405,20 +481,16 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
   @Override
   @NotNull
   protected Set<VirtualFile> computeResourceDirs() {
-    synchronized (ITEM_MAP_LOCK) {
-      Set<VirtualFile> result = new HashSet<>();
-      for (LocalResourceRepository resourceRepository : myLocalResources) {
-        result.addAll(resourceRepository.computeResourceDirs());
-      }
-      return result;
+    Set<VirtualFile> result = new HashSet<>();
+    for (LocalResourceRepository resourceRepository : myLocalResources) {
+      result.addAll(resourceRepository.computeResourceDirs());
     }
+    return result;
   }
 
   @Override
   @NotNull
   public Collection<SingleNamespaceResourceRepository> getLeafResourceRepositories() {
-    synchronized (ITEM_MAP_LOCK) {
-      return myLeafsByNamespace.values();
-    }
+    return myLeafsByNamespace.values();
   }
 }
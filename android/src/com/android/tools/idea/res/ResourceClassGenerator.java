@@ -23,10 +23,10 @@ import com.android.ide.common.resources.ResourceItem;
 import com.android.ide.common.resources.ResourceRepository;
 import com.android.resources.ResourceType;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.ModificationTracker;
 import gnu.trove.TIntArrayList;
 import gnu.trove.TObjectIntHashMap;
 import org.jetbrains.android.util.AndroidResourceUtil;
@@ -37,6 +37,7 @@ import org.jetbrains.org.objectweb.asm.MethodVisitor;
 import org.jetbrains.org.objectweb.asm.Type;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.android.tools.idea.LogAnonymizerUtil.anonymizeClassName;
 import static com.android.tools.idea.LogAnonymizerUtil.isPublicClass;
@@ -76,9 +77,11 @@ public class ResourceClassGenerator {
     int getOrGenerateId(@NotNull ResourceReference resourceReference);
   }
 
-  private Map<ResourceType, TObjectIntHashMap<String>> myCache;
-  /** For int[] in styleables. The ints in styleables are stored in {@link #myCache}. */
-  private Map<String, TIntArrayList> myStyleableCache;
+  /**
+   * Inner classes generated so far, invalidated by type, see {@link #getModificationCount(ResourceType)}. A {@link TypeCache} isn't
+   * modified after it is added, except for {@link TypeCache#classes}.
+   */
+  @NotNull private final Map<ResourceType, TypeCache> myTypeCaches = new ConcurrentHashMap<>();
   @NotNull private final ResourceRepository myResources;
   @NotNull private final NumericIdProvider myIdProvider;
   @NotNull private final ResourceNamespace myNamespace;
@@ -102,6 +105,9 @@ public class ResourceClassGenerator {
   }
 
   /**
+   * Returns the bytecode of the given R class or one of its inner classes. Inner classes are generated only if resources of their type
+   * have changed since they were last generated, otherwise the previously generated bytecode is returned.
+   *
    * @param fqcn Fully qualified class name (as accepted by ClassLoader, or as returned by Class.getName())
    */
   @Nullable
@@ -111,10 +117,12 @@ public class ResourceClassGenerator {
     if (LOG.isDebugEnabled()) {
       LOG.debug(String.format("generate(%s)", anonymizeClassName(className)));
     }
+
     ClassWriter cw = new ClassWriter(0);  // Don't compute MAXS and FRAMES.
     cw.visit(V1_6, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, className, null, Type.getInternalName(Object.class), null);
 
     int index = className.lastIndexOf('$');
+    TypeCache typeCache = null;
     if (index != -1) {
       String typeName = className.substring(index + 1);
       ResourceType type = ResourceType.fromClassName(typeName);
@@ -125,31 +133,32 @@ public class ResourceClassGenerator {
         return null;
       }
 
-      cw.visitInnerClass(className, className.substring(0, index), typeName, ACC_PUBLIC + ACC_FINAL + ACC_STATIC);
-      if (myCache == null) {
-        myCache = Maps.newHashMap();
+      long modificationCount = getModificationCount(type);
+      typeCache = myTypeCaches.get(type);
+      if (typeCache != null && typeCache.modificationCount == modificationCount) {
+        byte[] bytecode = typeCache.classes.get(className);
+        if (bytecode != null) {
+          return bytecode;
+        }
       }
-      if (type == ResourceType.STYLEABLE) {
-        if (myStyleableCache == null) {
-          myCache.put(ResourceType.STYLEABLE, new TObjectIntHashMap<>());
-          myStyleableCache = Maps.newHashMap();
-          generateStyleable(cw, className);
+
+      cw.visitInnerClass(className, className.substring(0, index), typeName, ACC_PUBLIC + ACC_FINAL + ACC_STATIC);
+      if (typeCache == null || typeCache.modificationCount != modificationCount) {
+        // Resources of this type have changed, regenerate the field values.
+        typeCache = new TypeCache(modificationCount);
+        if (type == ResourceType.STYLEABLE) {
+          generateStyleable(cw, className, typeCache);
         }
         else {
-          TObjectIntHashMap<String> indexFieldsCache = myCache.get(ResourceType.STYLEABLE);
-          assert indexFieldsCache != null;
-          generateFields(cw, indexFieldsCache);
-          generateIntArraysFromCache(cw, className);
-        }
-      } else {
-        TObjectIntHashMap<String> typeCache = myCache.get(type);
-        if (typeCache == null) {
-          typeCache = new TObjectIntHashMap<>();
-          myCache.put(type, typeCache);
-          generateValuesForType(cw, type, typeCache);
+          generateValuesForType(cw, type, typeCache.fieldValues);
         }
-        else {
-          generateFields(cw, typeCache);
+        myTypeCaches.put(type, typeCache);
+      }
+      else {
+        // The same resources are exposed through an R class of another package.
+        generateFields(cw, typeCache.fieldValues);
+        if (type == ResourceType.STYLEABLE) {
+          generateIntArraysFromCache(cw, className, typeCache.arrayValues);
         }
       }
     } else {
@@ -163,7 +172,25 @@ public class ResourceClassGenerator {
 
     generateConstructor(cw);
     cw.visitEnd();
-    return cw.toByteArray();
+    byte[] bytecode = cw.toByteArray();
+    if (typeCache != null) {
+      typeCache.classes.put(className, bytecode);
+    }
+    return bytecode;
+  }
+
+  /**
+   * Returns a stamp that changes when resources of the given type may have changed. Resources of repositories that aren't
+   * {@link ModificationTracker}s, e.g. the ones of AARs, never change.
+   */
+  private long getModificationCount(@NotNull ResourceType type) {
+    if (myResources instanceof MultiResourceRepository) {
+      return ((MultiResourceRepository)myResources).getModificationCount(type);
+    }
+    if (myResources instanceof ModificationTracker) {
+      return ((ModificationTracker)myResources).getModificationCount();
+    }
+    return 0;
   }
 
   private void generateValuesForType(@NotNull ClassWriter cw, @NotNull ResourceType resType, @NotNull TObjectIntHashMap<String> cache) {
@@ -188,13 +215,13 @@ public class ResourceClassGenerator {
     return Lists.transform(dv.getAllAttributes(), ResourceValue::asReference);
   }
 
-  private void generateStyleable(@NotNull ClassWriter cw, String className) {
+  private void generateStyleable(@NotNull ClassWriter cw, String className, @NotNull TypeCache typeCache) {
     if (LOG.isDebugEnabled()) {
       LOG.debug(String.format("generateStyleable(%s)", anonymizeClassName(className)));
     }
     boolean debug = LOG.isDebugEnabled() && isPublicClass(className);
 
-    TObjectIntHashMap<String> indexFieldsCache = myCache.get(ResourceType.STYLEABLE);
+    TObjectIntHashMap<String> indexFieldsCache = typeCache.fieldValues;
     Collection<String> styleableNames = myResources.getResources(myNamespace, ResourceType.STYLEABLE).keySet();
     List<MergedStyleable> mergedStyleables = new ArrayList<>(styleableNames.size());
 
@@ -242,7 +269,7 @@ public class ResourceClassGenerator {
       for (ResourceReference attr : mergedStyleable.attrs) {
         values.add(myIdProvider.getOrGenerateId(attr));
       }
-      myStyleableCache.put(fieldName, values);
+      typeCache.arrayValues.put(fieldName, values);
       generateArrayInitialization(mv, className, fieldName, values);
     }
     mv.visitInsn(RETURN);
@@ -261,16 +288,17 @@ public class ResourceClassGenerator {
     cw.visitField(ACC_PUBLIC + ACC_FINAL + ACC_STATIC, name, "I", null, value).visitEnd();
   }
 
-  private void generateIntArraysFromCache(@NotNull ClassWriter cw, String className) {
+  private static void generateIntArraysFromCache(@NotNull ClassWriter cw, String className,
+                                                 @NotNull Map<String, TIntArrayList> arrayValues) {
     // Generate the field declarations.
-    for (String name : myStyleableCache.keySet()) {
+    for (String name : arrayValues.keySet()) {
       cw.visitField(ACC_PUBLIC + ACC_FINAL + ACC_STATIC, name, "[I", null, null);
     }
 
     // Generate class initializer block to initialize the arrays declared above.
     MethodVisitor mv = cw.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
     mv.visitCode();
-    myStyleableCache.forEach((arrayName, values) -> {
+    arrayValues.forEach((arrayName, values) -> {
       generateArrayInitialization(mv, className, arrayName, values);
     });
     mv.visitInsn(RETURN);
@@ -351,6 +379,27 @@ public class ResourceClassGenerator {
     }
   }
 
+  /**
+   * Field values and bytecode of the inner classes of a resource type, valid while {@link #getModificationCount(ResourceType)} returns
+   * {@link #modificationCount}.
+   */
+  private static class TypeCache {
+    final long modificationCount;
+    /** Values of the int fields. For styleables, these are the indexes of attributes in the styleable arrays. */
+    @NotNull final TObjectIntHashMap<String> fieldValues = new TObjectIntHashMap<>();
+    /** Values of the int[] fields of styleables. */
+    @NotNull final Map<String, TIntArrayList> arrayValues = new HashMap<>();
+    /**
+     * Generated bytecode keyed by class name. In non-namespaced projects the same resources are exposed through the R classes of all
+     * libraries.
+     */
+    @NotNull final Map<String, byte[]> classes = new ConcurrentHashMap<>();
+
+    TypeCache(long modificationCount) {
+      this.modificationCount = modificationCount;
+    }
+  }
+
   private static class MergedStyleable {
     @NotNull final String name;
     @NotNull final LinkedHashSet<ResourceReference> attrs;
@@ -196,7 +196,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
   private int myNumXmlFilesLoadedInitially; // Doesn't count files that were explicitly skipped.
   private int myNumXmlFilesLoadedInitiallyFromSources;
 
-  @GuardedBy("AbstractResourceRepositoryWithLocking.ITEM_MAP_LOCK")
+  @GuardedBy("getWriteLock()")
   @NotNull private final ResourceTable myFullTable = new ResourceTable();
 
   @NotNull private final Map<VirtualFile, ResourceItemSource<? extends ResourceItem>> mySources = new HashMap<>();
@@ -306,17 +306,21 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
   }
 
   /**
-   * Inserts the given resources into this repository, while holding the global repository lock.
+   * Inserts the given resources into this repository, while holding the write lock of the repository.
    */
   private void commitToRepository(@NotNull Map<ResourceType, ListMultimap<String, ResourceItem>> itemsByType) {
-    synchronized (ITEM_MAP_LOCK) {
+    getWriteLock().lock();
+    try {
       commitToRepositoryWithoutLock(itemsByType);
     }
+    finally {
+      getWriteLock().unlock();
+    }
   }
 
   /**
    * Inserts the given resources into this repository without acquiring any locks. Safe to call only while
-   * holding {@link #ITEM_MAP_LOCK} or during construction of ResourceFolderRepository.
+   * holding {@link #getWriteLock()} or during construction of ResourceFolderRepository.
    */
   @SuppressWarnings("GuardedBy")
   private void commitToRepositoryWithoutLock(@NotNull Map<ResourceType, ListMultimap<String, ResourceItem>> itemsByType) {
@@ -391,14 +395,17 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
   }
 
   @Override
-  @GuardedBy("AbstractResourceRepositoryWithLocking.ITEM_MAP_LOCK")
+  @GuardedBy("getReadLock()")
   @NotNull
   protected ResourceTable getFullTable() {
     return myFullTable;
   }
 
+  /**
+   * Creating a missing map modifies {@link #myFullTable}, so callers passing {@code create = true} need to hold {@link #getWriteLock()}.
+   */
   @Override
-  @GuardedBy("AbstractResourceRepositoryWithLocking.ITEM_MAP_LOCK")
+  @GuardedBy("getReadLock()")
   @Contract("_, _, true -> !null")
   @Nullable
   protected ListMultimap<String, ResourceItem> getMap(@NotNull ResourceNamespace namespace, @NotNull ResourceType type, boolean create) {
@@ -706,7 +713,8 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
           // file itself (e.g. @layout/foo from layout-land/foo.xml). However, we may have
           // to update the id's:
           Set<String> idsBefore = new HashSet<>();
-          synchronized (ITEM_MAP_LOCK) {
+          getWriteLock().lock();
+          try {
             ListMultimap<String, ResourceItem> idMultimap = myFullTable.get(myNamespace, ResourceType.ID);
             if (idMultimap != null) {
               List<PsiResourceItem> idItems = new ArrayList<>();
@@ -738,6 +746,9 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
               }
             }
           }
+          finally {
+            getWriteLock().unlock();
+          }
 
           // Add items for this file.
           List<PsiResourceItem> idItems = new ArrayList<>();
@@ -830,7 +841,8 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                                     @NotNull ResourceType resourceType) {
     boolean changed = false;
 
-    synchronized (ITEM_MAP_LOCK) {
+    getWriteLock().lock();
+    try {
       for (Iterator<PsiResourceItem> sourceIter = source.iterator(); sourceIter.hasNext();) {
         PsiResourceItem item = sourceIter.next();
         if (item.wasTag(xmlTag)) {
@@ -850,6 +862,9 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
 
       return changed;
     }
+    finally {
+      getWriteLock().unlock();
+    }
   }
 
   /**
@@ -860,7 +875,8 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
   private boolean removeItemsFromSource(@NotNull ResourceItemSource<? extends ResourceItem> source) {
     boolean changed = false;
 
-    synchronized (ITEM_MAP_LOCK) {
+    getWriteLock().lock();
+    try {
       for (ResourceItem item : source) {
         ListMultimap<String, ResourceItem> map = myFullTable.get(myNamespace, item.getType());
         List<ResourceItem> items = map.get(item.getName());
@@ -877,6 +893,9 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
         }
       }
     }
+    finally {
+      getWriteLock().unlock();
+    }
     return changed;
   }
 
@@ -983,13 +1002,17 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                     }
                     if (type != null) {
                       PsiResourceItem item = PsiResourceItem.forXmlTag(name, type, ResourceFolderRepository.this, tag, true);
-                      synchronized (ITEM_MAP_LOCK) {
+                      getWriteLock().lock();
+                      try {
                         getMap(myNamespace, type, true).put(name, item);
                         psiResourceFile.addItem(item);
                         setModificationCount(ourModificationCounter.incrementAndGet());
                         invalidateParentCaches(myNamespace, type);
                         return;
                       }
+                      finally {
+                        getWriteLock().unlock();
+                      }
                     }
                   }
                 }
@@ -1067,7 +1090,8 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                     return;
                   }
 
-                  synchronized (ITEM_MAP_LOCK) {
+                  getWriteLock().lock();
+                  try {
                     ResourceItemSource<? extends ResourceItem> resFile = mySources.get(psiFile.getVirtualFile());
                     if (resFile != null) {
                       assert resFile instanceof PsiResourceFile;
@@ -1079,6 +1103,9 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                       return;
                     }
                   }
+                  finally {
+                    getWriteLock().unlock();
+                  }
                 }
               }
             }
@@ -1161,13 +1188,17 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                   if (name != null) {
                     ResourceType type = getResourceTypeForResourceTag(tag);
                     if (type != null) {
-                      synchronized (ITEM_MAP_LOCK) {
+                      getWriteLock().lock();
+                      try {
                         boolean removed = removeItemsForTag(resourceFile, tag, type);
                         if (removed) {
                           setModificationCount(ourModificationCounter.incrementAndGet());
                           invalidateParentCaches(myNamespace, type);
                         }
                       }
+                      finally {
+                        getWriteLock().unlock();
+                      }
                     }
                   }
 
@@ -1388,7 +1419,8 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                     }
                     ResourceItem item = findResourceItem(type, psiFile, oldName, xmlTag);
                     if (item != null) {
-                      synchronized (ITEM_MAP_LOCK) {
+                      getWriteLock().lock();
+                      try {
                         ListMultimap<String, ResourceItem> map = myFullTable.get(myNamespace, item.getType());
                         if (map != null) {
                           // Found the relevant item: delete it and create a new one in a new location.
@@ -1411,6 +1443,9 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                           invalidateParentCaches(myNamespace, type);
                         }
                       }
+                      finally {
+                        getWriteLock().unlock();
+                      }
 
                       // Invalidate surrounding declare styleable if any
                       if (type == ResourceType.ATTR) {
@@ -1504,7 +1539,8 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
       }
       PsiResourceFile psiResourceFile = (PsiResourceFile)resFile;
 
-      synchronized (ITEM_MAP_LOCK) {
+      getWriteLock().lock();
+      try {
         removeItemsForTag(psiResourceFile, xmlTag, ResourceType.ID);
         Map<ResourceType, ListMultimap<String, ResourceItem>> result = new HashMap<>();
         ArrayList<PsiResourceItem> ids = new ArrayList<>();
@@ -1515,6 +1551,9 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
         invalidateParentCaches(myNamespace, ResourceType.ID);
         return true;
       }
+      finally {
+        getWriteLock().unlock();
+      }
     }
 
     private void handleValueXmlTextEdit(@Nullable PsiElement parent, @NotNull PsiFile psiFile) {
@@ -1704,9 +1743,13 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
       return null;
     }
     String name = tag.getAttributeValue(ATTR_NAME);
-    synchronized (ITEM_MAP_LOCK) {
+    getReadLock().lock();
+    try {
       return name != null ? findValueResourceItem(tag, file, name) : null;
     }
+    finally {
+      getReadLock().unlock();
+    }
   }
 
   @Nullable
@@ -1724,7 +1767,8 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
     // Do IO work before obtaining the lock:
     File ioFile = VfsUtilCore.virtualToIoFile(file.getVirtualFile());
 
-    synchronized (ITEM_MAP_LOCK) {
+    getReadLock().lock();
+    try {
       ListMultimap<String, ResourceItem> map = myFullTable.get(myNamespace, type);
       if (map == null) {
         return null;
@@ -1759,6 +1803,9 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
         }
       }
     }
+    finally {
+      getReadLock().unlock();
+    }
 
     return null;
   }
@@ -147,27 +147,30 @@ public class SampleDataResourceRepository extends LocalResourceRepository implem
     }
 
     VirtualFile sampleDataDir = toVirtualFile(ProjectSystemUtil.getModuleSystem(myAndroidFacet.getModule()).getSampleDataDirectory());
-    myFullTable.clear();
-
+    List<SampleDataResourceItem> items = new ArrayList<>();
     if (sampleDataDir != null) {
-      List<SampleDataResourceItem> items = new ArrayList<>();
       PsiManager psiManager = PsiManager.getInstance(myAndroidFacet.getModule().getProject());
       Stream<VirtualFile> childrenStream = Arrays.stream(sampleDataDir.getChildren());
       ApplicationManager.getApplication().runReadAction(() -> childrenStream
         .map(vf -> vf.isDirectory() ? psiManager.findDirectory(vf) : psiManager.findFile(vf))
         .filter(Objects::nonNull)
         .forEach(f -> items.addAll(loadItemsFromFile(f))));
+    }
 
+    getWriteLock().lock();
+    try {
+      myFullTable.clear();
       if (!items.isEmpty()) {
-        synchronized (ITEM_MAP_LOCK) {
-          ListMultimap<String, ResourceItem> map = myFullTable.getOrPutEmpty(myNamespace, ResourceType.SAMPLE_DATA);
-          for (ResourceItem item : items) {
-            assert item.getNamespace().equals(myNamespace);
-            map.put(item.getName(), item);
-          }
+        ListMultimap<String, ResourceItem> map = myFullTable.getOrPutEmpty(myNamespace, ResourceType.SAMPLE_DATA);
+        for (ResourceItem item : items) {
+          assert item.getNamespace().equals(myNamespace);
+          map.put(item.getName(), item);
         }
       }
     }
+    finally {
+      getWriteLock().unlock();
+    }
 
     setModificationCount(ourModificationCounter.incrementAndGet());
     invalidateParentCaches(myNamespace, ResourceType.SAMPLE_DATA);
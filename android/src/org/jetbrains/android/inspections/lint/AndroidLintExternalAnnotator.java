@@ -167,6 +167,14 @@ public class AndroidLintExternalAnnotator extends ExternalAnnotator<State, State
         return state; // Lint cannot run in dumb mode.
       }
 
+      // Replay the problems found the last time the file was analyzed, if nothing changed since then
+      LintEditorResultCache.Stamp stamp = LintEditorResultCache.computeStamp(state);
+      List<ProblemData> cachedProblems = LintEditorResultCache.get(state, stamp);
+      if (cachedProblems != null) {
+        state.getProblems().addAll(cachedProblems);
+        return state;
+      }
+
       List<VirtualFile> files = Collections.singletonList(mainFile);
       LintRequest request = new LintIdeRequest(client, project, files,
                                                Collections.singletonList(state.getModule()), true /* incremental */);
@@ -174,6 +182,7 @@ public class AndroidLintExternalAnnotator extends ExternalAnnotator<State, State
 
       LintDriver lint = new LintDriver(new LintIdeIssueRegistry(), client, request);
       lint.analyze();
+      LintEditorResultCache.put(state, stamp);
 
       lint.setAnalysisStartTime(startTime);
       LintIdeAnalytics analytics = new LintIdeAnalytics(project);
@@ -5,6 +5,7 @@ import static org.jetbrains.android.inspections.lint.AndroidLintInspectionBase.L
 import com.android.ide.common.gradle.model.IdeLintOptions;
 import com.android.ide.common.repository.GradleVersion;
 import com.android.tools.idea.editors.strings.StringsVirtualFile;
+import com.android.tools.idea.flags.StudioFlags;
 import com.android.tools.idea.gradle.project.model.AndroidModuleModel;
 import com.android.tools.idea.lint.AndroidLintLintBaselineInspection;
 import com.android.tools.idea.lint.LintIdeAnalytics;
@@ -18,6 +19,7 @@ import com.android.tools.lint.client.api.LintRequest;
 import com.android.tools.lint.detector.api.Issue;
 import com.android.tools.lint.detector.api.Lint;
 import com.android.tools.lint.detector.api.Scope;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import com.google.wireless.android.sdk.stats.LintSession.AnalysisType;
 import com.intellij.analysis.AnalysisScope;
@@ -36,33 +38,54 @@ import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.module.ModuleUtilCore;
 import com.intellij.openapi.module.impl.scopes.ModuleWithDependenciesScope;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.util.ProgressWrapper;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiElementVisitor;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.search.LocalSearchScope;
 import com.intellij.psi.search.SearchScope;
+import com.intellij.util.PathUtil;
+import com.intellij.util.Processor;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.containers.ContainerUtil;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.jetbrains.android.facet.AndroidFacet;
+import org.jetbrains.android.util.AndroidUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 class AndroidLintGlobalInspectionContext implements GlobalInspectionContextExtension<AndroidLintGlobalInspectionContext> {
   static final Key<AndroidLintGlobalInspectionContext> ID = Key.create("AndroidLintGlobalInspectionContext");
+  private static final Logger LOG = Logger.getInstance(AndroidLintGlobalInspectionContext.class);
+  /** Number of threads used to analyze independent module groups when {@link StudioFlags#LINT_PARALLEL_BATCH_ANALYSIS} is enabled. */
+  private static final int BATCH_THREAD_COUNT =
+    Math.max(1, Integer.getInteger("lint.batch.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
   private Map<Issue, Map<File, List<ProblemData>>> myResults;
   private LintBaseline myBaseline;
   private Issue myEnabledIssue;
@@ -248,51 +271,71 @@ class AndroidLintGlobalInspectionContext implements GlobalInspectionContextExten
       }
     }
 
-    LintRequest request = new LintIdeRequest(client, project, files, modules, false);
-    request.setScope(lintScope);
-    final LintDriver lint = new LintDriver(new LintIdeIssueRegistry(), client, request);
+    // Lint analyzes each root module, with its libraries, on its own, so separate drivers can analyze them at the same time
+    List<List<Module>> moduleGroups = Collections.singletonList(modules);
+    if (StudioFlags.LINT_PARALLEL_BATCH_ANALYSIS.get() && files == null && !usesBaseline(modules)) {
+      moduleGroups = ReadAction.compute(() -> partitionModules(modules));
+    }
 
-    // Baseline analysis?
-    myBaseline = null;
+    // The baseline applies to the problems found by the driver, it can't filter the ones found by the editor
+    List<LintDriver> drivers = moduleGroups.size() == 1 && !usesBaseline(modules)
+                               ? analyzeWithEditorResults(project, scope, issues, lintScope, files, modules, problemMap)
+                               : null;
     Module severityModule = null;
-    for (Module module : modules) {
-      AndroidModuleModel model = AndroidModuleModel.get(module);
-      if (model != null) {
-        GradleVersion version = model.getModelVersion();
-        if (version != null && version.isAtLeast(2, 3, 0, "beta", 2, true)) {
-          IdeLintOptions options = model.getAndroidProject().getLintOptions();
-          try {
-            if (options.getSeverityOverrides() != null) {
-              severityModule = module;
-            }
+    myBaseline = null;
+    if (drivers != null) {
+      severityModule = findSeverityModule(modules);
+    }
+    else if (moduleGroups.size() > 1) {
+      drivers = analyzeInParallel(project, scope, issues, lintScope, moduleGroups, problemMap, startTime);
+      severityModule = findSeverityModule(modules);
+    }
+    else {
+      LintRequest request = new LintIdeRequest(client, project, files, modules, false);
+      request.setScope(lintScope);
+      LintDriver lint = new LintDriver(new LintIdeIssueRegistry(), client, request);
+      drivers = Collections.singletonList(lint);
+
+      // Baseline analysis?
+      for (Module module : modules) {
+        AndroidModuleModel model = AndroidModuleModel.get(module);
+        if (model != null) {
+          GradleVersion version = model.getModelVersion();
+          if (version != null && version.isAtLeast(2, 3, 0, "beta", 2, true)) {
+            IdeLintOptions options = model.getAndroidProject().getLintOptions();
+            try {
+              if (options.getSeverityOverrides() != null) {
+                severityModule = module;
+              }
 
-            File baselineFile = options.getBaselineFile();
-            if (baselineFile != null && !AndroidLintLintBaselineInspection.ourSkipBaselineNextRun) {
-              if (!baselineFile.isAbsolute()) {
-                String path = module.getProject().getBasePath();
-                if (path != null) {
-                  baselineFile = new File(FileUtil.toSystemDependentName(path), baselineFile.getPath());
+              File baselineFile = options.getBaselineFile();
+              if (baselineFile != null && !AndroidLintLintBaselineInspection.ourSkipBaselineNextRun) {
+                if (!baselineFile.isAbsolute()) {
+                  String path = module.getProject().getBasePath();
+                  if (path != null) {
+                    baselineFile = new File(FileUtil.toSystemDependentName(path), baselineFile.getPath());
+                  }
+                }
+                myBaseline = new LintBaseline(client, baselineFile);
+                lint.setBaseline(myBaseline);
+                if (!baselineFile.isFile()) {
+                  myBaseline.setWriteOnClose(true);
+                } else if (AndroidLintLintBaselineInspection.ourUpdateBaselineNextRun) {
+                  myBaseline.setRemoveFixed(true);
+                  myBaseline.setWriteOnClose(true);
                 }
-              }
-              myBaseline = new LintBaseline(client, baselineFile);
-              lint.setBaseline(myBaseline);
-              if (!baselineFile.isFile()) {
-                myBaseline.setWriteOnClose(true);
-              } else if (AndroidLintLintBaselineInspection.ourUpdateBaselineNextRun) {
-                myBaseline.setRemoveFixed(true);
-                myBaseline.setWriteOnClose(true);
-              }
 
+              }
+            } catch (Throwable unsupported) {
+              // During 2.3 development some builds may have this method, others may not
             }
-          } catch (Throwable unsupported) {
-            // During 2.3 development some builds may have this method, others may not
           }
+          break;
         }
-        break;
       }
-    }
 
-    lint.analyze();
+      lint.analyze();
+    }
 
     // Running all detectors? Then add dynamically registered detectors too.
     if (!runningSingleInspection) {
@@ -318,13 +361,280 @@ class AndroidLintGlobalInspectionContext implements GlobalInspectionContextExten
 
     AndroidLintLintBaselineInspection.clearNextRunState();
 
-    lint.setAnalysisStartTime(startTime);
     LintIdeAnalytics analytics = new LintIdeAnalytics(project);
-    analytics.logSession(AnalysisType.IDE_BATCH, lint, severityModule, null, problemMap);
+    analytics.logSession(AnalysisType.IDE_BATCH, drivers, startTime, severityModule, null, problemMap);
 
     myResults = problemMap;
   }
 
+  /**
+   * Splits the given modules into groups that separate lint drivers can analyze without changing the results, or returns a single group
+   * if the modules can not be split.
+   * <p>
+   * Like {@link LintIdeProject#create}, lint only analyzes the root modules of a request, the ones that are not a library of another
+   * module of the request, and analyzes the libraries as part of each root that depends on them. Each root is analyzed on its own, so
+   * each one gets its own group. A library shared by several roots is analyzed once per root, as it is by a single driver. It can not be
+   * left out of the groups after the first one: lint analyzes libraries in the context of their root, e.g. with the minimum SDK version
+   * and the resource references of the root.
+   */
+  @NotNull
+  private static List<List<Module>> partitionModules(@NotNull List<Module> modules) {
+    for (Module module : modules) {
+      if (LintIdeProject.getLintProjectDirectory(module, AndroidFacet.getInstance(module)) == null) {
+        // Lint analyzes the Android dependencies of such a module as roots, the groups would analyze them more than once
+        return Collections.singletonList(modules);
+      }
+    }
+    return partitionModules(modules, module -> ContainerUtil.map(AndroidUtils.getAllAndroidDependencies(module, true),
+                                                                 AndroidFacet::getModule));
+  }
+
+  /**
+   * Returns a group for each root of the given modules, a module that is not a library of another one of the given modules. The libraries
+   * of a module are given by {@code libraries}, including the transitive ones.
+   */
+  @VisibleForTesting
+  @NotNull
+  static <M> List<List<M>> partitionModules(@NotNull List<M> modules, @NotNull Function<M, Collection<M>> libraries) {
+    Set<M> roots = new LinkedHashSet<>(modules);
+    for (M module : modules) {
+      roots.removeAll(libraries.apply(module));
+    }
+    return roots.stream().map(Collections::singletonList).collect(Collectors.toList());
+  }
+
+  /**
+   * Returns the module whose lint options override the severity of issues, found as in the single driver analysis.
+   */
+  @Nullable
+  private static Module findSeverityModule(@NotNull List<Module> modules) {
+    for (Module module : modules) {
+      AndroidModuleModel model = AndroidModuleModel.get(module);
+      if (model != null) {
+        GradleVersion version = model.getModelVersion();
+        if (version == null || !version.isAtLeast(2, 3, 0, "beta", 2, true)) {
+          return null;
+        }
+        try {
+          return model.getAndroidProject().getLintOptions().getSeverityOverrides() != null ? module : null;
+        }
+        catch (Throwable unsupported) {
+          return null;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns true if lint would use a baseline file for the given modules. The baseline is shared by the whole analysis, so lint has to run
+   * with a single driver.
+   */
+  private static boolean usesBaseline(@NotNull List<Module> modules) {
+    if (AndroidLintLintBaselineInspection.ourSkipBaselineNextRun) {
+      return false;
+    }
+    // Same lookup as in performPreRunActivities: only the first module with an Android model is considered
+    for (Module module : modules) {
+      AndroidModuleModel model = AndroidModuleModel.get(module);
+      if (model != null) {
+        GradleVersion version = model.getModelVersion();
+        if (version == null || !version.isAtLeast(2, 3, 0, "beta", 2, true)) {
+          return false;
+        }
+        try {
+          return model.getAndroidProject().getLintOptions().getBaselineFile() != null;
+        }
+        catch (Throwable unsupported) {
+          return false;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Runs a separate lint driver on each module group, on a bounded pool of threads, and merges the problems they find into
+   * {@code problemMap}. The time taken by each group is logged at the end.
+   *
+   * @return the drivers that analyzed the groups
+   */
+  @NotNull
+  private static List<LintDriver> analyzeInParallel(@NotNull Project project,
+                                                    @NotNull AnalysisScope scope,
+                                                    @NotNull Set<Issue> issues,
+                                                    @Nullable EnumSet<Scope> lintScope,
+                                                    @NotNull List<List<Module>> moduleGroups,
+                                                    @NotNull Map<Issue, Map<File, List<ProblemData>>> problemMap,
+                                                    long startTime) {
+    ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+    ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Android Lint Batch Analysis", BATCH_THREAD_COUNT);
+    List<Map<Issue, Map<File, List<ProblemData>>>> groupProblems = new ArrayList<>();
+    LintDriver[] drivers = new LintDriver[moduleGroups.size()];
+    long[] groupTimesMs = new long[moduleGroups.size()];
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < moduleGroups.size(); i++) {
+      int group = i;
+      List<Module> modules = moduleGroups.get(group);
+      Map<Issue, Map<File, List<ProblemData>>> problems = new HashMap<>();
+      groupProblems.add(problems);
+      Runnable analysis = () -> {
+        long groupStartTime = System.currentTimeMillis();
+        // Each driver gets its own client and registry, neither is thread safe
+        LintIdeClient client = LintIdeClient.forBatch(project, problems, scope, issues);
+        try {
+          LintRequest request = new LintIdeRequest(client, project, null, modules, false);
+          request.setScope(lintScope);
+          drivers[group] = new LintDriver(new LintIdeIssueRegistry(), client, request);
+          drivers[group].analyze();
+        }
+        finally {
+          Disposer.dispose(client);
+        }
+        groupTimesMs[group] = System.currentTimeMillis() - groupStartTime;
+      };
+      futures.add(executor.submit(
+        () -> ProgressManager.getInstance().runProcess(analysis, indicator != null ? ProgressWrapper.wrap(indicator) : null)));
+    }
+
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+    catch (InterruptedException e) {
+      futures.forEach(future -> future.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new ProcessCanceledException(e);
+    }
+    catch (ExecutionException e) {
+      futures.forEach(future -> future.cancel(true));
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException)cause;
+      }
+      throw new RuntimeException(cause);
+    }
+    finally {
+      executor.shutdown();
+    }
+
+    for (Map<Issue, Map<File, List<ProblemData>>> problems : groupProblems) {
+      problems.forEach((issue, fileProblems) -> {
+        Map<File, List<ProblemData>> merged = problemMap.computeIfAbsent(issue, key -> new HashMap<>());
+        fileProblems.forEach((file, list) -> merged.computeIfAbsent(file, key -> new ArrayList<>()).addAll(list));
+      });
+    }
+
+    StringBuilder report = new StringBuilder();
+    report.append(String.format(Locale.US, "Android Lint analyzed %1$d module groups on %2$d threads in %3$d ms",
+                                moduleGroups.size(), BATCH_THREAD_COUNT, System.currentTimeMillis() - startTime));
+    Integer[] order = new Integer[moduleGroups.size()];
+    Arrays.setAll(order, i -> i);
+    Arrays.sort(order, (a, b) -> Long.compare(groupTimesMs[b], groupTimesMs[a]));
+    for (int group : order) {
+      report.append("\n  ").append(groupTimesMs[group]).append(" ms: ");
+      report.append(moduleGroups.get(group).stream().map(Module::getName).collect(Collectors.joining(", ")));
+    }
+    LOG.info(report.toString());
+    return Arrays.asList(drivers);
+  }
+
+  /**
+   * Runs lint reusing the problems the editor found in the files of the scope, see {@link LintEditorResultCache}. The issues that only
+   * look at a single file run on the files without up to date editor results, and the other issues run over the whole scope.
+   *
+   * @return the drivers that analyzed the scope, or null if no file of the scope has up to date editor results
+   */
+  @Nullable
+  private static List<LintDriver> analyzeWithEditorResults(@NotNull Project project,
+                                                           @NotNull AnalysisScope scope,
+                                                           @NotNull Set<Issue> issues,
+                                                           @Nullable EnumSet<Scope> lintScope,
+                                                           @Nullable List<VirtualFile> files,
+                                                           @NotNull List<Module> modules,
+                                                           @NotNull Map<Issue, Map<File, List<ProblemData>>> problemMap) {
+    Set<Issue> singleFileIssues = new HashSet<>();
+    for (Issue issue : issues) {
+      if (AndroidLintInspectionBase.isSingleFileScope(issue.getImplementation().getScope())) {
+        singleFileIssues.add(issue);
+      }
+    }
+    if (singleFileIssues.isEmpty()) {
+      return null;
+    }
+
+    Map<VirtualFile, List<ProblemData>> cachedProblems = new HashMap<>();
+    List<VirtualFile> uncachedFiles = new ArrayList<>();
+    ApplicationManager.getApplication().runReadAction(() -> {
+      Processor<VirtualFile> processor = file -> {
+        if (!file.isDirectory()) {
+          List<ProblemData> problems = LintEditorResultCache.getForBatch(project, file, singleFileIssues);
+          if (problems != null) {
+            cachedProblems.put(file, problems);
+          }
+          else {
+            uncachedFiles.add(file);
+          }
+        }
+        return true;
+      };
+      if (files != null) {
+        files.forEach(processor::process);
+      }
+      else {
+        scope.accept(processor);
+      }
+    });
+    if (cachedProblems.isEmpty()) {
+      return null;
+    }
+
+    // Same keys as the problems reported by LintIdeClient
+    cachedProblems.forEach((file, problems) -> {
+      File ioFile = new File(PathUtil.getCanonicalPath(VfsUtilCore.virtualToIoFile(file).getPath()));
+      for (ProblemData problem : problems) {
+        Map<File, List<ProblemData>> fileProblems = problemMap.computeIfAbsent(problem.getIssue(), key -> new HashMap<>());
+        fileProblems.computeIfAbsent(ioFile, key -> new ArrayList<>()).add(problem);
+      }
+    });
+
+    Set<Issue> projectIssues = new HashSet<>(issues);
+    projectIssues.removeAll(singleFileIssues);
+    List<LintDriver> drivers = new ArrayList<>();
+    if (!projectIssues.isEmpty()) {
+      drivers.add(analyze(project, scope, projectIssues, lintScope, files, modules, problemMap));
+    }
+    if (!uncachedFiles.isEmpty()) {
+      // Lint infers the scope from the files
+      drivers.add(analyze(project, scope, singleFileIssues, null, uncachedFiles, modules, problemMap));
+    }
+    LOG.info(String.format(Locale.US, "Android Lint reused the editor results of %1$d files and analyzed %2$d other files for %3$d issues",
+                           cachedProblems.size(), uncachedFiles.size(), singleFileIssues.size()));
+    return drivers;
+  }
+
+  @NotNull
+  private static LintDriver analyze(@NotNull Project project,
+                                    @NotNull AnalysisScope scope,
+                                    @NotNull Set<Issue> issues,
+                                    @Nullable EnumSet<Scope> lintScope,
+                                    @Nullable List<VirtualFile> files,
+                                    @NotNull List<Module> modules,
+                                    @NotNull Map<Issue, Map<File, List<ProblemData>>> problemMap) {
+    LintIdeClient client = LintIdeClient.forBatch(project, problemMap, scope, issues);
+    try {
+      LintRequest request = new LintIdeRequest(client, project, files, modules, false);
+      request.setScope(lintScope);
+      LintDriver lint = new LintDriver(new LintIdeIssueRegistry(), client, request);
+      lint.analyze();
+      return lint;
+    }
+    finally {
+      Disposer.dispose(client);
+    }
+  }
+
   @Nullable
   public Map<Issue, Map<File, List<ProblemData>>> getResults() {
     return myResults;
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.android.inspections.lint;
+
+import com.android.tools.idea.res.ResourceRepositoryManager;
+import com.android.tools.lint.detector.api.Issue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.containers.ContainerUtil;
+import java.util.Collection;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import org.jetbrains.android.facet.AndroidFacet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Cache of the lint results of the files open in the editor, stored in the user data of each file.
+ * <p>
+ * The results of a file are reused as long as the file content, the set of enabled issues and the state of the rest of the project that
+ * single file checks can depend on are the same: the declarations in all the files, tracked by the out of code block modification count,
+ * the project roots, which change on sync, and the resources of the module. Edits inside code blocks of other files do not invalidate the
+ * results. This avoids running lint again when the file is highlighted again without any change to it, e.g. when switching between
+ * editors, when editing a method body in another file or when the highlighting is restarted by a settings or VFS change.
+ * <p>
+ * Batch inspections reuse the results of the issues that only look at a single file, see {@link #getForBatch}.
+ * <p>
+ * The stamps only hold the name of the module and of the project, so the user data does not keep a closed project in memory.
+ */
+final class LintEditorResultCache {
+  private static final Key<CachedResult> CACHED_RESULT = Key.create("android.lint.editor.result");
+
+  private LintEditorResultCache() {
+  }
+
+  /**
+   * Returns the cached problems of the file of the given state, or null if they are missing or out of date.
+   */
+  @Nullable
+  static List<ProblemData> get(@NotNull State state, @NotNull Stamp stamp) {
+    CachedResult result = state.getMainFile().getUserData(CACHED_RESULT);
+    return result != null && result.stamp.equals(stamp) ? result.problems : null;
+  }
+
+  /**
+   * Stores the problems found in the file of the given state. The results are only stored if nothing they depend on changed while they
+   * were computed, as reflected by a new stamp equal to the one computed before the analysis.
+   */
+  static void put(@NotNull State state, @NotNull Stamp stamp) {
+    if (state.isDirty() || !stamp.equals(computeStamp(state))) {
+      return;
+    }
+    state.getMainFile().putUserData(CACHED_RESULT, new CachedResult(stamp, ImmutableList.copyOf(state.getProblems())));
+  }
+
+  /**
+   * Returns the cached problems of the given file for the given issues, or null if the file has no up to date results covering all of
+   * them. Must be called in a read action.
+   */
+  @Nullable
+  static List<ProblemData> getForBatch(@NotNull Project project, @NotNull VirtualFile file, @NotNull Set<Issue> issues) {
+    CachedResult result = file.getUserData(CACHED_RESULT);
+    if (result == null || !result.stamp.myIssues.containsAll(issues)) {
+      return null;
+    }
+    Module module = ModuleUtilCore.findModuleForFile(file, project);
+    PsiFile psiFile = module != null ? PsiManager.getInstance(project).findFile(file) : null;
+    if (psiFile == null || !result.stamp.equals(computeStamp(module, psiFile.getText(), result.stamp.myIssues))) {
+      return null;
+    }
+    return ContainerUtil.filter(result.problems, problem -> issues.contains(problem.getIssue()));
+  }
+
+  @NotNull
+  static Stamp computeStamp(@NotNull State state) {
+    return computeStamp(state.getModule(), state.getMainFileContent(), state.getIssues());
+  }
+
+  @NotNull
+  private static Stamp computeStamp(@NotNull Module module, @NotNull String content, @NotNull Collection<Issue> issues) {
+    Project project = module.getProject();
+    AndroidFacet facet = AndroidFacet.getInstance(module);
+    return new Stamp(project.getLocationHash() + ":" + module.getName(),
+                     Hashing.murmur3_128().hashString(content, StandardCharsets.UTF_8),
+                     ImmutableSet.copyOf(issues),
+                     PsiModificationTracker.getInstance(project).getOutOfCodeBlockModificationCount(),
+                     ProjectRootManager.getInstance(project).getModificationCount(),
+                     facet != null ? ResourceRepositoryManager.getAppResources(facet).getModificationCount() : -1);
+  }
+
+  static final class Stamp {
+    /** Identifies the module without referencing it, see {@link Module#getName()} and {@link Project#getLocationHash()}. */
+    @NotNull private final String myModuleId;
+    @NotNull private final HashCode myContentHash;
+    @NotNull private final Set<Issue> myIssues;
+    private final long myOutOfCodeBlockModificationCount;
+    private final long myRootsModificationCount;
+    private final long myResourcesModificationCount;
+
+    private Stamp(@NotNull String moduleId,
+                  @NotNull HashCode contentHash,
+                  @NotNull Set<Issue> issues,
+                  long outOfCodeBlockModificationCount,
+                  long rootsModificationCount,
+                  long resourcesModificationCount) {
+      myModuleId = moduleId;
+      myContentHash = contentHash;
+      myIssues = issues;
+      myOutOfCodeBlockModificationCount = outOfCodeBlockModificationCount;
+      myRootsModificationCount = rootsModificationCount;
+      myResourcesModificationCount = resourcesModificationCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Stamp stamp = (Stamp)o;
+      return myOutOfCodeBlockModificationCount == stamp.myOutOfCodeBlockModificationCount &&
+             myRootsModificationCount == stamp.myRootsModificationCount &&
+             myResourcesModificationCount == stamp.myResourcesModificationCount &&
+             myModuleId.equals(stamp.myModuleId) &&
+             myContentHash.equals(stamp.myContentHash) &&
+             myIssues.equals(stamp.myIssues);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(myModuleId, myContentHash, myOutOfCodeBlockModificationCount, myRootsModificationCount,
+                          myResourcesModificationCount);
+    }
+  }
+
+  private static final class CachedResult {
+    @NotNull final Stamp stamp;
+    @NotNull final List<ProblemData> problems;
+
+    CachedResult(@NotNull Stamp stamp, @NotNull List<ProblemData> problems) {
+      this.stamp = stamp;
+      this.problems = problems;
+    }
+  }
+}
@@ -382,6 +382,7 @@ enum class TestFileName(val path: String) {
   REFERENCE_RESOLUTION_RESOLVE_OTHER_PROJECT_PATH_SUB("referenceResolution/resolveOtherProjectPath_sub"),
   REFERENCE_RESOLUTION_RESOLVE_PARENT("referenceResolution/resolveParent"),
   REFERENCE_RESOLUTION_RESOLVE_PARENT_SUB("referenceResolution/resolveParent_sub"),
+  REFERENCE_RESOLUTION_RESOLVE_PARENT_PROPERTY_ADDED_AFTER_PARSING_SUB("referenceResolution/resolveParentPropertyAddedAfterParsing_sub"),
   REFERENCE_RESOLUTION_RESOLVE_PROJECT("referenceResolution/resolveProject"),
   REFERENCE_RESOLUTION_RESOLVE_PROJECT_PATH_SUB("referenceResolution/resolveProjectPath_sub"),
   REFERENCE_RESOLUTION_RESOLVE_PROJECT_DIR_SUB("referenceResolution/resolveProjectDir_sub"),
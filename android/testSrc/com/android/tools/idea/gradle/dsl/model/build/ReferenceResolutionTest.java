@@ -19,6 +19,7 @@ import static com.android.tools.idea.Projects.getBaseDirPath;
 import static com.android.tools.idea.gradle.dsl.TestFileName.REFERENCE_RESOLUTION_RESOLVE_OTHER_PROJECT_PATH;
 import static com.android.tools.idea.gradle.dsl.TestFileName.REFERENCE_RESOLUTION_RESOLVE_OTHER_PROJECT_PATH_SUB;
 import static com.android.tools.idea.gradle.dsl.TestFileName.REFERENCE_RESOLUTION_RESOLVE_PARENT;
+import static com.android.tools.idea.gradle.dsl.TestFileName.REFERENCE_RESOLUTION_RESOLVE_PARENT_PROPERTY_ADDED_AFTER_PARSING_SUB;
 import static com.android.tools.idea.gradle.dsl.TestFileName.REFERENCE_RESOLUTION_RESOLVE_PARENT_SUB;
 import static com.android.tools.idea.gradle.dsl.TestFileName.REFERENCE_RESOLUTION_RESOLVE_PROJECT;
 import static com.android.tools.idea.gradle.dsl.TestFileName.REFERENCE_RESOLUTION_RESOLVE_PROJECT_DIR_SUB;
@@ -29,6 +30,8 @@ import static com.android.tools.idea.gradle.dsl.TestFileName.REFERENCE_RESOLUTIO
 import static com.android.tools.idea.gradle.dsl.api.ext.GradlePropertyModel.STRING_TYPE;
 import static com.android.tools.idea.gradle.dsl.api.ext.GradlePropertyModel.ValueType.STRING;
 
+import com.android.tools.idea.gradle.dsl.api.GradleBuildModel;
+import com.android.tools.idea.gradle.dsl.api.ProjectBuildModel;
 import com.android.tools.idea.gradle.dsl.api.android.AndroidModel;
 import com.android.tools.idea.gradle.dsl.api.ext.ExtModel;
 import com.android.tools.idea.gradle.dsl.api.ext.PropertyType;
@@ -100,6 +103,24 @@ public class ReferenceResolutionTest extends GradleFileModelTestCase {
     assertEquals("compileSdkVersion", "android-23", subModuleAndroidModel.compileSdkVersion());
   }
 
+  @Test
+  public void testResolveParentPropertyAddedAfterParsing() throws Exception {
+    writeToSettingsFile(getSubModuleSettingsText());
+    writeToBuildFile("");
+    writeToSubModuleBuildFile(REFERENCE_RESOLUTION_RESOLVE_PARENT_PROPERTY_ADDED_AFTER_PARSING_SUB);
+
+    ProjectBuildModel projectModel = ProjectBuildModel.get(myProject);
+    GradleBuildModel parentModel = projectModel.getProjectBuildModel();
+    GradleBuildModel subModuleModel = projectModel.getModuleBuildModel(mySubModule);
+    assertNotNull(parentModel);
+    assertNotNull(subModuleModel);
+
+    // The reference was not resolved while parsing, adding the property to the parent module must not reuse that result.
+    parentModel.ext().findProperty("compileSdk").setValue("android-23");
+    ExtModel ext = subModuleModel.ext();
+    verifyPropertyModel(ext.findProperty("sdk").resolve(), STRING_TYPE, "android-23", STRING, PropertyType.REGULAR, 1);
+  }
+
   @Test
   public void testResolveRootProject() throws Exception {
     writeToSettingsFile(getSubModuleSettingsText());
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.gradle.project.sync.perf;
+
+import static com.android.tools.idea.testing.TestProjectPaths.SYNC_AVERAGE_PERF_PROJECT;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.android.tools.idea.flags.StudioFlags;
+import com.android.tools.idea.gradle.dsl.api.GradleBuildModel;
+import com.android.tools.idea.gradle.dsl.api.ProjectBuildModel;
+import com.android.tools.idea.testing.AndroidGradleTestCase;
+import com.android.tools.perflogger.Benchmark;
+import com.android.tools.perflogger.Metric;
+import com.android.tools.perflogger.Metric.MetricSample;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.impl.PsiManagerEx;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Measures how long it takes to build the {@link ProjectBuildModel} of all the modules of the sync performance test project, with the
+ * build files parsed one at a time and with their syntax trees loaded concurrently.
+ */
+public class ProjectBuildModelPerfTest extends AndroidGradleTestCase {
+  private static final Benchmark BENCHMARK = new Benchmark.Builder("Project Build Model Benchmark")
+    .setDescription("Time (ms) to parse the build files of all the modules of a project.")
+    .build();
+
+  private static final int NUMBER_OF_WARM_UP = 2;
+  private static final int NUMBER_OF_SAMPLES = 10;
+
+  public void testGetAllIncludedBuildModels() throws Exception {
+    loadProject(SYNC_AVERAGE_PERF_PROJECT);
+    measure("project_build_model_sequential", false);
+    measure("project_build_model_parallel", true);
+  }
+
+  private void measure(@NotNull String metricName, boolean parallel) {
+    Project project = getProject();
+    StudioFlags.GRADLE_DSL_PARALLEL_PARSING.override(parallel);
+    try {
+      List<MetricSample> samples = new ArrayList<>(NUMBER_OF_SAMPLES);
+      for (int i = 0; i < NUMBER_OF_WARM_UP + NUMBER_OF_SAMPLES; i++) {
+        // Drop the PSI of the build files so that every sample loads them again, as when the Project Structure Dialog is opened.
+        WriteAction.run(() -> ((PsiManagerEx)PsiManager.getInstance(project)).getFileManager().cleanupForNextTest());
+        long start = System.nanoTime();
+        List<GradleBuildModel> models = ProjectBuildModel.get(project).getAllIncludedBuildModels();
+        long elapsedTime = System.nanoTime() - start;
+        assertThat(models.size()).isGreaterThan(1);
+        if (i >= NUMBER_OF_WARM_UP) {
+          samples.add(new MetricSample(Instant.now().toEpochMilli(), TimeUnit.NANOSECONDS.toMillis(elapsedTime)));
+        }
+      }
+
+      Metric metric = new Metric(metricName);
+      metric.addSamples(BENCHMARK, samples.toArray(new MetricSample[0]));
+      metric.commit();
+    }
+    finally {
+      StudioFlags.GRADLE_DSL_PARALLEL_PARSING.clearOverride();
+    }
+  }
+}
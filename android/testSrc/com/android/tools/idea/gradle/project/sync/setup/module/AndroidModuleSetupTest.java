@@ -17,6 +17,7 @@ package com.android.tools.idea.gradle.project.sync.setup.module;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -24,11 +25,16 @@ import static org.mockito.MockitoAnnotations.initMocks;
 
 import com.android.builder.model.SyncIssue;
 import com.android.ide.common.gradle.model.IdeAndroidProject;
+import com.android.ide.common.gradle.model.level2.IdeDependenciesFactory;
+import com.android.tools.idea.flags.StudioFlags;
 import com.android.tools.idea.gradle.project.model.AndroidModuleModel;
 import com.android.tools.idea.gradle.project.sync.ModuleSetupContext;
 import com.android.tools.idea.gradle.project.sync.issues.SyncIssues;
+import com.android.tools.idea.gradle.stubs.android.AndroidProjectStub;
 import com.google.common.collect.ImmutableList;
 import com.intellij.testFramework.PlatformTestCase;
+import java.io.File;
+import org.jetbrains.annotations.NotNull;
 import org.mockito.Mock;
 
 /**
@@ -53,6 +59,16 @@ public class AndroidModuleSetupTest extends PlatformTestCase {
     when(myAndroidProject.getSyncIssues()).thenReturn(ImmutableList.of());
   }
 
+  @Override
+  public void tearDown() throws Exception {
+    try {
+      StudioFlags.INCREMENTAL_MODULE_SETUP.clearOverride();
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
   public void testSetUpAndroidModuleWithSyncNotSkipped() {
     myModuleSetup.setUpModule(myModuleSetupContext, myAndroidModel);
 
@@ -69,4 +85,59 @@ public class AndroidModuleSetupTest extends PlatformTestCase {
     SyncIssues.seal(myProject);
     assertThat(SyncIssues.forModule(myModule)).containsExactly(syncIssue);
   }
+
+  public void testSetUpUnchangedAndroidModule() {
+    StudioFlags.INCREMENTAL_MODULE_SETUP.override(true);
+    AndroidProjectStub androidProject = createAndroidProject();
+    myModuleSetup.setUpModule(myModuleSetupContext, createModel(androidProject));
+    ModuleSetupFingerprints.markApplied(myModule);
+
+    // A model copied from the same Gradle model by the next sync.
+    AndroidModuleModel androidModel = createModel(androidProject);
+    myModuleSetup.setUpModule(myModuleSetupContext, androidModel);
+
+    verify(mySetupStep1).setUpUnchangedModule(myModuleSetupContext, androidModel);
+    verify(mySetupStep2).setUpUnchangedModule(myModuleSetupContext, androidModel);
+    verify(mySetupStep1, never()).setUpModule(myModuleSetupContext, androidModel);
+  }
+
+  public void testSetUpAndroidModuleWithChangedDependencies() {
+    StudioFlags.INCREMENTAL_MODULE_SETUP.override(true);
+    AndroidProjectStub androidProject = createAndroidProject();
+    myModuleSetup.setUpModule(myModuleSetupContext, createModel(androidProject));
+    ModuleSetupFingerprints.markApplied(myModule);
+
+    androidProject.getFirstVariant().getMainArtifact().getDependencies().addJar(new File("guava.jar"));
+    AndroidModuleModel androidModel = createModel(androidProject);
+    myModuleSetup.setUpModule(myModuleSetupContext, androidModel);
+
+    verify(mySetupStep1).setUpModule(myModuleSetupContext, androidModel);
+    verify(mySetupStep1, never()).setUpUnchangedModule(myModuleSetupContext, androidModel);
+  }
+
+  public void testSetUpAndroidModuleAfterFailedSync() {
+    StudioFlags.INCREMENTAL_MODULE_SETUP.override(true);
+    AndroidProjectStub androidProject = createAndroidProject();
+    // The previous sync did not succeed, so its fingerprint was never applied.
+    myModuleSetup.setUpModule(myModuleSetupContext, createModel(androidProject));
+
+    AndroidModuleModel androidModel = createModel(androidProject);
+    myModuleSetup.setUpModule(myModuleSetupContext, androidModel);
+
+    verify(mySetupStep1).setUpModule(myModuleSetupContext, androidModel);
+    verify(mySetupStep1, never()).setUpUnchangedModule(myModuleSetupContext, androidModel);
+  }
+
+  @NotNull
+  private static AndroidProjectStub createAndroidProject() {
+    AndroidProjectStub androidProject = new AndroidProjectStub("app");
+    androidProject.addVariant("debug");
+    return androidProject;
+  }
+
+  @NotNull
+  private static AndroidModuleModel createModel(@NotNull AndroidProjectStub androidProject) {
+    return AndroidModuleModel.create(androidProject.getName(), androidProject.getRootDir(), androidProject, "debug",
+                                     new IdeDependenciesFactory());
+  }
 }
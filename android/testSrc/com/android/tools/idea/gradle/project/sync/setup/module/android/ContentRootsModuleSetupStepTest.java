@@ -169,6 +169,23 @@ public class ContentRootsModuleSetupStepTest extends PlatformTestCase {
     verify(mySetup).execute(Collections.singletonList(newContentEntry));
   }
 
+  public void testSetUpUnchangedModule() {
+    ModifiableRootModel moduleModel = myModelsProvider.getModifiableRootModel(getModule());
+    when(myFactory.create(myAndroidModel, moduleModel, false)).thenReturn(mySetup);
+
+    ModuleSetupContext context = new ModuleSetupContext.Factory().create(getModule(), myModelsProvider);
+    mySetupStep.setUpUnchangedModule(context, myAndroidModel);
+    Map<String, ContentEntry> entriesByName = indexByName(moduleModel.getContentEntries());
+
+    // Content roots "a", "b", and "c" should still be there, since the module was already set up from the same model.
+    assertThat(entriesByName.keySet()).containsExactly("a", "b", "c");
+
+    ApplicationManager.getApplication().runWriteAction(myModelsProvider::commit);
+
+    verify(mySetup).registerExtraGeneratedSourceFolders();
+    verify(mySetup, never()).execute(any());
+  }
+
   @NotNull
   private NdkFacet addNativeAndroidFacet(@NotNull IdeModifiableModelsProvider modelsProvider) {
     Module module = getModule();
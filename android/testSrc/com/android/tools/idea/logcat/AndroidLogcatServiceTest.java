@@ -265,6 +265,33 @@ public class AndroidLogcatServiceTest {
     myLogcatListener.assertAllReceived();
   }
 
+  /**
+   * Tests that a listener still gets the old logs of a disconnected device when it is reset, e.g. because the filter of its view changed.
+   */
+  @Test
+  public void testResetListenerAfterDeviceDisconnected() throws Exception {
+    // The logs are received once when the listener is added, and once more when it is reset
+    CountDownLatch receivedLatch = new CountDownLatch(8);
+    AndroidLogcatService.LogcatListener listener = new AndroidLogcatService.LogcatListener() {
+      @Override
+      public void onLogLineReceived(@NotNull LogCatMessage line) {
+        receivedLatch.countDown();
+      }
+    };
+    when(mockDevice.isOnline()).thenReturn(true);
+    myLogcatService.deviceConnected(mockDevice);
+    myLogcatService.addListener(mockDevice, listener, true);
+    myExecuteShellCommandLatch.await();
+
+    when(mockDevice.isOnline()).thenReturn(false);
+    myLogcatService.deviceDisconnected(mockDevice);
+    boolean[] cleared = new boolean[1];
+    myLogcatService.resetListener(mockDevice, listener, new MatchAllFilter(""), () -> cleared[0] = true);
+
+    assertTrue(cleared[0]);
+    assertTrue(receivedLatch.await(5, TimeUnit.SECONDS));
+  }
+
   @Test
   public void consoleGetsClearedWhenDeviceIsDisconnected() {
     myLogcatService.addListener(mockDevice, myLogcatListener);
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.logcat;
+
+import com.android.ddmlib.Log.LogLevel;
+import com.android.ddmlib.logcat.LogCatHeader;
+import com.android.ddmlib.logcat.LogCatMessage;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class LogcatBufferTest {
+  @Test
+  public void dropsOldestLinesOnceFull() {
+    LogcatBuffer buffer = new LogcatBuffer(3);
+    for (int i = 0; i < 5; i++) {
+      addEntry(buffer, LogLevel.INFO, 1, "Tag", "Line" + i);
+    }
+
+    assertThat(buffer.size()).isEqualTo(3);
+    assertThat(toStrings(buffer.getMessages())).containsExactly("Line2", "Line3", "Line4").inOrder();
+  }
+
+  @Test
+  public void setCapacityKeepsNewestLines() {
+    LogcatBuffer buffer = new LogcatBuffer(4);
+    for (int i = 0; i < 6; i++) {
+      addEntry(buffer, LogLevel.INFO, 1, "Tag", "Line" + i);
+    }
+
+    buffer.setCapacity(2);
+    assertThat(toStrings(buffer.getMessages())).containsExactly("Line4", "Line5").inOrder();
+
+    buffer.setCapacity(3);
+    addEntry(buffer, LogLevel.INFO, 1, "Tag", "Line6");
+    assertThat(toStrings(buffer.getMessages())).containsExactly("Line4", "Line5", "Line6").inOrder();
+  }
+
+  @Test
+  public void filtersByTagPidAndLevel() {
+    LogcatBuffer buffer = new LogcatBuffer(100);
+    addEntry(buffer, LogLevel.DEBUG, 1, "First", "1");
+    addEntry(buffer, LogLevel.ERROR, 1, "First", "2");
+    addEntry(buffer, LogLevel.ERROR, 2, "First", "3");
+    addEntry(buffer, LogLevel.ERROR, 1, "Second", "4");
+    addEntry(buffer, LogLevel.WARN, 1, "FirstAgain", "5");
+
+    DefaultAndroidLogcatFilter filter = new DefaultAndroidLogcatFilter.Builder("filter")
+      .setTagPattern(Pattern.compile("^First"))
+      .setPid(1)
+      .setLogLevel(LogLevel.WARN)
+      .build();
+
+    assertThat(toStrings(buffer.getMessages(filter))).containsExactly("2", "5").inOrder();
+    assertThat(toStrings(buffer.getMessages(new SelectedProcessFilter(2)))).containsExactly("3");
+  }
+
+  @Test
+  public void returnsWholeEntryIfAnyLineMatches() {
+    LogcatBuffer buffer = new LogcatBuffer(100);
+    addEntry(buffer, LogLevel.INFO, 1, "Tag", "Before", "Match", "After");
+    addEntry(buffer, LogLevel.INFO, 1, "Tag", "Other");
+
+    DefaultAndroidLogcatFilter filter = new DefaultAndroidLogcatFilter.Builder("filter")
+      .setTagPattern(Pattern.compile("Tag"))
+      .setMessagePattern(Pattern.compile("Match"))
+      .build();
+
+    assertThat(toStrings(buffer.getMessages(filter))).containsExactly("Before", "Match", "After").inOrder();
+  }
+
+  @Test
+  public void filtersEntryWhoseFirstLinesWereDropped() {
+    LogcatBuffer buffer = new LogcatBuffer(3);
+    addEntry(buffer, LogLevel.INFO, 1, "Tag", "Line1", "Line2", "Line3");
+    addEntry(buffer, LogLevel.INFO, 2, "Tag", "Other");
+
+    assertThat(toStrings(buffer.getMessages(new SelectedProcessFilter(1)))).containsExactly("Line2", "Line3").inOrder();
+  }
+
+  @Test
+  public void filtersWithNonIndexedFilter() {
+    LogcatBuffer buffer = new LogcatBuffer(100);
+    addEntry(buffer, LogLevel.INFO, 1, "Tag", "Keep");
+    addEntry(buffer, LogLevel.INFO, 1, "Tag", "Drop");
+
+    AndroidLogcatFilter filter = new AndroidLogcatFilter() {
+      @NotNull
+      @Override
+      public String getName() {
+        return "filter";
+      }
+
+      @Override
+      public boolean isApplicable(@NotNull String message, @NotNull String tag, @NotNull String pkg, int pid, @NotNull LogLevel logLevel) {
+        return message.equals("Keep");
+      }
+    };
+
+    assertThat(toStrings(buffer.getMessages(filter))).containsExactly("Keep");
+  }
+
+  @Test
+  public void filtersAfterIndicesArePruned() {
+    LogcatBuffer buffer = new LogcatBuffer(10);
+    for (int i = 0; i < 95; i++) {
+      addEntry(buffer, LogLevel.INFO, i % 2, "Tag" + i % 3, Integer.toString(i));
+    }
+
+    DefaultAndroidLogcatFilter filter = new DefaultAndroidLogcatFilter.Builder("filter")
+      .setTagPattern(Pattern.compile("Tag0"))
+      .setPid(0)
+      .build();
+
+    // Within the last 10 entries, 85 to 94, the ones divisible by 6.
+    assertThat(toStrings(buffer.getMessages(filter))).containsExactly("90");
+  }
+
+  private static void addEntry(@NotNull LogcatBuffer buffer, @NotNull LogLevel level, int pid, @NotNull String tag, String... lines) {
+    LogCatHeader header = new LogCatHeader(level, pid, pid, "com.example", tag, Instant.EPOCH);
+    for (String line : lines) {
+      buffer.addMessage(new LogCatMessage(header, line));
+    }
+  }
+
+  @NotNull
+  private static List<String> toStrings(@NotNull List<LogCatMessage> messages) {
+    return messages.stream().map(LogCatMessage::getMessage).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.rendering;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.Test;
+
+public class ConvertedClassCacheTest {
+  @Test
+  public void classesWithSameContentsAreConvertedOnce() {
+    ConvertedClassCache cache = new ConvertedClassCache(1024);
+    AtomicInteger conversions = new AtomicInteger();
+    Function<byte[], byte[]> converter = data -> {
+      conversions.incrementAndGet();
+      return new byte[] { (byte)(data[0] + 1) };
+    };
+
+    byte[] converted = cache.getOrConvert(new byte[] { 1, 2, 3 }, converter);
+    assertThat(converted).isEqualTo(new byte[] { 2 });
+    // Same contents in a different array, as read by a new class loader.
+    assertThat(cache.getOrConvert(new byte[] { 1, 2, 3 }, converter)).isSameAs(converted);
+    assertThat(cache.getOrConvert(new byte[] { 4, 5, 6 }, converter)).isEqualTo(new byte[] { 5 });
+
+    assertThat(conversions.get()).isEqualTo(2);
+    assertThat(cache.getStats().hitCount()).isEqualTo(1);
+    assertThat(cache.getStats().missCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void cacheIsBoundedBySize() {
+    ConvertedClassCache cache = new ConvertedClassCache(100);
+    AtomicInteger conversions = new AtomicInteger();
+    Function<byte[], byte[]> converter = data -> {
+      conversions.incrementAndGet();
+      return new byte[60];
+    };
+
+    cache.getOrConvert(new byte[] { 1 }, converter);
+    cache.getOrConvert(new byte[] { 2 }, converter);
+    cache.getOrConvert(new byte[] { 1 }, converter);
+    assertThat(conversions.get()).isEqualTo(3);
+  }
+}
@@ -84,4 +84,15 @@ public class RenderServiceTest extends TestCase {
     future.get();
     assertTrue(called.get());
   }
-}
\ No newline at end of file
+
+  public void testRenderActionsOfTaskRunOnOneThread() throws Exception {
+    int renderThread = RenderService.allocateRenderThread();
+    RenderActionStats stats = new RenderActionStats();
+    Thread first = RenderService.runAsyncRenderAction(Thread::currentThread, renderThread, stats).get();
+    Thread second = RenderService.runRenderAction(Thread::currentThread, renderThread, stats);
+
+    assertSame(first, second);
+    assertEquals(2, stats.getActionCount());
+    assertTrue(RenderService.getRenderActionStats().getActionCount() >= 2);
+  }
+}
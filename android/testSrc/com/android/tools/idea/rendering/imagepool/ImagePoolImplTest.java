@@ -153,6 +153,33 @@ public class ImagePoolImplTest {
     gc();
   }
 
+  @Test
+  public void testBudget() {
+    // 100x100 images are allocated in the 500x500 bucket, so each one takes 1MB.
+    long imageSize = 500 * 500 * 4;
+    ImagePoolImpl pool = new ImagePoolImpl(new int[]{50, 500, 1000}, (w, h) -> (type) -> 10, imageSize * 3 / 2);
+    try {
+      ImagePoolImpl.ImageImpl image1 = pool.create(100, 100, BufferedImage.TYPE_INT_ARGB, null);
+      ImagePoolImpl.ImageImpl image2 = pool.create(100, 100, BufferedImage.TYPE_INT_ARGB, null);
+      ImagePoolImpl.ImageImpl image3 = pool.create(100, 100, BufferedImage.TYPE_INT_ARGB, null);
+      BufferedImage internalPtr = image3.myBuffer;
+      assertEquals(3 * imageSize, pool.getStats().totalBytesAllocated());
+
+      // The pool is over budget so the first two released images are evicted instead of being kept.
+      image1.dispose();
+      image2.dispose();
+      image3.dispose();
+      assertEquals(2, pool.getStats().totalEvictions());
+      assertEquals(2 * imageSize, pool.getStats().totalBytesEvicted());
+      assertEquals(imageSize, pool.getStats().totalBytesAllocated());
+
+      assertEquals(internalPtr, pool.create(100, 100, BufferedImage.TYPE_INT_ARGB, null).myBuffer);
+    }
+    finally {
+      pool.dispose();
+    }
+  }
+
   @Test
   public void testDefaultPooling() throws InterruptedException {
     // Small images won't be pooled
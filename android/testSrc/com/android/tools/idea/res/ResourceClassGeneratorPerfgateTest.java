@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.res;
+
+import static com.android.ide.common.rendering.api.ResourceNamespace.RES_AUTO;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.android.ide.common.rendering.api.ResourceReference;
+import com.android.ide.common.resources.ResourceItem;
+import com.android.resources.ResourceType;
+import com.android.tools.perflogger.Benchmark;
+import com.android.tools.perflogger.Metric;
+import com.android.tools.perflogger.Metric.MetricSample;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Measures how long it takes to generate the R class of a synthetic repository with 50k resources, from scratch and after a resource of
+ * one type is added, as happens when a layout is rendered after every edit of a resource file.
+ */
+public class ResourceClassGeneratorPerfgateTest {
+  private static final Benchmark BENCHMARK = new Benchmark.Builder("Resource Class Generator Benchmark")
+    .setDescription("Time (ms) to generate all inner R classes of a repository with 50k resources.")
+    .build();
+
+  private static final ResourceType[] TYPES =
+    {ResourceType.STRING, ResourceType.DRAWABLE, ResourceType.LAYOUT, ResourceType.DIMEN, ResourceType.COLOR};
+  private static final int RESOURCES_PER_TYPE = 10_000;
+  private static final String R_CLASS = "com.example.R";
+  private static final int NUMBER_OF_WARM_UP = 2;
+  private static final int NUMBER_OF_SAMPLES = 10;
+
+  private final Map<ResourceReference, Integer> myIds = new HashMap<>();
+  private TestLocalResourceRepository myModule;
+  private TestMultiResourceRepository myProject;
+  private int myAddedResourceCount;
+
+  @Before
+  public void setUp() {
+    myModule = new TestLocalResourceRepository(RES_AUTO);
+    for (ResourceType type : TYPES) {
+      // The generator only looks at resource names, so all resources of a type can share the same item.
+      ResourceItem item = myModule.createMockItem(type, type.getName());
+      ListMultimap<String, ResourceItem> resources = myModule.getFullTable().getOrPutEmpty(RES_AUTO, type);
+      for (int i = 0; i < RESOURCES_PER_TYPE; i++) {
+        resources.put(type.getName() + "_" + i, item);
+      }
+    }
+    myProject = new TestMultiResourceRepository(ImmutableList.of(myModule));
+  }
+
+  @After
+  public void tearDown() {
+    myProject.dispose();
+  }
+
+  @Test
+  public void fullGeneration() {
+    List<MetricSample> samples = new ArrayList<>(NUMBER_OF_SAMPLES);
+    for (int i = 0; i < NUMBER_OF_WARM_UP + NUMBER_OF_SAMPLES; i++) {
+      ResourceClassGenerator generator = createGenerator();
+      long start = System.nanoTime();
+      generateAll(generator);
+      long elapsedTime = System.nanoTime() - start;
+      if (i >= NUMBER_OF_WARM_UP) {
+        samples.add(new MetricSample(Instant.now().toEpochMilli(), TimeUnit.NANOSECONDS.toMillis(elapsedTime)));
+      }
+    }
+
+    Metric metric = new Metric("resource_class_full_generation");
+    metric.addSamples(BENCHMARK, samples.toArray(new MetricSample[0]));
+    metric.commit();
+  }
+
+  @Test
+  public void regenerationAfterEdit() {
+    ResourceClassGenerator generator = createGenerator();
+    generateAll(generator);
+
+    List<MetricSample> samples = new ArrayList<>(NUMBER_OF_SAMPLES);
+    for (int i = 0; i < NUMBER_OF_WARM_UP + NUMBER_OF_SAMPLES; i++) {
+      byte[] stringClass = generator.generate(R_CLASS + "$string");
+      byte[] drawableClass = generator.generate(R_CLASS + "$drawable");
+      addString();
+
+      long start = System.nanoTime();
+      generateAll(generator);
+      long elapsedTime = System.nanoTime() - start;
+      if (i >= NUMBER_OF_WARM_UP) {
+        samples.add(new MetricSample(Instant.now().toEpochMilli(), TimeUnit.NANOSECONDS.toMillis(elapsedTime)));
+      }
+
+      // Only the class of the edited resource type is regenerated.
+      assertThat(generator.generate(R_CLASS + "$string")).isNotSameAs(stringClass);
+      assertThat(generator.generate(R_CLASS + "$drawable")).isSameAs(drawableClass);
+    }
+
+    Metric metric = new Metric("resource_class_regeneration_after_edit");
+    metric.addSamples(BENCHMARK, samples.toArray(new MetricSample[0]));
+    metric.commit();
+  }
+
+  @NotNull
+  private ResourceClassGenerator createGenerator() {
+    return ResourceClassGenerator.create(reference -> myIds.computeIfAbsent(reference, r -> 0x7f000000 + myIds.size()), myProject, RES_AUTO);
+  }
+
+  private static void generateAll(@NotNull ResourceClassGenerator generator) {
+    assertThat(generator.generate(R_CLASS)).isNotNull();
+    for (ResourceType type : TYPES) {
+      assertThat(generator.generate(R_CLASS + "$" + type.getName())).isNotNull();
+    }
+  }
+
+  private void addString() {
+    myModule.getWriteLock().lock();
+    try {
+      String name = "added_string_" + myAddedResourceCount++;
+      myModule.getFullTable().getOrPutEmpty(RES_AUTO, ResourceType.STRING).put(name, myModule.createMockItem(ResourceType.STRING, name));
+    }
+    finally {
+      myModule.getWriteLock().unlock();
+    }
+    myModule.invalidateParentCaches(RES_AUTO, ResourceType.STRING);
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.res;
+
+import static com.android.ide.common.rendering.api.ResourceNamespace.RES_AUTO;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.android.ide.common.resources.ResourceItem;
+import com.android.resources.ResourceType;
+import com.android.tools.perflogger.Benchmark;
+import com.android.tools.perflogger.Metric;
+import com.android.tools.perflogger.Metric.MetricSample;
+import com.google.common.collect.ListMultimap;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Measures how long concurrent readers take to query the resources of a synthetic project with many modules, while a writer keeps
+ * updating the resources of one of the modules, as happens when layout rendering, code completion and lint query resources while the
+ * user edits a resource file.
+ */
+public class ResourceRepositoryContentionPerfgateTest {
+  private static final Benchmark BENCHMARK = new Benchmark.Builder("Resource Repository Contention Benchmark")
+    .setDescription("Time (ms) for concurrent readers to query the resources of a project with many modules while one module is edited.")
+    .build();
+
+  private static final int MODULE_COUNT = 150;
+  private static final int RESOURCES_PER_MODULE = 50;
+  private static final int READER_COUNT = 8;
+  private static final int QUERIES_PER_READER = 5_000;
+  private static final int NUMBER_OF_WARM_UP = 2;
+  private static final int NUMBER_OF_SAMPLES = 10;
+
+  private List<TestLocalResourceRepository> myModules;
+  private TestMultiResourceRepository myProject;
+  private ExecutorService myExecutor;
+
+  @Before
+  public void setUp() {
+    myModules = new ArrayList<>(MODULE_COUNT);
+    for (int module = 0; module < MODULE_COUNT; module++) {
+      TestLocalResourceRepository repository = new TestLocalResourceRepository(RES_AUTO);
+      ListMultimap<String, ResourceItem> strings = repository.getFullTable().getOrPutEmpty(RES_AUTO, ResourceType.STRING);
+      for (int i = 0; i < RESOURCES_PER_MODULE; i++) {
+        String name = getResourceName(module, i);
+        strings.put(name, repository.createMockItem(ResourceType.STRING, name));
+      }
+      myModules.add(repository);
+    }
+    myProject = new TestMultiResourceRepository(myModules);
+    myExecutor = Executors.newFixedThreadPool(READER_COUNT + 1);
+  }
+
+  @After
+  public void tearDown() {
+    myExecutor.shutdownNow();
+    myProject.dispose();
+  }
+
+  @Test
+  public void concurrentQueriesWhileEditing() throws Exception {
+    for (int i = 0; i < NUMBER_OF_WARM_UP; i++) {
+      runQueries();
+    }
+
+    List<MetricSample> samples = new ArrayList<>(NUMBER_OF_SAMPLES);
+    for (int i = 0; i < NUMBER_OF_SAMPLES; i++) {
+      samples.add(new MetricSample(Instant.now().toEpochMilli(), runQueries()));
+    }
+
+    Metric metric = new Metric("resource_repository_contended_queries");
+    metric.addSamples(BENCHMARK, samples.toArray(new MetricSample[0]));
+    metric.commit();
+
+    // The edits of the writer are visible through the project repository once they are done.
+    assertThat(myProject.hasResources(RES_AUTO, ResourceType.STRING, getResourceName(0, 0))).isTrue();
+    assertThat(myProject.getResources(RES_AUTO, ResourceType.STRING).size()).isAtLeast(MODULE_COUNT * RESOURCES_PER_MODULE);
+  }
+
+  /**
+   * Runs the readers and the writer, and returns the time in milliseconds until all the readers are done.
+   */
+  private long runQueries() throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicBoolean readersDone = new AtomicBoolean();
+    Future<?> writer = myExecutor.submit(() -> {
+      TestLocalResourceRepository module = myModules.get(0);
+      int edit = 0;
+      while (!readersDone.get()) {
+        String name = getResourceName(0, edit++ % RESOURCES_PER_MODULE);
+        module.getWriteLock().lock();
+        try {
+          ListMultimap<String, ResourceItem> strings = module.getFullTable().getOrPutEmpty(RES_AUTO, ResourceType.STRING);
+          strings.removeAll(name);
+          strings.put(name, module.createMockItem(ResourceType.STRING, name));
+        }
+        finally {
+          module.getWriteLock().unlock();
+        }
+        module.invalidateParentCaches(RES_AUTO, ResourceType.STRING);
+      }
+    });
+
+    List<Future<?>> readers = new ArrayList<>(READER_COUNT);
+    for (int reader = 0; reader < READER_COUNT; reader++) {
+      Random random = new Random(reader);
+      readers.add(myExecutor.submit(() -> {
+        start.await();
+        for (int query = 0; query < QUERIES_PER_READER; query++) {
+          int module = random.nextInt(MODULE_COUNT);
+          String name = getResourceName(module, random.nextInt(RESOURCES_PER_MODULE));
+          // Alternate between the merged project resources and the resources of a single module.
+          LocalResourceRepository repository = query % 2 == 0 ? myProject : myModules.get(module);
+          if (repository.getResources(RES_AUTO, ResourceType.STRING, name).isEmpty() && module != 0) {
+            throw new AssertionError("Missing " + name);
+          }
+        }
+        return null;
+      }));
+    }
+
+    long startTime = System.nanoTime();
+    start.countDown();
+    for (Future<?> reader : readers) {
+      reader.get(1, TimeUnit.MINUTES);
+    }
+    long elapsedTime = System.nanoTime() - startTime;
+    readersDone.set(true);
+    writer.get(1, TimeUnit.MINUTES);
+    return TimeUnit.NANOSECONDS.toMillis(elapsedTime);
+  }
+
+  @NotNull
+  private static String getResourceName(int module, int index) {
+    return "string_" + module + "_" + index;
+  }
+}
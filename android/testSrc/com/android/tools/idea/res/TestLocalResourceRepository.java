@@ -15,12 +15,16 @@
  */
 package com.android.tools.idea.res;
 
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
 import com.android.annotations.NonNull;
 import com.android.annotations.Nullable;
 import com.android.ide.common.rendering.api.ResourceNamespace;
 import com.android.ide.common.resources.ResourceItem;
 import com.android.ide.common.resources.ResourceTable;
 import com.android.ide.common.resources.SingleNamespaceResourceRepository;
+import com.android.ide.common.resources.configuration.FolderConfiguration;
 import com.android.resources.ResourceType;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
@@ -32,6 +36,7 @@ import org.jetbrains.annotations.NotNull;
 public class TestLocalResourceRepository extends LocalResourceRepository implements SingleNamespaceResourceRepository {
   @NotNull private final ResourceNamespace myNamespace;
   @NotNull private final ResourceTable myResourceTable = new ResourceTable();
+  @NotNull private final FolderConfiguration myConfiguration = new FolderConfiguration();
 
   public TestLocalResourceRepository(@NotNull ResourceNamespace namespace) {
     super("unit test");
@@ -73,4 +78,18 @@ public class TestLocalResourceRepository extends LocalResourceRepository impleme
   protected Set<VirtualFile> computeResourceDirs() {
     return Collections.emptySet();
   }
+
+  /**
+   * Returns a mock resource item in the namespace of this repository and the default configuration, for tests that don't need the
+   * values of resources.
+   */
+  @NotNull
+  public ResourceItem createMockItem(@NotNull ResourceType type, @NotNull String name) {
+    ResourceItem item = mock(ResourceItem.class);
+    when(item.getName()).thenReturn(name);
+    when(item.getType()).thenReturn(type);
+    when(item.getNamespace()).thenReturn(myNamespace);
+    when(item.getConfiguration()).thenReturn(myConfiguration);
+    return item;
+  }
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.res;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Merges the resources of the given local repositories, e.g. {@link TestLocalResourceRepository} instances standing for the modules of a
+ * synthetic project.
+ */
+public class TestMultiResourceRepository extends MultiResourceRepository {
+  public TestMultiResourceRepository(@NotNull List<? extends LocalResourceRepository> children) {
+    super("unit test");
+    setChildren(children, ImmutableList.of(), ImmutableList.of());
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.android.inspections.lint;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+
+public class AndroidLintGlobalInspectionContextTest extends TestCase {
+  public void testAppsSharingALibraryGetTheirOwnGroups() {
+    // Both apps depend on "lib", which depends on "base"
+    Map<String, Collection<String>> libraries = ImmutableMap.of(
+      "app1", ImmutableList.of("lib", "base"),
+      "app2", ImmutableList.of("lib", "base"),
+      "lib", ImmutableList.of("base"),
+      "base", ImmutableList.of());
+
+    List<List<String>> groups =
+      AndroidLintGlobalInspectionContext.partitionModules(ImmutableList.of("app1", "lib", "app2", "base"), libraries::get);
+    // The libraries are analyzed as part of each app, like with a single driver
+    assertThat(groups).containsExactly(ImmutableList.of("app1"), ImmutableList.of("app2")).inOrder();
+  }
+
+  public void testLibraryWithoutItsAppIsARoot() {
+    Map<String, Collection<String>> libraries = ImmutableMap.of(
+      "lib", ImmutableList.of("base"),
+      "base", ImmutableList.of(),
+      "other", ImmutableList.of());
+
+    List<List<String>> groups =
+      AndroidLintGlobalInspectionContext.partitionModules(ImmutableList.of("base", "lib", "other"), libraries::get);
+    assertThat(groups).containsExactly(ImmutableList.of("lib"), ImmutableList.of("other")).inOrder();
+  }
+
+  public void testSingleRoot() {
+    Map<String, Collection<String>> libraries = ImmutableMap.of(
+      "app", ImmutableList.of("lib"),
+      "lib", ImmutableList.of());
+
+    List<List<String>> groups = AndroidLintGlobalInspectionContext.partitionModules(ImmutableList.of("app", "lib"), libraries::get);
+    assertThat(groups).containsExactly(ImmutableList.of("app"));
+  }
+}
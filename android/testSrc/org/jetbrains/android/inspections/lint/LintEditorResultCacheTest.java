@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.android.inspections.lint;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.android.tools.lint.checks.ApiDetector;
+import com.android.tools.lint.checks.HardcodedValuesDetector;
+import com.android.tools.lint.checks.SdCardDetector;
+import com.android.tools.lint.detector.api.Issue;
+import com.google.common.collect.ImmutableSet;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import java.util.List;
+import java.util.Set;
+import org.jetbrains.android.AndroidTestCase;
+import org.jetbrains.annotations.NotNull;
+
+public class LintEditorResultCacheTest extends AndroidTestCase {
+  private static final Set<Issue> ISSUES = ImmutableSet.of(HardcodedValuesDetector.ISSUE);
+
+  private PsiFile myFile;
+  private ProblemData myProblem;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    myFile = myFixture.addFileToProject("src/p1/p2/MyActivity.java",
+                                        "package p1.p2;\n" +
+                                        "public class MyActivity {\n" +
+                                        "  public void foo() {\n" +
+                                        "  }\n" +
+                                        "}\n");
+    myProblem = new ProblemData(HardcodedValuesDetector.ISSUE, "message", new TextRange(0, 1), null, null);
+  }
+
+  public void testHitAndMiss() {
+    State state = createState(ISSUES);
+    LintEditorResultCache.Stamp stamp = LintEditorResultCache.computeStamp(state);
+    assertThat(LintEditorResultCache.get(state, stamp)).isNull();
+
+    state.getProblems().add(myProblem);
+    LintEditorResultCache.put(state, stamp);
+
+    State newState = createState(ISSUES);
+    List<ProblemData> problems = LintEditorResultCache.get(newState, LintEditorResultCache.computeStamp(newState));
+    assertThat(problems).containsExactly(myProblem);
+
+    // A different set of enabled issues does not use the cached results
+    State otherIssuesState = createState(ImmutableSet.of());
+    assertThat(LintEditorResultCache.get(otherIssuesState, LintEditorResultCache.computeStamp(otherIssuesState))).isNull();
+  }
+
+  public void testDirtyStateIsNotCached() {
+    State state = createState(ISSUES);
+    LintEditorResultCache.Stamp stamp = LintEditorResultCache.computeStamp(state);
+    state.getProblems().add(myProblem);
+    state.markDirty();
+    LintEditorResultCache.put(state, stamp);
+
+    assertThat(LintEditorResultCache.get(state, stamp)).isNull();
+  }
+
+  public void testEditInvalidatesResults() {
+    cacheProblem();
+
+    Document document = PsiDocumentManager.getInstance(getProject()).getDocument(myFile);
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+      document.insertString(document.getText().indexOf("  }"), "    int i = 0;\n");
+      PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+    });
+
+    State state = createState(ISSUES);
+    assertThat(LintEditorResultCache.get(state, LintEditorResultCache.computeStamp(state))).isNull();
+  }
+
+  public void testDeclarationChangeInOtherFileInvalidatesResults() {
+    cacheProblem();
+
+    myFixture.addFileToProject("src/p1/p2/Other.java", "package p1.p2;\npublic class Other {}\n");
+
+    State state = createState(ISSUES);
+    assertThat(LintEditorResultCache.get(state, LintEditorResultCache.computeStamp(state))).isNull();
+  }
+
+  public void testCodeBlockChangeInOtherFileKeepsResults() {
+    PsiFile other = myFixture.addFileToProject("src/p1/p2/Other.java",
+                                               "package p1.p2;\n" +
+                                               "public class Other {\n" +
+                                               "  public void bar() {\n" +
+                                               "  }\n" +
+                                               "}\n");
+    cacheProblem();
+
+    Document document = PsiDocumentManager.getInstance(getProject()).getDocument(other);
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+      document.insertString(document.getText().indexOf("  }"), "    int i = 0;\n");
+      PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+    });
+
+    State state = createState(ISSUES);
+    assertThat(LintEditorResultCache.get(state, LintEditorResultCache.computeStamp(state))).containsExactly(myProblem);
+  }
+
+  public void testGetForBatch() {
+    State state = createState(ImmutableSet.of(HardcodedValuesDetector.ISSUE, ApiDetector.UNSUPPORTED));
+    LintEditorResultCache.Stamp stamp = LintEditorResultCache.computeStamp(state);
+    state.getProblems().add(myProblem);
+    LintEditorResultCache.put(state, stamp);
+
+    assertThat(LintEditorResultCache.getForBatch(getProject(), myFile.getVirtualFile(), ISSUES)).containsExactly(myProblem);
+    assertThat(LintEditorResultCache.getForBatch(getProject(), myFile.getVirtualFile(), ImmutableSet.of(ApiDetector.UNSUPPORTED)))
+      .isEmpty();
+    // The editor did not look for all of the issues
+    assertThat(LintEditorResultCache.getForBatch(getProject(), myFile.getVirtualFile(),
+                                                 ImmutableSet.of(HardcodedValuesDetector.ISSUE, SdCardDetector.ISSUE))).isNull();
+
+    myFixture.addFileToProject("src/p1/p2/Other.java", "package p1.p2;
+public class Other {}
+");
+    assertThat(LintEditorResultCache.getForBatch(getProject(), myFile.getVirtualFile(), ISSUES)).isNull();
+  }
+
+  private void cacheProblem() {
+    State state = createState(ISSUES);
+    LintEditorResultCache.Stamp stamp = LintEditorResultCache.computeStamp(state);
+    state.getProblems().add(myProblem);
+    LintEditorResultCache.put(state, stamp);
+  }
+
+  @NotNull
+  private State createState(@NotNull Set<Issue> issues) {
+    return new State(myModule, myFile.getVirtualFile(), myFile.getText(), issues);
+  }
+}
@@ -15,6 +15,7 @@
  */
 package com.android.tools.idea.common.scene;
 
+import com.android.tools.adtui.common.SwingCoordinate;
 import com.android.tools.idea.common.model.AndroidDpCoordinate;
 import com.android.tools.idea.common.model.NlComponent;
 import com.android.tools.idea.common.model.SelectionModel;
@@ -35,6 +36,13 @@ import java.util.List;
 class SceneHitListener {
   @NotNull private SelectionModel mySelectionModel;
   private ScenePicker myPicker = new ScenePicker();
+  // The picker is filled from the scene once and reused by the following finds, until the display list of the scene or the transform
+  // changes. Anything that moves or adds a hit region also changes what is drawn, so it has to rebuild the display list as well.
+  @Nullable private SceneComponent myPickerRoot;
+  private long myPickerVersion;
+  private double myPickerScale;
+  @SwingCoordinate private int myPickerOriginX;
+  @SwingCoordinate private int myPickerOriginY;
   double myClosestComponentDistance = Double.MAX_VALUE;
   double myClosestTargetDistance = Double.MAX_VALUE;
   ArrayList<SceneComponent> myHitComponents = new ArrayList<>();
@@ -58,8 +66,21 @@ class SceneHitListener {
     myHitTargets.clear();
     myClosestComponentDistance = Double.MAX_VALUE;
     myClosestTargetDistance = Double.MAX_VALUE;
-    myPicker.reset();
-    root.addHit(transform, myPicker);
+    long version = root.getScene().getDisplayListVersion();
+    double scale = transform.getScale();
+    int originX = transform.getSwingXDip(0);
+    int originY = transform.getSwingYDip(0);
+    //noinspection FloatingPointEquality
+    if (root != myPickerRoot || version != myPickerVersion || scale != myPickerScale
+        || originX != myPickerOriginX || originY != myPickerOriginY) {
+      myPicker.reset();
+      root.addHit(transform, myPicker);
+      myPickerRoot = root;
+      myPickerVersion = version;
+      myPickerScale = scale;
+      myPickerOriginX = originX;
+      myPickerOriginY = originY;
+    }
     myPicker.find(transform.getSwingXDip(x), transform.getSwingYDip(y));
   }
 
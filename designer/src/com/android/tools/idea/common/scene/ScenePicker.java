@@ -25,6 +25,12 @@ public class ScenePicker {
   private final static int MAX_DATA_SIZE = 10;
   private final static int INITAL_OBJECT_STORE = 30;
   private final static double EPSILON = 0.00001;
+  /** Below this number of objects, scanning all the bounding rectangles is as fast as looking them up in the grid. */
+  private final static int MIN_INDEXED_OBJECTS = 64;
+  /** Maximum number of cells of the grid in each direction. */
+  private final static int MAX_GRID_SIZE = 64;
+  /** Objects whose bounds cover more than this fraction of the grid cells are not stored in the cells but checked on every find. */
+  private final static int LARGE_OBJECT_CELL_FRACTION = 4;
   private double[] mObjectData = new double[100];
   private int mObjectDataUsed = 0;
   private int[] mObjectOffset = new int[INITAL_OBJECT_STORE];
@@ -33,6 +39,21 @@ public class ScenePicker {
   private Object[] mObjects = new Object[INITAL_OBJECT_STORE];
   HitElementListener mHitElementListener;
 
+  // Uniform grid over the bounding rectangles of the objects. It is built on the second find() after the objects change, so pickers
+  // that are populated for a single find() do not pay for it.
+  private int mFindCount = 0;
+  private boolean mGridValid = false;
+  private int mGridX;
+  private int mGridY;
+  private int mGridColumns;
+  private int mGridRows;
+  private int mCellWidth;
+  private int mCellHeight;
+  private int[] mCellStart = new int[0];
+  private int[] mCellObjects = new int[0];
+  private int[] mLargeObjects = new int[0];
+  private int mLargeObjectCount = 0;
+
   private int mObjectCount = 0;
   private final static int OBJECT_LINE = 0;
   private final static int OBJECT_POINT = 1;
@@ -70,19 +91,131 @@ public class ScenePicker {
    * @param y location y
    */
   public void find(int x, int y) {
+    if (mObjectCount < MIN_INDEXED_OBJECTS || mFindCount++ == 0) {
+      for (int i = 0; i < mObjectCount; i++) {
+        check(i, x, y);
+      }
+      return;
+    }
+
+    if (!mGridValid) {
+      buildGrid();
+    }
+    int large = 0;
+    int column = (x - mGridX) / mCellWidth;
+    int row = (y - mGridY) / mCellHeight;
+    if (x >= mGridX && y >= mGridY && column < mGridColumns && row < mGridRows) {
+      int cell = row * mGridColumns + column;
+      // Merge the objects of the cell with the large objects to notify the listener in the order the objects were added
+      for (int k = mCellStart[cell]; k < mCellStart[cell + 1]; k++) {
+        int i = mCellObjects[k];
+        while (large < mLargeObjectCount && mLargeObjects[large] < i) {
+          check(mLargeObjects[large++], x, y);
+        }
+        check(i, x, y);
+      }
+    }
+    while (large < mLargeObjectCount) {
+      check(mLargeObjects[large++], x, y);
+    }
+  }
+
+  private void check(int i, int x, int y) {
+    int p = i * 4;
+    int x1 = mRect[p++];
+    int y1 = mRect[p++];
+    int x2 = mRect[p++];
+    int y2 = mRect[p];
+    if (inRect(x, y, x1, y1, x2, y2)) {
+      SelectionEngine selector = myEngines[mTypes[i]];
+      if (selector.inRange(i, x, y)) {
+        mHitElementListener.over(mObjects[i], selector.distance());
+      }
+    }
+  }
+
+  /**
+   * Sorts the objects into a grid of cells over their bounding rectangles. Each cell lists, in insertion order, the objects whose
+   * bounding rectangle intersects it, so find() only has to check the objects of the cell under the mouse.
+   */
+  private void buildGrid() {
+    int minX = Integer.MAX_VALUE;
+    int minY = Integer.MAX_VALUE;
+    int maxX = Integer.MIN_VALUE;
+    int maxY = Integer.MIN_VALUE;
+    for (int i = 0; i < mObjectCount; i++) {
+      int p = i * 4;
+      minX = Math.min(minX, mRect[p]);
+      minY = Math.min(minY, mRect[p + 1]);
+      maxX = Math.max(maxX, mRect[p + 2]);
+      maxY = Math.max(maxY, mRect[p + 3]);
+    }
+    // Aim for about one object per cell
+    int size = Math.max(1, Math.min(MAX_GRID_SIZE, (int)Math.sqrt(mObjectCount)));
+    mGridX = minX;
+    mGridY = minY;
+    mCellWidth = Math.max(1, (int)(((long)maxX - minX) / size + 1));
+    mCellHeight = Math.max(1, (int)(((long)maxY - minY) / size + 1));
+    mGridColumns = size;
+    mGridRows = size;
+    int cellCount = mGridColumns * mGridRows;
+    int maxCellsPerObject = Math.max(1, cellCount / LARGE_OBJECT_CELL_FRACTION);
+
+    if (mCellStart.length < cellCount + 1) {
+      mCellStart = new int[cellCount + 1];
+    }
+    Arrays.fill(mCellStart, 0, cellCount + 1, 0);
+    if (mLargeObjects.length < mObjectCount) {
+      mLargeObjects = new int[mObjectCount];
+    }
+    mLargeObjectCount = 0;
+
+    // First pass: count the objects of each cell
+    int entries = 0;
     for (int i = 0; i < mObjectCount; i++) {
       int p = i * 4;
-      int x1 = mRect[p++];
-      int y1 = mRect[p++];
-      int x2 = mRect[p++];
-      int y2 = mRect[p];
-      if (inRect(x, y, x1, y1, x2, y2)) {
-        SelectionEngine selector = myEngines[mTypes[i]];
-        if (selector.inRange(i, x, y)) {
-          mHitElementListener.over(mObjects[i], selector.distance());
+      int column1 = (mRect[p] - mGridX) / mCellWidth;
+      int row1 = (mRect[p + 1] - mGridY) / mCellHeight;
+      int column2 = (mRect[p + 2] - mGridX) / mCellWidth;
+      int row2 = (mRect[p + 3] - mGridY) / mCellHeight;
+      if ((column2 - column1 + 1) * (row2 - row1 + 1) > maxCellsPerObject) {
+        mLargeObjects[mLargeObjectCount++] = i;
+        continue;
+      }
+      for (int row = row1; row <= row2; row++) {
+        for (int column = column1; column <= column2; column++) {
+          mCellStart[row * mGridColumns + column + 1]++;
+          entries++;
         }
       }
     }
+    for (int cell = 0; cell < cellCount; cell++) {
+      mCellStart[cell + 1] += mCellStart[cell];
+    }
+
+    // Second pass: fill the cells, using a copy of the start offsets as write positions
+    if (mCellObjects.length < entries) {
+      mCellObjects = new int[entries];
+    }
+    int[] next = Arrays.copyOf(mCellStart, cellCount);
+    int large = 0;
+    for (int i = 0; i < mObjectCount; i++) {
+      if (large < mLargeObjectCount && mLargeObjects[large] == i) {
+        large++;
+        continue;
+      }
+      int p = i * 4;
+      int column1 = (mRect[p] - mGridX) / mCellWidth;
+      int row1 = (mRect[p + 1] - mGridY) / mCellHeight;
+      int column2 = (mRect[p + 2] - mGridX) / mCellWidth;
+      int row2 = (mRect[p + 3] - mGridY) / mCellHeight;
+      for (int row = row1; row <= row2; row++) {
+        for (int column = column1; column <= column2; column++) {
+          mCellObjects[next[row * mGridColumns + column]++] = i;
+        }
+      }
+    }
+    mGridValid = true;
   }
 
   /**
@@ -124,6 +257,7 @@ public class ScenePicker {
   public void reset() {
     mObjectCount = 0;
     mObjectDataUsed = 0;
+    invalidateGrid();
     Arrays.fill(mObjects, null);// delete references
   }
 
@@ -131,6 +265,7 @@ public class ScenePicker {
    * resize tables as the number of objects grow
    */
   private void resizeTables() {
+    invalidateGrid();
     if (mObjectDataUsed > mObjectData.length - MAX_DATA_SIZE) {
       mObjectData = Arrays.copyOf(mObjectData, mObjectData.length * 2);
     }
@@ -143,6 +278,14 @@ public class ScenePicker {
     mRect = Arrays.copyOf(mRect, mRect.length * 2);
   }
 
+  /**
+   * Discards the grid index, to be rebuilt by the second find after the objects change
+   */
+  private void invalidateGrid() {
+    mGridValid = false;
+    mFindCount = 0;
+  }
+
   /**
    * Add a line to the set
    *
@@ -48,10 +48,13 @@ public class DisplayList {
   private final static boolean DEBUG = false;
   private ArrayList<DrawCommand> myCommands = new ArrayList<>();
   private Stack<UNClip> myUnClipStack = new Stack<>();
+  /** Sorted commands painted by {@link #paint(Graphics2D, SceneContext)}, retained until the list is modified. */
+  @Nullable private CommandSet mySortedCommands;
 
   public void clear() {
     myCommands.clear();
     myUnClipStack.clear();
+    mySortedCommands = null;
   }
 
   public ArrayList<DrawCommand> getCommands() {
@@ -344,6 +347,7 @@ public class DisplayList {
 
   public void add(DrawCommand cmd) {
     myCommands.add(cmd);
+    mySortedCommands = null;
   }
 
   public void pushClip(@NotNull SceneContext context, @Nullable @AndroidDpCoordinate Rectangle r) {
@@ -356,7 +360,7 @@ public class DisplayList {
     int w = context.getSwingDimensionDip(r.width);
     int h = context.getSwingDimensionDip(r.height);
     Clip c = new Clip(l, t, w, h);
-    myCommands.add(c);
+    add(c);
     myUnClipStack.add(new UNClip(c));
   }
 
@@ -369,7 +373,7 @@ public class DisplayList {
       return false;
     }
     if (!(c instanceof EmptyUNClip)) {
-      myCommands.add(c);
+      add(c);
     }
     return true;
   }
@@ -379,7 +383,7 @@ public class DisplayList {
     int t = context.getSwingYDip(r.y);
     int w = context.getSwingDimensionDip(r.width);
     int h = context.getSwingDimensionDip(r.height);
-    myCommands.add(new Rect(l, t, w, h, color));
+    add(new Rect(l, t, w, h, color));
   }
 
   public void addRect(SceneContext context,
@@ -579,9 +583,13 @@ public class DisplayList {
       System.out.println("<");
     }
     Graphics2D g = (Graphics2D)g2.create();
-    DrawCommand[] array = myCommands.toArray(new DrawCommand[0]);
-    CommandSet set = new CommandSet(array, 0, array.length - 1);
-    set.sort();
+    CommandSet set = mySortedCommands;
+    if (set == null) {
+      DrawCommand[] array = myCommands.toArray(new DrawCommand[0]);
+      set = new CommandSet(array, 0, array.length - 1);
+      set.sort();
+      mySortedCommands = set;
+    }
     if (DEBUG) {
       set.print(">");
       System.out.println("-end-");
@@ -23,10 +23,10 @@ import com.android.resources.ResourceType;
 import com.android.tools.idea.common.model.NlComponent;
 import com.android.tools.idea.common.model.NlModel;
 import com.android.tools.idea.configurations.Configuration;
-import com.android.tools.idea.rendering.RenderService;
 import com.android.tools.idea.res.ResourceIdManager;
 import com.android.tools.idea.uibuilder.handlers.constraint.ComponentModification;
 import com.android.tools.idea.uibuilder.model.NlComponentHelperKt;
+import com.android.tools.idea.uibuilder.scene.LayoutlibSceneManager;
 import com.android.utils.Pair;
 import java.util.HashMap;
 import org.jetbrains.annotations.NotNull;
@@ -80,7 +80,7 @@ public class MotionLayoutComponentHelper {
       Method accessor = instance.getClass().getMethod("getDesignTool");
       if (accessor != null) {
         try {
-          designInstance = RenderService.runRenderAction(() -> accessor.invoke(instance));
+          designInstance = LayoutlibSceneManager.runRenderAction(component, () -> accessor.invoke(instance));
         }
         catch (Exception e) {
           e.printStackTrace();
@@ -110,7 +110,7 @@ public class MotionLayoutComponentHelper {
 
     if (myGetKeyframeAtLocationMethod != null) {
       try {
-        return RenderService.runRenderAction(() -> {
+        return LayoutlibSceneManager.runRenderAction(myMotionLayoutComponent, () -> {
           try {
             return myGetKeyframeAtLocationMethod.invoke(myDesignTool, view, x, y);
           }
@@ -146,7 +146,7 @@ public class MotionLayoutComponentHelper {
 
     if (myGetPositionKeyframeMethod != null) {
       try {
-        return RenderService.runRenderAction(() -> {
+        return LayoutlibSceneManager.runRenderAction(myMotionLayoutComponent, () -> {
           try {
             return myGetPositionKeyframeMethod.invoke(myDesignTool, keyframe, view, x, y, attributes, values);
           }
@@ -181,7 +181,7 @@ public class MotionLayoutComponentHelper {
 
     if (myGetKeyframeMethod != null) {
       try {
-        return RenderService.runRenderAction(() -> {
+        return LayoutlibSceneManager.runRenderAction(myMotionLayoutComponent, () -> {
           try {
             return myGetKeyframeMethod.invoke(myDesignTool, type, target, position);
           }
@@ -216,7 +216,7 @@ public class MotionLayoutComponentHelper {
 
     if (mySetKeyframeMethod != null) {
       try {
-        RenderService.runRenderAction(() -> {
+        LayoutlibSceneManager.runRenderAction(myMotionLayoutComponent, () -> {
           try {
             mySetKeyframeMethod.invoke(myDesignTool, keyframe, tag, value);
           }
@@ -247,7 +247,7 @@ public class MotionLayoutComponentHelper {
     }
     if (mySetAttributesMethod != null) {
       try {
-        RenderService.runRenderAction(() -> {
+        LayoutlibSceneManager.runRenderAction(myMotionLayoutComponent, () -> {
           try {
             mySetAttributesMethod.invoke(myDesignTool, dpiValue, constraintSetId, view, attributes);
           }
@@ -279,7 +279,7 @@ public class MotionLayoutComponentHelper {
     final boolean[] didUpdate = {false};
     if (mySetKeyframePositionMethod != null) {
       try {
-        RenderService.runRenderAction(() -> {
+        LayoutlibSceneManager.runRenderAction(myMotionLayoutComponent, () -> {
           try {
             didUpdate[0] = (boolean)mySetKeyframePositionMethod.invoke(myDesignTool, view, Integer.valueOf(position),
                                                                        Integer.valueOf(type), Float.valueOf(x), Float.valueOf(y));
@@ -315,7 +315,7 @@ public class MotionLayoutComponentHelper {
     }
     if (myCallSetTransitionPosition != null) {
       try {
-        RenderService.runRenderAction(() -> {
+        LayoutlibSceneManager.runRenderAction(myMotionLayoutComponent, () -> {
           try {
             myCallSetTransitionPosition.invoke(myDesignTool, Float.valueOf(position));
           }
@@ -364,7 +364,7 @@ public class MotionLayoutComponentHelper {
     }
     if (myCallSetTransition != null) {
       try {
-        RenderService.runRenderAction(() -> {
+        LayoutlibSceneManager.runRenderAction(myMotionLayoutComponent, () -> {
           try {
             myCallSetTransition.invoke(myDesignTool, start, end);
           }
@@ -401,7 +401,7 @@ public class MotionLayoutComponentHelper {
     }
     if (myCallSetState != null) {
       try {
-        RenderService.runRenderAction(() -> {
+        LayoutlibSceneManager.runRenderAction(myMotionLayoutComponent, () -> {
           try {
             myCallSetState.invoke(myDesignTool, state);
           }
@@ -439,7 +439,7 @@ public class MotionLayoutComponentHelper {
     }
     if (myCallGetState != null) {
       try {
-        state = RenderService.runRenderAction(() -> {
+        state = LayoutlibSceneManager.runRenderAction(myMotionLayoutComponent, () -> {
           try {
             return (String)myCallGetState.invoke(myDesignTool);
           }
@@ -474,7 +474,7 @@ public class MotionLayoutComponentHelper {
     }
     if (myCallGetProgress != null) {
       try {
-        progress = RenderService.runRenderAction(() -> {
+        progress = LayoutlibSceneManager.runRenderAction(myMotionLayoutComponent, () -> {
           try {
             return (Float) myCallGetProgress.invoke(myDesignTool);
           }
@@ -509,7 +509,7 @@ public class MotionLayoutComponentHelper {
     }
     if (myCallIsInTransition != null) {
       try {
-        isInTransition = RenderService.runRenderAction(() -> {
+        isInTransition = LayoutlibSceneManager.runRenderAction(myMotionLayoutComponent, () -> {
           try {
             return (Boolean) myCallIsInTransition.invoke(myDesignTool);
           }
@@ -542,7 +542,7 @@ public class MotionLayoutComponentHelper {
 
     if (myGetMaxTimeMethod != null) {
       try {
-        return RenderService.runRenderAction(() -> {
+        return LayoutlibSceneManager.runRenderAction(myMotionLayoutComponent, () -> {
           try {
             return (long)myGetMaxTimeMethod.invoke(myDesignTool);
           }
@@ -24,6 +24,9 @@ import com.android.ide.common.rendering.api.ResourceReference;
 import com.android.ide.common.rendering.api.ResourceValue;
 import com.android.ide.common.rendering.api.SessionParams;
 import com.android.ide.common.rendering.api.ViewInfo;
+import com.android.sdklib.IAndroidTarget;
+import com.android.sdklib.devices.Device;
+import com.android.sdklib.devices.State;
 import com.android.tools.idea.AndroidPsiUtils;
 import com.android.tools.idea.common.analytics.CommonUsageTracker;
 import com.android.tools.idea.common.diagnostics.NlDiagnosticsManager;
@@ -68,8 +71,10 @@ import com.android.tools.idea.uibuilder.type.MenuFileType;
 import com.android.tools.idea.util.ListenerCollection;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
 import com.google.wireless.android.sdk.stats.LayoutEditorRenderResult;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.progress.util.ProgressIndicatorBase;
 import com.intellij.openapi.project.DumbService;
@@ -84,19 +89,23 @@ import com.intellij.util.ui.UIUtil;
 import com.intellij.util.ui.update.MergingUpdateQueue;
 import com.intellij.util.ui.update.Update;
 import java.awt.Rectangle;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -140,6 +149,19 @@ public class LayoutlibSceneManager extends SceneManager {
   private final ReentrantReadWriteLock myRenderResultLock = new ReentrantReadWriteLock();
   @GuardedBy("myRenderResultLock")
   private RenderResult myRenderResult;
+  /** Number of results of recently inflated layouts kept to display them again without inflating and rendering. */
+  private static final int RENDER_RESULT_CACHE_SIZE = Integer.getInteger("layout.editor.render.cache.size", 3);
+  private final RenderResultCache myRenderResultCache = new RenderResultCache(RENDER_RESULT_CACHE_SIZE);
+  /** The last inflated render task and its fingerprint. The result of the first successful render of the task is added to the cache. */
+  @GuardedBy("myRenderingTaskLock")
+  private RenderTask myUncachedRenderTask;
+  @GuardedBy("myRenderingTaskLock")
+  private String myUncachedRenderTaskFingerprint;
+  /**
+   * Fingerprint of the result restored from the cache by the last model update. The following render returns that result instead of
+   * inflating the layout again, if its fingerprint is still the same.
+   */
+  private final AtomicReference<String> myRestoredFingerprint = new AtomicReference<>();
   // Variables to track previous values of the configuration bar for tracking purposes
   private String myPreviousDeviceName;
   private Locale myPreviousLocale;
@@ -150,6 +172,8 @@ public class LayoutlibSceneManager extends SceneManager {
   private final LinkedList<CompletableFuture<Void>> myRenderFutures = new LinkedList<>();
   private final Semaphore myUpdateHierarchyLock = new Semaphore(1);
   @NotNull private final ViewEditor myViewEditor;
+  /** Client property of the root {@link NlComponent}s holding the {@link RenderTask} that created their view objects. */
+  private static final String RENDER_TASK_PROPERTY = "LayoutlibSceneManager.renderTask";
   private final ListenerCollection<RenderListener> myRenderListeners = ListenerCollection.createWithDirectExecutor();
   /**
    * {@code Executor} to run the {@code Runnable} that disposes {@code RenderTask}s. This allows
@@ -305,6 +329,7 @@ public class LayoutlibSceneManager extends SceneManager {
       finally {
         myRenderResultLock.writeLock().unlock();
       }
+      disposeUnusedCacheEntries(myRenderResultCache.clear());
     });
   }
 
@@ -746,6 +771,10 @@ public class LayoutlibSceneManager extends SceneManager {
         else {
           updateHierarchy(getRootViews(result), getModel());
         }
+        RenderTask task = result != null ? result.getRenderTask() : null;
+        for (NlComponent root : getModel().getComponents()) {
+          root.putClientProperty(RENDER_TASK_PROPERTY, task);
+        }
       } finally {
         myUpdateHierarchyLock.release();
       }
@@ -755,6 +784,48 @@ public class LayoutlibSceneManager extends SceneManager {
     }
   }
 
+  /**
+   * Returns the {@link RenderTask} that created the view objects of the given component, or null if it is not known or was disposed.
+   */
+  @Nullable
+  private static RenderTask getRenderTask(@NotNull NlComponent component) {
+    Object task = component.getRoot().getClientProperty(RENDER_TASK_PROPERTY);
+    return task instanceof RenderTask && !((RenderTask)task).isDisposed() ? (RenderTask)task : null;
+  }
+
+  /**
+   * Runs the passed {@link Callable} on the render thread of the task that created the view objects of the given component, and waits
+   * for its result. Use this instead of {@link RenderService#runRenderAction(Callable)} when calling into those view objects.
+   */
+  public static <T> T runRenderAction(@NotNull NlComponent component, @NotNull Callable<T> callable) throws Exception {
+    RenderTask task = getRenderTask(component);
+    return task != null ? task.runRenderAction(callable) : RenderService.runRenderAction(callable);
+  }
+
+  /**
+   * See {@link #runRenderAction(NlComponent, Callable)}.
+   */
+  public static void runRenderAction(@NotNull NlComponent component, @NotNull Runnable runnable) throws Exception {
+    runRenderAction(component, Executors.callable(runnable));
+  }
+
+  /**
+   * Runs the passed {@link Runnable} asynchronously on the render thread of the task that created the view objects of the given
+   * component. See {@link #runRenderAction(NlComponent, Callable)}.
+   */
+  public static void runAsyncRenderAction(@NotNull NlComponent component, @NotNull Runnable runnable) {
+    RenderTask task = getRenderTask(component);
+    if (task != null) {
+      task.runAsyncRenderAction(() -> {
+        runnable.run();
+        return null;
+      });
+    }
+    else {
+      RenderService.runAsyncRenderAction(runnable);
+    }
+  }
+
   @NotNull
   private List<ViewInfo> getRootViews(@NotNull RenderResult result) {
     return getModel().getType() == MenuFileType.INSTANCE ? result.getSystemRootViews() : result.getRootViews();
@@ -817,6 +888,12 @@ public class LayoutlibSceneManager extends SceneManager {
     AndroidFacet facet = getModel().getFacet();
     myRenderedVersion = resourceNotificationManager.getCurrentVersion(facet, getModel().getFile(), configuration);
 
+    String fingerprint = computeRenderFingerprint();
+    // Only model updates restore results. Other renders, e.g. after a live edit, need a render task.
+    if (force && fingerprint != null && restoreFromCache(fingerprint)) {
+      return CompletableFuture.completedFuture(true);
+    }
+
     RenderService renderService = RenderService.getInstance(getModel().getProject());
     RenderService.RenderTaskBuilder renderTaskBuilder = renderService.taskBuilder(facet, configuration)
       .withPsiFile(getModel().getFile());
@@ -840,6 +917,8 @@ public class LayoutlibSceneManager extends SceneManager {
                   myRenderTask.dispose();
                 }
                 myRenderTask = newTask;
+                myUncachedRenderTask = newTask;
+                myUncachedRenderTaskFingerprint = fingerprint;
               }
             }
           })
@@ -875,12 +954,121 @@ public class LayoutlibSceneManager extends SceneManager {
 
   @GuardedBy("myRenderResultLock")
   private void updateCachedRenderResult(RenderResult result) {
-    if (myRenderResult != null && myRenderResult != result) {
+    if (myRenderResult != null && myRenderResult != result && !myRenderResultCache.contains(myRenderResult)) {
       myRenderResult.dispose();
     }
     myRenderResult = result;
   }
 
+  /**
+   * Returns a fingerprint of everything the inflated layout depends on: the layout XML, the configuration, the resources, the builds and
+   * syncs and the render settings. Returns null if the layout should not be restored from, or added to, the render result cache.
+   */
+  @Nullable
+  private String computeRenderFingerprint() {
+    if (myElapsedFrameTimeMs != -1) {
+      // Animated renders depend on the frame time
+      return null;
+    }
+
+    NlModel model = getModel();
+    String text = ReadAction.compute(() -> model.getFile().isValid() ? model.getFile().getText() : null);
+    if (text == null) {
+      return null;
+    }
+    Configuration configuration = model.getConfiguration();
+    Device device = configuration.getDevice();
+    State deviceState = configuration.getDeviceState();
+    IAndroidTarget target = configuration.getTarget();
+    // Without a file and a configuration, the version only tracks the resources, the builds and the syncs
+    ResourceNotificationManager.ResourceVersion resourceVersion =
+      ResourceNotificationManager.getInstance(model.getProject()).getCurrentVersion(model.getFacet(), null, null);
+    RenderSettings settings = myRenderSettingsProvider.get();
+    return Hashing.murmur3_128().hashString(text, StandardCharsets.UTF_8) +
+           "|" + (device != null ? device.getId() : "") +
+           "|" + (deviceState != null ? deviceState.getName() : "") +
+           "|" + (target != null ? target.hashString() : "") +
+           "|" + configuration.getTheme() +
+           "|" + configuration.getFullConfig().getQualifierString() +
+           "|" + resourceVersion +
+           "|" + settings.getQuality() + "," + settings.getShowDecorations() + "," + settings.getUseLiveRendering() +
+           "|" + useShrinkRendering + "," + useTransparentRendering +
+           "|" + getDesignSurface().getAdaptiveIconShape().getPathDescription();
+  }
+
+  /**
+   * Makes the result cached with the given fingerprint the current one and disposes the current render task. The next render that needs
+   * a task inflates the layout again.
+   *
+   * @return false if there is no usable result with the given fingerprint in the cache
+   */
+  private boolean restoreFromCache(@NotNull String fingerprint) {
+    RenderResult result = myRenderResultCache.get(fingerprint);
+    if (result == null || !isHierarchyValid(result)) {
+      return false;
+    }
+
+    synchronized (myRenderingTaskLock) {
+      if (myRenderTask != null && !myRenderTask.isDisposed()) {
+        myRenderTask.dispose();
+      }
+      myRenderTask = null;
+      myUncachedRenderTask = null;
+      myUncachedRenderTaskFingerprint = null;
+    }
+
+    updateHierarchy(result);
+    myRenderResultLock.writeLock().lock();
+    try {
+      updateCachedRenderResult(result);
+    }
+    finally {
+      myRenderResultLock.writeLock().unlock();
+    }
+    myRestoredFingerprint.set(fingerprint);
+    return true;
+  }
+
+  /**
+   * Returns false if the PSI the given result was rendered from has been replaced, e.g. after an undo, so the result can not be mapped to
+   * the current components anymore.
+   */
+  private boolean isHierarchyValid(@NotNull RenderResult result) {
+    return ReadAction.compute(() -> getRootViews(result).stream().allMatch(LayoutlibSceneManager::isHierarchyValid));
+  }
+
+  private static boolean isHierarchyValid(@NotNull ViewInfo view) {
+    Object cookie = view.getCookie();
+    if (cookie instanceof TagSnapshot) {
+      XmlTag tag = ((TagSnapshot)cookie).tag;
+      if (tag != null && !tag.isValid()) {
+        return false;
+      }
+    }
+    return view.getChildren().stream().allMatch(LayoutlibSceneManager::isHierarchyValid);
+  }
+
+  /**
+   * Disposes the given results, removed from the render result cache, unless they are still in use.
+   */
+  private void disposeUnusedCacheEntries(@NotNull List<RenderResult> results) {
+    if (results.isEmpty()) {
+      return;
+    }
+    RenderResult currentResult = getRenderResult();
+    for (RenderResult result : results) {
+      if (result != currentResult && !myRenderResultCache.contains(result)) {
+        result.dispose();
+      }
+    }
+  }
+
+  @VisibleForTesting
+  @NotNull
+  RenderResultCache getRenderResultCache() {
+    return myRenderResultCache;
+  }
+
   @VisibleForTesting
   @NotNull
   protected RenderService.RenderTaskBuilder setupRenderTaskBuilder(@NotNull RenderService.RenderTaskBuilder taskBuilder) {
@@ -913,6 +1101,8 @@ public class LayoutlibSceneManager extends SceneManager {
    * {@link ModelListener#modelDerivedDataChanged(NlModel)}.
    */
   protected CompletableFuture<Void> updateModel() {
+    // A result restored by a previous update, and not rendered since, is stale
+    myRestoredFingerprint.set(null);
     return inflate(true)
       .whenCompleteAsync((result, exception) -> notifyListenersModelUpdateComplete(), PooledThreadExecutor.INSTANCE)
       .thenApply(result -> null);
@@ -965,6 +1155,12 @@ public class LayoutlibSceneManager extends SceneManager {
       logConfigurationChange(surface);
       getModel().resetLastChange();
 
+      if (forceInflate) {
+        // The user asked for a fresh render
+        myRestoredFingerprint.set(null);
+        disposeUnusedCacheEntries(myRenderResultCache.clear());
+      }
+
       long renderStartTimeMs = System.currentTimeMillis();
       return renderImpl(forceInflate)
         .thenApply(result -> {
@@ -974,6 +1170,8 @@ public class LayoutlibSceneManager extends SceneManager {
           }
 
           myRenderResultLock.writeLock().lock();
+          // A result restored from the cache is already the current one
+          boolean restoredFromCache = result == myRenderResult;
           try {
             updateCachedRenderResult(result);
             // Downgrade the write lock to read lock
@@ -983,10 +1181,12 @@ public class LayoutlibSceneManager extends SceneManager {
             myRenderResultLock.writeLock().unlock();
           }
           try {
-            long renderTimeMs = System.currentTimeMillis() - renderStartTimeMs;
-            NlDiagnosticsManager.getWriteInstance(surface).recordRender(renderTimeMs,
-                                                                        myRenderResult.getRenderedImage().getWidth() * myRenderResult.getRenderedImage().getHeight() * 4);
-            CommonUsageTracker.Companion.getInstance(surface).logRenderResult(trigger, myRenderResult, renderTimeMs);
+            if (!restoredFromCache) {
+              long renderTimeMs = System.currentTimeMillis() - renderStartTimeMs;
+              NlDiagnosticsManager.getWriteInstance(surface).recordRender(renderTimeMs,
+                                                                          myRenderResult.getRenderedImage().getWidth() * myRenderResult.getRenderedImage().getHeight() * 4);
+              CommonUsageTracker.Companion.getInstance(surface).logRenderResult(trigger, myRenderResult, renderTimeMs);
+            }
           }
           finally {
             myRenderResultLock.readLock().unlock();
@@ -1029,6 +1229,12 @@ public class LayoutlibSceneManager extends SceneManager {
 
   @NotNull
   private CompletableFuture<RenderResult> renderImpl(boolean forceInflate) {
+    String restoredFingerprint = myRestoredFingerprint.getAndSet(null);
+    if (!forceInflate && restoredFingerprint != null && restoredFingerprint.equals(computeRenderFingerprint())) {
+      // The last model update restored the result from the cache and nothing changed since, there is nothing new to render
+      return CompletableFuture.completedFuture(getRenderResult());
+    }
+
     return inflate(forceInflate)
       .whenCompleteAsync((result, ex) -> {
         if (result) {
@@ -1046,11 +1252,18 @@ public class LayoutlibSceneManager extends SceneManager {
           if (elapsedFrameTimeMs != -1) {
             myRenderTask.setElapsedFrameTimeNanos(TimeUnit.MILLISECONDS.toNanos(elapsedFrameTimeMs));
           }
-          return myRenderTask.render().thenApply(result -> {
+          RenderTask renderTask = myRenderTask;
+          String fingerprint = renderTask == myUncachedRenderTask ? myUncachedRenderTaskFingerprint : null;
+          myUncachedRenderTask = null;
+          myUncachedRenderTaskFingerprint = null;
+          return renderTask.render().thenApply(result -> {
             // When the layout was inflated in this same call, we do not have to update the hierarchy again
             if (result != null && !inflated) {
               updateHierarchy(result);
             }
+            if (result != null && fingerprint != null && result.getRenderResult().isSuccess()) {
+              disposeUnusedCacheEntries(myRenderResultCache.put(fingerprint, result));
+            }
 
             return result;
           });
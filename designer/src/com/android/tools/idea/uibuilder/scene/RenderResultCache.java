@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.uibuilder.scene;
+
+import com.android.tools.idea.rendering.RenderResult;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.GuardedBy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Bounded LRU cache of the first successful {@link RenderResult}s of the recently inflated layouts of a {@link LayoutlibSceneManager}.
+ * The results are keyed by a fingerprint of everything the inflated layout depends on, so switching back to a recently used
+ * configuration, or undoing an edit, can display the rendered image and view hierarchy again without inflating and rendering the layout.
+ * <p>
+ * Only the results are kept, not the render tasks that created them, which are disposed as usual. The cache never disposes results.
+ * Results removed from the cache are returned to the caller, who disposes them if they are not in use anymore.
+ */
+final class RenderResultCache {
+  private final int myMaxSize;
+  @GuardedBy("this")
+  private final LinkedHashMap<String, RenderResult> myResults = new LinkedHashMap<>(16, 0.75f, true);
+  private final AtomicLong myHitCount = new AtomicLong();
+  private final AtomicLong myMissCount = new AtomicLong();
+
+  RenderResultCache(int maxSize) {
+    myMaxSize = maxSize;
+  }
+
+  /**
+   * Returns the result with the given fingerprint and marks it as the most recently used one.
+   */
+  @Nullable
+  synchronized RenderResult get(@NotNull String fingerprint) {
+    RenderResult result = myResults.get(fingerprint);
+    (result != null ? myHitCount : myMissCount).incrementAndGet();
+    return result;
+  }
+
+  /**
+   * Adds a new result to the cache and returns the results that were removed to make room for it, including the one previously stored
+   * with the same fingerprint.
+   */
+  @NotNull
+  synchronized List<RenderResult> put(@NotNull String fingerprint, @NotNull RenderResult result) {
+    if (myMaxSize <= 0) {
+      return ImmutableList.of();
+    }
+
+    List<RenderResult> removed = new ArrayList<>();
+    RenderResult previous = myResults.put(fingerprint, result);
+    if (previous != null && previous != result) {
+      removed.add(previous);
+    }
+    Iterator<Map.Entry<String, RenderResult>> iterator = myResults.entrySet().iterator();
+    while (myResults.size() > myMaxSize) {
+      removed.add(iterator.next().getValue());
+      iterator.remove();
+    }
+    return removed;
+  }
+
+  synchronized boolean contains(@Nullable RenderResult result) {
+    return result != null && myResults.containsValue(result);
+  }
+
+  /**
+   * Removes all the results from the cache and returns them.
+   */
+  @NotNull
+  synchronized List<RenderResult> clear() {
+    List<RenderResult> removed = new ArrayList<>(myResults.values());
+    myResults.clear();
+    return removed;
+  }
+
+  synchronized int size() {
+    return myResults.size();
+  }
+
+  long getHitCount() {
+    return myHitCount.get();
+  }
+
+  long getMissCount() {
+    return myMissCount.get();
+  }
+}
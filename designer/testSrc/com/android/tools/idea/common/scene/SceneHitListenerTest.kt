@@ -44,6 +44,24 @@ class SceneHitListenerTest : SceneTest() {
     assertEquals(dragTarget, myScene.interactingTarget)
   }
 
+  fun testFindAfterComponentMoved() {
+    val inner = myScene.getSceneComponent("inner")!!
+    val listener = SceneHitListener(myModel.surface.selectionModel)
+    val transform = SceneContext.get()
+
+    listener.find(transform, myScene.root!!, 150, 150)
+    assertTrue(listener.myHitComponents.contains(inner))
+    listener.find(transform, myScene.root!!, 350, 350)
+    assertFalse(listener.myHitComponents.contains(inner))
+
+    inner.setPosition(300, 300)
+    myScene.layout(0, transform)
+    listener.find(transform, myScene.root!!, 150, 150)
+    assertFalse(listener.myHitComponents.contains(inner))
+    listener.find(transform, myScene.root!!, 350, 350)
+    assertTrue(listener.myHitComponents.contains(inner))
+  }
+
   override fun createModel(): ModelBuilder {
     return model("model.xml", component(SdkConstants.CONSTRAINT_LAYOUT.defaultName())
       .id("@+id/root")
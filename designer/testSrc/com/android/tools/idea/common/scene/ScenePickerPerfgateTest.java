@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.common.scene;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.android.tools.idea.common.model.SelectionModel;
+import com.android.tools.perflogger.Benchmark;
+import com.android.tools.perflogger.Metric;
+import com.android.tools.perflogger.Metric.MetricSample;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+/**
+ * Measures how long {@link SceneHitListener#find(SceneContext, SceneComponent, int, int)} takes on a synthetic scene with thousands of
+ * anchors, connections and components, as when hovering over a large ConstraintLayout.
+ */
+public class ScenePickerPerfgateTest {
+  private static final Benchmark BENCHMARK = new Benchmark.Builder("Scene Picker Benchmark")
+    .setDescription("Time (ms) to run 10k hit tests on a scene with 5k targets.")
+    .build();
+
+  private static final int SCENE_SIZE = 4000;
+  private static final int COMPONENT_COUNT = 1000;
+  private static final int FIND_COUNT = 10_000;
+  private static final int NUMBER_OF_WARM_UP = 2;
+  private static final int NUMBER_OF_SAMPLES = 10;
+
+  @Test
+  public void find() {
+    // The scene does not change between mouse moves, so its version stays the same
+    Scene scene = mock(Scene.class);
+    when(scene.getDisplayListVersion()).thenReturn(1L);
+    SceneComponent root = mock(SceneComponent.class);
+    when(root.getScene()).thenReturn(scene);
+    doAnswer(invocation -> {
+      populate(root, invocation.getArgument(1));
+      return null;
+    }).when(root).addHit(any(), any());
+    SceneHitListener listener = new SceneHitListener(new SelectionModel());
+    SceneContext transform = SceneContext.get();
+    int hits = 0;
+    Random random = new Random(1);
+
+    List<MetricSample> samples = new ArrayList<>(NUMBER_OF_SAMPLES);
+    for (int i = 0; i < NUMBER_OF_WARM_UP + NUMBER_OF_SAMPLES; i++) {
+      long start = System.nanoTime();
+      for (int j = 0; j < FIND_COUNT; j++) {
+        listener.find(transform, root, random.nextInt(SCENE_SIZE), random.nextInt(SCENE_SIZE));
+        hits += listener.myHitComponents.size();
+      }
+      long elapsedTime = System.nanoTime() - start;
+      if (i >= NUMBER_OF_WARM_UP) {
+        samples.add(new MetricSample(Instant.now().toEpochMilli(), TimeUnit.NANOSECONDS.toMillis(elapsedTime)));
+      }
+    }
+    assertThat(hits).isGreaterThan(0);
+
+    Metric metric = new Metric("scene_picker_find");
+    metric.addSamples(BENCHMARK, samples.toArray(new MetricSample[0]));
+    metric.commit();
+  }
+
+  /**
+   * Adds, for every component, its bounds, four anchors and a connection to a nearby component. The bounds are reported as hits on the
+   * given component.
+   */
+  private static void populate(@NotNull SceneComponent component, @NotNull ScenePicker picker) {
+    Random random = new Random(0);
+    for (int i = 0; i < COMPONENT_COUNT; i++) {
+      int x = random.nextInt(SCENE_SIZE - 200);
+      int y = random.nextInt(SCENE_SIZE - 100);
+      int width = 40 + random.nextInt(160);
+      int height = 20 + random.nextInt(80);
+      picker.addRect(component, 0, x, y, x + width, y + height);
+      picker.addCircle(i, 4, x, y + height / 2, 6);
+      picker.addCircle(i, 4, x + width, y + height / 2, 6);
+      picker.addCircle(i, 4, x + width / 2, y, 6);
+      picker.addCircle(i, 4, x + width / 2, y + height, 6);
+      // Constraints mostly connect neighbouring components
+      int targetX = x + width + random.nextInt(400);
+      int targetY = y + random.nextInt(400) - 200;
+      picker.addCurveTo(i, 4, x + width, y + height / 2, x + width + 40, y + height / 2, targetX - 40, targetY, targetX, targetY, 2);
+    }
+  }
+}
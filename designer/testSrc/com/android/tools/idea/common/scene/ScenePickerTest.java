@@ -19,6 +19,9 @@ import junit.framework.TestCase;
 
 import java.awt.*;
 import java.awt.geom.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 /**
  * Test ScenePicker
@@ -303,6 +306,57 @@ public class ScenePickerTest extends TestCase {
     }
   }
 
+  public void testIndexedFindMatchesScan() {
+    ScenePicker indexed = new ScenePicker();
+    addRandomShapes(indexed, 2000);
+    List<String> expected = new ArrayList<>();
+    List<String> actual = new ArrayList<>();
+    indexed.setSelectListener((obj, dist) -> actual.add(obj + ":" + dist));
+
+    Random random = new Random(7);
+    int hits = 0;
+    for (int i = 0; i < 300; i++) {
+      int x = random.nextInt(2200) - 100;
+      int y = random.nextInt(2200) - 100;
+      // The first find after populating a picker scans all the objects, the following ones use the grid
+      ScenePicker scanned = new ScenePicker();
+      addRandomShapes(scanned, 2000);
+      scanned.setSelectListener((obj, dist) -> expected.add(obj + ":" + dist));
+      expected.clear();
+      scanned.find(x, y);
+      actual.clear();
+      indexed.find(x, y);
+      assertEquals(expected, actual);
+      hits += actual.size();
+    }
+    assertTrue(hits > 0);
+  }
+
+  private static void addRandomShapes(ScenePicker scenePicker, int count) {
+    Random random = new Random(42);
+    for (int i = 0; i < count; i++) {
+      int x = random.nextInt(2000);
+      int y = random.nextInt(2000);
+      switch (i % 5) {
+        case 0:
+          scenePicker.addPoint(i, 5, x, y);
+          break;
+        case 1:
+          // Some rectangles span most of the scene
+          scenePicker.addRect(i, 3, x, y, x + random.nextInt(i % 50 == 1 ? 2000 : 60), y + random.nextInt(60));
+          break;
+        case 2:
+          scenePicker.addLine(i, 4, x, y, x - random.nextInt(100), y + random.nextInt(100), 2);
+          break;
+        case 3:
+          scenePicker.addCircle(i, 3, x, y, 10);
+          break;
+        default:
+          scenePicker.addCurveTo(i, 3, x, y, x + 20, y + 40, x + 60, y - 10, x + 80, y + 30, 2);
+      }
+    }
+  }
+
   public void testEllipseCode() {
     ScenePicker scenePicker = new ScenePicker() {
       {
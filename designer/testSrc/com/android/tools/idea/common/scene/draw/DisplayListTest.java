@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.common.scene.draw;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.android.tools.idea.common.scene.SceneContext;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class DisplayListTest {
+  private final List<String> myPainted = new ArrayList<>();
+
+  @Test
+  public void testPaintSortsCommandsByLevel() {
+    DisplayList list = new DisplayList();
+    list.add(new RecordingCommand("top", DrawCommand.TOP_LEVEL));
+    list.add(new RecordingCommand("component", DrawCommand.COMPONENT_LEVEL));
+
+    paint(list);
+    paint(list);
+    assertThat(myPainted).containsExactly("component", "top", "component", "top").inOrder();
+  }
+
+  @Test
+  public void testPaintAfterAdd() {
+    DisplayList list = new DisplayList();
+    list.add(new RecordingCommand("top", DrawCommand.TOP_LEVEL));
+    paint(list);
+
+    list.add(new RecordingCommand("component", DrawCommand.COMPONENT_LEVEL));
+    myPainted.clear();
+    paint(list);
+    assertThat(myPainted).containsExactly("component", "top").inOrder();
+  }
+
+  @Test
+  public void testPaintAfterClear() {
+    DisplayList list = new DisplayList();
+    list.add(new RecordingCommand("top", DrawCommand.TOP_LEVEL));
+    paint(list);
+
+    list.clear();
+    list.add(new RecordingCommand("component", DrawCommand.COMPONENT_LEVEL));
+    myPainted.clear();
+    paint(list);
+    assertThat(myPainted).containsExactly("component");
+  }
+
+  private static void paint(DisplayList list) {
+    Graphics2D g = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB).createGraphics();
+    try {
+      list.paint(g, null);
+    }
+    finally {
+      g.dispose();
+    }
+  }
+
+  private class RecordingCommand implements DrawCommand {
+    private final String myName;
+    private final int myLevel;
+
+    private RecordingCommand(String name, int level) {
+      myName = name;
+      myLevel = level;
+    }
+
+    @Override
+    public int getLevel() {
+      return myLevel;
+    }
+
+    @Override
+    public void paint(Graphics2D g, SceneContext sceneContext) {
+      myPainted.add(myName);
+    }
+
+    @Override
+    public String serialize() {
+      return myName;
+    }
+  }
+}
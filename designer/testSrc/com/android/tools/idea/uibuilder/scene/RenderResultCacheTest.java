@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.uibuilder.scene;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.android.tools.idea.rendering.RenderResult;
+import java.util.List;
+import org.junit.Test;
+
+public class RenderResultCacheTest {
+  @Test
+  public void testGet() {
+    RenderResultCache cache = new RenderResultCache(2);
+    RenderResult result = mock(RenderResult.class);
+
+    assertThat(cache.get("a")).isNull();
+    assertThat(cache.put("a", result)).isEmpty();
+    assertThat(cache.get("a")).isSameAs(result);
+    assertThat(cache.contains(result)).isTrue();
+    assertThat(cache.contains(mock(RenderResult.class))).isFalse();
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEntryIsRemoved() {
+    RenderResultCache cache = new RenderResultCache(2);
+    RenderResult resultA = mock(RenderResult.class);
+    RenderResult resultB = mock(RenderResult.class);
+    RenderResult resultC = mock(RenderResult.class);
+    cache.put("a", resultA);
+    cache.put("b", resultB);
+    // Using "a" makes "b" the least recently used entry
+    cache.get("a");
+
+    List<RenderResult> removed = cache.put("c", resultC);
+    assertThat(removed).containsExactly(resultB);
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.contains(resultA)).isTrue();
+    assertThat(cache.contains(resultB)).isFalse();
+    assertThat(cache.contains(resultC)).isTrue();
+  }
+
+  @Test
+  public void testReplacedEntryIsReturned() {
+    RenderResultCache cache = new RenderResultCache(2);
+    RenderResult oldResult = mock(RenderResult.class);
+    RenderResult newResult = mock(RenderResult.class);
+    cache.put("a", oldResult);
+
+    assertThat(cache.put("a", newResult)).containsExactly(oldResult);
+    assertThat(cache.size()).isEqualTo(1);
+    // Adding the same result again does not return it
+    assertThat(cache.put("a", newResult)).isEmpty();
+  }
+
+  @Test
+  public void testClear() {
+    RenderResultCache cache = new RenderResultCache(2);
+    cache.put("a", mock(RenderResult.class));
+    cache.put("b", mock(RenderResult.class));
+
+    assertThat(cache.clear()).hasSize(2);
+    assertThat(cache.size()).isEqualTo(0);
+    assertThat(cache.get("a")).isNull();
+  }
+
+  @Test
+  public void testDisabled() {
+    RenderResultCache cache = new RenderResultCache(0);
+    assertThat(cache.put("a", mock(RenderResult.class))).isEmpty();
+    assertThat(cache.get("a")).isNull();
+  }
+}
@@ -58,6 +58,13 @@ public class CpuCaptureParser {
   @VisibleForTesting
   static final int MAX_SUPPORTED_TRACE_SIZE = 1024 * 1024 * 100; // 100MB
 
+  /**
+   * Trace size, in bytes, above which parsers that support it stream the trace from its file on disk into the call trees, instead of
+   * loading all of its samples in memory first. See {@link SimpleperfTraceParser#SimpleperfTraceParser(boolean)}.
+   */
+  @VisibleForTesting
+  static final long STREAMING_PARSE_TRACE_SIZE = 1024 * 1024 * 32; // 32MB
+
   /**
    * Used as ID of imported traces. Importing a trace will happen once per session,
    * so we can have an arbitrary ID as it's going to be unique within a session.
@@ -248,7 +255,7 @@ public class CpuCaptureParser {
 
     try {
       // Then, try parsing the file as a simpleperf trace.
-      SimpleperfTraceParser simpleperfParser = new SimpleperfTraceParser();
+      SimpleperfTraceParser simpleperfParser = new SimpleperfTraceParser(shouldStreamTrace(traceFile));
       return simpleperfParser.parse(traceFile, IMPORTED_TRACE_ID);
     }
     catch (Exception ignored) {
@@ -425,9 +432,16 @@ public class CpuCaptureParser {
     return future;
   }
 
+  /**
+   * Whether the given trace file is large enough to be streamed into the capture. See {@link #STREAMING_PARSE_TRACE_SIZE}.
+   */
+  private static boolean shouldStreamTrace(@NotNull File traceFile) {
+    return traceFile.length() > STREAMING_PARSE_TRACE_SIZE;
+  }
+
   private CpuCapture traceBytesToCapture(@NotNull Common.Session session, long traceId, @NotNull ByteString traceData,
                                          CpuTraceType profilerType) {
-    // TODO: Remove layers, analyze whether we can keep the whole file in memory.
+    // The trace is spooled to a temporary file, which parsers map instead of copying the bytes to the heap again.
     try {
       File trace = CpuCaptureStage.saveCapture(traceId, traceData);
       TraceParser parser;
@@ -435,7 +449,7 @@ public class CpuCaptureParser {
         parser = new ArtTraceParser();
       }
       else if (profilerType == CpuTraceType.SIMPLEPERF) {
-        parser = new SimpleperfTraceParser();
+        parser = new SimpleperfTraceParser(shouldStreamTrace(trace));
       }
       else if (profilerType == CpuTraceType.ATRACE) {
         parser = new AtraceParser(session.getPid());
@@ -89,7 +89,8 @@ public class CpuCaptureStage extends Stage {
     try {
       File trace = FileUtil.createTempFile(String.format(Locale.US, "cpu_trace_%d", traceId), ".trace", true);
       try (FileOutputStream out = new FileOutputStream(trace)) {
-        out.write(data.toByteArray());
+        // Write the bytes directly instead of copying them to an intermediate array first, as traces can be hundreds of MB.
+        data.writeTo(out);
       }
       return trace;
     }
@@ -17,6 +17,7 @@ package com.android.tools.profilers.cpu;
 
 import com.android.tools.adtui.model.DataSeries;
 import com.android.tools.adtui.model.LineChartModel;
+import com.android.tools.adtui.model.LongDataSeries;
 import com.android.tools.adtui.model.Range;
 import com.android.tools.adtui.model.RangedContinuousSeries;
 import com.android.tools.adtui.model.SeriesData;
@@ -26,8 +27,6 @@ import com.android.tools.profilers.StudioProfilers;
 import com.android.tools.profilers.UnifiedEventDataSeries;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
 
 public class CpuUsage extends LineChartModel {
@@ -84,14 +83,19 @@ public class CpuUsage extends LineChartModel {
    * @return a list of SeriesData containing CPU usage percentage.
    */
   protected static List<SeriesData<Long>> extractData(List<Common.Event> dataList, boolean isOtherProcess) {
-    return IntStream.range(0, dataList.size() - 1)
+    LongDataSeries series = new LongDataSeries(Math.max(dataList.size() - 1, 0));
+    for (int i = 0; i < dataList.size() - 1; i++) {
       // Calculate CPU usage percentage from two adjacent CPU usage data.
-      .mapToObj(index -> getCpuUsageData(dataList.get(index).getCpuUsage(), dataList.get(index + 1).getCpuUsage(), isOtherProcess))
-      .collect(Collectors.toList());
+      addCpuUsageData(series, dataList.get(i).getCpuUsage(), dataList.get(i + 1).getCpuUsage(), isOtherProcess);
+    }
+    return series.getAllData();
   }
 
   // TODO: make private after LegacyCpuUsageDataSeries is deprecated.
-  protected static SeriesData<Long> getCpuUsageData(Cpu.CpuUsageData prevData, Cpu.CpuUsageData data, boolean isOtherProcess) {
+  protected static void addCpuUsageData(@NotNull LongDataSeries series,
+                                        @NotNull Cpu.CpuUsageData prevData,
+                                        @NotNull Cpu.CpuUsageData data,
+                                        boolean isOtherProcess) {
     long dataTimestamp = TimeUnit.NANOSECONDS.toMicros(data.getEndTimestamp());
     long elapsed = (data.getElapsedTimeInMillisec() - prevData.getElapsedTimeInMillisec());
     // TODO: consider using raw data instead of percentage to improve efficiency.
@@ -106,6 +110,6 @@ public class CpuUsage extends LineChartModel {
     system = Math.max(0, Math.min(system, 100.0));
     app = Math.max(0, Math.min(app, system));
 
-    return new SeriesData<>(dataTimestamp, (long)(isOtherProcess ? system - app : app));
+    series.add(dataTimestamp, (long)(isOtherProcess ? system - app : app));
   }
 }
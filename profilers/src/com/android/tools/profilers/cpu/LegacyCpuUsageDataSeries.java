@@ -16,6 +16,8 @@
 package com.android.tools.profilers.cpu;
 
 import com.android.tools.adtui.model.DataSeries;
+import com.android.tools.adtui.model.LongDataSeries;
+import com.android.tools.adtui.model.LongDataSeriesCache;
 import com.android.tools.adtui.model.Range;
 import com.android.tools.adtui.model.SeriesData;
 import com.android.tools.profiler.proto.Common;
@@ -24,8 +26,6 @@ import com.android.tools.profiler.proto.CpuProfiler.CpuDataResponse;
 import com.android.tools.profiler.proto.CpuServiceGrpc;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -37,6 +37,8 @@ public class LegacyCpuUsageDataSeries implements DataSeries<Long> {
 
   private final Common.Session mySession;
   private final boolean myIsOtherProcess;
+  // Incremental fetches are padded before the last cached point, so the sample preceding the first new one is there to compute its usage.
+  @NotNull private final LongDataSeriesCache myResolutionCache = new LongDataSeriesCache(this::queryData, TimeUnit.SECONDS.toMicros(1));
 
   public LegacyCpuUsageDataSeries(@NotNull CpuServiceGrpc.CpuServiceBlockingStub client,
                                   Common.Session session,
@@ -48,6 +50,16 @@ public class LegacyCpuUsageDataSeries implements DataSeries<Long> {
 
   @Override
   public List<SeriesData<Long>> getDataForRange(@NotNull Range timeCurrentRangeUs) {
+    return queryData(timeCurrentRangeUs).getAllData();
+  }
+
+  @Override
+  public List<SeriesData<Long>> getDataForRange(@NotNull Range timeCurrentRangeUs, int maxPointCount) {
+    return myResolutionCache.getDataForRange(timeCurrentRangeUs, maxPointCount);
+  }
+
+  @NotNull
+  private LongDataSeries queryData(@NotNull Range timeCurrentRangeUs) {
     // Get an extra padding on each side, to have a smooth rendering at the edges.
     // TODO: Change the CPU API to allow specifying this padding in the request as number of samples.
     long bufferNs = TimeUnit.SECONDS.toNanos(1);
@@ -56,9 +68,11 @@ public class LegacyCpuUsageDataSeries implements DataSeries<Long> {
       .setStartTimestamp(TimeUnit.MICROSECONDS.toNanos((long)timeCurrentRangeUs.getMin()) - bufferNs)
       .setEndTimestamp(TimeUnit.MICROSECONDS.toNanos((long)timeCurrentRangeUs.getMax()) + bufferNs);
     CpuDataResponse response = myClient.getData(dataRequestBuilder.build());
-    return IntStream.range(0, response.getDataList().size() - 1)
+    LongDataSeries series = new LongDataSeries(Math.max(response.getDataCount() - 1, 0));
+    for (int i = 0; i < response.getDataCount() - 1; i++) {
       // Calculate CPU usage percentage from two adjacent CPU usage data.
-      .mapToObj(index -> CpuUsage.getCpuUsageData(response.getData(index), response.getData(index + 1), myIsOtherProcess))
-      .collect(Collectors.toList());
+      CpuUsage.addCpuUsageData(series, response.getData(i), response.getData(i + 1), myIsOtherProcess);
+    }
+    return series;
   }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Builds independent per-thread data (e.g. {@link CaptureNode} trees or thread state series) of a trace, either serially or concurrently
+ * on a {@link ForkJoinPool}. In both cases, results are returned in the same order as their inputs, so callers populating maps from them
+ * produce exactly the same output regardless of the mode used.
+ */
+public final class ParallelThreadTreeBuilder {
+
+  /**
+   * Traces with fewer threads than this are always built serially, as forking tasks would cost more than it saves.
+   */
+  private static final int MIN_THREADS_TO_PARALLELIZE = 2;
+
+  private ParallelThreadTreeBuilder() {
+  }
+
+  /**
+   * Applies {@code builder} to each of the given {@code threads} and returns the results in the same order as the input list.
+   * {@code builder} must not mutate state shared with other threads when {@code parallel} is true.
+   */
+  @NotNull
+  public static <T, R> List<R> build(@NotNull List<T> threads, @NotNull Function<T, R> builder, boolean parallel) {
+    if (!parallel || threads.size() < MIN_THREADS_TO_PARALLELIZE) {
+      List<R> results = new ArrayList<>(threads.size());
+      for (T thread : threads) {
+        results.add(builder.apply(thread));
+      }
+      return results;
+    }
+
+    Object[] results = new Object[threads.size()];
+    ForkJoinPool.commonPool().invoke(new BuildAction<>(threads, builder, results, 0, threads.size()));
+    //noinspection unchecked
+    return (List<R>)Arrays.asList(results);
+  }
+
+  /**
+   * Recursively splits the range [start, end) of threads in halves until a single thread is left, whose result is stored at its index.
+   */
+  private static final class BuildAction<T, R> extends RecursiveAction {
+    @NotNull private final List<T> myThreads;
+    @NotNull private final Function<T, R> myBuilder;
+    @NotNull private final Object[] myResults;
+    private final int myStart;
+    private final int myEnd;
+
+    BuildAction(@NotNull List<T> threads, @NotNull Function<T, R> builder, @NotNull Object[] results, int start, int end) {
+      myThreads = threads;
+      myBuilder = builder;
+      myResults = results;
+      myStart = start;
+      myEnd = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (myEnd - myStart == 1) {
+        myResults[myStart] = myBuilder.apply(myThreads.get(myStart));
+        return;
+      }
+      int middle = (myStart + myEnd) >>> 1;
+      invokeAll(new BuildAction<>(myThreads, myBuilder, myResults, myStart, middle),
+                new BuildAction<>(myThreads, myBuilder, myResults, middle, myEnd));
+    }
+  }
+}
@@ -21,6 +21,7 @@ import com.android.tools.profilers.cpu.CaptureNode;
 import com.android.tools.profilers.cpu.CpuCapture;
 import com.android.tools.profilers.cpu.CpuProfilerStage;
 import com.android.tools.profilers.cpu.CpuThreadInfo;
+import com.android.tools.profilers.cpu.ParallelThreadTreeBuilder;
 import com.android.tools.profilers.cpu.TraceParser;
 import com.android.tools.profilers.cpu.nodemodel.AtraceNodeModel;
 import java.io.File;
@@ -106,6 +107,11 @@ public class AtraceParser implements TraceParser {
   private Range myRange;
   private AtraceFrameManager myFrameInfo;
 
+  /**
+   * Whether the capture trees and thread states of different threads should be built concurrently.
+   */
+  private boolean myParallelTreeBuilding = true;
+
   /**
    * This constructor parses the atrace model from the file and should be used for getting the list
    * of processes from the capture. After calling this construct the contract expects {@link #setSelectProcess}
@@ -260,6 +266,13 @@ public class AtraceParser implements TraceParser {
     myProcessId = process.getProcessId();
   }
 
+  /**
+   * Sets whether the capture trees and thread states of different threads are built concurrently. The output is the same in both cases.
+   */
+  public void setParallelTreeBuilding(boolean parallel) {
+    myParallelTreeBuilding = parallel;
+  }
+
   @Override
   public boolean supportsDualClock() {
     return false;
@@ -337,17 +350,24 @@ public class AtraceParser implements TraceParser {
    */
   private void buildCaptureTreeNodes() {
     Range range = getRange();
-    for (ThreadModel thread : myProcessModel.getThreads()) {
-      CpuThreadSliceInfo threadInfo =
-        new CpuThreadSliceInfo(thread.getId(), thread.getName(), thread.getProcess().getId(), thread.getProcess().getName());
+    List<ThreadModel> threads = myProcessModel.getThreads();
+    // Each thread's tree is independent from the others, so they can be built concurrently.
+    List<CaptureNode> roots = ParallelThreadTreeBuilder.build(threads, thread -> {
       CaptureNode root = new CaptureNode(new AtraceNodeModel(thread.getName()));
       root.setStartGlobal((long)range.getMin());
       root.setEndGlobal((long)range.getMax());
-      myCaptureTreeNodes.put(threadInfo, root);
       for (SliceGroup slice : thread.getSlices()) {
         CaptureNode node = populateCaptureNode(slice, 1);
         root.addChild(node);
       }
+      return root;
+    }, myParallelTreeBuilding);
+
+    for (int i = 0; i < threads.size(); i++) {
+      ThreadModel thread = threads.get(i);
+      CpuThreadSliceInfo threadInfo =
+        new CpuThreadSliceInfo(thread.getId(), thread.getName(), thread.getProcess().getId(), thread.getProcess().getName());
+      myCaptureTreeNodes.put(threadInfo, roots.get(i));
     }
   }
 
@@ -375,9 +395,9 @@ public class AtraceParser implements TraceParser {
    * Builds a map of thread id to a list of {@link CpuProfilerStage.ThreadState} series.
    */
   private void buildThreadStateData() {
-    for (ThreadModel thread : myProcessModel.getThreads()) {
+    List<ThreadModel> threads = myProcessModel.getThreads();
+    List<List<SeriesData<CpuProfilerStage.ThreadState>>> threadStates = ParallelThreadTreeBuilder.build(threads, thread -> {
       List<SeriesData<CpuProfilerStage.ThreadState>> states = new ArrayList<>();
-      myThreadStateData.put(thread.getId(), states);
       CpuProfilerStage.ThreadState lastState = CpuProfilerStage.ThreadState.UNKNOWN;
       for (SchedSlice slice : thread.getSchedSlices()) {
         long startTimeUs = convertToUserTimeUs(slice.getStartTime());
@@ -387,6 +407,11 @@ public class AtraceParser implements TraceParser {
           lastState = state;
         }
       }
+      return states;
+    }, myParallelTreeBuilding);
+
+    for (int i = 0; i < threads.size(); i++) {
+      myThreadStateData.put(threads.get(i).getId(), threadStates.get(i));
     }
   }
 
@@ -129,10 +129,18 @@ public class BottomUpNode extends CpuTreeNode<BottomUpNode> {
 
   @Override
   public void update(@NotNull Range range) {
+    // how much time was spent doing work directly in this call stack path
+    double self = getNodesIntersection(range, ClockType.GLOBAL) - getChildrenIntersection(range, ClockType.GLOBAL);
+
+    if (hasDisjointNodes()) {
+      // No node is nested in another one, so every node is at the top of the call stack.
+      myGlobalTotal = getNodesIntersection(range, ClockType.GLOBAL);
+      myGlobalChildrenTotal = myGlobalTotal - self;
+      return;
+    }
+
     // how much time was spent in this call stack path, and in the functions it called
     myGlobalTotal = 0;
-    // how much time was spent doing work directly in this call stack path
-    double self = 0;
 
     // The node that is at the top of the call stack, e.g if the call stack looks like B [0..30] -> B [1..20],
     // then the second method can't be outerSoFar.
@@ -150,11 +158,6 @@ public class BottomUpNode extends CpuTreeNode<BottomUpNode> {
         }
         outerSoFar = node;
       }
-
-      self += getIntersection(range, node, ClockType.GLOBAL);
-      for (CaptureNode child : node.getChildren()) {
-        self -= getIntersection(range, child, ClockType.GLOBAL);
-      }
     }
 
     if (outerSoFar != null) {
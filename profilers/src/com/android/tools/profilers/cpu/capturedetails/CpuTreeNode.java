@@ -20,6 +20,7 @@ import com.android.tools.perflib.vmtrace.ClockType;
 import com.android.tools.profilers.cpu.CaptureNode;
 import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModel;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -38,6 +39,12 @@ public abstract class CpuTreeNode<T extends CpuTreeNode> {
   protected double myThreadTotal = 0;
   protected double myThreadChildrenTotal = 0;
 
+  /**
+   * Lazily built indices over {@link #myNodes} and their children, so totals for a range can be computed without visiting every node.
+   * See {@link #getAggregationIndex()}. Reset whenever a node is added.
+   */
+  @Nullable private AggregationIndex myAggregationIndex;
+
   public CpuTreeNode(String id) {
     myId = id;
   }
@@ -48,6 +55,7 @@ public abstract class CpuTreeNode<T extends CpuTreeNode> {
 
   protected void addNode(@NotNull CaptureNode node) {
     myNodes.add(node);
+    myAggregationIndex = null;
   }
 
   protected void addNodes(@NotNull List<CaptureNode> nodes) {
@@ -84,19 +92,57 @@ public abstract class CpuTreeNode<T extends CpuTreeNode> {
   }
 
   public void update(@NotNull Range range) {
-    myGlobalTotal = 0.0;
-    myGlobalChildrenTotal = 0;
-    myThreadTotal = 0.0;
-    myThreadChildrenTotal = 0;
+    myGlobalTotal = getNodesIntersection(range, ClockType.GLOBAL);
+    myThreadTotal = getNodesIntersection(range, ClockType.THREAD);
+    myGlobalChildrenTotal = getChildrenIntersection(range, ClockType.GLOBAL);
+    myThreadChildrenTotal = getChildrenIntersection(range, ClockType.THREAD);
+  }
 
+  /**
+   * Returns the sum of the intersections between {@link #myNodes} and the given range.
+   */
+  protected double getNodesIntersection(@NotNull Range range, @NotNull ClockType type) {
+    IntervalPrefixSums sums = getAggregationIndex().getNodes(type);
+    if (sums != null) {
+      return sums.getIntersectionLength(range);
+    }
+    double total = 0;
+    for (CaptureNode node : myNodes) {
+      total += getIntersection(range, node, type);
+    }
+    return total;
+  }
+
+  /**
+   * Returns the sum of the intersections between the children of {@link #myNodes} and the given range.
+   */
+  protected double getChildrenIntersection(@NotNull Range range, @NotNull ClockType type) {
+    IntervalPrefixSums sums = getAggregationIndex().getChildren(type);
+    if (sums != null) {
+      return sums.getIntersectionLength(range);
+    }
+    double total = 0;
     for (CaptureNode node : myNodes) {
-      myGlobalTotal += getIntersection(range, node, ClockType.GLOBAL);
-      myThreadTotal += getIntersection(range, node, ClockType.THREAD);
       for (CaptureNode child : node.getChildren()) {
-        myGlobalChildrenTotal += getIntersection(range, child, ClockType.GLOBAL);
-        myThreadChildrenTotal += getIntersection(range, child, ClockType.THREAD);
+        total += getIntersection(range, child, type);
       }
     }
+    return total;
+  }
+
+  /**
+   * Whether {@link #myNodes} are sorted and don't overlap each other, in which case {@link #getNodesIntersection} is computed from an index.
+   */
+  protected boolean hasDisjointNodes() {
+    return getAggregationIndex().getNodes(ClockType.GLOBAL) != null;
+  }
+
+  @NotNull
+  private AggregationIndex getAggregationIndex() {
+    if (myAggregationIndex == null) {
+      myAggregationIndex = new AggregationIndex(myNodes);
+    }
+    return myAggregationIndex;
   }
 
   protected static double getIntersection(@NotNull Range range, @NotNull CaptureNode node, @NotNull ClockType type) {
@@ -111,6 +157,13 @@ public abstract class CpuTreeNode<T extends CpuTreeNode> {
   }
 
   public boolean inRange(Range range) {
+    if (myNodes.isEmpty()) {
+      return false;
+    }
+    IntervalPrefixSums sums = getAggregationIndex().getNodes(myNodes.get(0).getClockType());
+    if (sums != null) {
+      return sums.intersects(range.getMin(), range.getMax());
+    }
     return myNodes.stream().anyMatch(node -> node.getStart() < range.getMax() && range.getMin() < node.getEnd());
   }
 
@@ -129,4 +182,44 @@ public abstract class CpuTreeNode<T extends CpuTreeNode> {
   public boolean isUnmatched() {
     return getFilterType() == CaptureNode.FilterType.UNMATCH;
   }
+
+  /**
+   * {@link IntervalPrefixSums} over a list of nodes and over all of their children, for both clock types. Each of them is null when the
+   * corresponding intervals overlap, and is built on first use, so nodes that are never updated don't pay for it.
+   */
+  private static final class AggregationIndex {
+    @NotNull private final List<CaptureNode> myNodes;
+    private IntervalPrefixSums myGlobalNodes;
+    private IntervalPrefixSums myThreadNodes;
+    private IntervalPrefixSums myGlobalChildren;
+    private IntervalPrefixSums myThreadChildren;
+    private boolean myNodesBuilt;
+    private boolean myChildrenBuilt;
+
+    AggregationIndex(@NotNull List<CaptureNode> nodes) {
+      myNodes = nodes;
+    }
+
+    @Nullable
+    IntervalPrefixSums getNodes(@NotNull ClockType type) {
+      if (!myNodesBuilt) {
+        myGlobalNodes = IntervalPrefixSums.create(myNodes, ClockType.GLOBAL);
+        myThreadNodes = IntervalPrefixSums.create(myNodes, ClockType.THREAD);
+        myNodesBuilt = true;
+      }
+      return type == ClockType.GLOBAL ? myGlobalNodes : myThreadNodes;
+    }
+
+    @Nullable
+    IntervalPrefixSums getChildren(@NotNull ClockType type) {
+      if (!myChildrenBuilt) {
+        List<CaptureNode> children = new ArrayList<>();
+        myNodes.forEach(node -> children.addAll(node.getChildren()));
+        myGlobalChildren = IntervalPrefixSums.create(children, ClockType.GLOBAL);
+        myThreadChildren = IntervalPrefixSums.create(children, ClockType.THREAD);
+        myChildrenBuilt = true;
+      }
+      return type == ClockType.GLOBAL ? myGlobalChildren : myThreadChildren;
+    }
+  }
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu.capturedetails;
+
+import com.android.tools.adtui.model.Range;
+import com.android.tools.perflib.vmtrace.ClockType;
+import com.android.tools.profilers.cpu.CaptureNode;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Index over a list of sorted, non-overlapping {@link CaptureNode} intervals (e.g. the nodes merged into a {@link TopDownNode}, which
+ * come from sibling calls of a single thread) that answers "how much of these intervals intersects a given range" in logarithmic time,
+ * using prefix sums of the interval lengths. The result is the same as summing {@link CpuTreeNode#getIntersection} over every interval.
+ */
+final class IntervalPrefixSums {
+  @NotNull private final long[] myStarts;
+  @NotNull private final long[] myEnds;
+
+  /**
+   * {@code myPrefixLengths[i]} is the sum of the lengths of the intervals [0, i).
+   */
+  @NotNull private final long[] myPrefixLengths;
+
+  private IntervalPrefixSums(@NotNull long[] starts, @NotNull long[] ends) {
+    myStarts = starts;
+    myEnds = ends;
+    myPrefixLengths = new long[starts.length + 1];
+    for (int i = 0; i < starts.length; i++) {
+      myPrefixLengths[i + 1] = myPrefixLengths[i] + (ends[i] - starts[i]);
+    }
+  }
+
+  /**
+   * Creates an index over the intervals of the given nodes using the given clock. Returns null if the intervals aren't sorted and
+   * non-overlapping (e.g. recursive calls merged into a {@link BottomUpNode}), in which case callers should sum the intersections one by
+   * one instead.
+   */
+  @Nullable
+  static IntervalPrefixSums create(@NotNull List<CaptureNode> nodes, @NotNull ClockType clockType) {
+    long[] starts = new long[nodes.size()];
+    long[] ends = new long[nodes.size()];
+    for (int i = 0; i < nodes.size(); i++) {
+      CaptureNode node = nodes.get(i);
+      starts[i] = clockType == ClockType.GLOBAL ? node.getStartGlobal() : node.getStartThread();
+      ends[i] = clockType == ClockType.GLOBAL ? node.getEndGlobal() : node.getEndThread();
+      if (starts[i] > ends[i] || (i > 0 && ends[i - 1] > starts[i])) {
+        return null;
+      }
+    }
+    return new IntervalPrefixSums(starts, ends);
+  }
+
+  /**
+   * Returns the total length of the intersection between the indexed intervals and the given range.
+   */
+  double getIntersectionLength(@NotNull Range range) {
+    if (range.isEmpty()) {
+      return 0;
+    }
+    double min = range.getMin();
+    double max = range.getMax();
+    int first = firstEndingAfter(min);
+    int last = firstStartingAtOrAfter(max) - 1;
+    if (first > last) {
+      return 0;
+    }
+    double length = myPrefixLengths[last + 1] - myPrefixLengths[first];
+    // Clip the intervals crossing the range boundaries.
+    length -= Math.max(0, min - myStarts[first]);
+    length -= Math.max(0, myEnds[last] - max);
+    return Math.max(0, length);
+  }
+
+  /**
+   * Whether any of the indexed intervals (start, end) overlaps the open interval (min, max).
+   */
+  boolean intersects(double min, double max) {
+    int first = firstEndingAfter(min);
+    return first < myStarts.length && myStarts[first] < max;
+  }
+
+  /**
+   * Returns the index of the first interval whose end is greater than the given value, or the number of intervals if there is none.
+   */
+  private int firstEndingAfter(double value) {
+    int low = 0;
+    int high = myEnds.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (myEnds[mid] > value) {
+        high = mid;
+      }
+      else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the index of the first interval whose start is greater than or equal to the given value, or the number of intervals if there
+   * is none.
+   */
+  private int firstStartingAtOrAfter(double value) {
+    int low = 0;
+    int high = myStarts.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (myStarts[mid] >= value) {
+        high = mid;
+      }
+      else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+}
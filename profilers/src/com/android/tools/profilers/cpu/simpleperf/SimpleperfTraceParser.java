@@ -21,6 +21,7 @@ import com.android.tools.profiler.proto.SimpleperfReport;
 import com.android.tools.profilers.cpu.CaptureNode;
 import com.android.tools.profilers.cpu.CpuCapture;
 import com.android.tools.profilers.cpu.CpuThreadInfo;
+import com.android.tools.profilers.cpu.ParallelThreadTreeBuilder;
 import com.android.tools.profilers.cpu.TraceParser;
 import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModel;
 import com.android.tools.profilers.cpu.nodemodel.NoSymbolModel;
@@ -42,6 +43,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Parses a trace file obtained using simpleperf to a map threadId -> {@link CaptureNode}.
@@ -65,6 +67,13 @@ public class SimpleperfTraceParser implements TraceParser {
    */
   private static final String DATA_APP_DIR = "/data/app";
 
+  /**
+   * First byte of a serialized {@link SimpleperfReport.Record} whose data is a {@link SimpleperfReport.Sample}. It corresponds to the
+   * protobuf tag of the sample field (length-delimited wire type), which fits in a single byte. Used by streaming parsing to skip samples
+   * without deserializing them.
+   */
+  private static final byte SAMPLE_RECORD_TAG = (byte)((SimpleperfReport.Record.SAMPLE_FIELD_NUMBER << 3) | 2);
+
   /**
    * Version of the trace file to be parsed. Should be obtained from the file itself.
    */
@@ -90,6 +99,17 @@ public class SimpleperfTraceParser implements TraceParser {
    */
   private final Map<CpuThreadInfo, CaptureNode> myCaptureTrees;
 
+  /**
+   * Whether samples should be streamed from the mapped trace file into the call trees instead of being collected in {@link #mySamples}.
+   * When streaming, peak memory is bounded by the size of the trees rather than the number of samples in the trace.
+   */
+  private final boolean myStreaming;
+
+  /**
+   * Whether the call trees of different threads should be built concurrently. Only applies when not {@link #myStreaming}.
+   */
+  private boolean myParallelTreeBuilding = true;
+
   /**
    * Number of samples read from trace file.
    */
@@ -119,6 +139,14 @@ public class SimpleperfTraceParser implements TraceParser {
   private String myAppDataFolderPrefix;
 
   public SimpleperfTraceParser() {
+    this(false);
+  }
+
+  /**
+   * @param streaming whether samples should be streamed into the call trees record-by-record. See {@link #myStreaming}.
+   */
+  public SimpleperfTraceParser(boolean streaming) {
+    myStreaming = streaming;
     myFiles = new HashMap<>();
     mySamples = new ArrayList<>();
     myCaptureTrees = new HashMap<>();
@@ -161,8 +189,13 @@ public class SimpleperfTraceParser implements TraceParser {
 
   @Override
   public CpuCapture parse(File trace, long traceId) throws IOException {
-    parseTraceFile(trace);
-    parseSampleData();
+    if (myStreaming) {
+      streamTraceFile(trace);
+    }
+    else {
+      parseTraceFile(trace);
+      parseSampleData();
+    }
     return new CpuCapture(this, traceId, Cpu.CpuTraceType.SIMPLEPERF);
   }
 
@@ -181,6 +214,13 @@ public class SimpleperfTraceParser implements TraceParser {
     return myRange;
   }
 
+  /**
+   * Sets whether the call trees of different threads are built concurrently. The resulting trees are the same in both cases.
+   */
+  public void setParallelTreeBuilding(boolean parallel) {
+    myParallelTreeBuilding = parallel;
+  }
+
   public long getLostSampleCount() {
     return myLostSampleCount;
   }
@@ -228,40 +268,119 @@ public class SimpleperfTraceParser implements TraceParser {
       buffer.get(recordBytes);
       SimpleperfReport.Record record = SimpleperfReport.Record.parseFrom(recordBytes);
 
-      switch (record.getRecordDataCase()) {
-        case FILE:
-          SimpleperfReport.File file = record.getFile();
-          myFiles.put(file.getId(), file);
-          break;
-        case LOST:
-          // Only one occurrence of LOST type is expected.
-          SimpleperfReport.LostSituation situation = record.getLost();
-          mySampleCount = situation.getSampleCount();
-          myLostSampleCount = situation.getLostCount();
-          break;
-        case SAMPLE:
-          SimpleperfReport.Sample sample = record.getSample();
-          mySamples.add(sample);
-          break;
-        case THREAD:
-          SimpleperfReport.Thread thread = record.getThread();
-          myThreads.put(thread.getThreadId(), thread);
-          break;
-        case META_INFO:
-          SimpleperfReport.MetaInfo info = record.getMetaInfo();
-          myEventTypes = info.getEventTypeList();
-          myAppPackageName = info.getAppPackageName();
-          myAppDataFolderPrefix = String.format("%s/%s", DATA_APP_DIR, myAppPackageName);
-          break;
-        default:
-          getLog().warn("Unexpected record data type " + record.getRecordDataCase());
+      if (record.getRecordDataCase() == SimpleperfReport.Record.RecordDataCase.SAMPLE) {
+        mySamples.add(record.getSample());
+      }
+      else {
+        parseNonSampleRecord(record);
       }
 
       // read the next record size
       recordSize = buffer.getInt();
     }
 
-    if (mySamples.size() != mySampleCount) {
+    verifySampleCount(mySamples.size());
+  }
+
+  /**
+   * Parses the trace file (see {@link #parseTraceFile(File)} for the format) directly into the {@link CaptureNode} trees, without ever
+   * holding the full list of samples in memory.
+   * <p>
+   * Simpleperf writes the files and threads records after the samples, and both are needed to build the trees. Therefore, the mapped
+   * file is read twice: the first pass skips the samples and collects the other records, and the second pass feeds each sample, one at a
+   * time, into the tree of its thread.
+   */
+  @VisibleForTesting
+  void streamTraceFile(File trace) throws IOException {
+    ByteBuffer buffer = byteBufferFromFile(trace, ByteOrder.LITTLE_ENDIAN);
+    verifyMagicNumber(buffer);
+    parseVersionNumber(buffer);
+    int recordsStart = buffer.position();
+
+    // First pass: parse everything but the samples, which are only counted.
+    int samplesRead = 0;
+    int recordSize = buffer.getInt();
+    while (recordSize != 0) {
+      if (buffer.get(buffer.position()) == SAMPLE_RECORD_TAG) {
+        buffer.position(buffer.position() + recordSize);
+        samplesRead++;
+      }
+      else {
+        parseNonSampleRecord(SimpleperfReport.Record.parseFrom(readRecordBytes(buffer, recordSize)));
+      }
+      recordSize = buffer.getInt();
+    }
+    verifySampleCount(samplesRead);
+    if (samplesRead == 0) {
+      return;
+    }
+
+    // Second pass: build the trees incrementally, sample by sample.
+    buffer.position(recordsStart);
+    Map<Integer, ThreadTreeBuilder> builders = new HashMap<>();
+    long firstTimestamp = -1;
+    long lastTimestamp = -1;
+    recordSize = buffer.getInt();
+    while (recordSize != 0) {
+      if (buffer.get(buffer.position()) == SAMPLE_RECORD_TAG) {
+        SimpleperfReport.Sample sample = SimpleperfReport.Record.parseFrom(readRecordBytes(buffer, recordSize)).getSample();
+        if (firstTimestamp < 0) {
+          firstTimestamp = sample.getTime();
+        }
+        lastTimestamp = sample.getTime();
+        builders.computeIfAbsent(sample.getThreadId(), this::createThreadTreeBuilder).addSample(sample);
+      }
+      else {
+        buffer.position(buffer.position() + recordSize);
+      }
+      recordSize = buffer.getInt();
+    }
+
+    myRange = new Range(TimeUnit.NANOSECONDS.toMicros(firstTimestamp), TimeUnit.NANOSECONDS.toMicros(lastTimestamp));
+    for (ThreadTreeBuilder builder : builders.values()) {
+      builder.finish(lastTimestamp);
+      myCaptureTrees.put(builder.getThreadInfo(), builder.getRoot());
+    }
+  }
+
+  private static byte[] readRecordBytes(ByteBuffer buffer, int recordSize) {
+    byte[] recordBytes = new byte[recordSize];
+    buffer.get(recordBytes);
+    return recordBytes;
+  }
+
+  /**
+   * Parses a record that doesn't contain a {@link SimpleperfReport.Sample} into {@link #myFiles}, {@link #myThreads} or the trace metadata.
+   */
+  private void parseNonSampleRecord(SimpleperfReport.Record record) {
+    switch (record.getRecordDataCase()) {
+      case FILE:
+        SimpleperfReport.File file = record.getFile();
+        myFiles.put(file.getId(), file);
+        break;
+      case LOST:
+        // Only one occurrence of LOST type is expected.
+        SimpleperfReport.LostSituation situation = record.getLost();
+        mySampleCount = situation.getSampleCount();
+        myLostSampleCount = situation.getLostCount();
+        break;
+      case THREAD:
+        SimpleperfReport.Thread thread = record.getThread();
+        myThreads.put(thread.getThreadId(), thread);
+        break;
+      case META_INFO:
+        SimpleperfReport.MetaInfo info = record.getMetaInfo();
+        myEventTypes = info.getEventTypeList();
+        myAppPackageName = info.getAppPackageName();
+        myAppDataFolderPrefix = String.format("%s/%s", DATA_APP_DIR, myAppPackageName);
+        break;
+      default:
+        getLog().warn("Unexpected record data type " + record.getRecordDataCase());
+    }
+  }
+
+  private void verifySampleCount(long samplesRead) {
+    if (samplesRead != mySampleCount) {
       // TODO: create a trace file to test this exception is thrown when it should.
       throw new IllegalStateException("Samples count doesn't match the number of samples read.");
     }
@@ -301,9 +420,15 @@ public class SimpleperfTraceParser implements TraceParser {
     // Split the samples per thread.
     Map<Integer, List<SimpleperfReport.Sample>> threadSamples = splitSamplesPerThread();
 
-    // Process the samples for each thread
-    for (Map.Entry<Integer, List<SimpleperfReport.Sample>> threadSamplesEntry : threadSamples.entrySet()) {
-      parseThreadSamples(threadSamplesEntry.getKey(), threadSamplesEntry.getValue());
+    // Process the samples for each thread. Each thread's tree is independent, so they can be built concurrently.
+    List<ThreadTreeBuilder> builders = ParallelThreadTreeBuilder.build(
+      new ArrayList<>(threadSamples.entrySet()),
+      threadSamplesEntry -> parseThreadSamples(threadSamplesEntry.getKey(), threadSamplesEntry.getValue()),
+      myParallelTreeBuilding);
+    for (ThreadTreeBuilder builder : builders) {
+      if (builder != null) {
+        myCaptureTrees.put(builder.getThreadInfo(), builder.getRoot());
+      }
     }
   }
 
@@ -335,47 +460,99 @@ public class SimpleperfTraceParser implements TraceParser {
   }
 
   /**
-   * Parses the list of samples of a thread into a {@link CaptureNode} tree.
+   * Parses the list of samples of a thread into a {@link CaptureNode} tree. Returns the builder holding the tree, or null if the thread has
+   * no samples. Doesn't modify the state of the parser, so it can be called concurrently for different threads.
    */
-  private void parseThreadSamples(int threadId, List<SimpleperfReport.Sample> threadSamples) {
+  @Nullable
+  private ThreadTreeBuilder parseThreadSamples(int threadId, List<SimpleperfReport.Sample> threadSamples) {
     if (threadSamples.isEmpty()) {
       getLog().warn(String.format("Warning: No samples read for thread %s (%d)", myThreads.get(threadId), threadId));
-      return;
+      return null;
     }
 
+    ThreadTreeBuilder builder = createThreadTreeBuilder(threadId);
+    for (SimpleperfReport.Sample sample : threadSamples) {
+      builder.addSample(sample);
+    }
+    builder.finish(mySamples.get(mySamples.size() - 1).getTime());
+    return builder;
+  }
+
+  @NotNull
+  private ThreadTreeBuilder createThreadTreeBuilder(int threadId) {
     if (!myThreads.containsKey(threadId)) {
       throw new IllegalStateException("Malformed trace file: thread with id " + threadId + " not found.");
     }
+    return new ThreadTreeBuilder(threadId, myThreads.get(threadId));
+  }
+
+  /**
+   * Builds the {@link CaptureNode} tree of a single thread incrementally, as its samples are visited in chronological order. Only the
+   * previous call chain and the last visited node are kept between samples, so the samples themselves can be discarded once added.
+   */
+  private final class ThreadTreeBuilder {
+    private final int myThreadId;
+
+    @NotNull private final SimpleperfReport.Thread myThread;
+
+    /**
+     * Root node representing the thread itself. Created when the first sample is added.
+     */
+    private CaptureNode myRoot;
 
-    // Add a root node to represent the thread itself.
-    long firstTimestamp = threadSamples.get(0).getTime();
-    SimpleperfReport.Thread thread = myThreads.get(threadId);
-    CaptureNode root = createCaptureNode(new SingleNameModel(thread.getThreadName()), firstTimestamp);
-    root.setDepth(0);
-    myCaptureTrees.put(new CpuThreadInfo(threadId, thread.getThreadName(), threadId == thread.getProcessId()), root);
+    private List<SimpleperfReport.Sample.CallChainEntry> myPreviousCallChain = Collections.emptyList();
 
-    // Parse the first call chain so we have a value for lastCallchain
-    List<SimpleperfReport.Sample.CallChainEntry> previousCallChain = Lists.reverse(threadSamples.get(0).getCallchainList());
-    // Node used to traverse the tree. In the first traversal we pass an empty list as previous call chain and root as last visited node.
-    CaptureNode lastVisitedNode = parseCallChain(previousCallChain, Collections.emptyList(), threadSamples.get(0).getTime(), root);
+    /**
+     * Node used to traverse the tree.
+     */
+    private CaptureNode myLastVisitedNode;
 
-    // Now parse all the rest of the samples collected for this thread
-    for (int i = 1; i < threadSamples.size(); i++) {
-      SimpleperfReport.Sample sample = threadSamples.get(i);
+    ThreadTreeBuilder(int threadId, @NotNull SimpleperfReport.Thread thread) {
+      myThreadId = threadId;
+      myThread = thread;
+    }
+
+    void addSample(@NotNull SimpleperfReport.Sample sample) {
+      if (myRoot == null) {
+        // Add a root node to represent the thread itself.
+        myRoot = createCaptureNode(new SingleNameModel(myThread.getThreadName()), sample.getTime());
+        myRoot.setDepth(0);
+        // In the first traversal we pass an empty list as previous call chain and root as last visited node.
+        myLastVisitedNode = myRoot;
+      }
       // Reverse the call chain order because simpleperf returns the call chains ordered from leaf to root,
       // so reversing it makes the traversal easier.
       List<SimpleperfReport.Sample.CallChainEntry> callChain = Lists.reverse(sample.getCallchainList());
       // TODO: when --trace-offcpu is supported, we will need to call updateAncestorsEndTime if sample has a "schedule" out event.
-      lastVisitedNode = parseCallChain(callChain, previousCallChain, sample.getTime(), lastVisitedNode);
-      previousCallChain = callChain;
+      myLastVisitedNode = parseCallChain(callChain, myPreviousCallChain, sample.getTime(), myLastVisitedNode);
+      myPreviousCallChain = callChain;
     }
 
-    // Finally, update the end timestamp of the nodes in the last sample of the thread, which should be the last sample's timestamp.
-    // TODO: when --trace-offcpu is supported, we need to check if the last sample has a "schedule" out event before updating the end time.
-    long lastTimestamp = mySamples.get(mySamples.size() - 1).getTime();
-    updateAncestorsEndTime(lastTimestamp, lastVisitedNode);
-    // update the root timestamp
-    setNodeEndTime(root, lastTimestamp);
+    /**
+     * Updates the end timestamp of the nodes in the last sample of the thread, which should be the given timestamp.
+     */
+    void finish(long lastTimestamp) {
+      if (myRoot == null) {
+        return;
+      }
+      // TODO: when --trace-offcpu is supported, we need to check if the last sample has a "schedule" out event before updating the end time.
+      updateAncestorsEndTime(lastTimestamp, myLastVisitedNode);
+      // update the root timestamp
+      setNodeEndTime(myRoot, lastTimestamp);
+    }
+
+    @NotNull
+    CpuThreadInfo getThreadInfo() {
+      return new CpuThreadInfo(myThreadId, myThread.getThreadName(), myThreadId == myThread.getProcessId());
+    }
+
+    /**
+     * Returns the root of the thread's tree, or null if no samples were added.
+     */
+    @Nullable
+    CaptureNode getRoot() {
+      return myRoot;
+    }
   }
 
   /**
@@ -16,6 +16,8 @@
 package com.android.tools.profilers.memory;
 
 import com.android.tools.adtui.model.DataSeries;
+import com.android.tools.adtui.model.LongDataSeries;
+import com.android.tools.adtui.model.LongDataSeriesCache;
 import com.android.tools.adtui.model.Range;
 import com.android.tools.adtui.model.SeriesData;
 import com.android.tools.profiler.proto.Common;
@@ -25,19 +27,20 @@ import com.android.tools.profiler.proto.MemoryProfiler.MemoryRequest;
 import com.android.tools.profiler.proto.MemoryServiceGrpc;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 public final class MemoryDataSeries implements DataSeries<Long> {
   @NotNull private MemoryServiceGrpc.MemoryServiceBlockingStub myClient;
   @NotNull private final Common.Session mySession;
-  @NotNull private Function<MemorySample, Long> mySampleTransformer;
+  @NotNull private ToLongFunction<MemorySample> mySampleTransformer;
+  // Charts query a range sliding over live data at their resolution, so only the data that is new since the last query is fetched.
+  @NotNull private final LongDataSeriesCache myResolutionCache = new LongDataSeriesCache(this::queryData, TimeUnit.SECONDS.toMicros(1));
 
   public MemoryDataSeries(@NotNull MemoryServiceGrpc.MemoryServiceBlockingStub client,
                           @NotNull Common.Session session,
-                          @NotNull Function<MemorySample, Long> transformer) {
+                          @NotNull ToLongFunction<MemorySample> transformer) {
     myClient = client;
     mySession = session;
     mySampleTransformer = transformer;
@@ -45,6 +48,16 @@ public final class MemoryDataSeries implements DataSeries<Long> {
 
   @Override
   public List<SeriesData<Long>> getDataForRange(@NotNull Range timeCurrentRangeUs) {
+    return queryData(timeCurrentRangeUs).getAllData();
+  }
+
+  @Override
+  public List<SeriesData<Long>> getDataForRange(@NotNull Range timeCurrentRangeUs, int maxPointCount) {
+    return myResolutionCache.getDataForRange(timeCurrentRangeUs, maxPointCount);
+  }
+
+  @NotNull
+  private LongDataSeries queryData(@NotNull Range timeCurrentRangeUs) {
     // TODO: Change the Memory API to allow specifying padding in the request as number of samples.
     long bufferNs = TimeUnit.SECONDS.toNanos(1);
     MemoryRequest.Builder dataRequestBuilder = MemoryRequest.newBuilder()
@@ -53,11 +66,11 @@ public final class MemoryDataSeries implements DataSeries<Long> {
       .setEndTime(TimeUnit.MICROSECONDS.toNanos((long)timeCurrentRangeUs.getMax()) + bufferNs);
     MemoryData response = myClient.getData(dataRequestBuilder.build());
 
-    List<SeriesData<Long>> seriesData = new ArrayList<>();
+    LongDataSeries series = new LongDataSeries(response.getMemSamplesCount());
     for (MemoryData.MemorySample sample : response.getMemSamplesList()) {
       long dataTimestamp = TimeUnit.NANOSECONDS.toMicros(sample.getTimestamp());
-      seriesData.add(new SeriesData<>(dataTimestamp, mySampleTransformer.apply(sample)));
+      series.add(dataTimestamp, mySampleTransformer.applyAsLong(sample));
     }
-    return seriesData;
+    return series;
   }
 }
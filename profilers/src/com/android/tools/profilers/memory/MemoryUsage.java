@@ -27,6 +27,7 @@ import com.android.tools.profilers.StudioProfilers;
 import com.android.tools.profilers.UnifiedEventDataSeries;
 import java.util.List;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import org.jetbrains.annotations.NotNull;
 
 public class MemoryUsage extends LineChartModel {
@@ -52,7 +53,7 @@ public class MemoryUsage extends LineChartModel {
   protected RangedContinuousSeries createLegacyRangedSeries(@NotNull StudioProfilers profilers,
                                                             @NotNull String name,
                                                             @NotNull Range range,
-                                                            @NotNull Function<MemorySample, Long> getter) {
+                                                            @NotNull ToLongFunction<MemorySample> getter) {
     MemoryServiceGrpc.MemoryServiceBlockingStub client = profilers.getClient().getMemoryClient();
     MemoryDataSeries series = new MemoryDataSeries(client, profilers.getSession(), getter);
     return new RangedContinuousSeries(name, profilers.getTimeline().getViewRange(), range, series, profilers.getTimeline().getDataRange());
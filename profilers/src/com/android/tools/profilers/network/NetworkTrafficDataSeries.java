@@ -16,6 +16,8 @@
 package com.android.tools.profilers.network;
 
 import com.android.tools.adtui.model.DataSeries;
+import com.android.tools.adtui.model.LongDataSeries;
+import com.android.tools.adtui.model.LongDataSeriesCache;
 import com.android.tools.adtui.model.Range;
 import com.android.tools.adtui.model.SeriesData;
 import com.android.tools.profiler.proto.Common;
@@ -23,7 +25,6 @@ import com.android.tools.profiler.proto.NetworkProfiler;
 import com.android.tools.profiler.proto.NetworkServiceGrpc;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -68,6 +69,7 @@ public class NetworkTrafficDataSeries implements DataSeries<Long> {
   private NetworkServiceGrpc.NetworkServiceBlockingStub myClient;
   private final Common.Session mySession;
   private final Type myType;
+  @NotNull private final LongDataSeriesCache myResolutionCache = new LongDataSeriesCache(this::queryData, TimeUnit.SECONDS.toMicros(1));
 
   public NetworkTrafficDataSeries(@NotNull NetworkServiceGrpc.NetworkServiceBlockingStub client, Common.Session session, Type type) {
     myClient = client;
@@ -77,8 +79,16 @@ public class NetworkTrafficDataSeries implements DataSeries<Long> {
 
   @Override
   public List<SeriesData<Long>> getDataForRange(@NotNull Range timeCurrentRangeUs) {
-    List<SeriesData<Long>> seriesData = new ArrayList<>();
+    return queryData(timeCurrentRangeUs).getAllData();
+  }
 
+  @Override
+  public List<SeriesData<Long>> getDataForRange(@NotNull Range timeCurrentRangeUs, int maxPointCount) {
+    return myResolutionCache.getDataForRange(timeCurrentRangeUs, maxPointCount);
+  }
+
+  @NotNull
+  private LongDataSeries queryData(@NotNull Range timeCurrentRangeUs) {
     // TODO: Change the Network API to allow specifying padding in the request as number of samples.
     long bufferNs = TimeUnit.SECONDS.toNanos(1);
     NetworkProfiler.NetworkDataRequest.Builder dataRequestBuilder = NetworkProfiler.NetworkDataRequest.newBuilder()
@@ -87,11 +97,12 @@ public class NetworkTrafficDataSeries implements DataSeries<Long> {
       .setStartTimestamp(TimeUnit.MICROSECONDS.toNanos((long)timeCurrentRangeUs.getMin()) - bufferNs)
       .setEndTimestamp(TimeUnit.MICROSECONDS.toNanos((long)timeCurrentRangeUs.getMax()) + bufferNs);
     NetworkProfiler.NetworkDataResponse response = myClient.getData(dataRequestBuilder.build());
+    LongDataSeries series = new LongDataSeries(response.getDataCount());
     for (NetworkProfiler.NetworkProfilerData data : response.getDataList()) {
       long xTimestamp = TimeUnit.NANOSECONDS.toMicros(data.getEndTimestamp());
       NetworkProfiler.SpeedData speedData = data.getSpeedData();
-      seriesData.add(new SeriesData<>(xTimestamp, myType.getBytes(speedData)));
+      series.add(xTimestamp, myType.getBytes(speedData));
     }
-    return seriesData;
+    return series;
   }
 }
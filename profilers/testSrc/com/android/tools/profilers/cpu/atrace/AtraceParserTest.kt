@@ -16,6 +16,7 @@
 package com.android.tools.profilers.cpu.atrace
 
 import com.android.tools.adtui.model.Range
+import com.android.tools.profilers.cpu.CaptureNode
 import com.android.tools.profilers.cpu.CpuCapture
 import com.android.tools.profilers.cpu.CpuProfilerStage
 import com.android.tools.profilers.cpu.CpuProfilerTestUtils
@@ -107,6 +108,37 @@ class AtraceParserTest {
     assertThat(dataSeries[THREAD_ID]!!.get(1).value).isEqualTo(CpuProfilerStage.ThreadState.RUNNING_CAPTURED)
   }
 
+  @Test
+  fun serialParsingProducesSameTreesAndThreadStatesAsParallel() {
+    val serialParser = AtraceParser(TEST_PID)
+    serialParser.setParallelTreeBuilding(false)
+    serialParser.parse(CpuProfilerTestUtils.getTraceFile("atrace.ctrace"), 0)
+
+    assertThat(serialParser.threadStateDataSeries.keys).containsExactlyElementsIn(myParser.threadStateDataSeries.keys)
+    for ((threadId, states) in serialParser.threadStateDataSeries) {
+      val parallelStates = myParser.threadStateDataSeries[threadId]!!
+      assertThat(parallelStates.map { it.x }).containsExactlyElementsIn(states.map { it.x }).inOrder()
+      assertThat(parallelStates.map { it.value }).containsExactlyElementsIn(states.map { it.value }).inOrder()
+    }
+
+    assertThat(serialParser.captureTrees).hasSize(myParser.captureTrees.size)
+    for ((threadInfo, serialRoot) in serialParser.captureTrees) {
+      val parallelRoot = myParser.captureTrees.entries.first { it.key.id == threadInfo.id }.value
+      assertSameTree(serialRoot, parallelRoot)
+    }
+  }
+
+  private fun assertSameTree(expected: CaptureNode, actual: CaptureNode) {
+    assertThat(actual.data.name).isEqualTo(expected.data.name)
+    assertThat(actual.startGlobal).isEqualTo(expected.startGlobal)
+    assertThat(actual.endGlobal).isEqualTo(expected.endGlobal)
+    assertThat(actual.depth).isEqualTo(expected.depth)
+    assertThat(actual.childCount).isEqualTo(expected.childCount)
+    for (i in 0 until expected.childCount) {
+      assertSameTree(expected.getChildAt(i), actual.getChildAt(i))
+    }
+  }
+
   @Test
   fun testGetCpuUtilizationDataSeries() {
     val dataSeries = myParser.cpuUtilizationSeries
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu.capturedetails;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.adtui.model.Range;
+import com.android.tools.perflib.vmtrace.ClockType;
+import com.android.tools.profilers.cpu.CaptureNode;
+import com.android.tools.profilers.cpu.nodemodel.SingleNameModel;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class IntervalPrefixSumsTest {
+
+  private static final List<CaptureNode> DISJOINT_NODES =
+    Arrays.asList(newNode(0, 10), newNode(10, 15), newNode(20, 20), newNode(30, 50), newNode(60, 100));
+
+  @Test
+  public void overlappingNodesAreNotIndexed() {
+    assertNull(IntervalPrefixSums.create(Arrays.asList(newNode(0, 10), newNode(5, 8)), ClockType.GLOBAL));
+    assertNull(IntervalPrefixSums.create(Arrays.asList(newNode(10, 20), newNode(0, 5)), ClockType.GLOBAL));
+    // Nodes that didn't finish (end before start) aren't indexed either.
+    assertNull(IntervalPrefixSums.create(Arrays.asList(newNode(10, 0)), ClockType.GLOBAL));
+  }
+
+  @Test
+  public void intersectionLengthMatchesSumOfIntersections() {
+    IntervalPrefixSums sums = IntervalPrefixSums.create(DISJOINT_NODES, ClockType.GLOBAL);
+    assertNotNull(sums);
+
+    double[] bounds = {-10, 0, 5, 10, 12.5, 15, 17, 20, 25, 30, 45, 50, 55, 60, 99, 100, 120};
+    for (double min : bounds) {
+      for (double max : bounds) {
+        Range range = new Range(min, max);
+        double expected = 0;
+        for (CaptureNode node : DISJOINT_NODES) {
+          expected += CpuTreeNode.getIntersection(range, node, ClockType.GLOBAL);
+        }
+        assertEquals("Range " + range, expected, sums.getIntersectionLength(range), 1e-9);
+      }
+    }
+  }
+
+  @Test
+  public void intersectsMatchesOpenIntervalOverlap() {
+    IntervalPrefixSums sums = IntervalPrefixSums.create(DISJOINT_NODES, ClockType.GLOBAL);
+    assertNotNull(sums);
+
+    assertTrue(sums.intersects(5, 6));
+    assertTrue(sums.intersects(14, 30.5));
+    assertFalse(sums.intersects(15, 20));
+    assertFalse(sums.intersects(50, 60));
+    assertFalse(sums.intersects(100, 200));
+    assertFalse(sums.intersects(-10, 0));
+  }
+
+  @Test
+  public void threadClockUsesThreadTimes() {
+    IntervalPrefixSums sums = IntervalPrefixSums.create(DISJOINT_NODES, ClockType.THREAD);
+    assertNotNull(sums);
+    // Thread times are half of the global times.
+    assertEquals(10, sums.getIntersectionLength(new Range(0, 10)), 0);
+  }
+
+  private static CaptureNode newNode(long start, long end) {
+    CaptureNode node = new CaptureNode(new SingleNameModel("node"));
+    node.setStartGlobal(start);
+    node.setEndGlobal(end);
+    node.setStartThread(start / 2);
+    node.setEndThread(end / 2);
+    return node;
+  }
+}
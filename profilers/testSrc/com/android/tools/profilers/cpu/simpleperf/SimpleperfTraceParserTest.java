@@ -233,6 +233,66 @@ public class SimpleperfTraceParserTest {
     assertEquals(expected.getMax(), myParser.getRange().getMax(), 0);
   }
 
+  @Test
+  public void streamingParsingShouldProduceSameTreesAsEagerParsing() throws IOException {
+    myParser.parse(myTraceFile, 0);
+    SimpleperfTraceParser streamingParser = new SimpleperfTraceParser(true);
+    streamingParser.parse(myTraceFile, 0);
+
+    // Samples are never collected when streaming.
+    assertTrue(streamingParser.mySamples.isEmpty());
+    assertEquals(myParser.getSampleCount(), streamingParser.getSampleCount());
+    assertEquals(myParser.getLostSampleCount(), streamingParser.getLostSampleCount());
+    assertEquals(myParser.getRange().getMin(), streamingParser.getRange().getMin(), 0);
+    assertEquals(myParser.getRange().getMax(), streamingParser.getRange().getMax(), 0);
+
+    Map<CpuThreadInfo, CaptureNode> eagerTrees = myParser.getCaptureTrees();
+    Map<CpuThreadInfo, CaptureNode> streamingTrees = streamingParser.getCaptureTrees();
+    assertEquals(eagerTrees.size(), streamingTrees.size());
+    for (Map.Entry<CpuThreadInfo, CaptureNode> entry : eagerTrees.entrySet()) {
+      CaptureNode streamingTree = streamingTrees.entrySet().stream()
+        .filter(streamingEntry -> streamingEntry.getKey().getId() == entry.getKey().getId())
+        .map(Map.Entry::getValue)
+        .findAny()
+        .orElse(null);
+      assertNotNull(streamingTree);
+      assertSameTree(entry.getValue(), streamingTree);
+    }
+  }
+
+  @Test
+  public void parallelTreeBuildingShouldProduceSameTreesAsSerial() throws IOException {
+    myParser.setParallelTreeBuilding(false);
+    myParser.parse(myTraceFile, 0);
+    SimpleperfTraceParser parallelParser = new SimpleperfTraceParser();
+    parallelParser.setParallelTreeBuilding(true);
+    parallelParser.parse(myTraceFile, 0);
+
+    Map<CpuThreadInfo, CaptureNode> serialTrees = myParser.getCaptureTrees();
+    Map<CpuThreadInfo, CaptureNode> parallelTrees = parallelParser.getCaptureTrees();
+    assertEquals(serialTrees.size(), parallelTrees.size());
+    for (Map.Entry<CpuThreadInfo, CaptureNode> entry : serialTrees.entrySet()) {
+      CaptureNode parallelTree = parallelTrees.entrySet().stream()
+        .filter(parallelEntry -> parallelEntry.getKey().getId() == entry.getKey().getId())
+        .map(Map.Entry::getValue)
+        .findAny()
+        .orElse(null);
+      assertNotNull(parallelTree);
+      assertSameTree(entry.getValue(), parallelTree);
+    }
+  }
+
+  private static void assertSameTree(CaptureNode expected, CaptureNode actual) {
+    assertEquals(expected.getData().getFullName(), actual.getData().getFullName());
+    assertEquals(expected.getStartGlobal(), actual.getStartGlobal());
+    assertEquals(expected.getEndGlobal(), actual.getEndGlobal());
+    assertEquals(expected.getDepth(), actual.getDepth());
+    assertEquals(expected.getChildCount(), actual.getChildCount());
+    for (int i = 0; i < expected.getChildCount(); i++) {
+      assertSameTree(expected.getChildAt(i), actual.getChildAt(i));
+    }
+  }
+
   /**
    * Checks that a {@link CaptureNode} tree starts with "__start_thread -> __pthread_start", then verifies the node just after then.
    */
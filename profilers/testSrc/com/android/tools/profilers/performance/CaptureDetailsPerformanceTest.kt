@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.performance
+
+import com.android.tools.adtui.model.Range
+import com.android.tools.perflogger.Benchmark
+import com.android.tools.perflogger.Metric
+import com.android.tools.perflogger.WindowDeviationAnalyzer
+import com.android.tools.profilers.cpu.CaptureNode
+import com.android.tools.profilers.cpu.capturedetails.BottomUpNode
+import com.android.tools.profilers.cpu.capturedetails.BottomUpTreeModel
+import com.android.tools.profilers.cpu.capturedetails.TopDownNode
+import com.android.tools.profilers.cpu.capturedetails.TopDownTreeModel
+import com.android.tools.profilers.cpu.nodemodel.SingleNameModel
+import org.junit.Test
+import java.time.Instant
+
+/**
+ * Measures how long Top-Down and Bottom-Up trees take to update while a selection range is dragged over a large synthetic capture.
+ */
+class CaptureDetailsPerformanceTest {
+  companion object {
+    private const val FANOUT = 8
+    private const val DEPTH = 6
+    private const val LEAF_DURATION_US = 10L
+    private const val DRAG_STEPS = 200
+  }
+
+  private val benchmark = Benchmark.Builder("Cpu Capture Details Range Drag (Nanos)").setProject("Android Studio Profilers").build()
+
+  @Test
+  fun topDownRangeDrag() {
+    val root = createTree()
+    val range = Range(root.startGlobal.toDouble(), root.endGlobal.toDouble())
+    TopDownTreeModel(range, TopDownNode(root))
+    dragRange("TopDown-Range-Drag", root, range)
+  }
+
+  @Test
+  fun bottomUpRangeDrag() {
+    val root = createTree()
+    val range = Range(root.startGlobal.toDouble(), root.endGlobal.toDouble())
+    BottomUpTreeModel(range, BottomUpNode(root))
+    dragRange("BottomUp-Range-Drag", root, range)
+  }
+
+  /**
+   * Slides a window a tenth of the capture long from the start to the end of the capture. Every step updates the tree model.
+   */
+  private fun dragRange(metricName: String, root: CaptureNode, range: Range) {
+    val metric = Metric(metricName)
+    val captureLength = root.endGlobal - root.startGlobal
+    val windowLength = captureLength / 10.0
+    val step = (captureLength - windowLength) / DRAG_STEPS
+    for (i in 0 until DRAG_STEPS) {
+      val min = root.startGlobal + i * step
+      val startTime = System.nanoTime()
+      range.set(min, min + windowLength)
+      metric.addSamples(benchmark, Metric.MetricSample(Instant.now().toEpochMilli(), System.nanoTime() - startTime))
+    }
+    metric.setAnalyzers(benchmark, setOf(WindowDeviationAnalyzer.Builder()
+                                           .addMeanTolerance(WindowDeviationAnalyzer.MeanToleranceParams.Builder().build())
+                                           .build()))
+    metric.commit()
+  }
+
+  /**
+   * Creates a complete tree of [FANOUT]^[DEPTH] leaves, where sibling calls to the same few methods get merged by the Top-Down and
+   * Bottom-Up views, as it happens in real captures.
+   */
+  private fun createTree(): CaptureNode {
+    var nextStart = 0L
+    fun create(name: String, depth: Int): CaptureNode {
+      val node = CaptureNode(SingleNameModel(name))
+      node.depth = depth
+      node.startGlobal = nextStart
+      node.startThread = nextStart
+      if (depth == DEPTH) {
+        nextStart += LEAF_DURATION_US
+      }
+      else {
+        for (i in 0 until FANOUT) {
+          node.addChild(create("method${i % 3}", depth + 1))
+        }
+      }
+      node.endGlobal = nextStart
+      node.endThread = nextStart
+      return node
+    }
+    return create("root", 0)
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.performance
+
+import com.android.tools.adtui.model.DataSeries
+import com.android.tools.adtui.model.DefaultDataSeries
+import com.android.tools.adtui.model.LongDataSeries
+import com.android.tools.adtui.model.Range
+import com.android.tools.perflogger.Benchmark
+import com.android.tools.perflogger.Metric
+import com.android.tools.perflogger.WindowDeviationAnalyzer
+import org.junit.Test
+import java.time.Instant
+import java.util.concurrent.TimeUnit
+
+/**
+ * Compares the memory retained by, and the range query latency of, an hour of timeline samples stored in a [DefaultDataSeries] and in a
+ * [LongDataSeries].
+ */
+class LongDataSeriesPerformanceTest {
+  companion object {
+    private val DURATION_US = TimeUnit.HOURS.toMicros(1)
+    private val INTERVAL_US = TimeUnit.MILLISECONDS.toMicros(10)
+    private val QUERY_WINDOW_US = TimeUnit.SECONDS.toMicros(60)
+    private const val QUERY_COUNT = 200
+  }
+
+  private val timingBenchmark =
+    Benchmark.Builder("Primitive DataSeries Query Timings (Nanos)").setProject("Android Studio Profilers").build()
+  private val memoryBenchmark =
+    Benchmark.Builder("Primitive DataSeries Memory (kb)").setProject("Android Studio Profilers").build()
+
+  @Test
+  fun defaultDataSeries() {
+    val baseline = usedMemoryKb()
+    val series = DefaultDataSeries<Long>()
+    for (x in 0 until DURATION_US step INTERVAL_US) {
+      series.add(x, x % 100)
+    }
+    memoryBenchmark.log("Default-DataSeries-Memory-Used", usedMemoryKb() - baseline)
+    queryRanges("Default-DataSeries-Query", series)
+  }
+
+  @Test
+  fun longDataSeries() {
+    val baseline = usedMemoryKb()
+    val series = LongDataSeries()
+    for (x in 0 until DURATION_US step INTERVAL_US) {
+      series.add(x, x % 100)
+    }
+    memoryBenchmark.log("Long-DataSeries-Memory-Used", usedMemoryKb() - baseline)
+    queryRanges("Long-DataSeries-Query", series)
+  }
+
+  /**
+   * Slides a one minute window over the data, reading every point of each range as a line chart would.
+   */
+  private fun queryRanges(metricName: String, series: DataSeries<Long>) {
+    val metric = Metric(metricName)
+    val step = (DURATION_US - QUERY_WINDOW_US) / QUERY_COUNT
+    var checksum = 0L
+    for (i in 0 until QUERY_COUNT) {
+      val min = i * step
+      val startTime = System.nanoTime()
+      for (data in series.getDataForRange(Range(min.toDouble(), (min + QUERY_WINDOW_US).toDouble()))) {
+        checksum += data.value
+      }
+      metric.addSamples(timingBenchmark, Metric.MetricSample(Instant.now().toEpochMilli(), System.nanoTime() - startTime))
+    }
+    // Keeps the reads from being optimized away.
+    assert(checksum >= 0)
+    metric.setAnalyzers(timingBenchmark, setOf(WindowDeviationAnalyzer.Builder()
+                                                 .addMeanTolerance(WindowDeviationAnalyzer.MeanToleranceParams.Builder().build())
+                                                 .build()))
+    metric.commit()
+  }
+
+  private fun usedMemoryKb(): Long {
+    val rt = Runtime.getRuntime()
+    for (x in 0..10) System.gc()
+    return (rt.totalMemory() - rt.freeMemory()) / 1024
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.performance
+
+import com.android.tools.perflogger.Benchmark
+import com.android.tools.perflogger.Metric
+import com.android.tools.perflogger.WindowDeviationAnalyzer
+import com.android.tools.profilers.cpu.CpuProfilerTestUtils
+import com.android.tools.profilers.cpu.atrace.AtraceParser
+import com.android.tools.profilers.cpu.simpleperf.SimpleperfTraceParser
+import org.junit.Test
+import java.io.File
+import java.time.Instant
+
+/**
+ * Compares the time it takes to build the per-thread call trees of the test traces serially and concurrently.
+ */
+class TraceParsingPerformanceTest {
+  companion object {
+    private const val WARM_UP_RUNS = 3
+    private const val MEASURED_RUNS = 10
+    private const val ATRACE_PID = 2652
+  }
+
+  private val benchmark = Benchmark.Builder("Cpu Trace Parsing Timings (Nanos)").setProject("Android Studio Profilers").build()
+
+  @Test
+  fun simpleperfSerialVsParallel() {
+    val trace = CpuProfilerTestUtils.getTraceFile("simpleperf.trace")
+    for (parallel in listOf(false, true)) {
+      measure("Simpleperf-${if (parallel) "Parallel" else "Serial"}", trace) { file ->
+        val parser = SimpleperfTraceParser()
+        parser.setParallelTreeBuilding(parallel)
+        parser.parse(file, 0)
+      }
+    }
+  }
+
+  @Test
+  fun atraceSerialVsParallel() {
+    val trace = CpuProfilerTestUtils.getTraceFile("atrace.ctrace")
+    for (parallel in listOf(false, true)) {
+      measure("Atrace-${if (parallel) "Parallel" else "Serial"}", trace) { file ->
+        val parser = AtraceParser(ATRACE_PID)
+        parser.setParallelTreeBuilding(parallel)
+        parser.parse(file, 0)
+      }
+    }
+  }
+
+  private fun measure(metricName: String, trace: File, parse: (File) -> Unit) {
+    // Warm up the JIT and the fork-join pool so only steady-state parsing is measured.
+    repeat(WARM_UP_RUNS) { parse(trace) }
+
+    val metric = Metric(metricName)
+    repeat(MEASURED_RUNS) {
+      val startTime = System.nanoTime()
+      parse(trace)
+      metric.addSamples(benchmark, Metric.MetricSample(Instant.now().toEpochMilli(), System.nanoTime() - startTime))
+    }
+    metric.setAnalyzers(benchmark, setOf(WindowDeviationAnalyzer.Builder()
+                                           .addMeanTolerance(WindowDeviationAnalyzer.MeanToleranceParams.Builder().build())
+                                           .build()))
+    metric.commit()
+  }
+}
@@ -34,6 +34,7 @@ import com.android.tools.idea.resources.base.Base128InputStream;
 import com.android.tools.idea.resources.base.Base128OutputStream;
 import com.android.tools.idea.resources.base.BasicFileResourceItem;
 import com.android.tools.idea.resources.base.BasicResourceItem;
+import com.android.tools.idea.resources.base.MappedResourceTable;
 import com.android.tools.idea.resources.base.NamespaceResolver;
 import com.android.tools.idea.resources.base.RepositoryConfiguration;
 import com.android.tools.idea.resources.base.RepositoryLoader;
@@ -42,7 +43,6 @@ import com.android.tools.idea.resources.base.ResourceSourceFile;
 import com.android.tools.idea.resources.base.ResourceSourceFileImpl;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Maps;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.NullableLazyValue;
 import java.io.BufferedReader;
@@ -75,7 +75,7 @@ public class AarSourceResourceRepository extends AbstractAarResourceRepository {
    * Increment when making changes that may affect content of repository cache files.
    * Used together with CachingData.codeVersion. Important for developer builds.
    */
-  static final String CACHE_FILE_FORMAT_VERSION = "3";
+  static final String CACHE_FILE_FORMAT_VERSION = "6";
   private static final byte[] CACHE_FILE_HEADER = "Resource cache".getBytes(UTF_8);
   private static final Logger LOG = Logger.getInstance(AarSourceResourceRepository.class);
 
@@ -244,7 +244,8 @@ public class AarSourceResourceRepository extends AbstractAarResourceRepository {
    */
   private void createPersistentCache(@NotNull CachingData cachingData) {
     byte[] header = ResourceSerializationUtil.getCacheFileHeader(stream -> writeCacheHeaderContent(cachingData, stream));
-    ResourceSerializationUtil.createPersistentCache(cachingData.getCacheFile(), header, stream -> writeToStream(stream, config -> true));
+    ResourceSerializationUtil.createPersistentCache(cachingData.getCacheFile(), header,
+                                                    stream -> writeToMappedStream(stream, config -> true));
   }
 
   protected void writeCacheHeaderContent(@NotNull CachingData cachingData, @NotNull Base128OutputStream stream) throws IOException {
@@ -260,14 +261,13 @@ public class AarSourceResourceRepository extends AbstractAarResourceRepository {
    * @see ResourceSerializationUtil#createPersistentCache
    */
   private boolean loadFromPersistentCache(@NotNull Path cacheFile, @NotNull byte[] fileHeader) {
-    try (Base128InputStream stream = new Base128InputStream(cacheFile)) {
-      if (!stream.validateContents(fileHeader)) {
+    try {
+      MappedResourceTable table = MappedResourceTable.load(cacheFile, fileHeader, this, null);
+      if (table == null) {
         return false; // Cache file header doesn't match.
       }
-      loadFromStream(stream, Maps.newHashMapWithExpectedSize(1000), null);
-
-      populatePublicResourcesMap();
-      freezeResources();
+      // Resource items are created from the mapped cache file when they are requested.
+      myMappedResources.add(table);
       myLoadedFromCache = true;
       return true;
     }
@@ -285,7 +285,7 @@ public class AarSourceResourceRepository extends AbstractAarResourceRepository {
    * Called when an attempt to load from persistent cache fails after some data may have already been loaded.
    */
   protected void cleanupAfterFailedLoadingFromCache() {
-    myResources.clear();  // Remove partially loaded data.
+    clearResources();  // Remove partially loaded data.
   }
 
   /**
@@ -298,6 +298,18 @@ public class AarSourceResourceRepository extends AbstractAarResourceRepository {
     ResourceSerializationUtil.writeResourcesToStream(myResources, stream, configFilter);
   }
 
+  /**
+   * Writes contents of the repository to the given output stream in the format of a memory-mapped cache file.
+   *
+   * @param stream the stream to write to
+   * @param configFilter only resources belonging to configurations satisfying this filter are written to the stream
+   * @see MappedResourceTable
+   */
+  void writeToMappedStream(@NotNull Base128OutputStream stream, @NotNull Predicate<FolderConfiguration> configFilter)
+      throws IOException {
+    MappedResourceTable.write(myResources, stream, configFilter);
+  }
+
   /**
    * Loads contents the repository from the given input stream.
    * @see #writeToStream(Base128OutputStream, Predicate)
@@ -326,6 +338,7 @@ public class AarSourceResourceRepository extends AbstractAarResourceRepository {
     Loader(@NotNull Path resourceDirectoryOrFile, @Nullable Collection<PathString> resourceFilesAndFolders,
            @NotNull ResourceNamespace namespace) {
       super(resourceDirectoryOrFile, resourceFilesAndFolders, namespace);
+      setParallelLoadingEnabled(true);
     }
 
     @Override
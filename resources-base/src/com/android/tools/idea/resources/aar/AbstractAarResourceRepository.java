@@ -22,17 +22,22 @@ import com.android.ide.common.resources.ResourceItemWithVisibility;
 import com.android.ide.common.resources.ResourceVisitor;
 import com.android.resources.ResourceType;
 import com.android.resources.ResourceVisibility;
+import com.android.tools.idea.resources.base.MappedResourceTable;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.ListMultimap;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -42,7 +47,14 @@ import org.jetbrains.annotations.Nullable;
 public abstract class AbstractAarResourceRepository extends AbstractResourceRepository implements AarResourceRepository {
   @NotNull protected final ResourceNamespace myNamespace;
   @NotNull protected final Map<ResourceType, ListMultimap<String, ResourceItem>> myResources = new EnumMap<>(ResourceType.class);
-  @NotNull private final Map<ResourceType, Set<ResourceItem>> myPublicResources = new EnumMap<>(ResourceType.class);
+  /**
+   * Resources loaded from memory-mapped cache files. Their items are created when they are looked up, and are not included in
+   * {@link #myResources}. Modified only while the repository is being loaded.
+   */
+  @NotNull protected final List<MappedResourceTable> myMappedResources = new ArrayList<>();
+  /** Resources of {@link #myMappedResources} combined with the ones of {@link #myResources}, created on demand. */
+  @NotNull private final Map<ResourceType, ListMultimap<String, ResourceItem>> myCombinedResources = new ConcurrentHashMap<>();
+  @NotNull private final Map<ResourceType, Set<ResourceItem>> myPublicResources = new ConcurrentHashMap<>();
   @Nullable protected final String myLibraryName;
 
   AbstractAarResourceRepository(@NotNull ResourceNamespace namespace, @Nullable String libraryName) {
@@ -57,7 +69,52 @@ public abstract class AbstractAarResourceRepository extends AbstractResourceRepo
     if (!namespace.equals(myNamespace)) {
       return ImmutableListMultimap.of();
     }
-    return myResources.getOrDefault(resourceType, ImmutableListMultimap.of());
+    if (myMappedResources.isEmpty()) {
+      return myResources.getOrDefault(resourceType, ImmutableListMultimap.of());
+    }
+    return myCombinedResources.computeIfAbsent(resourceType, this::combineResources);
+  }
+
+  @NotNull
+  private ListMultimap<String, ResourceItem> combineResources(@NotNull ResourceType resourceType) {
+    ListMultimap<String, ResourceItem> eagerResources = myResources.get(resourceType);
+    if (eagerResources == null && myMappedResources.size() == 1) {
+      return myMappedResources.get(0).getResources(resourceType);
+    }
+    ImmutableListMultimap.Builder<String, ResourceItem> builder = ImmutableListMultimap.builder();
+    for (MappedResourceTable table : myMappedResources) {
+      builder.putAll(table.getResources(resourceType));
+    }
+    if (eagerResources != null) {
+      builder.putAll(eagerResources);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns the types of the resources in the repository, including the ones in {@link #myMappedResources}.
+   */
+  @NotNull
+  protected final Set<ResourceType> getLoadedResourceTypes() {
+    if (myMappedResources.isEmpty()) {
+      return myResources.keySet();
+    }
+    Set<ResourceType> types = EnumSet.noneOf(ResourceType.class);
+    types.addAll(myResources.keySet());
+    for (MappedResourceTable table : myMappedResources) {
+      types.addAll(table.getResourceTypes());
+    }
+    return types;
+  }
+
+  /**
+   * Discards all loaded resources.
+   */
+  protected final void clearResources() {
+    myResources.clear();
+    myMappedResources.clear();
+    myCombinedResources.clear();
+    myPublicResources.clear();
   }
 
   @NotNull
@@ -72,22 +129,30 @@ public abstract class AbstractAarResourceRepository extends AbstractResourceRepo
 
   /**
    * Populates the {@link #myPublicResources} map. Has to be called after {@link #myResources} has been populated.
+   * When the repository contains {@link #myMappedResources}, public resources are instead found on demand, to avoid creating all
+   * resource items.
    */
   protected final void populatePublicResourcesMap() {
+    if (!myMappedResources.isEmpty()) {
+      return;
+    }
     for (Map.Entry<ResourceType, ListMultimap<String, ResourceItem>> entry : myResources.entrySet()) {
-      ResourceType resourceType = entry.getKey();
-      ImmutableSet.Builder<ResourceItem> setBuilder = null;
-      ListMultimap<String, ResourceItem> items = entry.getValue();
-      for (ResourceItem item : items.values()) {
-        if (((ResourceItemWithVisibility)item).getVisibility() == ResourceVisibility.PUBLIC) {
-          if (setBuilder == null) {
-            setBuilder = ImmutableSet.builder();
-          }
-          setBuilder.add(item);
+      myPublicResources.put(entry.getKey(), findPublicResources(entry.getValue()));
+    }
+  }
+
+  @NotNull
+  private static Set<ResourceItem> findPublicResources(@NotNull ListMultimap<String, ResourceItem> items) {
+    ImmutableSet.Builder<ResourceItem> setBuilder = null;
+    for (ResourceItem item : items.values()) {
+      if (((ResourceItemWithVisibility)item).getVisibility() == ResourceVisibility.PUBLIC) {
+        if (setBuilder == null) {
+          setBuilder = ImmutableSet.builder();
         }
+        setBuilder.add(item);
       }
-      myPublicResources.put(resourceType, setBuilder == null ? ImmutableSet.of() : setBuilder.build());
     }
+    return setBuilder == null ? ImmutableSet.of() : setBuilder.build();
   }
 
   /**
@@ -103,7 +168,14 @@ public abstract class AbstractAarResourceRepository extends AbstractResourceRepo
   @NotNull
   public ResourceVisitor.VisitResult accept(@NotNull ResourceVisitor visitor) {
     if (visitor.shouldVisitNamespace(myNamespace)) {
-      if (AbstractResourceRepository.acceptByResources(myResources, visitor) == ResourceVisitor.VisitResult.ABORT) {
+      Map<ResourceType, ListMultimap<String, ResourceItem>> resources = myResources;
+      if (!myMappedResources.isEmpty()) {
+        resources = new EnumMap<>(ResourceType.class);
+        for (ResourceType type : getLoadedResourceTypes()) {
+          resources.put(type, getResourcesInternal(myNamespace, type));
+        }
+      }
+      if (AbstractResourceRepository.acceptByResources(resources, visitor) == ResourceVisitor.VisitResult.ABORT) {
         return ResourceVisitor.VisitResult.ABORT;
       }
     }
@@ -116,11 +188,40 @@ public abstract class AbstractAarResourceRepository extends AbstractResourceRepo
   @NotNull
   public List<ResourceItem> getResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType,
                                          @NotNull String resourceName) {
+    if (!myMappedResources.isEmpty() && namespace.equals(myNamespace) && !myCombinedResources.containsKey(resourceType)) {
+      return getResourcesFromMappedTables(resourceType, resourceName);
+    }
     ListMultimap<String, ResourceItem> map = getResourcesInternal(namespace, resourceType);
     List<ResourceItem> items = map.get(resourceName);
     return items == null ? ImmutableList.of() : items;
   }
 
+  /**
+   * Looks up resources by name without creating the other resource items of the memory-mapped tables.
+   */
+  @NotNull
+  private List<ResourceItem> getResourcesFromMappedTables(@NotNull ResourceType resourceType, @NotNull String resourceName) {
+    List<List<ResourceItem>> found = new ArrayList<>();
+    for (MappedResourceTable table : myMappedResources) {
+      List<ResourceItem> items = table.getResources(resourceType, resourceName);
+      if (!items.isEmpty()) {
+        found.add(items);
+      }
+    }
+    ListMultimap<String, ResourceItem> eagerResources = myResources.get(resourceType);
+    if (eagerResources != null && eagerResources.containsKey(resourceName)) {
+      found.add(eagerResources.get(resourceName));
+    }
+    switch (found.size()) {
+      case 0:
+        return ImmutableList.of();
+      case 1:
+        return found.get(0);
+      default:
+        return ImmutableList.copyOf(Iterables.concat(found));
+    }
+  }
+
   @Override
   @NotNull
   public ListMultimap<String, ResourceItem> getResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType) {
@@ -134,6 +235,9 @@ public abstract class AbstractAarResourceRepository extends AbstractResourceRepo
       return Collections.emptySet();
     }
     Set<ResourceItem> resourceItems = myPublicResources.get(type);
+    if (resourceItems == null && !myMappedResources.isEmpty()) {
+      resourceItems = myPublicResources.computeIfAbsent(type, t -> findPublicResources(getResourcesInternal(namespace, t)));
+    }
     return resourceItems == null ? Collections.emptySet() : resourceItems;
   }
 
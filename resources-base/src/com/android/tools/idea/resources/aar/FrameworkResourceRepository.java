@@ -29,6 +29,7 @@ import com.android.tools.idea.resources.base.Base128OutputStream;
 import com.android.tools.idea.resources.base.BasicResourceItem;
 import com.android.tools.idea.resources.base.BasicResourceItemBase;
 import com.android.tools.idea.resources.base.BasicValueResourceItemBase;
+import com.android.tools.idea.resources.base.MappedResourceTable;
 import com.android.tools.idea.resources.base.NamespaceResolver;
 import com.android.tools.idea.resources.base.RepositoryConfiguration;
 import com.android.tools.idea.resources.base.RepositoryLoader;
@@ -105,10 +106,19 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
   @NotNull
   public static FrameworkResourceRepository create(@NotNull Path resourceDirectoryOrFile, @Nullable Set<String> languagesToLoad,
                                                    @Nullable CachingData cachingData, boolean useCompiled9Patches) {
+    return create(resourceDirectoryOrFile, languagesToLoad, cachingData, useCompiled9Patches, true);
+  }
+
+  /**
+   * Same as {@link #create(Path, Set, CachingData, boolean)}, optionally parsing the resource files on a single thread.
+   */
+  @NotNull
+  static FrameworkResourceRepository create(@NotNull Path resourceDirectoryOrFile, @Nullable Set<String> languagesToLoad,
+                                            @Nullable CachingData cachingData, boolean useCompiled9Patches, boolean loadInParallel) {
     long start = LOG.isDebugEnabled() ? System.currentTimeMillis() : 0;
     Set<String> languageGroups = languagesToLoad == null ? null : getLanguageGroups(languagesToLoad);
 
-    Loader loader = new Loader(resourceDirectoryOrFile, languageGroups);
+    Loader loader = new Loader(resourceDirectoryOrFile, languageGroups, loadInParallel);
     FrameworkResourceRepository repository = new FrameworkResourceRepository(loader, useCompiled9Patches);
 
     repository.load(null, cachingData, loader, languageGroups, loader.myLoadedLanguageGroups);
@@ -163,17 +173,15 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
                     @NotNull Loader loader,
                     @Nullable Set<String> languageGroups,
                     @NotNull Set<String> languageGroupsLoadedFromSourceRepositoryOrCache) {
-    Map<String, String> stringCache = Maps.newHashMapWithExpectedSize(10000);
     Map<NamespaceResolver, NamespaceResolver> namespaceResolverCache = new HashMap<>();
     Set<RepositoryConfiguration> configurationsToTakeOver =
-        sourceRepository == null ? ImmutableSet.of() : copyFromRepository(sourceRepository, stringCache, namespaceResolverCache);
+        sourceRepository == null ? ImmutableSet.of() : copyFromRepository(sourceRepository, namespaceResolverCache);
 
     // If not loading from a jar file, try to load from a cache file first. A separate cache file is not used
     // when loading from framework_res.jar since it already contains data in the cache format. Loading from
     // framework_res.jar or a cache file is significantly faster than reading individual resource files.
     if (!loader.isLoadingFromZipArchive() && cachingData != null) {
-      loadFromPersistentCache(cachingData, languageGroups, languageGroupsLoadedFromSourceRepositoryOrCache, stringCache,
-                              namespaceResolverCache);
+      loadFromPersistentCache(cachingData, languageGroups, languageGroupsLoadedFromSourceRepositoryOrCache, namespaceResolverCache);
     }
 
     myLanguageGroups.addAll(languageGroupsLoadedFromSourceRepositoryOrCache);
@@ -204,25 +212,23 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
   @Override
   @NotNull
   public Set<ResourceType> getResourceTypes(@NotNull ResourceNamespace namespace) {
-    return namespace == ANDROID_NAMESPACE ? Sets.immutableEnumSet(myResources.keySet()) : ImmutableSet.of();
+    return namespace == ANDROID_NAMESPACE ? Sets.immutableEnumSet(getLoadedResourceTypes()) : ImmutableSet.of();
   }
 
   /**
    * Copies resources from another FrameworkResourceRepository.
    *
    * @param sourceRepository the repository to copy resources from
-   * @param stringCache the string cache to populate with the names of copied resources
    * @param namespaceResolverCache the namespace resolver cache to populate with namespace resolvers referenced by the copied resources
    * @return the {@link RepositoryConfiguration} objects referenced by the copied resources
    */
   @NotNull
   private Set<RepositoryConfiguration> copyFromRepository(@NotNull FrameworkResourceRepository sourceRepository,
-                                                          @NotNull Map<String, String> stringCache,
                                                           @NotNull Map<NamespaceResolver, NamespaceResolver> namespaceResolverCache) {
     Collection<ListMultimap<String, ResourceItem>> resourceMaps = sourceRepository.myResources.values();
 
     // Copy resources from the source repository, get AarConfigurations that need to be taken over by this repository,
-    // and pre-populate string and namespace resolver caches.
+    // and pre-populate the namespace resolver cache.
     Set<RepositoryConfiguration> sourceConfigurations = Sets.newIdentityHashSet();
     for (ListMultimap<String, ResourceItem> resourceMap : resourceMaps) {
       for (ResourceItem item : resourceMap.values()) {
@@ -235,18 +241,21 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
               resolver == ResourceNamespace.Resolver.EMPTY_RESOLVER ? NamespaceResolver.EMPTY : (NamespaceResolver)resolver;
           namespaceResolverCache.put(namespaceResolver, namespaceResolver);
         }
-        String name = item.getName();
-        stringCache.put(name, name);
       }
     }
 
+    // Resources loaded from memory-mapped cache files are shared with the source repository.
+    for (MappedResourceTable table : sourceRepository.myMappedResources) {
+      myMappedResources.add(table);
+      sourceConfigurations.addAll(table.getConfigurations());
+    }
+
     myNumberOfLanguageGroupsLoadedFromCache += sourceRepository.myNumberOfLanguageGroupsLoadedFromCache;
     return sourceConfigurations;
   }
 
   private void loadFromPersistentCache(@NotNull CachingData cachingData, @Nullable Set<String> languagesToLoad,
                                           @NotNull Set<String> loadedLanguages,
-                                          @NotNull Map<String, String> stringCache,
                                           @Nullable Map<NamespaceResolver, NamespaceResolver> namespaceResolverCache) {
     CacheFileNameGenerator fileNameGenerator = new CacheFileNameGenerator((cachingData));
     Set<String> languages = languagesToLoad == null ? fileNameGenerator.getAllCacheFileLanguages() : languagesToLoad;
@@ -254,16 +263,17 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
     for (String language : languages) {
       if (!loadedLanguages.contains(language)) {
         Path cacheFile = fileNameGenerator.getCacheFile(language);
-        try (Base128InputStream stream = new Base128InputStream(cacheFile)) {
+        try {
           byte[] header = ResourceSerializationUtil.getCacheFileHeader(s -> writeCacheHeaderContent(cachingData, language, s));
-          if (!stream.validateContents(header)) {
+          MappedResourceTable table = MappedResourceTable.load(cacheFile, header, this, namespaceResolverCache);
+          if (table == null) {
             // Cache file header doesn't match.
             if (language.isEmpty()) {
               break; // Don't try to load language-specific resources if language-neutral ones could not be loaded.
             }
             continue;
           }
-          loadFromStream(stream, stringCache, namespaceResolverCache);
+          myMappedResources.add(table);
           loadedLanguages.add(language);
           myNumberOfLanguageGroupsLoadedFromCache++;
         }
@@ -274,11 +284,12 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
           }
         }
         catch (Throwable e) {
-          cleanupAfterFailedLoadingFromCache();
-          loadedLanguages.clear();
-          myNumberOfLanguageGroupsLoadedFromCache = 0;
+          // MappedResourceTable.load validates the index of the file before anything is loaded from it. The resources of the language
+          // are loaded from the source files instead, and the file is replaced.
           LOG.warn("Failed to load from cache file " + cacheFile.toString(), e);
-          break;
+          if (language.isEmpty()) {
+            break; // Don't try to load language-specific resources if language-neutral ones could not be loaded.
+          }
         }
       }
     }
@@ -291,7 +302,7 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
         Path cacheFile = fileNameGenerator.getCacheFile(language);
         byte[] header = ResourceSerializationUtil.getCacheFileHeader(stream -> writeCacheHeaderContent(cachingData, language, stream));
         ResourceSerializationUtil.createPersistentCache(
-            cacheFile, header, stream -> writeToStream(stream, config -> language.equals(getLanguageGroup(config))));
+            cacheFile, header, stream -> writeToMappedStream(stream, config -> language.equals(getLanguageGroup(config))));
       }
     }
   }
@@ -350,6 +361,11 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
         languages.add(getLanguageGroup(config));
       }
     }
+    for (MappedResourceTable table : myMappedResources) {
+      for (RepositoryConfiguration configuration : table.getConfigurations()) {
+        languages.add(getLanguageGroup(configuration.getFolderConfiguration()));
+      }
+    }
 
     return languages;
   }
@@ -389,16 +405,18 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
     @NotNull private final Set<String> myLoadedLanguageGroups;
     @Nullable private Set<String> myLanguageGroups;
 
-    Loader(@NotNull Path resourceDirectoryOrFile, @Nullable Set<String> languageGroups) {
+    Loader(@NotNull Path resourceDirectoryOrFile, @Nullable Set<String> languageGroups, boolean loadInParallel) {
       super(resourceDirectoryOrFile, null, ANDROID_NAMESPACE);
       myLanguageGroups = languageGroups;
       myLoadedLanguageGroups = new TreeSet<>();
+      setParallelLoadingEnabled(loadInParallel);
     }
 
     Loader(@NotNull FrameworkResourceRepository sourceRepository, @Nullable Set<String> languageGroups) {
       super(sourceRepository.myResourceDirectoryOrFile, null, ANDROID_NAMESPACE);
       myLanguageGroups = languageGroups;
       myLoadedLanguageGroups = new TreeSet<>(sourceRepository.myLanguageGroups);
+      setParallelLoadingEnabled(true);
     }
 
     @Override
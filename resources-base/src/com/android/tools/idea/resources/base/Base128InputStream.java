@@ -18,6 +18,7 @@ package com.android.tools.idea.resources.base;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
@@ -32,6 +33,9 @@ import org.jetbrains.annotations.Nullable;
  * @see Base128OutputStream
  */
 public final class Base128InputStream extends BufferedInputStream {
+  /** Small, since streams over byte buffers typically read a few short records from a memory-mapped file. */
+  private static final int BYTE_BUFFER_STREAM_BUFFER_SIZE = 512;
+
   @Nullable private Map<String, String> myStringCache;
 
   /**
@@ -52,6 +56,13 @@ public final class Base128InputStream extends BufferedInputStream {
     super(Files.newInputStream(file));
   }
 
+  /**
+   * Reads from the given byte buffer starting at its current position. The position of the buffer is not affected.
+   */
+  public Base128InputStream(@NotNull ByteBuffer buffer) {
+    super(new ByteBufferInputStream(buffer.duplicate()), BYTE_BUFFER_STREAM_BUFFER_SIZE);
+  }
+
   /**
    * If the {@code stringCache} parameter is not null, the {@link #readString()} method will use that cache
    * to avoid returning distinct String instances that are equal to each other.
@@ -235,4 +246,35 @@ public final class Base128InputStream extends BufferedInputStream {
       return new StreamFormatException("Invalid file format");
     }
   }
+
+  private static class ByteBufferInputStream extends InputStream {
+    @NotNull private final ByteBuffer myBuffer;
+
+    ByteBufferInputStream(@NotNull ByteBuffer buffer) {
+      myBuffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return myBuffer.hasRemaining() ? myBuffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(@NotNull byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!myBuffer.hasRemaining()) {
+        return -1;
+      }
+      int n = Math.min(length, myBuffer.remaining());
+      myBuffer.get(bytes, offset, n);
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return myBuffer.remaining();
+    }
+  }
 }
@@ -0,0 +1,532 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.resources.base;
+
+import com.android.ide.common.rendering.api.ResourceNamespace;
+import com.android.ide.common.resources.ResourceItem;
+import com.android.ide.common.resources.configuration.FolderConfiguration;
+import com.android.resources.ResourceType;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.primitives.Ints;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.containers.ObjectIntHashMap;
+import com.intellij.util.io.ByteBufferUtil;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Resources of a {@link LoadableResourceRepository} backed by a memory-mapped cache file. Resource items are created only when they are
+ * looked up, so loading a repository from the cache file costs a few reads of the mapped file, and resources that are never used are not
+ * kept in memory.
+ * <p>
+ * The data following the cache file header is stored as follows:
+ * <ol>
+ *   <li>Size in bytes of the shared data (int32)</li>
+ *   <li>Shared data: folder configurations, value resource files and namespace resolvers, stored as by
+ *       {@link ResourceSerializationUtil#writeResourcesToStream}</li>
+ *   <li>Number of resource types (int32)</li>
+ *   <li>For every resource type: type ordinal, number of resource names, offset of the name table, offset of the sorted name index
+ *       (int32 each)</li>
+ *   <li>Name tables: for every resource name, in the order of the original repository: offset of the name, offset of the first
+ *       resource item, number of resource items, size in bytes of the resource items, CRC32 checksum of the resource items
+ *       (int32 each)</li>
+ *   <li>Sorted name indexes: positions in the name table ordered by UTF-8 bytes of the names (int32 each)</li>
+ *   <li>Names: length of the UTF-8 representation (int32) followed by the UTF-8 bytes</li>
+ *   <li>Resource items, contiguous for every name (see {@link BasicResourceItemBase#serialize})</li>
+ *   <li>Offset of the resource items (int32)</li>
+ *   <li>CRC32 checksum of the data preceding the resource items (int32)</li>
+ * </ol>
+ * Offsets are relative to the end of the cache file header. Fixed-size integers are big-endian.
+ * <p>
+ * Only the data preceding the resource items is checked when the file is loaded, so that most of the mapped file is not read until it
+ * is used. The resource items of a name are checked against their checksum when they are read.
+ */
+public final class MappedResourceTable {
+  private static final Logger LOG = Logger.getInstance(MappedResourceTable.class);
+  private static final int TYPE_ENTRY_SIZE = 16;
+  private static final int NAME_ENTRY_SIZE = 20;
+  private static final ResourceType[] RESOURCE_TYPES = ResourceType.values();
+
+  @NotNull private final Path myFile;
+  @NotNull private final ByteBuffer myBuffer;
+  @NotNull private final List<RepositoryConfiguration> myConfigurations;
+  @NotNull private final List<ResourceSourceFile> mySourceFiles;
+  @NotNull private final List<ResourceNamespace.Resolver> myNamespaceResolvers;
+  @NotNull private final Map<String, String> myStringCache = new ConcurrentHashMap<>();
+  @NotNull private final Set<ResourceType> myResourceTypes = EnumSet.noneOf(ResourceType.class);
+  // The following arrays are indexed by resource type ordinals.
+  @NotNull private final int[] myNameCounts = new int[RESOURCE_TYPES.length];
+  @NotNull private final int[] myNameTableOffsets = new int[RESOURCE_TYPES.length];
+  @NotNull private final int[] mySortedIndexOffsets = new int[RESOURCE_TYPES.length];
+  /** Resource items created so far, by type ordinal and position in the name table. */
+  @NotNull private final AtomicReferenceArray<AtomicReferenceArray<List<ResourceItem>>> myItemsByName =
+      new AtomicReferenceArray<>(RESOURCE_TYPES.length);
+  @NotNull private final AtomicReferenceArray<ListMultimap<String, ResourceItem>> myItemsByType =
+      new AtomicReferenceArray<>(RESOURCE_TYPES.length);
+
+  private MappedResourceTable(@NotNull Path file,
+                              @NotNull ByteBuffer buffer,
+                              @NotNull List<RepositoryConfiguration> configurations,
+                              @NotNull List<ResourceSourceFile> sourceFiles,
+                              @NotNull List<ResourceNamespace.Resolver> namespaceResolvers) {
+    myFile = file;
+    myBuffer = buffer;
+    myConfigurations = configurations;
+    mySourceFiles = sourceFiles;
+    myNamespaceResolvers = namespaceResolvers;
+  }
+
+  /**
+   * Writes resources to the given output stream in the format read by {@link #load}.
+   *
+   * @param resources the resources to write
+   * @param stream the stream to write to
+   * @param configFilter only resources belonging to configurations satisfying this filter are written to the stream
+   */
+  public static void write(@NotNull Map<ResourceType, ListMultimap<String, ResourceItem>> resources,
+                           @NotNull Base128OutputStream stream,
+                           @NotNull Predicate<FolderConfiguration> configFilter) throws IOException {
+    ObjectIntHashMap<String> qualifierStringIndexes = new ObjectIntHashMap<>();
+    ObjectIntHashMap<ResourceSourceFile> sourceFileIndexes = new ObjectIntHashMap<>();
+    ObjectIntHashMap<ResourceNamespace.Resolver> namespaceResolverIndexes = new ObjectIntHashMap<>();
+    List<ResourceType> types = new ArrayList<>();
+    List<List<List<ResourceItem>>> itemsByType = new ArrayList<>();
+
+    for (Map.Entry<ResourceType, ListMultimap<String, ResourceItem>> entry : resources.entrySet()) {
+      ListMultimap<String, ResourceItem> map = entry.getValue();
+      List<List<ResourceItem>> itemsByName = new ArrayList<>();
+      for (String name : map.keySet()) {
+        List<ResourceItem> itemsWithName = new ArrayList<>();
+        for (ResourceItem item : map.get(name)) {
+          if (configFilter.test(item.getConfiguration())) {
+            ResourceSerializationUtil.addToIndexes(item, qualifierStringIndexes, sourceFileIndexes, namespaceResolverIndexes);
+            itemsWithName.add(item);
+          }
+        }
+        if (!itemsWithName.isEmpty()) {
+          itemsByName.add(itemsWithName);
+        }
+      }
+      if (!itemsByName.isEmpty()) {
+        types.add(entry.getKey());
+        itemsByType.add(itemsByName);
+      }
+    }
+
+    ByteArrayOutputStream sharedData = new ByteArrayOutputStream();
+    try (Base128OutputStream sharedDataStream = new Base128OutputStream(sharedData)) {
+      ResourceSerializationUtil.writeIndexes(qualifierStringIndexes, sourceFileIndexes, namespaceResolverIndexes, sharedDataStream);
+    }
+
+    // Serialize names and items first to find out their offsets.
+    ByteArrayOutputStream names = new ByteArrayOutputStream();
+    DataOutputStream namesStream = new DataOutputStream(names);
+    ByteArrayOutputStream items = new ByteArrayOutputStream();
+    List<byte[][]> nameBytesByType = new ArrayList<>(types.size());
+    List<int[]> nameOffsetsByType = new ArrayList<>(types.size());
+    List<int[]> itemOffsetsByType = new ArrayList<>(types.size());
+    List<int[]> itemSizesByType = new ArrayList<>(types.size());
+    try (Base128OutputStream itemsStream = new Base128OutputStream(items)) {
+      for (List<List<ResourceItem>> itemsByName : itemsByType) {
+        byte[][] nameBytes = new byte[itemsByName.size()][];
+        int[] nameOffsets = new int[itemsByName.size()];
+        int[] itemOffsets = new int[itemsByName.size()];
+        int[] itemSizes = new int[itemsByName.size()];
+        for (int i = 0; i < itemsByName.size(); i++) {
+          List<ResourceItem> itemsWithName = itemsByName.get(i);
+          nameBytes[i] = itemsWithName.get(0).getName().getBytes(StandardCharsets.UTF_8);
+          nameOffsets[i] = names.size();
+          namesStream.writeInt(nameBytes[i].length);
+          namesStream.write(nameBytes[i]);
+          itemsStream.flush();
+          itemOffsets[i] = items.size();
+          for (ResourceItem item : itemsWithName) {
+            ((BasicResourceItemBase)item).serialize(itemsStream, qualifierStringIndexes, sourceFileIndexes, namespaceResolverIndexes);
+          }
+          itemsStream.flush();
+          itemSizes[i] = items.size() - itemOffsets[i];
+        }
+        nameBytesByType.add(nameBytes);
+        nameOffsetsByType.add(nameOffsets);
+        itemOffsetsByType.add(itemOffsets);
+        itemSizesByType.add(itemSizes);
+      }
+    }
+    byte[] itemBytes = items.toByteArray();
+
+    int typeTableOffset = Integer.BYTES + sharedData.size();
+    int offset = typeTableOffset + Integer.BYTES + TYPE_ENTRY_SIZE * types.size();
+    int[] nameTableOffsets = new int[types.size()];
+    for (int t = 0; t < types.size(); t++) {
+      nameTableOffsets[t] = offset;
+      offset += (NAME_ENTRY_SIZE + Integer.BYTES) * itemsByType.get(t).size();
+    }
+    int namesOffset = offset;
+    int itemsOffset = namesOffset + names.size();
+    CRC32 checksum = new CRC32();
+
+    // Base128OutputStream doesn't support writing single bytes, so fixed-size integers are written to a byte array first.
+    ByteArrayOutputStream tables = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(tables);
+    out.writeInt(types.size());
+    for (int t = 0; t < types.size(); t++) {
+      int nameCount = itemsByType.get(t).size();
+      out.writeInt(types.get(t).ordinal());
+      out.writeInt(nameCount);
+      out.writeInt(nameTableOffsets[t]);
+      out.writeInt(nameTableOffsets[t] + NAME_ENTRY_SIZE * nameCount);
+    }
+    for (int t = 0; t < types.size(); t++) {
+      List<List<ResourceItem>> itemsByName = itemsByType.get(t);
+      int[] nameOffsets = nameOffsetsByType.get(t);
+      int[] itemOffsets = itemOffsetsByType.get(t);
+      int[] itemSizes = itemSizesByType.get(t);
+      for (int i = 0; i < itemsByName.size(); i++) {
+        out.writeInt(namesOffset + nameOffsets[i]);
+        out.writeInt(itemsOffset + itemOffsets[i]);
+        out.writeInt(itemsByName.get(i).size());
+        out.writeInt(itemSizes[i]);
+        checksum.reset();
+        checksum.update(itemBytes, itemOffsets[i], itemSizes[i]);
+        out.writeInt((int)checksum.getValue());
+      }
+      byte[][] nameBytes = nameBytesByType.get(t);
+      Integer[] sortedIndexes = new Integer[nameBytes.length];
+      for (int i = 0; i < sortedIndexes.length; i++) {
+        sortedIndexes[i] = i;
+      }
+      Arrays.sort(sortedIndexes, (i1, i2) -> compareUtf8(nameBytes[i1], nameBytes[i2]));
+      for (int index : sortedIndexes) {
+        out.writeInt(index);
+      }
+    }
+    byte[] sharedDataSize = Ints.toByteArray(sharedData.size());
+    checksum.reset();
+    checksum.update(sharedDataSize);
+    stream.write(sharedDataSize);
+    for (ByteArrayOutputStream data : Arrays.asList(sharedData, tables, names)) {
+      byte[] bytes = data.toByteArray();
+      checksum.update(bytes);
+      stream.write(bytes);
+    }
+    stream.write(itemBytes);
+    stream.write(Ints.toByteArray(itemsOffset));
+    stream.write(Ints.toByteArray((int)checksum.getValue()));
+  }
+
+  /**
+   * Maps the given cache file and reads the shared data from it. Resource items are read from the file later, when they are looked up.
+   *
+   * @param file the cache file
+   * @param fileHeader the expected cache file header
+   * @param repository the repository the resources belong to
+   * @param namespaceResolverCache the cache used to share namespace resolvers between repositories, or null
+   * @return the table, or null if the file header doesn't match {@code fileHeader}
+   * @throws NoSuchFileException if the cache file does not exist
+   * @throws IOException if the cache file cannot be read or is corrupted
+   */
+  @Nullable
+  public static MappedResourceTable load(@NotNull Path file,
+                                         @NotNull byte[] fileHeader,
+                                         @NotNull LoadableResourceRepository repository,
+                                         @Nullable Map<NamespaceResolver, NamespaceResolver> namespaceResolverCache) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      // Check the header before mapping the file to avoid keeping a stale file mapped until the buffer is garbage collected.
+      ByteBuffer header = ByteBuffer.allocate(fileHeader.length);
+      while (header.hasRemaining() && channel.read(header) >= 0) {}
+      if (header.hasRemaining() || !Arrays.equals(header.array(), fileHeader)) {
+        return null;
+      }
+      long size = channel.size() - fileHeader.length;
+      if (size < 3 * Integer.BYTES || size > Integer.MAX_VALUE) {
+        throw Base128InputStream.StreamFormatException.invalidFormat();
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, fileHeader.length, size);
+    }
+
+    try {
+      return load(file, buffer, repository, namespaceResolverCache);
+    }
+    catch (Throwable e) {
+      unmap(buffer); // The file is about to be replaced with one created from the source files.
+      throw e;
+    }
+  }
+
+  @NotNull
+  private static MappedResourceTable load(@NotNull Path file,
+                                          @NotNull ByteBuffer buffer,
+                                          @NotNull LoadableResourceRepository repository,
+                                          @Nullable Map<NamespaceResolver, NamespaceResolver> namespaceResolverCache) throws IOException {
+    int dataSize = buffer.limit() - 2 * Integer.BYTES;
+    int itemsOffset = buffer.getInt(dataSize);
+    if (itemsOffset < Integer.BYTES || itemsOffset > dataSize) {
+      throw Base128InputStream.StreamFormatException.invalidFormat();
+    }
+    // The resource items are checked when they are read, see readResources.
+    CRC32 checksum = new CRC32();
+    ByteBuffer index = buffer.duplicate();
+    index.limit(itemsOffset);
+    checksum.update(index);
+    if ((int)checksum.getValue() != buffer.getInt(dataSize + Integer.BYTES)) {
+      throw Base128InputStream.StreamFormatException.invalidFormat();
+    }
+    buffer.limit(dataSize);
+
+    try {
+      int sharedDataSize = buffer.getInt(0);
+      buffer.position(Integer.BYTES);
+      List<RepositoryConfiguration> configurations;
+      List<ResourceSourceFile> sourceFiles;
+      List<ResourceNamespace.Resolver> namespaceResolvers;
+      try (Base128InputStream stream = new Base128InputStream(buffer)) {
+        configurations = ResourceSerializationUtil.readConfigurations(stream, repository);
+        sourceFiles = ResourceSerializationUtil.readSourceFiles(stream, repository, configurations);
+        namespaceResolvers = ResourceSerializationUtil.readNamespaceResolvers(stream, namespaceResolverCache);
+      }
+      buffer.position(0);
+
+      MappedResourceTable table = new MappedResourceTable(file, buffer, configurations, sourceFiles, namespaceResolvers);
+      int typeTableOffset = Integer.BYTES + sharedDataSize;
+      int typeCount = buffer.getInt(typeTableOffset);
+      for (int t = 0; t < typeCount; t++) {
+        int entry = typeTableOffset + Integer.BYTES + t * TYPE_ENTRY_SIZE;
+        int ordinal = buffer.getInt(entry);
+        int nameCount = buffer.getInt(entry + 4);
+        int nameTableOffset = buffer.getInt(entry + 8);
+        int sortedIndexOffset = buffer.getInt(entry + 12);
+        if (ordinal < 0 || ordinal >= RESOURCE_TYPES.length || nameCount <= 0 || nameTableOffset < 0 ||
+            sortedIndexOffset < 0 || sortedIndexOffset + (long)nameCount * Integer.BYTES > buffer.limit() ||
+            nameTableOffset + (long)nameCount * NAME_ENTRY_SIZE > buffer.limit() || configurations.isEmpty()) {
+          throw Base128InputStream.StreamFormatException.invalidFormat();
+        }
+        table.myResourceTypes.add(RESOURCE_TYPES[ordinal]);
+        table.myNameCounts[ordinal] = nameCount;
+        table.myNameTableOffsets[ordinal] = nameTableOffset;
+        table.mySortedIndexOffsets[ordinal] = sortedIndexOffset;
+        table.myItemsByName.set(ordinal, new AtomicReferenceArray<>(nameCount));
+        table.validateNameTable(ordinal);
+      }
+      return table;
+    }
+    catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+      throw Base128InputStream.StreamFormatException.invalidFormat();
+    }
+  }
+
+  /**
+   * Checks that the entries of the name table of the given type point to names and resource items inside of the file. The contents of
+   * the resource items are checked when they are read.
+   */
+  private void validateNameTable(int typeOrdinal) throws IOException {
+    int limit = myBuffer.limit();
+    for (int i = 0; i < myNameCounts[typeOrdinal]; i++) {
+      int entry = myNameTableOffsets[typeOrdinal] + i * NAME_ENTRY_SIZE;
+      int nameOffset = myBuffer.getInt(entry);
+      int itemsOffset = myBuffer.getInt(entry + 4);
+      int itemCount = myBuffer.getInt(entry + 8);
+      int itemsSize = myBuffer.getInt(entry + 12);
+      int sortedIndex = myBuffer.getInt(mySortedIndexOffsets[typeOrdinal] + i * Integer.BYTES);
+      if (nameOffset < 0 || nameOffset > limit - Integer.BYTES || nameOffset + Integer.BYTES + (long)myBuffer.getInt(nameOffset) > limit ||
+          itemsOffset < 0 || itemCount <= 0 || itemsSize <= 0 || itemsOffset + (long)itemsSize > limit ||
+          sortedIndex < 0 || sortedIndex >= myNameCounts[typeOrdinal]) {
+        throw Base128InputStream.StreamFormatException.invalidFormat();
+      }
+    }
+  }
+
+  /**
+   * Releases a mapped file without waiting for the buffer to be garbage collected, since a mapped file cannot be deleted or replaced on
+   * Windows. The buffer must not be read afterwards.
+   */
+  private static void unmap(@NotNull ByteBuffer buffer) {
+    if (!ByteBufferUtil.cleanBuffer(buffer)) {
+      LOG.warn("Unable to unmap " + buffer);
+    }
+  }
+
+  /**
+   * Returns the folder configurations of the resources in the table.
+   */
+  @NotNull
+  public List<RepositoryConfiguration> getConfigurations() {
+    return myConfigurations;
+  }
+
+  /**
+   * Returns the types of the resources in the table.
+   */
+  @NotNull
+  public Set<ResourceType> getResourceTypes() {
+    return Collections.unmodifiableSet(myResourceTypes);
+  }
+
+  /**
+   * Returns the resources with the given type and name. Only the found resources are read from the cache file.
+   */
+  @NotNull
+  public List<ResourceItem> getResources(@NotNull ResourceType type, @NotNull String name) {
+    int nameIndex = findName(type.ordinal(), name.getBytes(StandardCharsets.UTF_8));
+    return nameIndex < 0 ? ImmutableList.of() : getResources(type.ordinal(), nameIndex);
+  }
+
+  /**
+   * Returns all resources of the given type, keyed by name in the order of the original repository.
+   */
+  @NotNull
+  public ListMultimap<String, ResourceItem> getResources(@NotNull ResourceType type) {
+    int ordinal = type.ordinal();
+    ListMultimap<String, ResourceItem> result = myItemsByType.get(ordinal);
+    if (result == null) {
+      ImmutableListMultimap.Builder<String, ResourceItem> builder = ImmutableListMultimap.builder();
+      for (int i = 0; i < myNameCounts[ordinal]; i++) {
+        List<ResourceItem> items = getResources(ordinal, i);
+        if (!items.isEmpty()) {
+          builder.putAll(items.get(0).getName(), items);
+        }
+      }
+      result = builder.build();
+      if (!myItemsByType.compareAndSet(ordinal, null, result)) {
+        result = myItemsByType.get(ordinal);
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  private List<ResourceItem> getResources(int typeOrdinal, int nameIndex) {
+    AtomicReferenceArray<List<ResourceItem>> itemsByName = myItemsByName.get(typeOrdinal);
+    List<ResourceItem> items = itemsByName.get(nameIndex);
+    if (items == null) {
+      items = readResources(typeOrdinal, nameIndex);
+      // Make sure that all callers get the same instances of resource items.
+      if (!itemsByName.compareAndSet(nameIndex, null, items)) {
+        items = itemsByName.get(nameIndex);
+      }
+    }
+    return items;
+  }
+
+  @NotNull
+  private List<ResourceItem> readResources(int typeOrdinal, int nameIndex) {
+    int entry = myNameTableOffsets[typeOrdinal] + nameIndex * NAME_ENTRY_SIZE;
+    try {
+      int itemsOffset = myBuffer.getInt(entry + 4);
+      int itemCount = myBuffer.getInt(entry + 8);
+      int itemsSize = myBuffer.getInt(entry + 12);
+      ByteBuffer buffer = myBuffer.duplicate();
+      buffer.limit(itemsOffset + itemsSize);
+      buffer.position(itemsOffset);
+      CRC32 checksum = new CRC32();
+      checksum.update(buffer);
+      if ((int)checksum.getValue() != myBuffer.getInt(entry + 16)) {
+        throw Base128InputStream.StreamFormatException.invalidFormat();
+      }
+      buffer.position(itemsOffset);
+      ImmutableList.Builder<ResourceItem> builder = ImmutableList.builder();
+      try (Base128InputStream stream = new Base128InputStream(buffer)) {
+        stream.setStringCache(myStringCache); // Enable string instance sharing to minimize memory consumption.
+        for (int i = 0; i < itemCount; i++) {
+          builder.add(BasicResourceItemBase.deserialize(stream, myConfigurations, mySourceFiles, myNamespaceResolvers));
+        }
+      }
+      return builder.build();
+    }
+    catch (IOException | RuntimeException e) {
+      LOG.error("Corrupted resource cache file " + myFile, e);
+      return ImmutableList.of();
+    }
+  }
+
+  /**
+   * Returns the position of the given name in the name table of the given type, or -1 if the name is not present.
+   */
+  private int findName(int typeOrdinal, @NotNull byte[] name) {
+    int nameTableOffset = myNameTableOffsets[typeOrdinal];
+    int sortedIndexOffset = mySortedIndexOffsets[typeOrdinal];
+    int low = 0;
+    int high = myNameCounts[typeOrdinal] - 1;
+    try {
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        int nameIndex = myBuffer.getInt(sortedIndexOffset + middle * Integer.BYTES);
+        int comparison = compareName(myBuffer.getInt(nameTableOffset + nameIndex * NAME_ENTRY_SIZE), name);
+        if (comparison < 0) {
+          low = middle + 1;
+        }
+        else if (comparison > 0) {
+          high = middle - 1;
+        }
+        else {
+          return nameIndex;
+        }
+      }
+    }
+    catch (IndexOutOfBoundsException e) {
+      LOG.error("Corrupted resource cache file " + myFile, e);
+    }
+    return -1;
+  }
+
+  /**
+   * Compares the name stored at the given offset with the given UTF-8 bytes the same way as {@link #compareUtf8}.
+   */
+  private int compareName(int nameOffset, @NotNull byte[] name) {
+    int length = myBuffer.getInt(nameOffset);
+    int n = Math.min(length, name.length);
+    for (int i = 0; i < n; i++) {
+      int diff = (myBuffer.get(nameOffset + Integer.BYTES + i) & 0xFF) - (name[i] & 0xFF);
+      if (diff != 0) {
+        return diff;
+      }
+    }
+    return length - name.length;
+  }
+
+  private static int compareUtf8(@NotNull byte[] name1, @NotNull byte[] name2) {
+    int n = Math.min(name1.length, name2.length);
+    for (int i = 0; i < n; i++) {
+      int diff = (name1[i] & 0xFF) - (name2[i] & 0xFF);
+      if (diff != 0) {
+        return diff;
+      }
+    }
+    return name1.length - name2.length;
+  }
+}
@@ -106,6 +106,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -115,8 +117,10 @@ import org.kxml2.io.KXmlParser;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
-public abstract class RepositoryLoader<T extends LoadableResourceRepository> implements FileFilter {
+public abstract class RepositoryLoader<T extends LoadableResourceRepository> implements FileFilter, Cloneable {
   private static final Logger LOG = Logger.getInstance(RepositoryLoader.class);
+  /** The maximum number of resource files parsed by one task when loading in parallel. */
+  private static final int MAX_FILES_PER_SHARD = 32;
   /** The set of attribute formats that is used when no formats are explicitly specified and the attribute is not a flag or enum. */
   private final Set<AttributeFormat> DEFAULT_ATTR_FORMATS = Sets.immutableEnumSet(
       AttributeFormat.BOOLEAN,
@@ -130,19 +134,26 @@ public abstract class RepositoryLoader<T extends LoadableResourceRepository> imp
   private final PatternBasedFileFilter myFileFilter = new PatternBasedFileFilter();
 
   @NotNull private final Map<ResourceType, Set<String>> myPublicResources = new EnumMap<>(ResourceType.class);
-  @NotNull private final ListMultimap<String, BasicAttrResourceItem> myAttrs = ArrayListMultimap.create();
-  @NotNull private final ListMultimap<String, BasicAttrResourceItem> myAttrCandidates = ArrayListMultimap.create();
-  @NotNull private final ListMultimap<String, BasicStyleableResourceItem> myStyleables = ArrayListMultimap.create();
+  // The parsers and the intermediate results of parsing are not final since every worker copy of the loader
+  // gets its own ones when loading in parallel, see createWorker.
+  @NotNull private ListMultimap<String, BasicAttrResourceItem> myAttrs = ArrayListMultimap.create();
+  @NotNull private ListMultimap<String, BasicAttrResourceItem> myAttrCandidates = ArrayListMultimap.create();
+  @NotNull private ListMultimap<String, BasicStyleableResourceItem> myStyleables = ArrayListMultimap.create();
   @NotNull protected ResourceVisibility myDefaultVisibility = ResourceVisibility.PRIVATE;
   /** Cache of FolderConfiguration instances, keyed by qualifier strings (see {@link FolderConfiguration#getQualifierString()}). */
   @NotNull protected final Map<String, FolderConfiguration> myFolderConfigCache = new HashMap<>();
   @NotNull private final Map<FolderConfiguration, RepositoryConfiguration> myConfigCache = new HashMap<>();
-  @NotNull private final ValueResourceXmlParser myParser = new ValueResourceXmlParser();
-  @NotNull private final XmlTextExtractor myTextExtractor = new XmlTextExtractor();
-  @NotNull private final ResourceUrlParser myUrlParser = new ResourceUrlParser();
+  @NotNull private ValueResourceXmlParser myParser = new ValueResourceXmlParser();
+  @NotNull private XmlTextExtractor myTextExtractor = new XmlTextExtractor();
+  @NotNull private ResourceUrlParser myUrlParser = new ResourceUrlParser();
   // Used to keep track of resources defined in the current value resource file.
-  @NotNull private final Table<ResourceType, String, BasicValueResourceItemBase> myValueFileResources =
-      Tables.newCustomTable(new EnumMap<>(ResourceType.class), () -> new LinkedHashMap<>());
+  @NotNull private Table<ResourceType, String, BasicValueResourceItemBase> myValueFileResources = createValueFileResourcesTable();
+  // Resource items created by a worker copy of the loader, added to the repository by the original loader in the order of
+  // resource files. Null unless this is a worker.
+  @Nullable private List<BasicResourceItemBase> myWorkerItems;
+  // ID resources created by a worker copy of the loader that are added to the repository only if not already defined.
+  @Nullable private Set<BasicResourceItemBase> myWorkerIdItems;
+  private boolean myParallelLoadingEnabled;
   @NotNull protected final Path myResourceDirectoryOrFile;
   @NotNull private final PathString myResourceDirectoryOrFilePath;
   private final boolean myLoadingFromZipArchive;
@@ -183,18 +194,31 @@ public abstract class RepositoryLoader<T extends LoadableResourceRepository> imp
     }
   }
 
+  /**
+   * Enables parsing of resource files on multiple threads. Resource files are split into shards of files belonging to the same
+   * resource folder, parsed by worker copies of this loader, and the resulting resources are added to the repository in the same
+   * order as when loading sequentially.
+   * <p>
+   * The worker copies share the state of the subclass, so subclasses enabling parallel loading must not modify their state while
+   * resource files are being parsed, and must not rely on resources being added to the repository while parsing.
+   */
+  protected final void setParallelLoadingEnabled(boolean enabled) {
+    myParallelLoadingEnabled = enabled;
+  }
+
   protected void loadFromZip(@NotNull T repository) {
     try (ZipFile zipFile = new ZipFile(myResourceDirectoryOrFile.toFile())) {
       myZipFile = zipFile;
       loadPublicResourceNames();
       boolean shouldParseResourceIds = !loadIdsFromRTxt();
 
+      List<PathString> resourceFiles = new ArrayList<>();
       zipFile.stream().forEach(zipEntry -> {
         if (!zipEntry.isDirectory()) {
-          PathString path = new PathString(zipEntry.getName());
-          loadResourceFile(path, repository, shouldParseResourceIds);
+          resourceFiles.add(new PathString(zipEntry.getName()));
         }
       });
+      loadResourceFiles(resourceFiles, repository, shouldParseResourceIds);
     }
     catch (Exception e) {
       LOG.error("Failed to load resources from " + myResourceDirectoryOrFile.toString(), e);
@@ -219,9 +243,7 @@ public abstract class RepositoryLoader<T extends LoadableResourceRepository> imp
                                          ImmutableList.of(myResourceDirectoryOrFile) :
                                          myResourceFilesAndFolders.stream().map(PathString::toPath).collect(Collectors.toList());
       List<PathString> resourceFiles = findResourceFiles(sourceFilesAndFolders);
-      for (PathString file : resourceFiles) {
-        loadResourceFile(file, repository, shouldParseResourceIds);
-      }
+      loadResourceFiles(resourceFiles, repository, shouldParseResourceIds);
     }
     catch (Exception e) {
       LOG.error("Failed to load resources from " + myResourceDirectoryOrFile.toString(), e);
@@ -241,6 +263,97 @@ public abstract class RepositoryLoader<T extends LoadableResourceRepository> imp
     }
   }
 
+  private void loadResourceFiles(@NotNull List<PathString> files, @NotNull T repository, boolean shouldParseResourceIds) {
+    if (!myParallelLoadingEnabled || files.size() <= MAX_FILES_PER_SHARD) {
+      for (PathString file : files) {
+        loadResourceFile(file, repository, shouldParseResourceIds);
+      }
+      return;
+    }
+
+    // Folder information and configurations are computed upfront since their caches are not thread-safe.
+    List<Shard> shards = new ArrayList<>();
+    Shard shard = null;
+    for (PathString file : files) {
+      String folderName = file.getParentFileName();
+      if (folderName == null) {
+        continue;
+      }
+      if (shard == null || !folderName.equals(shard.folderName) || shard.files.size() >= MAX_FILES_PER_SHARD) {
+        FolderInfo folderInfo = FolderInfo.create(folderName, myFolderConfigCache);
+        if (folderInfo == null) {
+          continue;
+        }
+        shard = new Shard(folderName, folderInfo, getConfiguration(repository, folderInfo.configuration));
+        shards.add(shard);
+      }
+      shard.files.add(file);
+    }
+
+    List<ForkJoinTask<RepositoryLoader<T>>> tasks = new ArrayList<>(shards.size());
+    for (Shard shardToParse : shards) {
+      tasks.add(ParallelLoadingPool.INSTANCE.submit(() -> {
+        RepositoryLoader<T> worker = createWorker();
+        for (PathString file : shardToParse.files) {
+          worker.loadResourceFile(file, shardToParse.folderInfo, shardToParse.configuration, shouldParseResourceIds);
+        }
+        return worker;
+      }));
+    }
+    // Merge the results in the order of the shards while the remaining shards are still being parsed.
+    for (ForkJoinTask<RepositoryLoader<T>> task : tasks) {
+      mergeWorkerResults(task.join());
+    }
+  }
+
+  /**
+   * Creates a copy of this loader for parsing resource files on a worker thread. The copy has its own parsers and collects
+   * the parsed resources instead of adding them to the repository.
+   */
+  @SuppressWarnings("unchecked")
+  @NotNull
+  private RepositoryLoader<T> createWorker() {
+    RepositoryLoader<T> worker;
+    try {
+      worker = (RepositoryLoader<T>)clone();
+    }
+    catch (CloneNotSupportedException e) {
+      throw new AssertionError(e);
+    }
+    worker.myParser = new ValueResourceXmlParser();
+    worker.myTextExtractor = new XmlTextExtractor();
+    worker.myUrlParser = new ResourceUrlParser();
+    worker.myValueFileResources = createValueFileResourcesTable();
+    worker.myAttrs = ArrayListMultimap.create();
+    worker.myAttrCandidates = ArrayListMultimap.create();
+    worker.myStyleables = ArrayListMultimap.create();
+    worker.myWorkerItems = new ArrayList<>();
+    worker.myWorkerIdItems = Sets.newIdentityHashSet();
+    return worker;
+  }
+
+  private void mergeWorkerResults(@NotNull RepositoryLoader<T> worker) {
+    assert worker.myWorkerItems != null && worker.myWorkerIdItems != null;
+    for (BasicResourceItemBase item : worker.myWorkerItems) {
+      // Duplicate IDs are checked here rather than by the worker, since the worker doesn't see the resources of the preceding shards.
+      if (!worker.myWorkerIdItems.contains(item) || !resourceAlreadyDefined(item)) {
+        addResourceItem(item);
+      }
+    }
+    for (BasicAttrResourceItem attr : worker.myAttrs.values()) {
+      addAttr(attr, myAttrs);
+    }
+    for (BasicAttrResourceItem attr : worker.myAttrCandidates.values()) {
+      addAttr(attr, myAttrCandidates);
+    }
+    myStyleables.putAll(worker.myStyleables);
+  }
+
+  @NotNull
+  private static Table<ResourceType, String, BasicValueResourceItemBase> createValueFileResourcesTable() {
+    return Tables.newCustomTable(new EnumMap<>(ResourceType.class), () -> new LinkedHashMap<>());
+  }
+
   protected void finishLoading(@NotNull T repository) {
     processAttrsAndStyleables();
   }
@@ -455,7 +568,12 @@ public abstract class RepositoryLoader<T extends LoadableResourceRepository> imp
 
   @SuppressWarnings("unchecked")
   private void addResourceItem(@NotNull BasicResourceItemBase item) {
-    addResourceItem(item, (T)item.getRepository());
+    if (myWorkerItems == null) {
+      addResourceItem(item, (T)item.getRepository());
+    }
+    else {
+      myWorkerItems.add(item);
+    }
   }
 
   protected abstract void addResourceItem(@NotNull BasicResourceItem item, @NotNull T repository);
@@ -585,7 +703,11 @@ public abstract class RepositoryLoader<T extends LoadableResourceRepository> imp
   protected final void addIdResourceItem(@NotNull String resourceName, @NotNull ResourceSourceFile sourceFile) {
     ResourceVisibility visibility = getVisibility(ResourceType.ID, resourceName);
     BasicValueResourceItem item = new BasicValueResourceItem(ResourceType.ID, resourceName, sourceFile, visibility, null);
-    if (!resourceAlreadyDefined(item)) { // Don't create duplicate ID resources.
+    if (myWorkerIdItems != null) {
+      myWorkerIdItems.add(item); // Checked for duplicates when merged, see mergeWorkerResults.
+      addValueResourceItem(item);
+    }
+    else if (!resourceAlreadyDefined(item)) { // Don't create duplicate ID resources.
       addValueResourceItem(item);
     }
   }
@@ -1111,6 +1233,29 @@ public abstract class RepositoryLoader<T extends LoadableResourceRepository> imp
     return fileName.replace(File.separatorChar, '/');
   }
 
+  /**
+   * Consecutive resource files from the same resource folder, parsed by one task when loading in parallel.
+   */
+  private static class Shard {
+    @NotNull final String folderName;
+    @NotNull final FolderInfo folderInfo;
+    @NotNull final RepositoryConfiguration configuration;
+    @NotNull final List<PathString> files = new ArrayList<>();
+
+    Shard(@NotNull String folderName, @NotNull FolderInfo folderInfo, @NotNull RepositoryConfiguration configuration) {
+      this.folderName = folderName;
+      this.folderInfo = folderInfo;
+      this.configuration = configuration;
+    }
+  }
+
+  /**
+   * The pool parsing resource files when loading in parallel, shared by all loaders. Created on first use.
+   */
+  private static class ParallelLoadingPool {
+    static final ForkJoinPool INSTANCE = new ForkJoinPool(Math.max(Runtime.getRuntime().availableProcessors() - 1, 1));
+  }
+
   private interface XmlTagVisitor {
     /** Is called when the parser is positioned at a {@link XmlPullParser#START_TAG}. */
     void visitTag() throws IOException, XmlPullParserException;
@@ -122,39 +122,14 @@ public class ResourceSerializationUtil {
 
     for (ListMultimap<String, ResourceItem> resourceMap : resourceMaps) {
       for (ResourceItem item : resourceMap.values()) {
-        FolderConfiguration configuration = item.getConfiguration();
-        if (configFilter.test(configuration)) {
-          String qualifier = configuration.getQualifierString();
-          if (!qualifierStringIndexes.containsKey(qualifier)) {
-            qualifierStringIndexes.put(qualifier, qualifierStringIndexes.size());
-          }
-          if (item instanceof BasicValueResourceItemBase) {
-            ResourceSourceFile sourceFile = ((BasicValueResourceItemBase)item).getSourceFile();
-            if (!sourceFileIndexes.containsKey(sourceFile)) {
-              sourceFileIndexes.put(sourceFile, sourceFileIndexes.size());
-            }
-          }
-          if (item instanceof ResourceValue) {
-            addToNamespaceResolverIndexes(((ResourceValue)item).getNamespaceResolver(), namespaceResolverIndexes);
-          }
-          if (item instanceof BasicStyleResourceItem) {
-            for (StyleItemResourceValue styleItem : ((BasicStyleResourceItem)item).getDefinedItems()) {
-              addToNamespaceResolverIndexes(styleItem.getNamespaceResolver(), namespaceResolverIndexes);
-            }
-          }
-          else if (item instanceof BasicStyleableResourceItem) {
-            for (AttrResourceValue attr : ((BasicStyleableResourceItem)item).getAllAttributes()) {
-              addToNamespaceResolverIndexes(attr.getNamespaceResolver(), namespaceResolverIndexes);
-            }
-          }
+        if (configFilter.test(item.getConfiguration())) {
+          addToIndexes(item, qualifierStringIndexes, sourceFileIndexes, namespaceResolverIndexes);
           itemCount++;
         }
       }
     }
 
-    writeStrings(qualifierStringIndexes, stream);
-    writeSourceFiles(sourceFileIndexes, stream, qualifierStringIndexes);
-    writeNamespaceResolvers(namespaceResolverIndexes, stream);
+    writeIndexes(qualifierStringIndexes, sourceFileIndexes, namespaceResolverIndexes, stream);
 
     stream.writeInt(itemCount);
 
@@ -168,6 +143,51 @@ public class ResourceSerializationUtil {
     }
   }
 
+  /**
+   * Adds the folder configuration, the value resource file and the namespace resolvers used by the given resource item to the indexes
+   * passed to {@link BasicResourceItemBase#serialize}.
+   */
+  static void addToIndexes(@NotNull ResourceItem item,
+                           @NotNull ObjectIntHashMap<String> qualifierStringIndexes,
+                           @NotNull ObjectIntHashMap<ResourceSourceFile> sourceFileIndexes,
+                           @NotNull ObjectIntHashMap<ResourceNamespace.Resolver> namespaceResolverIndexes) {
+    String qualifier = item.getConfiguration().getQualifierString();
+    if (!qualifierStringIndexes.containsKey(qualifier)) {
+      qualifierStringIndexes.put(qualifier, qualifierStringIndexes.size());
+    }
+    if (item instanceof BasicValueResourceItemBase) {
+      ResourceSourceFile sourceFile = ((BasicValueResourceItemBase)item).getSourceFile();
+      if (!sourceFileIndexes.containsKey(sourceFile)) {
+        sourceFileIndexes.put(sourceFile, sourceFileIndexes.size());
+      }
+    }
+    if (item instanceof ResourceValue) {
+      addToNamespaceResolverIndexes(((ResourceValue)item).getNamespaceResolver(), namespaceResolverIndexes);
+    }
+    if (item instanceof BasicStyleResourceItem) {
+      for (StyleItemResourceValue styleItem : ((BasicStyleResourceItem)item).getDefinedItems()) {
+        addToNamespaceResolverIndexes(styleItem.getNamespaceResolver(), namespaceResolverIndexes);
+      }
+    }
+    else if (item instanceof BasicStyleableResourceItem) {
+      for (AttrResourceValue attr : ((BasicStyleableResourceItem)item).getAllAttributes()) {
+        addToNamespaceResolverIndexes(attr.getNamespaceResolver(), namespaceResolverIndexes);
+      }
+    }
+  }
+
+  /**
+   * Writes the folder configurations, value resource files and namespace resolvers collected by {@link #addToIndexes}.
+   */
+  static void writeIndexes(@NotNull ObjectIntHashMap<String> qualifierStringIndexes,
+                           @NotNull ObjectIntHashMap<ResourceSourceFile> sourceFileIndexes,
+                           @NotNull ObjectIntHashMap<ResourceNamespace.Resolver> namespaceResolverIndexes,
+                           @NotNull Base128OutputStream stream) throws IOException {
+    writeStrings(qualifierStringIndexes, stream);
+    writeSourceFiles(sourceFileIndexes, stream, qualifierStringIndexes);
+    writeNamespaceResolvers(namespaceResolverIndexes, stream);
+  }
+
   private static void addToNamespaceResolverIndexes(@NotNull ResourceNamespace.Resolver resolver,
                                                     @NotNull ObjectIntHashMap<ResourceNamespace.Resolver> namespaceResolverIndexes) {
     if (!namespaceResolverIndexes.containsKey(resolver)) {
@@ -186,10 +206,27 @@ public class ResourceSerializationUtil {
                                              @NotNull Consumer<BasicResourceItem> resourceConsumer) throws IOException {
     stream.setStringCache(stringCache); // Enable string instance sharing to minimize memory consumption.
 
-    int n = stream.readInt();
-    if (n == 0) {
+    List<RepositoryConfiguration> configurations = readConfigurations(stream, repository);
+    if (configurations.isEmpty()) {
       return; // Nothing to load.
     }
+    List<ResourceSourceFile> newSourceFiles = readSourceFiles(stream, repository, configurations);
+    List<ResourceNamespace.Resolver> newNamespaceResolvers = readNamespaceResolvers(stream, namespaceResolverCache);
+
+    int n = stream.readInt();
+    for (int i = 0; i < n; i++) {
+      BasicResourceItemBase item = BasicResourceItemBase.deserialize(stream, configurations, newSourceFiles, newNamespaceResolvers);
+      resourceConsumer.accept(item);
+    }
+  }
+
+  /**
+   * Reads the folder configurations written by {@link #writeIndexes}.
+   */
+  @NotNull
+  static List<RepositoryConfiguration> readConfigurations(@NotNull Base128InputStream stream,
+                                                          @NotNull LoadableResourceRepository repository) throws IOException {
+    int n = stream.readInt();
     List<RepositoryConfiguration> configurations = new ArrayList<>(n);
     for (int i = 0; i < n; i++) {
       String configQualifier = stream.readString();
@@ -202,29 +239,40 @@ public class ResourceSerializationUtil {
       }
       configurations.add(new RepositoryConfiguration(repository, folderConfig));
     }
+    return configurations;
+  }
 
-    n = stream.readInt();
-    List<ResourceSourceFile> newSourceFiles = new ArrayList<>(n);
+  /**
+   * Reads the value resource files written by {@link #writeIndexes}.
+   */
+  @NotNull
+  static List<ResourceSourceFile> readSourceFiles(@NotNull Base128InputStream stream,
+                                                  @NotNull LoadableResourceRepository repository,
+                                                  @NotNull List<RepositoryConfiguration> configurations) throws IOException {
+    int n = stream.readInt();
+    List<ResourceSourceFile> sourceFiles = new ArrayList<>(n);
     for (int i = 0; i < n; i++) {
-      ResourceSourceFile sourceFile = repository.deserializeResourceSourceFile(stream, configurations);
-      newSourceFiles.add(sourceFile);
+      sourceFiles.add(repository.deserializeResourceSourceFile(stream, configurations));
     }
+    return sourceFiles;
+  }
 
-    n = stream.readInt();
-    List<ResourceNamespace.Resolver> newNamespaceResolvers = new ArrayList<>(n);
+  /**
+   * Reads the namespace resolvers written by {@link #writeIndexes}.
+   */
+  @NotNull
+  static List<ResourceNamespace.Resolver> readNamespaceResolvers(
+      @NotNull Base128InputStream stream, @Nullable Map<NamespaceResolver, NamespaceResolver> namespaceResolverCache) throws IOException {
+    int n = stream.readInt();
+    List<ResourceNamespace.Resolver> namespaceResolvers = new ArrayList<>(n);
     for (int i = 0; i < n; i++) {
       NamespaceResolver namespaceResolver = NamespaceResolver.deserialize(stream);
       if (namespaceResolverCache != null) {
         namespaceResolver = namespaceResolverCache.computeIfAbsent(namespaceResolver, Function.identity());
       }
-      newNamespaceResolvers.add(namespaceResolver);
-    }
-
-    n = stream.readInt();
-    for (int i = 0; i < n; i++) {
-      BasicResourceItemBase item = BasicResourceItemBase.deserialize(stream, configurations, newSourceFiles, newNamespaceResolvers);
-      resourceConsumer.accept(item);
+      namespaceResolvers.add(namespaceResolver);
     }
+    return namespaceResolvers;
   }
 
   /**
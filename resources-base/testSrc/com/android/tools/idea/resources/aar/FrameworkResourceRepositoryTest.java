@@ -44,6 +44,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -306,6 +307,78 @@ public class FrameworkResourceRepositoryTest extends PlatformTestCase {
     }
   }
 
+  public void testParallelLoadingFromSources() {
+    FrameworkResourceRepository sequential = FrameworkResourceRepository.create(myResourceFolder, null, null, false, false);
+    FrameworkResourceRepository parallel = FrameworkResourceRepository.create(myResourceFolder, null, null, false, true);
+    checkLanguages(parallel, null);
+    compareContents(sequential, parallel);
+    checkContents(parallel);
+  }
+
+  public void testLookupsByNameFromCache() {
+    Set<String> languages = ImmutableSet.of("fr");
+    FrameworkResourceRepository.create(myResourceFolder, languages, createCachingData(directExecutor()), false);
+    FrameworkResourceRepository fromSourceFiles = FrameworkResourceRepository.create(myResourceFolder, languages, null, false);
+    FrameworkResourceRepository fromCache = FrameworkResourceRepository.create(myResourceFolder, languages, createCachingData(null), false);
+    assertThat(fromCache.isLoadedFromCache()).isTrue();
+    assertThat(fromCache.getResourceTypes(ResourceNamespace.ANDROID))
+        .containsExactlyElementsIn(fromSourceFiles.getResourceTypes(ResourceNamespace.ANDROID));
+
+    // Look up resources by name before all resources of their type are read from the cache file.
+    Comparator<ResourceItem> comparator = Comparator
+        .comparing((ResourceItem item) -> item.getConfiguration().getQualifierString())
+        .thenComparing(ResourceItem::getSource);
+    Map<ResourceType, Map<String, List<ResourceItem>>> lookedUp = new HashMap<>();
+    for (ResourceType type : fromSourceFiles.getResourceTypes(ResourceNamespace.ANDROID)) {
+      for (String name : fromSourceFiles.getResources(ResourceNamespace.ANDROID, type).keySet()) {
+        List<ResourceItem> actual = fromCache.getResources(ResourceNamespace.ANDROID, type, name);
+        lookedUp.computeIfAbsent(type, t -> new HashMap<>()).put(name, actual);
+        List<ResourceItem> expectedItems = new ArrayList<>(fromSourceFiles.getResources(ResourceNamespace.ANDROID, type, name));
+        List<ResourceItem> actualItems = new ArrayList<>(actual);
+        assertWithMessage(type + "/" + name).that(actualItems.size()).isEqualTo(expectedItems.size());
+        expectedItems.sort(comparator);
+        actualItems.sort(comparator);
+        for (int i = 0; i < expectedItems.size(); i++) {
+          assertThat(actualItems.get(i)).isEquivalentTo(expectedItems.get(i));
+        }
+      }
+      assertThat(fromCache.getResources(ResourceNamespace.ANDROID, type, "nonexistent_resource_name")).isEmpty();
+    }
+
+    // Reading all resources of a type returns the same items as the lookups by name.
+    for (Map.Entry<ResourceType, Map<String, List<ResourceItem>>> entry : lookedUp.entrySet()) {
+      for (Map.Entry<String, List<ResourceItem>> itemsByName : entry.getValue().entrySet()) {
+        List<ResourceItem> items = fromCache.getResources(ResourceNamespace.ANDROID, entry.getKey()).get(itemsByName.getKey());
+        assertThat(items).containsExactlyElementsIn(itemsByName.getValue()).inOrder();
+      }
+    }
+    compareContents(fromSourceFiles, fromCache);
+  }
+
+  public void testCorruptedCacheFile() throws Exception {
+    Set<String> languages = ImmutableSet.of("fr");
+    CachingData cachingData = createCachingData(directExecutor());
+    FrameworkResourceRepository.create(myResourceFolder, languages, cachingData, false);
+
+    // Damage the checksum of the index at the end of the French cache file.
+    Path frenchCacheFile = getCacheFile().resolveSibling("cache_fr.bin");
+    byte[] bytes = Files.readAllBytes(frenchCacheFile);
+    bytes[bytes.length - 1] ^= 0x55;
+    Files.write(frenchCacheFile, bytes);
+
+    FrameworkResourceRepository fromSourceFiles = FrameworkResourceRepository.create(myResourceFolder, languages, null, false);
+    FrameworkResourceRepository withCorruptedCache = FrameworkResourceRepository.create(myResourceFolder, languages, cachingData, false);
+    checkLanguages(withCorruptedCache, languages);
+    assertThat(withCorruptedCache.isLoadedFromCache()).isFalse();
+    assertThat(withCorruptedCache.getNumberOfLanguageGroupsLoadedFromCache()).isEqualTo(1);
+    compareContents(fromSourceFiles, withCorruptedCache);
+
+    // The corrupted cache file was replaced.
+    FrameworkResourceRepository fromCache = FrameworkResourceRepository.create(myResourceFolder, languages, createCachingData(null), false);
+    assertThat(fromCache.isLoadedFromCache()).isTrue();
+    compareContents(fromSourceFiles, fromCache);
+  }
+
   public void testIncrementalLoadingFromJar() throws Exception {
     Path frameworkResJar = getFrameworkResJar();
     FrameworkResourceRepository withFrench = FrameworkResourceRepository.create(frameworkResJar, ImmutableSet.of("fr"), null, false);
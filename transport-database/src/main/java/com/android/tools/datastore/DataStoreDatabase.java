@@ -15,12 +15,19 @@
  */
 package com.android.tools.datastore;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 public class DataStoreDatabase {
@@ -30,6 +37,65 @@ public class DataStoreDatabase {
     PERFORMANT
   }
 
+  /**
+   * Version of the file format of {@link Characteristic#DURABLE} databases, stored in their SQLite user_version. An existing database file
+   * is only reopened if its version matches this one, otherwise it is deleted.
+   * <p>
+   * Table definitions don't need to be versioned here: {@link com.android.tools.datastore.database.DataStoreTable} compares the definition
+   * of every table and index it creates with the one stored in the file, and recreates the ones that changed. This version only needs to
+   * be incremented for changes that aren't visible in a definition, e.g. a different encoding of the data stored in a column.
+   */
+  @VisibleForTesting
+  public static final int SCHEMA_VERSION = 1;
+
+  /**
+   * {@link Characteristic#DURABLE} database files that weren't modified for this long are deleted instead of being reopened, so data
+   * from old runs doesn't accumulate on disk.
+   */
+  @VisibleForTesting
+  public static final long RETENTION_MS = TimeUnit.DAYS.toMillis(7);
+
+  /**
+   * Configures how a {@link Characteristic#DURABLE} database commits its transaction. Instead of holding a single transaction until
+   * {@link #disconnect()}, pending changes are committed as a group when either {@link #myCommitIntervalMs} has elapsed since the last
+   * commit or at least {@link #myCommitRowThreshold} rows have changed, whichever comes first.
+   */
+  public static final class GroupCommitConfig {
+    public static final GroupCommitConfig DEFAULT = new GroupCommitConfig(1000, 10000);
+
+    /**
+     * How often the pending changes are checked, in milliseconds. Bounds how long a commit can be delayed once a threshold is reached,
+     * which in turn bounds how many rows past {@link #myCommitRowThreshold} a burst of inserts can add to a group. A check is cheap:
+     * total_changes() reads a counter SQLite keeps in memory for the connection, so it doesn't touch the disk or take the database lock.
+     * Checking faster than the commit interval is pointless, so short intervals are checked at their own rate instead.
+     */
+    private static final long MAX_CHECK_INTERVAL_MS = 100;
+
+    private final long myCommitIntervalMs;
+    private final long myCommitRowThreshold;
+
+    /**
+     * @param commitIntervalMs    maximum time, in milliseconds, changes can stay uncommitted.
+     * @param commitRowThreshold  number of changed rows that triggers a commit regardless of {@code commitIntervalMs}.
+     */
+    public GroupCommitConfig(long commitIntervalMs, long commitRowThreshold) {
+      myCommitIntervalMs = commitIntervalMs;
+      myCommitRowThreshold = commitRowThreshold;
+    }
+
+    public long getCommitIntervalMs() {
+      return myCommitIntervalMs;
+    }
+
+    public long getCommitRowThreshold() {
+      return myCommitRowThreshold;
+    }
+
+    long getCheckIntervalMs() {
+      return Math.max(1, Math.min(myCommitIntervalMs, MAX_CHECK_INTERVAL_MS));
+    }
+  }
+
   @NotNull
   private LogService.Logger getLogger() {
     return myLogService.getLogger(DataStoreDatabase.class);
@@ -39,6 +105,23 @@ public class DataStoreDatabase {
 
   private final Connection myConnection;
 
+  /**
+   * Timer committing the pending changes of {@link Characteristic#DURABLE} databases. Null for in-memory databases.
+   */
+  @Nullable private final Timer myCommitTimer;
+
+  /**
+   * Whether an existing database file, with a matching {@link #SCHEMA_VERSION}, was reopened.
+   */
+  private boolean myReopened;
+
+  /**
+   * Number of rows changed on the connection when the last commit happened. See SQLite's total_changes().
+   */
+  private long myLastCommitChanges;
+
+  private long myLastCommitTimeMs;
+
   /**
    * @param dbPath the path to the backing DB file, if {@link Characteristic#DURABLE}.
    */
@@ -52,8 +135,17 @@ public class DataStoreDatabase {
                            @NotNull Characteristic characteristic,
                            @NotNull LogService logService,
                            @NotNull Consumer<Throwable> noPiiExceptionHandler) {
+    this(dbPath, characteristic, logService, noPiiExceptionHandler, GroupCommitConfig.DEFAULT);
+  }
+
+  public DataStoreDatabase(@NotNull String dbPath,
+                           @NotNull Characteristic characteristic,
+                           @NotNull LogService logService,
+                           @NotNull Consumer<Throwable> noPiiExceptionHandler,
+                           @NotNull GroupCommitConfig commitConfig) {
     myLogService = logService;
     Connection connection = null;
+    Timer commitTimer = null;
     try {
       // For older versions of the JDBC we need to force load the sqlite.JDBC driver to trigger static initializer's and register
       // the JDBC driver with the java DriverMangaer.
@@ -65,28 +157,25 @@ public class DataStoreDatabase {
           break;
         case DURABLE:
           File dbFile = new File(dbPath);
-          // Due to an incompatible update in SQLite we do not support loading SQL files from previous versions of studio.
-          // As a intermediate measure we delete the file until we support loading existing databases.
-          // TODO: Investigate removing this when we add a feature to restore sessions from prior Studio runs.
-          if (dbFile.exists()) {
-            dbFile.delete();
-          }
-
           File parent = dbFile.getParentFile();
           if (parent != null) {
             if (!parent.mkdirs() && !parent.exists()) {
               getLogger().error("Unable to create parent directory");
             }
           }
-          connection = DriverManager.getConnection(String.format("jdbc:sqlite:%s", dbFile.getPath()));
+          connection = openDurableConnection(dbFile);
           break;
         default:
           throw new RuntimeException("Characteristic not handled!");
       }
 
-      // Performance optimization.
-      // TODO: Create a timer and commit the database transaction every X seconds.
+      // Performance optimization: changes are committed in groups, either periodically (durable databases) or on disconnect.
       connection.setAutoCommit(false);
+      if (characteristic == Characteristic.DURABLE) {
+        myLastCommitTimeMs = System.currentTimeMillis();
+        commitTimer = new Timer("DataStoreGroupCommit", true);
+        commitTimer.schedule(new GroupCommitTask(commitConfig), commitConfig.getCheckIntervalMs(), commitConfig.getCheckIntervalMs());
+      }
     }
     catch (ClassNotFoundException e) {
       getLogger().error(e);
@@ -98,28 +187,149 @@ public class DataStoreDatabase {
       noPiiExceptionHandler.accept(e);
     }
     myConnection = connection;
+    myCommitTimer = commitTimer;
   }
 
-  public void disconnect() {
+  /**
+   * Opens the database file, reusing it if it was created with the current {@link #SCHEMA_VERSION}. Files from other versions (or that
+   * aren't SQLite databases at all) are deleted, as we don't support migrating data between schemas. So are files older than
+   * {@link #RETENTION_MS}.
+   */
+  @NotNull
+  private Connection openDurableConnection(@NotNull File dbFile) throws SQLException {
+    String url = String.format("jdbc:sqlite:%s", dbFile.getPath());
+    if (dbFile.exists() && System.currentTimeMillis() - dbFile.lastModified() > RETENTION_MS) {
+      getLogger().info("Deleting database not modified for more than the retention period.");
+      deleteDatabaseFiles(dbFile);
+    }
+    if (dbFile.exists()) {
+      Connection existing = DriverManager.getConnection(url);
+      int version = -1;
+      try (Statement statement = existing.createStatement();
+           ResultSet result = statement.executeQuery("PRAGMA user_version")) {
+        version = result.getInt(1);
+      }
+      catch (SQLException e) {
+        // Not a valid database file, so it will be replaced.
+      }
+      if (version == SCHEMA_VERSION) {
+        myReopened = true;
+        configureDurableConnection(existing);
+        return existing;
+      }
+      existing.close();
+      getLogger().info(String.format("Deleting database with schema version %d (current version is %d).", version, SCHEMA_VERSION));
+      deleteDatabaseFiles(dbFile);
+    }
+
+    Connection connection = DriverManager.getConnection(url);
+    configureDurableConnection(connection);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(String.format("PRAGMA user_version = %d", SCHEMA_VERSION));
+    }
+    return connection;
+  }
+
+  /**
+   * Deletes the database file along with the write-ahead log and shared memory files SQLite keeps next to it in WAL mode.
+   */
+  private void deleteDatabaseFiles(@NotNull File dbFile) {
+    if (!dbFile.delete()) {
+      getLogger().error("Unable to delete outdated database file");
+    }
+    for (String suffix : new String[]{"-wal", "-shm"}) {
+      File file = new File(dbFile.getPath() + suffix);
+      if (file.exists() && !file.delete()) {
+        getLogger().error("Unable to delete outdated database file");
+      }
+    }
+  }
+
+  /**
+   * Write-ahead logging lets readers proceed while a group of changes is being committed, and only requires syncing the log on commits.
+   */
+  private static void configureDurableConnection(@NotNull Connection connection) throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("PRAGMA journal_mode = WAL");
+      statement.execute("PRAGMA synchronous = NORMAL");
+    }
+  }
+
+  /**
+   * Whether this database was reopened from a file left by a previous run, in which case its tables still hold the data of the sessions
+   * recorded back then.
+   */
+  public boolean isReopened() {
+    return myReopened;
+  }
+
+  /**
+   * Commits the pending changes if any of the thresholds of the given config is reached.
+   */
+  @VisibleForTesting
+  public synchronized void commitIfNeeded(@NotNull GroupCommitConfig config) {
     try {
-      myConnection.commit();
+      if (myConnection.isClosed()) {
+        return;
+      }
+      long totalChanges;
+      try (Statement statement = myConnection.createStatement();
+           ResultSet result = statement.executeQuery("SELECT total_changes()")) {
+        totalChanges = result.getLong(1);
+      }
+      long pendingChanges = totalChanges - myLastCommitChanges;
+      long now = System.currentTimeMillis();
+      if (pendingChanges >= config.getCommitRowThreshold() ||
+          (pendingChanges > 0 && now - myLastCommitTimeMs >= config.getCommitIntervalMs())) {
+        myConnection.commit();
+        myLastCommitChanges = totalChanges;
+        myLastCommitTimeMs = now;
+      }
     }
     catch (SQLException e) {
-      getLogger().error(e);
+      // The commit is retried on the next check, e.g. if a write statement was in progress on another thread.
+      getLogger().warn(e);
+    }
+  }
+
+  public void disconnect() {
+    if (myCommitTimer != null) {
+      myCommitTimer.cancel();
     }
-    finally {
+    synchronized (this) {
       try {
-        if (!myConnection.isClosed()) {
-          myConnection.close();
-        }
+        myConnection.commit();
       }
       catch (SQLException e) {
         getLogger().error(e);
       }
+      finally {
+        try {
+          if (!myConnection.isClosed()) {
+            myConnection.close();
+          }
+        }
+        catch (SQLException e) {
+          getLogger().error(e);
+        }
+      }
     }
   }
 
   public Connection getConnection() {
     return myConnection;
   }
+
+  private final class GroupCommitTask extends TimerTask {
+    @NotNull private final GroupCommitConfig myConfig;
+
+    GroupCommitTask(@NotNull GroupCommitConfig config) {
+      myConfig = config;
+    }
+
+    @Override
+    public void run() {
+      commitIfNeeded(myConfig);
+    }
+  }
 }
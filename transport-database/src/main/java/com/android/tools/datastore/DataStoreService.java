@@ -19,7 +19,9 @@ import static com.android.tools.datastore.DataStoreDatabase.Characteristic.DURAB
 import static com.android.tools.idea.flags.StudioFlags.PROFILER_UNIFIED_PIPELINE;
 
 import com.android.tools.analytics.UsageTracker;
+import com.android.tools.datastore.database.BatchedInsertQueue;
 import com.android.tools.datastore.database.DataStoreTable;
+import com.android.tools.datastore.database.UnifiedEventsCache;
 import com.android.tools.datastore.database.UnifiedEventsTable;
 import com.android.tools.datastore.service.CpuService;
 import com.android.tools.datastore.service.EnergyService;
@@ -77,6 +79,10 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
    */
   private static final long REPORT_INITIAL_DELAY = TimeUnit.MINUTES.toMillis(15);
   private static final long REPORT_PERIOD = TimeUnit.HOURS.toMillis(1);
+  /**
+   * Maximum time inserts into the {@link UnifiedEventsTable} wait in its queue before being written to the database.
+   */
+  private static final long INSERT_FLUSH_PERIOD = 100;
   /**
    * Stream 0 is reserved for datastore metadata. Events stored in this stream are generated by the datastore
    * and can be queried via the events pipeline. Example data pushed into this stream are stream connected / disconnected events.
@@ -131,6 +137,9 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
   private final Map<Long, DataStoreClient> myConnectedClients = new HashMap<>();
 
   private final Timer myReportTimer;
+  private final Timer myInsertFlushTimer;
+  // Null if a subclass doesn't create the default pollers.
+  @Nullable private UnifiedEventsTable myUnifiedTable;
 
   /**
    * @param fetchExecutor A callback which is given a {@link Runnable} for each datastore service.
@@ -169,6 +178,13 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
 
     myReportTimer = new Timer("DataStoreReportTimer");
     myReportTimer.schedule(new ReportTimerTask(), REPORT_INITIAL_DELAY, REPORT_PERIOD);
+    myInsertFlushTimer = new Timer("DataStoreInsertFlushTimer", true);
+    myInsertFlushTimer.schedule(new TimerTask() {
+      @Override
+      public void run() {
+        flushQueuedInserts();
+      }
+    }, INSERT_FLUSH_PERIOD, INSERT_FLUSH_PERIOD);
     DataStoreTable.addDataStoreErrorCallback(this);
   }
 
@@ -196,13 +212,13 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
   public void createPollers() {
     // TODO b/73538507 shared between all services to support inserting file content into generic byte cache (e.g. importing hprof)
     // We should be able to keep this inside TransportService after legacy pipeline removal.
-    UnifiedEventsTable unifiedTable = new UnifiedEventsTable();
-    myTransportService = new TransportService(this, unifiedTable, myFetchExecutor, !PROFILER_UNIFIED_PIPELINE.get());
+    myUnifiedTable = new UnifiedEventsTable();
+    myTransportService = new TransportService(this, myUnifiedTable, myFetchExecutor, !PROFILER_UNIFIED_PIPELINE.get());
     registerService(myTransportService);
     registerService(new ProfilerService(this, myLogService));
     registerService(new EventService(this, myFetchExecutor));
     registerService(new CpuService(this, myFetchExecutor, myLogService));
-    registerService(new MemoryService(this, unifiedTable, myFetchExecutor, myLogService));
+    registerService(new MemoryService(this, myUnifiedTable, myFetchExecutor, myLogService));
     registerService(new NetworkService(this, myFetchExecutor));
     registerService(new EnergyService(this, myFetchExecutor, myLogService));
   }
@@ -273,10 +289,20 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
       client.getChannel().shutdownNow();
     }
     myConnectedClients.clear();
+    myInsertFlushTimer.cancel();
+    // Write the last queued inserts before the connections are closed.
+    flushQueuedInserts();
     myDatabases.forEach((name, db) -> db.disconnect());
     DataStoreTable.removeDataStoreErrorCallback(this);
   }
 
+  private void flushQueuedInserts() {
+    UnifiedEventsTable table = myUnifiedTable;
+    if (table != null) {
+      table.flush();
+    }
+  }
+
   @VisibleForTesting
   List<ServicePassThrough> getRegisteredServices() {
     return myServices;
@@ -403,6 +429,28 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
         .setAndroidProfilerDbStats(dbStats);
 
       UsageTracker.log(event);
+      logTableStats();
+    }
+
+    private void logTableStats() {
+      UnifiedEventsTable table = myUnifiedTable;
+      if (table == null) {
+        return;
+      }
+      UnifiedEventsCache.Stats cacheStats = table.getEventCacheStats();
+      getLogger().info(String.format("Event cache: %d bucket hits, %d bucket misses, %d events in %d buckets",
+                                     cacheStats.getHitCount(), cacheStats.getMissCount(), cacheStats.getCachedEventCount(),
+                                     cacheStats.getCachedBucketCount()));
+      logInsertStats("Event", table.getEventInsertStats());
+      logInsertStats("Bytes", table.getBytesInsertStats());
+    }
+
+    private void logInsertStats(@NotNull String name, @NotNull BatchedInsertQueue.Stats stats) {
+      getLogger().info(String.format("%s inserts: %d rows in %d batches, %d queued, %d us average and %d us max flush latency, " +
+                                     "%d backpressure flushes",
+                                     name, stats.getFlushedItemCount(), stats.getFlushCount(), stats.getQueueDepth(),
+                                     TimeUnit.NANOSECONDS.toMicros(stats.getAverageFlushLatencyNs()),
+                                     TimeUnit.NANOSECONDS.toMicros(stats.getMaxFlushLatencyNs()), stats.getBackpressureCount()));
     }
 
     private void collectReport(AndroidProfilerDbStats.Builder dbStats) {
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.datastore.database;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A bounded queue in front of a {@link DataStoreTable} that coalesces single-row inserts into batches, so producers (e.g. pollers) don't
+ * pay for one statement execution per row.
+ * <p>
+ * Producers add items without taking any lock. Items are flushed to the table as a single batch when {@link #myBatchSize} items are
+ * queued, or explicitly through {@link #flush()}. The owner of the queue is expected to flush it periodically so items don't wait for a
+ * full batch indefinitely, and tables must flush it before reading so queued rows are always visible to queries. If producers outpace
+ * flushing and the queue reaches {@link #myCapacity} items, producers flush themselves, which applies backpressure.
+ */
+public final class BatchedInsertQueue<E> {
+  @NotNull private final ConcurrentLinkedQueue<E> myQueue = new ConcurrentLinkedQueue<>();
+  @NotNull private final AtomicInteger mySize = new AtomicInteger();
+  @NotNull private final ReentrantLock myFlushLock = new ReentrantLock();
+  @NotNull private final Consumer<List<E>> myBatchWriter;
+  private final int myBatchSize;
+  private final int myCapacity;
+
+  @NotNull private final AtomicLong myFlushCount = new AtomicLong();
+  @NotNull private final AtomicLong myFlushedItemCount = new AtomicLong();
+  @NotNull private final AtomicLong myTotalFlushLatencyNs = new AtomicLong();
+  @NotNull private final AtomicLong myMaxFlushLatencyNs = new AtomicLong();
+  @NotNull private final AtomicLong myBackpressureCount = new AtomicLong();
+
+  /**
+   * @param batchSize   number of queued items that triggers a flush.
+   * @param capacity    number of queued items at which producers start flushing synchronously.
+   * @param batchWriter writes a batch of items to the table, e.g. through {@link DataStoreTable#executeBatch}.
+   */
+  public BatchedInsertQueue(int batchSize, int capacity, @NotNull Consumer<List<E>> batchWriter) {
+    assert batchSize > 0 && capacity >= batchSize;
+    myBatchSize = batchSize;
+    myCapacity = capacity;
+    myBatchWriter = batchWriter;
+  }
+
+  public void add(@NotNull E item) {
+    myQueue.add(item);
+    int size = mySize.incrementAndGet();
+    if (size >= myCapacity) {
+      myBackpressureCount.incrementAndGet();
+      flush();
+    }
+    else if (size >= myBatchSize && myFlushLock.tryLock()) {
+      // Only one producer needs to flush a full batch, the others keep going.
+      try {
+        flushLocked();
+      }
+      finally {
+        myFlushLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Writes every queued item to the table, waiting for any flush in progress to finish first. When this method returns, every item added
+   * before the call is in the table.
+   */
+  public void flush() {
+    if (mySize.get() == 0 && !myFlushLock.isLocked()) {
+      return;
+    }
+    myFlushLock.lock();
+    try {
+      flushLocked();
+    }
+    finally {
+      myFlushLock.unlock();
+    }
+  }
+
+  private void flushLocked() {
+    if (mySize.get() == 0) {
+      return;
+    }
+    long startTime = System.nanoTime();
+    List<E> batch = new ArrayList<>(Math.min(mySize.get(), myCapacity));
+    E item;
+    while ((item = myQueue.poll()) != null) {
+      batch.add(item);
+    }
+    mySize.addAndGet(-batch.size());
+    if (batch.isEmpty()) {
+      return;
+    }
+    myBatchWriter.accept(batch);
+
+    long latency = System.nanoTime() - startTime;
+    myFlushCount.incrementAndGet();
+    myFlushedItemCount.addAndGet(batch.size());
+    myTotalFlushLatencyNs.addAndGet(latency);
+    myMaxFlushLatencyNs.accumulateAndGet(latency, Math::max);
+  }
+
+  @NotNull
+  public Stats getStats() {
+    return new Stats(mySize.get(), myFlushCount.get(), myFlushedItemCount.get(), myTotalFlushLatencyNs.get(), myMaxFlushLatencyNs.get(),
+                     myBackpressureCount.get());
+  }
+
+  /**
+   * A snapshot of the state of a {@link BatchedInsertQueue}, to monitor whether flushing keeps up with producers.
+   */
+  public static final class Stats {
+    private final int myQueueDepth;
+    private final long myFlushCount;
+    private final long myFlushedItemCount;
+    private final long myTotalFlushLatencyNs;
+    private final long myMaxFlushLatencyNs;
+    private final long myBackpressureCount;
+
+    Stats(int queueDepth, long flushCount, long flushedItemCount, long totalFlushLatencyNs, long maxFlushLatencyNs,
+          long backpressureCount) {
+      myQueueDepth = queueDepth;
+      myFlushCount = flushCount;
+      myFlushedItemCount = flushedItemCount;
+      myTotalFlushLatencyNs = totalFlushLatencyNs;
+      myMaxFlushLatencyNs = maxFlushLatencyNs;
+      myBackpressureCount = backpressureCount;
+    }
+
+    /**
+     * Number of items waiting to be flushed.
+     */
+    public int getQueueDepth() {
+      return myQueueDepth;
+    }
+
+    public long getFlushCount() {
+      return myFlushCount;
+    }
+
+    public long getFlushedItemCount() {
+      return myFlushedItemCount;
+    }
+
+    public long getAverageFlushLatencyNs() {
+      return myFlushCount == 0 ? 0 : myTotalFlushLatencyNs / myFlushCount;
+    }
+
+    public long getMaxFlushLatencyNs() {
+      return myMaxFlushLatencyNs;
+    }
+
+    /**
+     * Number of times a producer found the queue full and had to flush it itself.
+     */
+    public long getBackpressureCount() {
+      return myBackpressureCount;
+    }
+  }
+}
@@ -99,27 +99,52 @@ public abstract class DataStoreTable<T extends Enum> {
     return myStatementMap.get();
   }
 
+  /**
+   * Creates the table if it doesn't exist yet. Tables of durable databases reopened from a previous run (see
+   * {@link com.android.tools.datastore.DataStoreDatabase#isReopened()}) are kept along with their data, unless their columns changed since,
+   * in which case they are recreated empty.
+   */
   protected void createTable(@NotNull String table, String... columns) throws SQLException {
-    myConnection.createStatement().execute(String.format("DROP TABLE IF EXISTS %s ", table));
-    StringBuilder statement = new StringBuilder();
-    statement.append(String.format("CREATE TABLE %s", table));
-    executeUniqueStatement(statement, columns);
+    createSchemaObject("TABLE", table, String.format("CREATE TABLE %s ( %s )", table, String.join(",", columns)));
   }
 
   protected void createUniqueIndex(@NotNull String table, String... indexList) throws SQLException {
-    StringBuilder statement = new StringBuilder();
-    statement.append(String.format("CREATE UNIQUE INDEX IF NOT EXISTS idx_%s_pk ON %s", table, table));
-    executeUniqueStatement(statement, indexList);
+    String index = String.format("idx_%s_pk", table);
+    createSchemaObject("INDEX", index, String.format("CREATE UNIQUE INDEX %s ON %s ( %s )", index, table, String.join(",", indexList)));
   }
 
   protected void createIndex(@NotNull String table, int indexId, String... indexList) throws SQLException {
-    StringBuilder statement = new StringBuilder();
-    statement.append(String.format(Locale.US, "CREATE INDEX IF NOT EXISTS idx_%s_%d_pk ON %s", table, indexId, table));
-    executeUniqueStatement(statement, indexList);
+    String index = String.format(Locale.US, "idx_%s_%d_pk", table, indexId);
+    createSchemaObject("INDEX", index, String.format("CREATE INDEX %s ON %s ( %s )", index, table, String.join(",", indexList)));
   }
 
-  private void executeUniqueStatement(@NotNull StringBuilder statement, @NotNull String[] params) throws SQLException {
-    myConnection.createStatement().execute(String.format("%s ( %s )", statement, String.join(",", params)));
+  /**
+   * Executes the given CREATE statement unless the database already has an object with the same name and definition. An object with the
+   * same name but another definition is dropped first, so schema changes don't need to be versioned by hand.
+   * <p>
+   * SQLite stores the statement an object was created with in sqlite_master. Our statements are already in the normalized form SQLite
+   * stores (upper case keywords, single spaces), so the stored text can be compared with the statement directly.
+   */
+  private void createSchemaObject(@NotNull String type, @NotNull String name, @NotNull String createStatement) throws SQLException {
+    String existingStatement = null;
+    try (PreparedStatement query = myConnection.prepareStatement("SELECT sql FROM sqlite_master WHERE type = ? AND name = ?")) {
+      query.setString(1, type.toLowerCase(Locale.US));
+      query.setString(2, name);
+      try (ResultSet result = query.executeQuery()) {
+        if (result.next()) {
+          existingStatement = result.getString(1);
+        }
+      }
+    }
+    if (createStatement.equals(existingStatement)) {
+      return;
+    }
+    try (Statement statement = myConnection.createStatement()) {
+      if (existingStatement != null) {
+        statement.execute(String.format("DROP %s %s", type, name));
+      }
+      statement.execute(createStatement);
+    }
   }
 
   protected void createStatement(@NotNull T statement, @NotNull String stmt) throws SQLException {
@@ -132,7 +157,8 @@ public abstract class DataStoreTable<T extends Enum> {
 
   /**
    * Executes a bulk operation on the table. This is an optimization when inserting / deleting multiple items from
-   * the database.
+   * the database. If the batch fails, its items are executed again one at a time so that a single bad item doesn't drop the others, which
+   * requires the statement to be idempotent, e.g. INSERT OR IGNORE.
    * @param statement which statement to execute
    * @param batchParams a list of objects to be put into the database.
    * @param paramConverter a callback that converts each object to an array of data. The array of data will be applied to the input params
@@ -153,6 +179,8 @@ public abstract class DataStoreTable<T extends Enum> {
         }
       });
       int[] results = stmt.executeBatch();
+      // Like execute, don't keep the parameters of the last element alive in the cached statement.
+      stmt.clearParameters();
       for(int i = 0; i < results.length; i++) {
         if (results[i] == Statement.EXECUTE_FAILED) {
           throw new SQLException(String.format("Failed to insert batch element %d with result %d", i, results[i]));
@@ -161,6 +189,40 @@ public abstract class DataStoreTable<T extends Enum> {
     }
     catch (SQLException ex) {
       onError(ex);
+      executeEach(statement, batchParams, paramConverter);
+    }
+  }
+
+  /**
+   * Executes the statement of a failed batch for each of its items, and reports how many of them failed again.
+   */
+  private <K> void executeEach(@NotNull T statement, @NotNull List<K> batchParams, @NotNull Function<K, Object[]> paramConverter) {
+    PreparedStatement stmt = getStatementMap().get(statement);
+    int failedCount = 0;
+    try {
+      // A failed batch keeps the items that weren't executed.
+      stmt.clearBatch();
+    }
+    catch (SQLException ex) {
+      onError(ex);
+    }
+    for (K object : batchParams) {
+      try {
+        applyParams(stmt, paramConverter.apply(object));
+        stmt.execute();
+      }
+      catch (SQLException ex) {
+        failedCount++;
+      }
+    }
+    try {
+      stmt.clearParameters();
+    }
+    catch (SQLException ex) {
+      onError(ex);
+    }
+    if (failedCount > 0) {
+      onError(new SQLException(String.format(Locale.US, "Lost %d of %d batch elements", failedCount, batchParams.size())));
     }
   }
 
@@ -208,6 +270,16 @@ public abstract class DataStoreTable<T extends Enum> {
     return statement.executeQuery();
   }
 
+  /**
+   * Executes a statement that only runs once and isn't worth caching, such as a cleanup done when the table is initialized.
+   */
+  protected void executeOneTimeUpdate(@NotNull String sql, Object... params) throws SQLException {
+    try (PreparedStatement statement = myConnection.prepareStatement(sql)) {
+      applyParams(statement, params);
+      statement.executeUpdate();
+    }
+  }
+
   protected void applyParams(@NotNull PreparedStatement statement, Object... params) throws SQLException {
     for (int i = 0; params != null && i < params.length; i++) {
       if (params[i] == null) {
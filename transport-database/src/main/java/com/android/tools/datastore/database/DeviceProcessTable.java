@@ -24,6 +24,8 @@ import com.android.tools.idea.protobuf.InvalidProtocolBufferException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import org.jetbrains.annotations.NotNull;
 
 public class DeviceProcessTable extends DataStoreTable<DeviceProcessTable.Statements> {
@@ -71,12 +73,33 @@ public class DeviceProcessTable extends DataStoreTable<DeviceProcessTable.Statem
                   "StartTime INTEGER", "Arch STRING NOT NULL", "AgentStatus INTEGER");
       createUniqueIndex("DevicesTable", "DeviceId");
       createUniqueIndex("ProcessesTable", "DeviceId", "ProcessId");
+      disconnectStaleDevices();
     }
-    catch (SQLException ex) {
+    catch (InvalidProtocolBufferException | SQLException ex) {
       onError(ex);
     }
   }
 
+  /**
+   * Devices and processes of a database reopened from a previous run are no longer connected, whatever state they were last stored in.
+   */
+  private void disconnectStaleDevices() throws InvalidProtocolBufferException, SQLException {
+    executeOneTimeUpdate("UPDATE ProcessesTable SET State = ? WHERE State = ?",
+                         Common.Process.State.DEAD.getNumber(), Common.Process.State.ALIVE.getNumber());
+    List<Common.Device> staleDevices = new ArrayList<>();
+    try (ResultSet results = executeOneTimeQuery("SELECT Data FROM DevicesTable", new Object[0])) {
+      while (results.next()) {
+        Common.Device device = Common.Device.parseFrom(results.getBytes(1));
+        if (device.getState() == Common.Device.State.ONLINE) {
+          staleDevices.add(device.toBuilder().setState(Common.Device.State.DISCONNECTED).build());
+        }
+      }
+    }
+    for (Common.Device device : staleDevices) {
+      executeOneTimeUpdate("UPDATE DevicesTable SET Data = ? WHERE DeviceId = ?", device.toByteArray(), device.getDeviceId());
+    }
+  }
+
   @NotNull
   public GetDevicesResponse getDevices() {
     if (isClosed()) {
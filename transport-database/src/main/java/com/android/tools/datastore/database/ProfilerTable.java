@@ -45,6 +45,9 @@ public class ProfilerTable extends DataStoreTable<ProfilerTable.ProfilerStatemen
                   "EndTime INTEGER", "StartTimeEpochMs INTEGER", "Name TEXT", "ProcessAbi TEXT", "JvmtiEnabled INTEGER",
                   "LiveAllocationEnabled INTEGER", "TypeId INTEGER");
       createUniqueIndex("Profiler_Sessions", "SessionId");
+      // Sessions still live in a database reopened from a previous run belong to processes we are no longer connected to. Their actual
+      // end time is unknown, so end them where they started rather than letting them show up as live.
+      executeOneTimeUpdate("UPDATE Profiler_Sessions SET EndTime = StartTime WHERE EndTime = ?", Long.MAX_VALUE);
     }
     catch (SQLException ex) {
       onError(ex);
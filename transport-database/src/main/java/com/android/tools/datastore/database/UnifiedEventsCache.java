@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.datastore.database;
+
+import com.android.tools.profiler.proto.Common.Event;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Read-through cache of parsed {@link Event}s for the range queries of {@link UnifiedEventsTable#queryUnifiedEventGroups}.
+ * <p>
+ * Events are cached per partition, i.e. per (stream id, pid, kind) filter of a query where 0 matches any stream or pid, in buckets of
+ * {@link #BUCKET_WIDTH_NS}. Buckets are loaded from the database on a miss, evicted in least recently used order once the cache holds
+ * {@link #MAX_CACHED_EVENTS} events or {@link #MAX_CACHED_BUCKETS} buckets, and dropped individually when an event is written into their
+ * time span, so the profiler timeline asking for the same range on every tick only reloads the most recent bucket.
+ */
+public final class UnifiedEventsCache {
+  static final long BUCKET_WIDTH_NS = 1_000_000_000L;
+  /**
+   * Ranges spanning more buckets than this aren't cached, as they are more likely one-off queries than the visible timeline range.
+   */
+  static final int MAX_BUCKETS_PER_QUERY = 128;
+  static final int MAX_CACHED_EVENTS = 50_000;
+  /**
+   * Limits the number of buckets regardless of their size, as the empty buckets of sparse partitions don't count towards
+   * {@link #MAX_CACHED_EVENTS}.
+   */
+  static final int MAX_CACHED_BUCKETS = 10_000;
+
+  /**
+   * Loads the events of a partition within [fromTimestamp, toTimestamp), sorted by timestamp.
+   */
+  interface BucketLoader {
+    @NotNull
+    List<Event> load(long fromTimestamp, long toTimestamp);
+  }
+
+  private final LinkedHashMap<BucketKey, List<Event>> myBuckets = new LinkedHashMap<>(16, 0.75f, true);
+  private int myCachedEventCount;
+  /**
+   * Incremented on every invalidation. Buckets loaded while it changed may be missing the new data and aren't cached.
+   */
+  private long myGeneration;
+  private long myHitCount;
+  private long myMissCount;
+
+  /**
+   * @return the events of the given partition within [fromTimestamp, toTimestamp], sorted by timestamp, or null if the range is too large
+   * to be cached.
+   */
+  @Nullable
+  List<Event> getEvents(long streamId, int pid, @NotNull Event.Kind kind, long fromTimestamp, long toTimestamp,
+                        @NotNull BucketLoader loader) {
+    long firstBucket = Math.floorDiv(fromTimestamp, BUCKET_WIDTH_NS);
+    long lastBucket = Math.floorDiv(toTimestamp, BUCKET_WIDTH_NS);
+    if (toTimestamp < fromTimestamp ||
+        toTimestamp > Long.MAX_VALUE - BUCKET_WIDTH_NS ||
+        lastBucket - firstBucket >= MAX_BUCKETS_PER_QUERY) {
+      return null;
+    }
+
+    int bucketCount = (int)(lastBucket - firstBucket + 1);
+    List<List<Event>> buckets = new ArrayList<>(bucketCount);
+    long generation;
+    synchronized (this) {
+      for (long bucket = firstBucket; bucket <= lastBucket; bucket++) {
+        List<Event> events = myBuckets.get(new BucketKey(streamId, pid, kind, bucket));
+        buckets.add(events);
+        if (events == null) {
+          myMissCount++;
+        }
+        else {
+          myHitCount++;
+        }
+      }
+      generation = myGeneration;
+    }
+
+    // Load runs of missing buckets with one query each, outside of the lock.
+    List<BucketKey> loadedKeys = new ArrayList<>();
+    List<List<Event>> loadedBuckets = new ArrayList<>();
+    for (int i = 0; i < bucketCount; ) {
+      if (buckets.get(i) != null) {
+        i++;
+        continue;
+      }
+      int runEnd = i;
+      while (runEnd + 1 < bucketCount && buckets.get(runEnd + 1) == null) {
+        runEnd++;
+      }
+      long runStartTimestamp = (firstBucket + i) * BUCKET_WIDTH_NS;
+      List<Event> runEvents = loader.load(runStartTimestamp, (firstBucket + runEnd + 1) * BUCKET_WIDTH_NS);
+      int eventIndex = 0;
+      for (int j = i; j <= runEnd; j++) {
+        long bucketEnd = (firstBucket + j + 1) * BUCKET_WIDTH_NS;
+        List<Event> bucketEvents = new ArrayList<>();
+        while (eventIndex < runEvents.size() && runEvents.get(eventIndex).getTimestamp() < bucketEnd) {
+          bucketEvents.add(runEvents.get(eventIndex++));
+        }
+        buckets.set(j, bucketEvents);
+        loadedKeys.add(new BucketKey(streamId, pid, kind, firstBucket + j));
+        loadedBuckets.add(bucketEvents);
+      }
+      i = runEnd + 1;
+    }
+
+    if (!loadedKeys.isEmpty()) {
+      synchronized (this) {
+        if (generation == myGeneration) {
+          for (int i = 0; i < loadedKeys.size(); i++) {
+            List<Event> previous = myBuckets.put(loadedKeys.get(i), loadedBuckets.get(i));
+            myCachedEventCount += loadedBuckets.get(i).size() - (previous == null ? 0 : previous.size());
+          }
+          evictIfNeeded();
+        }
+      }
+    }
+
+    List<Event> result = new ArrayList<>();
+    for (List<Event> bucket : buckets) {
+      for (Event event : bucket) {
+        if (event.getTimestamp() >= fromTimestamp && event.getTimestamp() <= toTimestamp) {
+          result.add(event);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Drops the buckets the event belongs to. Must be called after the event is written to the database.
+   */
+  synchronized void invalidate(long streamId, @NotNull Event event) {
+    myGeneration++;
+    long bucket = Math.floorDiv(event.getTimestamp(), BUCKET_WIDTH_NS);
+    // The event is part of the partitions filtering on its stream and pid, as well as the ones matching any stream or pid.
+    remove(new BucketKey(streamId, event.getPid(), event.getKind(), bucket));
+    remove(new BucketKey(streamId, 0, event.getKind(), bucket));
+    remove(new BucketKey(0, event.getPid(), event.getKind(), bucket));
+    remove(new BucketKey(0, 0, event.getKind(), bucket));
+  }
+
+  /**
+   * Drops all the buckets of the given kind. Must be called after events are deleted from the database.
+   */
+  synchronized void invalidate(@NotNull Event.Kind kind) {
+    myGeneration++;
+    Iterator<Map.Entry<BucketKey, List<Event>>> iterator = myBuckets.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<BucketKey, List<Event>> entry = iterator.next();
+      if (entry.getKey().myKind == kind) {
+        myCachedEventCount -= entry.getValue().size();
+        iterator.remove();
+      }
+    }
+  }
+
+  synchronized long getHitCount() {
+    return myHitCount;
+  }
+
+  synchronized long getMissCount() {
+    return myMissCount;
+  }
+
+  synchronized int getCachedEventCount() {
+    return myCachedEventCount;
+  }
+
+  synchronized int getCachedBucketCount() {
+    return myBuckets.size();
+  }
+
+  @NotNull
+  synchronized Stats getStats() {
+    return new Stats(myHitCount, myMissCount, myCachedEventCount, myBuckets.size());
+  }
+
+  private void remove(@NotNull BucketKey key) {
+    List<Event> removed = myBuckets.remove(key);
+    if (removed != null) {
+      myCachedEventCount -= removed.size();
+    }
+  }
+
+  private void evictIfNeeded() {
+    Iterator<List<Event>> iterator = myBuckets.values().iterator();
+    while ((myCachedEventCount > MAX_CACHED_EVENTS || myBuckets.size() > MAX_CACHED_BUCKETS) && iterator.hasNext()) {
+      myCachedEventCount -= iterator.next().size();
+      iterator.remove();
+    }
+  }
+
+  /**
+   * A snapshot of the state of a {@link UnifiedEventsCache}, to monitor how many bucket lookups it saves.
+   */
+  public static final class Stats {
+    private final long myHitCount;
+    private final long myMissCount;
+    private final int myCachedEventCount;
+    private final int myCachedBucketCount;
+
+    Stats(long hitCount, long missCount, int cachedEventCount, int cachedBucketCount) {
+      myHitCount = hitCount;
+      myMissCount = missCount;
+      myCachedEventCount = cachedEventCount;
+      myCachedBucketCount = cachedBucketCount;
+    }
+
+    /**
+     * Number of buckets found in the cache.
+     */
+    public long getHitCount() {
+      return myHitCount;
+    }
+
+    /**
+     * Number of buckets loaded from the database.
+     */
+    public long getMissCount() {
+      return myMissCount;
+    }
+
+    public int getCachedEventCount() {
+      return myCachedEventCount;
+    }
+
+    public int getCachedBucketCount() {
+      return myCachedBucketCount;
+    }
+  }
+
+  private static final class BucketKey {
+    private final long myStreamId;
+    private final int myPid;
+    @NotNull private final Event.Kind myKind;
+    private final long myBucket;
+
+    private BucketKey(long streamId, int pid, @NotNull Event.Kind kind, long bucket) {
+      myStreamId = streamId;
+      myPid = pid;
+      myKind = kind;
+      myBucket = bucket;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof BucketKey)) {
+        return false;
+      }
+      BucketKey other = (BucketKey)o;
+      return myStreamId == other.myStreamId && myPid == other.myPid && myKind == other.myKind && myBucket == other.myBucket;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(myStreamId, myPid, myKind, myBucket);
+    }
+  }
+}
@@ -60,6 +60,47 @@ public class UnifiedEventsTable extends DataStoreTable<UnifiedEventsTable.Statem
     }
   }
 
+  /**
+   * Number of queued rows at which inserts are written to the database as a single batch.
+   */
+  private static final int INSERT_BATCH_SIZE = 256;
+  /**
+   * Number of queued rows at which inserting threads start writing batches themselves instead of just queuing.
+   */
+  private static final int INSERT_QUEUE_CAPACITY = 4096;
+
+  private static final class EventInsert {
+    private final long myStreamId;
+    @NotNull private final Event myEvent;
+
+    private EventInsert(long streamId, @NotNull Event event) {
+      myStreamId = streamId;
+      myEvent = event;
+    }
+  }
+
+  private static final class BytesInsert {
+    private final long myStreamId;
+    @NotNull private final String myId;
+    @NotNull private final BytesResponse myResponse;
+
+    private BytesInsert(long streamId, @NotNull String id, @NotNull BytesResponse response) {
+      myStreamId = streamId;
+      myId = id;
+      myResponse = response;
+    }
+  }
+
+  @NotNull private final UnifiedEventsCache myEventCache = new UnifiedEventsCache();
+
+  @NotNull private final BatchedInsertQueue<EventInsert> myEventQueue =
+    new BatchedInsertQueue<>(INSERT_BATCH_SIZE, INSERT_QUEUE_CAPACITY, this::writeEvents);
+
+  @NotNull private final BatchedInsertQueue<BytesInsert> myBytesQueue =
+    new BatchedInsertQueue<>(INSERT_BATCH_SIZE, INSERT_QUEUE_CAPACITY,
+                             batch -> executeBatch(Statements.INSERT_BYTES, batch, insert -> new Object[]{
+                               insert.myStreamId, insert.myId, insert.myResponse.toByteArray()}));
+
   @Override
   public void prepareStatements() {
     try {
@@ -88,30 +129,103 @@ public class UnifiedEventsTable extends DataStoreTable<UnifiedEventsTable.Statem
       createTable("BytesTable", "StreamId INTEGER NOT NULL", "Id STRING NOT NULL", "Data BLOB");
       createUniqueIndex("UnifiedEventsTable", "Kind", "StreamId", "ProcessId", "GroupId", "Timestamp", "IsEnded");
       createUniqueIndex("BytesTable", "StreamId", "Id");
+      endStaleGroups();
     }
     catch (SQLException ex) {
       onError(ex);
     }
   }
 
+  /**
+   * Ends the streams, processes and sessions a database reopened from a previous run still has open. Nothing is connected to them
+   * anymore, so without this they would show up as live. Each group is ended at the last timestamp recorded for its stream.
+   */
+  private void endStaleGroups() throws SQLException {
+    List<Event> endEvents = new ArrayList<>();
+    List<Long> endStreamIds = new ArrayList<>();
+    // With a single MAX() aggregate, SQLite takes the bare columns from the row holding the maximum, i.e. the last event of each group.
+    String sql = String.format("SELECT StreamId, ProcessId, Kind, GroupId, IsEnded, MAX(ROWID), " +
+                               "(SELECT MAX(Timestamp) FROM [UnifiedEventsTable] AS Stream WHERE Stream.StreamId = Events.StreamId) " +
+                               "FROM [UnifiedEventsTable] AS Events WHERE Kind IN (%d, %d, %d) GROUP BY Kind, StreamId, ProcessId, GroupId",
+                               Event.Kind.STREAM.getNumber(), Event.Kind.PROCESS.getNumber(), Event.Kind.SESSION.getNumber());
+    try (ResultSet results = executeOneTimeQuery(sql, new Object[0])) {
+      while (results.next()) {
+        if (results.getBoolean(5)) {
+          continue;
+        }
+        endStreamIds.add(results.getLong(1));
+        endEvents.add(Event.newBuilder()
+                        .setPid(results.getInt(2))
+                        .setKind(Event.Kind.forNumber(results.getInt(3)))
+                        .setGroupId(results.getLong(4))
+                        .setTimestamp(results.getLong(7))
+                        .setIsEnded(true)
+                        .build());
+      }
+    }
+    for (int i = 0; i < endEvents.size(); i++) {
+      Event event = endEvents.get(i);
+      executeOneTimeUpdate(Statements.INSERT_EVENT.getStatement(), endStreamIds.get(i), event.getPid(), event.getGroupId(),
+                           event.getKind().getNumber(), event.getCommandId(), event.getTimestamp(), 1, event.toByteArray());
+    }
+  }
+
+  /**
+   * Queues the event for insertion. Queued events are written in batches, but are always visible to the queries of this table.
+   */
   public void insertUnifiedEvent(long streamId, @NotNull Event event) {
-    execute(Statements.INSERT_EVENT,
-            streamId,
-            event.getPid(),
-            event.getGroupId(),
-            event.getKind().getNumber(),
-            event.getCommandId(),
-            event.getTimestamp(),
-            event.getIsEnded() ? 1 : 0,
-            event.toByteArray());
+    myEventQueue.add(new EventInsert(streamId, event));
+  }
+
+  /**
+   * Writes all queued inserts to the database. Meant to be called periodically so rows don't linger in memory when inserts are too sparse
+   * to fill a batch.
+   */
+  public void flush() {
+    myEventQueue.flush();
+    myBytesQueue.flush();
+  }
+
+  @NotNull
+  public BatchedInsertQueue.Stats getEventInsertStats() {
+    return myEventQueue.getStats();
+  }
+
+  @NotNull
+  public BatchedInsertQueue.Stats getBytesInsertStats() {
+    return myBytesQueue.getStats();
+  }
+
+  @NotNull
+  public UnifiedEventsCache.Stats getEventCacheStats() {
+    return myEventCache.getStats();
   }
 
   public void deleteEvents(long streamId, int pid, long groupId, Event.Kind kind, long fromTimestamp, long toTimestamp) {
+    myEventQueue.flush();
     execute(Statements.DELETE_EVENTS, streamId, pid, groupId, kind.getNumber(), fromTimestamp, toTimestamp);
+    myEventCache.invalidate(kind);
+  }
+
+  private void writeEvents(@NotNull List<EventInsert> batch) {
+    executeBatch(Statements.INSERT_EVENT, batch, insert -> new Object[]{
+      insert.myStreamId,
+      insert.myEvent.getPid(),
+      insert.myEvent.getGroupId(),
+      insert.myEvent.getKind().getNumber(),
+      insert.myEvent.getCommandId(),
+      insert.myEvent.getTimestamp(),
+      insert.myEvent.getIsEnded() ? 1 : 0,
+      insert.myEvent.toByteArray()});
+    // Only invalidate once the events are in the database, so a concurrent cache load can't store buckets missing them.
+    for (EventInsert insert : batch) {
+      myEventCache.invalidate(insert.myStreamId, insert.myEvent);
+    }
   }
 
   @VisibleForTesting
   public List<Event> queryUnifiedEvents() {
+    myEventQueue.flush();
     return queryUnifiedEvents(Statements.QUERY_EVENTS);
   }
 
@@ -154,6 +268,7 @@ public class UnifiedEventsTable extends DataStoreTable<UnifiedEventsTable.Statem
    * @param request
    */
   public List<EventGroup> queryUnifiedEventGroups(@NotNull GetEventGroupsRequest request) {
+    myEventQueue.flush();
     ArrayList<Object> baseParams = new ArrayList<>();
     List<Object> beforeRangeParams = null;
     List<Object> afterRangeParams = null;
@@ -217,10 +332,27 @@ public class UnifiedEventsTable extends DataStoreTable<UnifiedEventsTable.Statem
       });
     }
 
-    // Query example:
-    // SELECT [Data], [GroupId] From [UnifiedEventsTable] WHERE Kind = ? AND Timestamp >= ? AND Timestamp <= ?;
-    String query = String.format(sql, "", filter.toString());
-    gatherEvents(query, inRangeQueryParams, builderGroups, Predicates.alwaysTrue());
+    // Bounded ranges are usually the visible range of the timeline, which is queried repeatedly, so they are served from the cache.
+    List<Event> cachedEvents = null;
+    if (beforeRangeParams != null && afterRangeParams != null) {
+      cachedEvents = myEventCache.getEvents(request.getStreamId(), request.getPid(), request.getKind(), request.getFromTimestamp(),
+                                            request.getToTimestamp(), (from, to) -> loadEvents(request, from, to));
+    }
+    if (cachedEvents != null) {
+      for (Event event : cachedEvents) {
+        if ((request.getGroupId() == 0 || event.getGroupId() == request.getGroupId()) &&
+            (request.getCommandId() == 0 || event.getCommandId() == request.getCommandId())) {
+          builderGroups.computeIfAbsent(event.getGroupId(), EventGroup.newBuilder()::setGroupId).addEvents(event);
+        }
+      }
+    }
+    else {
+      // Query example:
+      // SELECT [Data], [GroupId] From [UnifiedEventsTable] WHERE Kind = ? AND Timestamp >= ? AND Timestamp <= ? ORDER BY Timestamp, ROWID;
+      // The order is the same as the one of the events served from the cache.
+      String query = String.format(sql, "", filter.toString() + " ORDER BY Timestamp, ROWID");
+      gatherEvents(query, inRangeQueryParams, builderGroups, Predicates.alwaysTrue());
+    }
 
     // Gather after range events if needed.
     // Query after example:
@@ -241,11 +373,12 @@ public class UnifiedEventsTable extends DataStoreTable<UnifiedEventsTable.Statem
   }
 
   public void insertBytes(long streamId, @NotNull String id, @NotNull BytesResponse response) {
-    execute(Statements.INSERT_BYTES, streamId, id, response.toByteArray());
+    myBytesQueue.add(new BytesInsert(streamId, id, response));
   }
 
   @Nullable
   public BytesResponse getBytes(@NotNull BytesRequest request) {
+    myBytesQueue.flush();
     try {
       ResultSet results = executeQuery(Statements.GET_BYTES, request.getStreamId(), request.getId());
       if (results.next()) {
@@ -259,6 +392,45 @@ public class UnifiedEventsTable extends DataStoreTable<UnifiedEventsTable.Statem
     return null;
   }
 
+  /**
+   * Loads the events of the request's stream, pid and kind within [fromTimestamp, toTimestamp), for {@link UnifiedEventsCache}.
+   */
+  @NotNull
+  private List<Event> loadEvents(@NotNull GetEventGroupsRequest request, long fromTimestamp, long toTimestamp) {
+    StringBuilder sql = new StringBuilder("SELECT Data FROM [UnifiedEventsTable] WHERE Kind = ?");
+    List<Object> params = new ArrayList<>();
+    params.add(request.getKind().getNumber());
+    if (request.getStreamId() != 0) {
+      sql.append(" AND StreamId = ?");
+      params.add(request.getStreamId());
+    }
+    if (request.getPid() != 0) {
+      sql.append(" AND ProcessId = ?");
+      params.add(request.getPid());
+    }
+    sql.append(" AND Timestamp >= ? AND Timestamp < ? ORDER BY Timestamp, ROWID");
+    params.add(fromTimestamp);
+    params.add(toTimestamp);
+
+    List<Event> events = new ArrayList<>();
+    try {
+      ResultSet results = executeOneTimeQuery(sql.toString(), params.toArray());
+      while (results.next()) {
+        events.add(Event.parser().parseFrom(results.getBytes("Data")));
+      }
+    }
+    catch (SQLException | InvalidProtocolBufferException ex) {
+      onError(ex);
+    }
+    return events;
+  }
+
+  @VisibleForTesting
+  @NotNull
+  UnifiedEventsCache getEventCache() {
+    return myEventCache;
+  }
+
   /**
    * Executes the sql statement and passes each event through the filter. If the filter returns true, the event is added
    * to the hashmap. Otherwise it is ignored.
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.datastore.database;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+public class BatchedInsertQueueTest {
+  @Test
+  public void flushesWhenBatchIsFull() {
+    List<List<Integer>> batches = new ArrayList<>();
+    BatchedInsertQueue<Integer> queue = new BatchedInsertQueue<>(3, 10, batches::add);
+
+    queue.add(1);
+    queue.add(2);
+    assertThat(batches).isEmpty();
+    assertThat(queue.getStats().getQueueDepth()).isEqualTo(2);
+
+    queue.add(3);
+    assertThat(batches).containsExactly(Arrays.asList(1, 2, 3));
+    assertThat(queue.getStats().getQueueDepth()).isEqualTo(0);
+    assertThat(queue.getStats().getFlushCount()).isEqualTo(1);
+    assertThat(queue.getStats().getFlushedItemCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void explicitFlushWritesPartialBatch() {
+    List<List<Integer>> batches = new ArrayList<>();
+    BatchedInsertQueue<Integer> queue = new BatchedInsertQueue<>(3, 10, batches::add);
+
+    queue.flush();
+    assertThat(batches).isEmpty();
+
+    queue.add(1);
+    queue.flush();
+    assertThat(batches).containsExactly(Arrays.asList(1));
+    assertThat(queue.getStats().getBackpressureCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void concurrentProducersDontLoseItems() throws InterruptedException {
+    int threadCount = 8;
+    int itemsPerThread = 1000;
+    List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+    BatchedInsertQueue<Integer> queue = new BatchedInsertQueue<>(16, 64, written::addAll);
+
+    CountDownLatch done = new CountDownLatch(threadCount);
+    for (int i = 0; i < threadCount; i++) {
+      int thread = i;
+      new Thread(() -> {
+        for (int j = 0; j < itemsPerThread; j++) {
+          queue.add(thread * itemsPerThread + j);
+        }
+        done.countDown();
+      }).start();
+    }
+    done.await();
+    queue.flush();
+
+    assertThat(written).hasSize(threadCount * itemsPerThread);
+    assertThat(written).containsNoDuplicates();
+    BatchedInsertQueue.Stats stats = queue.getStats();
+    assertThat(stats.getQueueDepth()).isEqualTo(0);
+    assertThat(stats.getFlushedItemCount()).isEqualTo(threadCount * itemsPerThread);
+    assertThat(stats.getMaxFlushLatencyNs()).isAtLeast(stats.getAverageFlushLatencyNs());
+  }
+}
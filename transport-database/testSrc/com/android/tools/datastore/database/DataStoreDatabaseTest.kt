@@ -20,6 +20,8 @@ import org.junit.Test
 import java.io.BufferedOutputStream
 import java.io.File
 import java.io.FileOutputStream
+import java.sql.DriverManager
+import java.sql.SQLException
 
 class DataStoreDatabaseTest {
 
@@ -34,17 +36,109 @@ class DataStoreDatabaseTest {
   }
 
   @Test
-  fun testDatabaseDeletesExisitingFileOnLoad() {
+  fun testDatabaseReplacesInvalidFileOnLoad() {
     val outputStream = BufferedOutputStream(FileOutputStream(myDatabaseFile))
     outputStream.write(ByteArray(1024))
     outputStream.close()
     assertThat(myDatabaseFile.length()).isEqualTo(1024)
     val db = DataStoreDatabase(myDatabaseFile.absolutePath, DataStoreDatabase.Characteristic.DURABLE, FakeLogService())
-    assertThat(myDatabaseFile.length()).isEqualTo(0)
+    assertThat(db.isReopened).isFalse()
+    assertThat(queryLong(db, "PRAGMA user_version")).isEqualTo(DataStoreDatabase.SCHEMA_VERSION.toLong())
     db.disconnect()
     assertThat(myDatabaseFile.exists()).isTrue()
   }
 
+  @Test
+  fun testDatabaseWithMatchingSchemaVersionIsReopened() {
+    myDatabaseFile.delete()
+    var db = DataStoreDatabase(myDatabaseFile.absolutePath, DataStoreDatabase.Characteristic.DURABLE, FakeLogService())
+    db.connection.createStatement().execute("CREATE TABLE Test (Value INTEGER)")
+    db.connection.createStatement().execute("INSERT INTO Test VALUES (42)")
+    db.disconnect()
+
+    db = DataStoreDatabase(myDatabaseFile.absolutePath, DataStoreDatabase.Characteristic.DURABLE, FakeLogService())
+    assertThat(db.isReopened).isTrue()
+    assertThat(queryLong(db, "SELECT Value FROM Test")).isEqualTo(42)
+    db.disconnect()
+  }
+
+  @Test
+  fun testDatabaseWithOtherSchemaVersionIsDeleted() {
+    myDatabaseFile.delete()
+    var db = DataStoreDatabase(myDatabaseFile.absolutePath, DataStoreDatabase.Characteristic.DURABLE, FakeLogService())
+    db.connection.createStatement().execute("CREATE TABLE Test (Value INTEGER)")
+    db.connection.commit()
+    db.connection.autoCommit = true
+    db.connection.createStatement().execute("PRAGMA user_version = ${DataStoreDatabase.SCHEMA_VERSION + 1}")
+    db.disconnect()
+
+    db = DataStoreDatabase(myDatabaseFile.absolutePath, DataStoreDatabase.Characteristic.DURABLE, FakeLogService())
+    assertThat(db.isReopened).isFalse()
+    assertThat(queryLong(db, "SELECT COUNT(*) FROM sqlite_master WHERE name='Test'")).isEqualTo(0)
+    db.disconnect()
+  }
+
+  @Test
+  fun testDatabaseOlderThanRetentionIsDeleted() {
+    myDatabaseFile.delete()
+    var db = DataStoreDatabase(myDatabaseFile.absolutePath, DataStoreDatabase.Characteristic.DURABLE, FakeLogService())
+    db.connection.createStatement().execute("CREATE TABLE Test (Value INTEGER)")
+    db.disconnect()
+    myDatabaseFile.setLastModified(System.currentTimeMillis() - DataStoreDatabase.RETENTION_MS - 1000)
+
+    db = DataStoreDatabase(myDatabaseFile.absolutePath, DataStoreDatabase.Characteristic.DURABLE, FakeLogService())
+    assertThat(db.isReopened).isFalse()
+    assertThat(queryLong(db, "SELECT COUNT(*) FROM sqlite_master WHERE name='Test'")).isEqualTo(0)
+    db.disconnect()
+  }
+
+  @Test
+  fun testGroupCommitHonorsRowThreshold() {
+    myDatabaseFile.delete()
+    val config = DataStoreDatabase.GroupCommitConfig(Long.MAX_VALUE, 2)
+    val db = DataStoreDatabase(myDatabaseFile.absolutePath, DataStoreDatabase.Characteristic.DURABLE, FakeLogService(), { }, config)
+    db.connection.createStatement().execute("CREATE TABLE Test (Value INTEGER)")
+    db.connection.createStatement().execute("INSERT INTO Test VALUES (1)")
+    db.commitIfNeeded(config)
+    // A single row changed, which is below the threshold, so the changes are not visible from another connection yet.
+    assertThat(countRowsFromOtherConnection()).isEqualTo(-1)
+
+    db.connection.createStatement().execute("INSERT INTO Test VALUES (2)")
+    db.commitIfNeeded(config)
+    assertThat(countRowsFromOtherConnection()).isEqualTo(2)
+    db.disconnect()
+  }
+
+  @Test
+  fun testGroupCommitHonorsInterval() {
+    myDatabaseFile.delete()
+    val config = DataStoreDatabase.GroupCommitConfig(0, Long.MAX_VALUE)
+    val db = DataStoreDatabase(myDatabaseFile.absolutePath, DataStoreDatabase.Characteristic.DURABLE, FakeLogService(), { }, config)
+    db.connection.createStatement().execute("CREATE TABLE Test (Value INTEGER)")
+    db.connection.createStatement().execute("INSERT INTO Test VALUES (1)")
+    db.commitIfNeeded(config)
+    assertThat(countRowsFromOtherConnection()).isEqualTo(1)
+    db.disconnect()
+  }
+
+  /**
+   * Returns the number of rows of the Test table as seen by a separate connection, or -1 if the table isn't visible to it.
+   */
+  private fun countRowsFromOtherConnection(): Long {
+    DriverManager.getConnection("jdbc:sqlite:${myDatabaseFile.absolutePath}").use { connection ->
+      return try {
+        connection.createStatement().executeQuery("SELECT COUNT(*) FROM Test").use { it.getLong(1) }
+      }
+      catch (e: SQLException) {
+        -1
+      }
+    }
+  }
+
+  private fun queryLong(db: DataStoreDatabase, sql: String): Long {
+    return db.connection.createStatement().executeQuery(sql).use { it.getLong(1) }
+  }
+
   @Test
   fun testConnectionIsOpen() {
     // Verify persistent database
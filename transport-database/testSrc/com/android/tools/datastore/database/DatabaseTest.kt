@@ -39,7 +39,7 @@ import java.util.function.Consumer
 abstract class DatabaseTest<T : DataStoreTable<*>> {
   protected lateinit var table: T
   private lateinit var dbFile: File
-  private lateinit var database: DataStoreDatabase
+  protected lateinit var database: DataStoreDatabase
 
   @Before
   @Throws(Exception::class)
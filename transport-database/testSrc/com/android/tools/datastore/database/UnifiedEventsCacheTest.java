@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.datastore.database;
+
+import static com.android.tools.datastore.database.UnifiedEventsCache.BUCKET_WIDTH_NS;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.android.tools.profiler.proto.Common.Event;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class UnifiedEventsCacheTest {
+  private final List<Event> myEvents = new ArrayList<>();
+  private int myLoadCount;
+
+  private final UnifiedEventsCache.BucketLoader myLoader = (from, to) -> {
+    myLoadCount++;
+    List<Event> events = new ArrayList<>();
+    for (Event event : myEvents) {
+      if (event.getTimestamp() >= from && event.getTimestamp() < to) {
+        events.add(event);
+      }
+    }
+    return events;
+  };
+
+  @Test
+  public void missingBucketsAreLoadedOnceAndFilteredToRange() {
+    UnifiedEventsCache cache = new UnifiedEventsCache();
+    Event first = addEvent(1, 10);
+    Event second = addEvent(1, BUCKET_WIDTH_NS + 10);
+    addEvent(1, 2 * BUCKET_WIDTH_NS + 10);
+
+    assertThat(cache.getEvents(1, 1, Event.Kind.SESSION, 5, 2 * BUCKET_WIDTH_NS, myLoader)).containsExactly(first, second).inOrder();
+    // All the missing buckets are loaded with a single query.
+    assertThat(myLoadCount).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(3);
+
+    assertThat(cache.getEvents(1, 1, Event.Kind.SESSION, 5, 2 * BUCKET_WIDTH_NS, myLoader)).containsExactly(first, second).inOrder();
+    assertThat(myLoadCount).isEqualTo(1);
+    assertThat(cache.getHitCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void insertOnlyInvalidatesItsBucket() {
+    UnifiedEventsCache cache = new UnifiedEventsCache();
+    addEvent(1, 10);
+    cache.getEvents(0, 0, Event.Kind.SESSION, 1, BUCKET_WIDTH_NS + 1, myLoader);
+    assertThat(myLoadCount).isEqualTo(1);
+
+    Event inserted = addEvent(2, BUCKET_WIDTH_NS + 1);
+    cache.invalidate(2, inserted);
+    assertThat(cache.getEvents(0, 0, Event.Kind.SESSION, 1, BUCKET_WIDTH_NS + 1, myLoader)).contains(inserted);
+    assertThat(myLoadCount).isEqualTo(2);
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void bucketsLoadedDuringInvalidationAreNotCached() {
+    UnifiedEventsCache cache = new UnifiedEventsCache();
+    Event event = addEvent(1, 10);
+    UnifiedEventsCache.BucketLoader racingLoader = (from, to) -> {
+      List<Event> events = myLoader.load(from, to);
+      cache.invalidate(1, event);
+      return events;
+    };
+    cache.getEvents(1, 1, Event.Kind.SESSION, 1, 20, racingLoader);
+    assertThat(cache.getCachedEventCount()).isEqualTo(0);
+
+    cache.getEvents(1, 1, Event.Kind.SESSION, 1, 20, myLoader);
+    assertThat(cache.getCachedEventCount()).isEqualTo(1);
+    cache.invalidate(Event.Kind.SESSION);
+    assertThat(cache.getCachedEventCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void leastRecentlyUsedBucketsAreEvicted() {
+    UnifiedEventsCache cache = new UnifiedEventsCache();
+    for (int i = 0; i < UnifiedEventsCache.MAX_CACHED_EVENTS; i++) {
+      addEvent(1, i);
+    }
+    Event lastBucketEvent = addEvent(1, BUCKET_WIDTH_NS);
+    cache.getEvents(1, 1, Event.Kind.SESSION, 0, 1, myLoader);
+    assertThat(cache.getCachedEventCount()).isEqualTo(UnifiedEventsCache.MAX_CACHED_EVENTS);
+
+    // Loading another bucket goes over the limit and evicts the first one.
+    assertThat(cache.getEvents(1, 1, Event.Kind.SESSION, BUCKET_WIDTH_NS, BUCKET_WIDTH_NS, myLoader)).containsExactly(lastBucketEvent);
+    assertThat(cache.getCachedEventCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void emptyBucketsCountTowardsTheLimit() {
+    UnifiedEventsCache cache = new UnifiedEventsCache();
+    // Each query caches one more empty bucket, which doesn't hold any event.
+    for (int i = 0; i <= UnifiedEventsCache.MAX_CACHED_BUCKETS; i++) {
+      cache.getEvents(1, 1, Event.Kind.SESSION, i * BUCKET_WIDTH_NS, i * BUCKET_WIDTH_NS, myLoader);
+    }
+    assertThat(cache.getCachedEventCount()).isEqualTo(0);
+    assertThat(cache.getCachedBucketCount()).isEqualTo(UnifiedEventsCache.MAX_CACHED_BUCKETS);
+
+    // The least recently used bucket was evicted.
+    cache.getEvents(1, 1, Event.Kind.SESSION, 0, 0, myLoader);
+    assertThat(cache.getStats().getMissCount()).isEqualTo(UnifiedEventsCache.MAX_CACHED_BUCKETS + 2);
+    assertThat(cache.getStats().getHitCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void largeRangesAreNotCached() {
+    UnifiedEventsCache cache = new UnifiedEventsCache();
+    assertThat(cache.getEvents(1, 1, Event.Kind.SESSION, 0, UnifiedEventsCache.MAX_BUCKETS_PER_QUERY * BUCKET_WIDTH_NS, myLoader)).isNull();
+    assertThat(cache.getEvents(1, 1, Event.Kind.SESSION, 10, Long.MAX_VALUE, myLoader)).isNull();
+    assertThat(myLoadCount).isEqualTo(0);
+  }
+
+  private Event addEvent(int pid, long timestamp) {
+    Event event = Event.newBuilder().setKind(Event.Kind.SESSION).setPid(pid).setGroupId(pid).setTimestamp(timestamp).build();
+    myEvents.add(event);
+    return event;
+  }
+}
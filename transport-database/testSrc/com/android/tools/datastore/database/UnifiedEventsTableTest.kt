@@ -15,6 +15,7 @@
  */
 package com.android.tools.datastore.database
 
+import com.android.tools.idea.protobuf.ByteString
 import com.android.tools.profiler.proto.Common
 import com.android.tools.profiler.proto.Transport.BytesRequest
 import com.android.tools.profiler.proto.Transport.BytesResponse
@@ -59,8 +60,12 @@ class UnifiedEventsTableTest : DatabaseTest<UnifiedEventsTable>() {
 
   override fun getTableQueryMethodsForVerification(): List<Consumer<UnifiedEventsTable>> {
     val events = mutableListOf(Common.Event.newBuilder().build())
+    // Inserts are queued, so they only reach the database (and fail) once flushed.
     return mutableListOf(
-      (Consumer { it.insertUnifiedEvent(1, events[0]) }),
+      (Consumer {
+        it.insertUnifiedEvent(1, events[0])
+        it.flush()
+      }),
       (Consumer { it.deleteEvents(1, 1, 1, Common.Event.Kind.SESSION, 1, 1) }),
       (Consumer {
         it.queryUnifiedEventGroups(
@@ -69,7 +74,20 @@ class UnifiedEventsTableTest : DatabaseTest<UnifiedEventsTable>() {
       }),
       (Consumer { it.queryUnifiedEvents() }),
       (Consumer { assertThat(it.getBytes(BytesRequest.getDefaultInstance())).isEqualTo(null) }),
-      (Consumer { it.insertBytes(0, "id", BytesResponse.getDefaultInstance()) }))
+      (Consumer {
+        it.insertBytes(0, "id", BytesResponse.getDefaultInstance())
+        it.flush()
+      }),
+      (Consumer {
+        it.insertUnifiedEvent(1, events[0])
+        assertThat(it.eventInsertStats.queueDepth).isEqualTo(1)
+        it.queryUnifiedEvents()
+      }),
+      (Consumer {
+        it.insertBytes(0, "id", BytesResponse.getDefaultInstance())
+        assertThat(it.bytesInsertStats.queueDepth).isEqualTo(1)
+        it.getBytes(BytesRequest.getDefaultInstance())
+      }))
   }
 
   private fun insertData(count: Int, incrementGroupId: Boolean): List<Common.Event> {
@@ -131,6 +149,126 @@ class UnifiedEventsTableTest : DatabaseTest<UnifiedEventsTable>() {
     assertThat(eventResult).containsExactlyElementsIn(events)
   }
 
+  @Test
+  fun queuedInsertsAreVisibleToQueries() {
+    val events = insertData(3, true)
+    assertThat(table.eventInsertStats.queueDepth).isEqualTo(3)
+    assertThat(table.queryUnifiedEventGroups(GetEventGroupsRequest.newBuilder().setKind(Common.Event.Kind.SESSION).build()))
+      .hasSize(3)
+    assertThat(table.eventInsertStats.queueDepth).isEqualTo(0)
+    assertThat(table.eventInsertStats.flushCount).isEqualTo(1)
+    assertThat(table.eventInsertStats.flushedItemCount).isEqualTo(3)
+    assertThat(table.queryUnifiedEvents()).containsExactlyElementsIn(events)
+
+    val bytes = BytesResponse.newBuilder().setContents(ByteString.copyFromUtf8("bytes")).build()
+    table.insertBytes(1, "id", bytes)
+    assertThat(table.bytesInsertStats.queueDepth).isEqualTo(1)
+    assertThat(table.getBytes(BytesRequest.newBuilder().setStreamId(1).setId("id").build())).isEqualTo(bytes)
+    assertThat(table.bytesInsertStats.queueDepth).isEqualTo(0)
+  }
+
+  @Test
+  fun insertsAreWrittenInBatches() {
+    // Enough events to fill a few batches without reading in between.
+    val eventCount = 1000
+    val events = insertData(eventCount, true)
+    val stats = table.eventInsertStats
+    assertThat(stats.flushCount).isAtLeast(1L)
+    assertThat(stats.queueDepth.toLong() + stats.flushedItemCount).isEqualTo(eventCount.toLong())
+    assertThat(table.queryUnifiedEvents()).containsExactlyElementsIn(events)
+  }
+
+  @Test
+  fun deleteAppliesToQueuedInserts() {
+    insertData(1, true)
+    table.deleteEvents(1, 1, 1, Common.Event.Kind.SESSION, 1, 1)
+    assertThat(table.queryUnifiedEvents()).isEmpty()
+  }
+
+  @Test
+  fun reinitializedTableEndsStaleGroups() {
+    val liveSession = eventBuilder(Common.Event.Kind.SESSION, false, 1, 1, 0, 1)
+    val endedSession = eventBuilder(Common.Event.Kind.SESSION, false, 1, 2, 0, 2)
+    table.insertUnifiedEvent(1, liveSession)
+    table.insertUnifiedEvent(1, endedSession)
+    table.insertUnifiedEvent(1, eventBuilder(Common.Event.Kind.SESSION, true, 1, 2, 0, 3))
+    table.insertUnifiedEvent(1, eventBuilder(Common.Event.Kind.CPU_USAGE, false, 1, 0, 0, 5))
+    table.flush()
+
+    // Initializing a table on a database holding data, as when it is reopened from a previous run.
+    val reopened = createTable()
+    reopened.initialize(database.connection)
+    val groups = reopened.queryUnifiedEventGroups(GetEventGroupsRequest.newBuilder().setKind(Common.Event.Kind.SESSION).build())
+      .associateBy { it.groupId }
+    assertThat(groups[1]!!.eventsList).containsExactly(liveSession, eventBuilder(Common.Event.Kind.SESSION, true, 1, 1, 0, 5)).inOrder()
+    // Groups that were already ended are left untouched.
+    assertThat(groups[2]!!.eventsList).hasSize(2)
+  }
+
+  @Test
+  fun reinitializedTableKeepsDataUnlessSchemaChanged() {
+    insertData(2, true)
+    table.flush()
+    val reopened = createTable()
+    reopened.initialize(database.connection)
+    assertThat(reopened.queryUnifiedEvents()).hasSize(2)
+
+    // A table left with another definition is recreated.
+    database.connection.createStatement().use { it.execute("DROP TABLE UnifiedEventsTable") }
+    database.connection.createStatement().use { it.execute("CREATE TABLE UnifiedEventsTable ( OldColumn INTEGER )") }
+    val migrated = createTable()
+    migrated.initialize(database.connection)
+    assertThat(migrated.queryUnifiedEvents()).isEmpty()
+    migrated.insertUnifiedEvent(1, eventBuilder(Common.Event.Kind.SESSION, false, 1, 1, 0, 1))
+    assertThat(migrated.queryUnifiedEvents()).hasSize(1)
+  }
+
+  @Test
+  fun repeatedRangeQueriesAreServedFromCache() {
+    val request = GetEventGroupsRequest.newBuilder().setKind(Common.Event.Kind.SESSION).setStreamId(1).setFromTimestamp(2)
+      .setToTimestamp(4).build()
+    insertData(5, false)
+    val expected = table.queryUnifiedEventGroups(request)
+    val misses = table.eventCache.missCount
+
+    assertThat(table.queryUnifiedEventGroups(request)).containsExactlyElementsIn(expected)
+    assertThat(table.eventCache.missCount).isEqualTo(misses)
+    assertThat(table.eventCache.hitCount).isAtLeast(1L)
+  }
+
+  @Test
+  fun cachedAndUncachedRangesHaveTheSameOrder() {
+    val late = eventBuilder(Common.Event.Kind.SESSION, false, 1, 1, 1, 3)
+    val ended = eventBuilder(Common.Event.Kind.SESSION, true, 1, 1, 1, 2)
+    val started = eventBuilder(Common.Event.Kind.SESSION, false, 1, 1, 1, 2)
+    table.insertUnifiedEvent(1, late)
+    table.insertUnifiedEvent(1, ended)
+    table.insertUnifiedEvent(1, started)
+
+    // Events are ordered by timestamp, then by insertion order.
+    val unboundedRequest = GetEventGroupsRequest.newBuilder().setKind(Common.Event.Kind.SESSION).setFromTimestamp(1).build()
+    assertThat(table.queryUnifiedEventGroups(unboundedRequest).single().eventsList).containsExactly(ended, started, late).inOrder()
+    val boundedRequest = unboundedRequest.toBuilder().setToTimestamp(10).build()
+    assertThat(table.queryUnifiedEventGroups(boundedRequest).single().eventsList).containsExactly(ended, started, late).inOrder()
+    assertThat(table.eventCache.missCount).isGreaterThan(0L)
+  }
+
+  @Test
+  fun insertAndDeleteInvalidateCachedRange() {
+    val request = GetEventGroupsRequest.newBuilder().setKind(Common.Event.Kind.SESSION).setFromTimestamp(1).setToTimestamp(10).build()
+    insertData(2, true)
+    assertThat(table.queryUnifiedEventGroups(request)).hasSize(2)
+
+    val event = eventBuilder(Common.Event.Kind.SESSION, false, 1, 1, 3, 3)
+    table.insertUnifiedEvent(1, event)
+    val groups = table.queryUnifiedEventGroups(request)
+    assertThat(groups).hasSize(3)
+    assertThat(groups.flatMap { it.eventsList }).contains(event)
+
+    table.deleteEvents(1, 1, 3, Common.Event.Kind.SESSION, 3, 3)
+    assertThat(table.queryUnifiedEventGroups(request)).hasSize(2)
+  }
+
   @Test
   fun filterNoKind() {
     insertData(5, true)